@@ -17,6 +17,7 @@
 package org.yes.cart.bulkjob.mail;
 
 import org.slf4j.Logger;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.yes.cart.domain.entity.Mail;
 import org.yes.cart.service.domain.MailService;
@@ -26,8 +27,17 @@ import org.yes.cart.service.mail.MailComposer;
 import org.yes.cart.util.ShopCodeContext;
 
 import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
+ * Sends queued mail in batches. Mime messages of the whole batch are rendered concurrently
+ * (if render executor is configured) and then sent one by one in queue order.
+ *
  * User: denispavlov
  * Date: 10/11/2013
  * Time: 13:56
@@ -44,6 +54,8 @@ public class BulkMailProcessorImpl implements Runnable {
 
     private long delayBetweenEmailsMs;
     private int cycleExceptionsThreshold;
+    private int batchSize = 1;
+    private AsyncTaskExecutor renderExecutor;
 
     private boolean pauseInitialised = false;
 
@@ -82,39 +94,43 @@ public class BulkMailProcessorImpl implements Runnable {
 
         int exceptionsThreshold = this.cycleExceptionsThreshold;
 
-        Mail mail = mailService.findOldestMail();
-        while (mail != null) {
+        List<Mail> batch = mailService.findOldestMails(batchSize);
+        while (!batch.isEmpty()) {
 
-            log.info("Preparing mail object {}/{} for {} with subject {}",
-                    new Object[] { mail.getMailId(), mail.getShopCode(), mail.getRecipients(), mail.getSubject() });
+            final List<Future<MimeMessage>> rendered = render(batch);
 
-            final MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-
-            boolean sent = false;
-            try {
-                mailComposer.convertMessage(mail, mimeMessage);
-                javaMailSender.send(mimeMessage);
-                sent = true;
-                log.info("Sent mail to {} with subject {}", mail.getRecipients(), mail.getSubject());
-                mailService.delete(mail);
-            } catch (Exception exp) {
-                //
-                log.error("Unable to send mail " + mail.getMailId(), exp);
-                exceptionsThreshold--;
-                if (exceptionsThreshold <= 0) {
-                    return;
-                }
-            }
+            for (int i = 0; i < batch.size(); i++) {
+
+                final Mail mail = batch.get(i);
 
-            if (sent && delayBetweenEmailsMs > 0) {
+                boolean sent = false;
                 try {
-                    Thread.sleep(delayBetweenEmailsMs);
-                } catch (InterruptedException e) {
-                    // resume
+                    final MimeMessage mimeMessage = getRendered(rendered.get(i));
+                    javaMailSender.send(mimeMessage);
+                    sent = true;
+                    log.info("Sent mail to {} with subject {}", mail.getRecipients(), mail.getSubject());
+                    mailService.delete(mail);
+                } catch (Exception exp) {
+                    //
+                    log.error("Unable to send mail " + mail.getMailId(), exp);
+                    exceptionsThreshold--;
+                    if (exceptionsThreshold <= 0) {
+                        cancel(rendered);
+                        return;
+                    }
                 }
+
+                if (sent && delayBetweenEmailsMs > 0) {
+                    try {
+                        Thread.sleep(delayBetweenEmailsMs);
+                    } catch (InterruptedException e) {
+                        // resume
+                    }
+                }
+
             }
 
-            mail = mailService.findOldestMail();
+            batch = mailService.findOldestMails(batchSize);
 
         }
 
@@ -122,6 +138,70 @@ public class BulkMailProcessorImpl implements Runnable {
 
     }
 
+    /*
+     * Render all mail objects of the batch. Results are in the same order as batch.
+     */
+    private List<Future<MimeMessage>> render(final List<Mail> batch) {
+
+        final Logger log = ShopCodeContext.getLog(this);
+
+        final List<Future<MimeMessage>> rendered = new ArrayList<Future<MimeMessage>>(batch.size());
+        for (final Mail mail : batch) {
+
+            log.info("Preparing mail object {}/{} for {} with subject {}",
+                    new Object[] { mail.getMailId(), mail.getShopCode(), mail.getRecipients(), mail.getSubject() });
+
+            final Callable<MimeMessage> render = new Callable<MimeMessage>() {
+                public MimeMessage call() throws Exception {
+                    final MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+                    mailComposer.convertMessage(mail, mimeMessage);
+                    return mimeMessage;
+                }
+            };
+
+            if (renderExecutor != null) {
+                rendered.add(renderExecutor.submit(render));
+            } else {
+                rendered.add(new RenderedMessage(render));
+            }
+        }
+        return rendered;
+
+    }
+
+    private MimeMessage getRendered(final Future<MimeMessage> rendered) throws Exception {
+        try {
+            return rendered.get();
+        } catch (ExecutionException exp) {
+            if (exp.getCause() instanceof Exception) {
+                throw (Exception) exp.getCause();
+            }
+            throw exp;
+        }
+    }
+
+    private void cancel(final List<Future<MimeMessage>> rendered) {
+        for (final Future<MimeMessage> future : rendered) {
+            future.cancel(false);
+        }
+    }
+
+    /*
+     * Renders message in the calling thread when it is requested.
+     */
+    private static class RenderedMessage extends FutureTask<MimeMessage> {
+
+        private RenderedMessage(final Callable<MimeMessage> render) {
+            super(render);
+        }
+
+        @Override
+        public MimeMessage get() throws InterruptedException, ExecutionException {
+            run(); // no-op if already run
+            return super.get();
+        }
+    }
+
     /**
      * Setting to allow delay interval between sending mail. This is useful to prevent
      * bulk message be treated as spam.
@@ -142,5 +222,24 @@ public class BulkMailProcessorImpl implements Runnable {
         this.cycleExceptionsThreshold = cycleExceptionsThreshold;
     }
 
+    /**
+     * Number of mail objects loaded and rendered at once.
+     *
+     * @param batchSize batch size
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Executor to render mail objects of a batch concurrently. If not set
+     * mail objects are rendered one by one before sending.
+     *
+     * @param renderExecutor render executor
+     */
+    public void setRenderExecutor(final AsyncTaskExecutor renderExecutor) {
+        this.renderExecutor = renderExecutor;
+    }
+
 
 }
@@ -30,6 +30,9 @@ import java.util.Date;
  *
  * This is especially useful in clustered environments.
  *
+ * Product DAOs are configured to rebuild index in place (see purgeOnFullReindex in dao.xml), so
+ * storefront search stays complete while this job is running.
+ *
  * User: denispavlov
  * Date: 13/11/2013
  * Time: 15:30
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache;
+
+import java.util.Collection;
+
+/**
+ * Resolves identities of domain objects that a cache entry was built from, so that
+ * an entry can be evicted when (and only when) one of those objects changes.
+ *
+ * User: denispavlov
+ * Date: 14-06-10
+ * Time: 9:12 AM
+ */
+public interface CacheDependencyResolver {
+
+    /**
+     * Resolve dependencies of given cache entry.
+     *
+     * @param key   cache key
+     * @param value cached value (may be null)
+     *
+     * @return dependencies of this entry, empty collection if dependencies cannot be determined
+     *         (such entries are evicted on any dependency change)
+     */
+    Collection<Object> resolveDependencies(Object key, Object value);
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache;
+
+import org.yes.cart.domain.dto.impl.CacheableChangeDTOImpl;
+import org.yes.cart.service.async.model.AsyncContext;
+
+import java.util.List;
+
+/**
+ * Delivers batch of cacheable entity changes to all nodes, so that each node can invalidate
+ * its caches in one go.
+ *
+ * User: denispavlov
+ * Date: 14-06-14
+ * Time: 10:20 AM
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Publish batch of changes to all nodes.
+     *
+     * @param context context (holds credentials for remote transports)
+     * @param changes coalesced changes (no duplicates)
+     */
+    void publish(AsyncContext context, List<CacheableChangeDTOImpl> changes);
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache.impl;
+
+import org.springframework.cache.Cache;
+import org.yes.cart.cache.CacheDependencyResolver;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache decorator that records which domain objects each entry depends on, so that
+ * a change to a single object evicts only entries built from it instead of the whole cache.
+ * <p/>
+ * Entries for which dependencies cannot be resolved are tracked under a wildcard and are
+ * evicted on every dependency eviction, so this cache never serves data that
+ * {@code allEntries = true} eviction would have discarded for a tracked entry.
+ * <p/>
+ * Dependency index is bounded by {@code maxTrackedDependencies}, once the limit is reached the
+ * cache is cleared and tracking starts afresh. Keys are removed from the index when they are evicted,
+ * and lazily when a get reveals that the underlying cache has expired them.
+ * <p/>
+ * Puts (entry and its tracking) are done under shared lock and evictions under exclusive lock, so
+ * dependency eviction never runs between putting an entry and tracking it.
+ *
+ * User: denispavlov
+ * Date: 14-06-10
+ * Time: 9:20 AM
+ */
+public class DependencyTrackingCache implements Cache {
+
+    private static final Object UNRESOLVED = new Object();
+
+    private final Cache delegate;
+    private final CacheDependencyResolver dependencyResolver;
+    private final int maxTrackedDependencies;
+
+    private final ConcurrentMap<Object, Set<Object>> keysByDependency = new ConcurrentHashMap<Object, Set<Object>>();
+    private final ConcurrentMap<Object, Collection<Object>> dependenciesByKey = new ConcurrentHashMap<Object, Collection<Object>>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Construct dependency tracking decorator.
+     *
+     * @param delegate               actual cache
+     * @param dependencyResolver     dependency resolver for entries of this cache
+     * @param maxTrackedDependencies max number of dependencies to track before cache is cleared
+     */
+    public DependencyTrackingCache(final Cache delegate,
+                                   final CacheDependencyResolver dependencyResolver,
+                                   final int maxTrackedDependencies) {
+        this.delegate = delegate;
+        this.dependencyResolver = dependencyResolver;
+        this.maxTrackedDependencies = maxTrackedDependencies;
+    }
+
+    /**
+     * Evict all entries that depend on given object. If cache is not a dependency tracking
+     * cache then whole cache is cleared.
+     *
+     * @param cache      cache
+     * @param dependency dependency (e.g. product PK)
+     *
+     * @return number of evicted entries (or -1 if cache was cleared)
+     */
+    public static int evictDependent(final Cache cache, final Object dependency) {
+        if (cache instanceof DependencyTrackingCache) {
+            return ((DependencyTrackingCache) cache).evictDependent(dependency);
+        }
+        cache.clear();
+        return -1;
+    }
+
+    /**
+     * Evict all entries that depend on given object.
+     *
+     * @param dependency dependency (e.g. product PK)
+     *
+     * @return number of evicted entries
+     */
+    public int evictDependent(final Object dependency) {
+        lock.writeLock().lock();
+        try {
+            final Set<Object> keys = new HashSet<Object>();
+            addAll(keys, keysByDependency.get(dependency));
+            addAll(keys, keysByDependency.get(UNRESOLVED));
+            for (final Object key : keys) {
+                delegate.evict(key);
+                untrack(key);
+            }
+            return keys.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of dependencies currently tracked
+     */
+    int getTrackedDependencies() {
+        return keysByDependency.size();
+    }
+
+    /**
+     * @return number of keys currently tracked
+     */
+    int getTrackedKeys() {
+        return dependenciesByKey.size();
+    }
+
+    private void addAll(final Set<Object> keys, final Set<Object> toAdd) {
+        if (toAdd != null) {
+            keys.addAll(toAdd);
+        }
+    }
+
+    /*
+     * Must be called under read lock (concurrent puts are safe as all index structures are concurrent).
+     */
+    private void track(final Object key, final Object value) {
+
+        final Collection<Object> dependencies = dependencyResolver.resolveDependencies(key, value);
+        final Collection<Object> toTrack = dependencies == null || dependencies.isEmpty() ?
+                Collections.singletonList(UNRESOLVED) : dependencies;
+
+        dependenciesByKey.put(key, toTrack);
+        for (final Object dependency : toTrack) {
+            Set<Object> keys = keysByDependency.get(dependency);
+            if (keys == null) {
+                final Set<Object> newKeys = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+                keys = keysByDependency.putIfAbsent(dependency, newKeys);
+                if (keys == null) {
+                    keys = newKeys;
+                }
+            }
+            keys.add(key);
+        }
+
+    }
+
+    /*
+     * Must be called under write lock, so that empty dependency sets can be pruned safely.
+     */
+    private void untrack(final Object key) {
+
+        final Collection<Object> dependencies = dependenciesByKey.remove(key);
+        if (dependencies != null) {
+            for (final Object dependency : dependencies) {
+                final Set<Object> keys = keysByDependency.get(dependency);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByDependency.remove(dependency);
+                    }
+                }
+            }
+        }
+
+    }
+
+    /** {@inheritDoc} */
+    public String getName() {
+        return delegate.getName();
+    }
+
+    /** {@inheritDoc} */
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    /** {@inheritDoc} */
+    public ValueWrapper get(final Object key) {
+        final ValueWrapper value = delegate.get(key);
+        if (value == null && dependenciesByKey.containsKey(key)) {
+            // entry expired or was evicted by underlying cache, so we no longer need to track it
+            lock.writeLock().lock();
+            try {
+                if (delegate.get(key) == null) {
+                    untrack(key);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    public void put(final Object key, final Object value) {
+        if (keysByDependency.size() >= maxTrackedDependencies) {
+            clear();
+        }
+        lock.readLock().lock();
+        try {
+            delegate.put(key, value);
+            track(key, value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void evict(final Object key) {
+        lock.writeLock().lock();
+        try {
+            delegate.evict(key);
+            untrack(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            keysByDependency.clear();
+            dependenciesByKey.clear();
+            delegate.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+}
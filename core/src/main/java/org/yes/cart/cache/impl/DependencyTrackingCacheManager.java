@@ -0,0 +1,88 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache.impl;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.yes.cart.cache.CacheDependencyResolver;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache manager decorator that wraps configured caches into {@link DependencyTrackingCache}.
+ * Caches without configured dependency resolver are returned as is.
+ *
+ * User: denispavlov
+ * Date: 14-06-10
+ * Time: 9:45 AM
+ */
+public class DependencyTrackingCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final Map<String, CacheDependencyResolver> dependencyResolvers;
+    private final int maxTrackedDependencies;
+
+    private final ConcurrentMap<String, Cache> trackingCaches = new ConcurrentHashMap<String, Cache>();
+
+    /**
+     * Construct cache manager decorator.
+     *
+     * @param delegate               actual cache manager
+     * @param dependencyResolvers    dependency resolvers by cache name
+     * @param maxTrackedDependencies max number of tracked dependencies per cache
+     */
+    public DependencyTrackingCacheManager(final CacheManager delegate,
+                                          final Map<String, CacheDependencyResolver> dependencyResolvers,
+                                          final int maxTrackedDependencies) {
+        this.delegate = delegate;
+        this.dependencyResolvers = dependencyResolvers;
+        this.maxTrackedDependencies = maxTrackedDependencies;
+    }
+
+    /** {@inheritDoc} */
+    public Cache getCache(final String name) {
+
+        final CacheDependencyResolver resolver = dependencyResolvers.get(name);
+        if (resolver == null) {
+            return delegate.getCache(name);
+        }
+
+        Cache cache = trackingCaches.get(name);
+        if (cache == null) {
+            final Cache actual = delegate.getCache(name);
+            if (actual == null) {
+                return null;
+            }
+            cache = new DependencyTrackingCache(actual, resolver, maxTrackedDependencies);
+            final Cache existing = trackingCaches.putIfAbsent(name, cache);
+            if (existing != null) {
+                cache = existing;
+            }
+        }
+        return cache;
+
+    }
+
+    /** {@inheritDoc} */
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+}
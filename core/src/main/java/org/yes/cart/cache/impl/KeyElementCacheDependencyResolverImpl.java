@@ -0,0 +1,60 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache.impl;
+
+import org.yes.cart.cache.CacheDependencyResolver;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves dependency from cache key. Single argument methods use the argument as the key,
+ * so the key itself is the dependency. Multi argument methods must declare list key
+ * (e.g. <code>key = "{#locale, #productId}"</code>) and element at configured index is used.
+ *
+ * User: denispavlov
+ * Date: 14-06-10
+ * Time: 10:20 AM
+ */
+public class KeyElementCacheDependencyResolverImpl implements CacheDependencyResolver {
+
+    private final int index;
+
+    /**
+     * @param index index of dependency element in list keys
+     */
+    public KeyElementCacheDependencyResolverImpl(final int index) {
+        this.index = index;
+    }
+
+    /** {@inheritDoc} */
+    public Collection<Object> resolveDependencies(final Object key, final Object value) {
+        if (key instanceof List) {
+            final List keyElements = (List) key;
+            if (keyElements.size() > index && keyElements.get(index) != null) {
+                return Collections.singletonList(keyElements.get(index));
+            }
+            return Collections.emptyList();
+        }
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(key);
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache.impl;
+
+import org.yes.cart.cache.CacheInvalidationTransport;
+import org.yes.cart.domain.dto.impl.CacheableChangeDTOImpl;
+import org.yes.cart.service.async.model.AsyncContext;
+import org.yes.cart.web.service.ws.CacheDirector;
+
+import java.util.List;
+
+/**
+ * In JVM transport that applies batches directly to given cache directors (no remote calls).
+ * Useful for tests and for single JVM deployments.
+ *
+ * User: denispavlov
+ * Date: 14-06-14
+ * Time: 10:30 AM
+ */
+public class LoopbackCacheInvalidationTransportImpl implements CacheInvalidationTransport {
+
+    private final List<CacheDirector> cacheDirectors;
+
+    /**
+     * Construct transport.
+     *
+     * @param cacheDirectors cache directors that represent nodes
+     */
+    public LoopbackCacheInvalidationTransportImpl(final List<CacheDirector> cacheDirectors) {
+        this.cacheDirectors = cacheDirectors;
+    }
+
+    /** {@inheritDoc} */
+    public void publish(final AsyncContext context, final List<CacheableChangeDTOImpl> changes) {
+        for (final CacheDirector cacheDirector : cacheDirectors) {
+            cacheDirector.onCacheableChanges(changes);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache.impl;
+
+import org.yes.cart.cache.CacheDependencyResolver;
+import org.yes.cart.domain.dto.ProductSearchResultDTO;
+import org.yes.cart.domain.dto.ProductSearchResultPageDTO;
+import org.yes.cart.domain.entity.Product;
+import org.yes.cart.domain.entity.ProductSku;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resolves product PK's from cached product values: {@link Product}, {@link ProductSku},
+ * {@link ProductSearchResultDTO}, {@link ProductSearchResultPageDTO} and collections of those.
+ *
+ * User: denispavlov
+ * Date: 14-06-10
+ * Time: 10:05 AM
+ */
+public class ProductCacheDependencyResolverImpl implements CacheDependencyResolver {
+
+    /** {@inheritDoc} */
+    public Collection<Object> resolveDependencies(final Object key, final Object value) {
+        final List<Object> dependencies = new ArrayList<Object>();
+        collect(value, dependencies);
+        return dependencies;
+    }
+
+    private void collect(final Object value, final List<Object> dependencies) {
+        if (value instanceof Product) {
+            dependencies.add(((Product) value).getProductId());
+        } else if (value instanceof ProductSku) {
+            final Product product = ((ProductSku) value).getProduct();
+            if (product != null) {
+                dependencies.add(product.getProductId());
+            }
+        } else if (value instanceof ProductSearchResultDTO) {
+            dependencies.add(((ProductSearchResultDTO) value).getId());
+        } else if (value instanceof ProductSearchResultPageDTO) {
+            collect(((ProductSearchResultPageDTO) value).getResults(), dependencies);
+        } else if (value instanceof Collection) {
+            for (final Object item : (Collection) value) {
+                collect(item, dependencies);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.dto.impl;
+
+import java.io.Serializable;
+
+/**
+ * Single cacheable entity change that is sent to nodes in cache invalidation batch.
+ *
+ * User: denispavlov
+ * Date: 14-06-14
+ * Time: 10:05 AM
+ */
+public class CacheableChangeDTOImpl implements Serializable {
+
+    private String entityOperation;
+
+    private String entityName;
+
+    private Long pkValue;
+
+    public CacheableChangeDTOImpl() {
+    }
+
+    public CacheableChangeDTOImpl(final String entityOperation, final String entityName, final Long pkValue) {
+        this.entityOperation = entityOperation;
+        this.entityName = entityName;
+        this.pkValue = pkValue;
+    }
+
+    public String getEntityOperation() {
+        return entityOperation;
+    }
+
+    public void setEntityOperation(final String entityOperation) {
+        this.entityOperation = entityOperation;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public void setEntityName(final String entityName) {
+        this.entityName = entityName;
+    }
+
+    public Long getPkValue() {
+        return pkValue;
+    }
+
+    public void setPkValue(final Long pkValue) {
+        this.pkValue = pkValue;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final CacheableChangeDTOImpl that = (CacheableChangeDTOImpl) o;
+
+        if (entityName != null ? !entityName.equals(that.entityName) : that.entityName != null) return false;
+        if (entityOperation != null ? !entityOperation.equals(that.entityOperation) : that.entityOperation != null) return false;
+        if (pkValue != null ? !pkValue.equals(that.pkValue) : that.pkValue != null) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = entityOperation != null ? entityOperation.hashCode() : 0;
+        result = 31 * result + (entityName != null ? entityName.hashCode() : 0);
+        result = 31 * result + (pkValue != null ? pkValue.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return entityOperation + ":" + entityName + ":" + pkValue;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.promotion.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.yes.cart.domain.entity.AttrValueCustomer;
+import org.yes.cart.domain.entity.Customer;
+import org.yes.cart.domain.entity.CustomerShop;
+import org.yes.cart.promotion.CustomerPromotionSnapshot;
+
+import java.util.*;
+
+/**
+ * Snapshot copies all necessary data from customer entity at construction, so it has no
+ * references to persistent objects and can be safely cached.
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 1:20 PM
+ */
+public class CustomerPromotionSnapshotImpl implements CustomerPromotionSnapshot {
+
+    private static final long serialVersionUID = 20140615L;
+
+    private final String email;
+    private final String firstname;
+    private final String lastname;
+    private final String tag;
+    private final List<String> tags;
+    private final Set<String> shops;
+    private final Map<String, String> attributes;
+
+    /**
+     * Create snapshot of customer. Must be invoked within transaction, since
+     * shops and attributes are lazy.
+     *
+     * @param customer customer
+     */
+    public CustomerPromotionSnapshotImpl(final Customer customer) {
+
+        this.email = customer.getEmail();
+        this.firstname = customer.getFirstname();
+        this.lastname = customer.getLastname();
+        this.tag = customer.getTag();
+        if (StringUtils.isNotBlank(customer.getTag())) {
+            this.tags = Collections.unmodifiableList(Arrays.asList(StringUtils.split(customer.getTag(), ' ')));
+        } else {
+            this.tags = Collections.emptyList();
+        }
+
+        final Set<String> shops = new HashSet<String>();
+        if (customer.getShops() != null) {
+            for (final CustomerShop customerShop : customer.getShops()) {
+                shops.add(customerShop.getShop().getCode());
+            }
+        }
+        this.shops = Collections.unmodifiableSet(shops);
+
+        final Map<String, String> attributes = new HashMap<String, String>();
+        if (customer.getAttributes() != null) {
+            for (final AttrValueCustomer attrValue : customer.getAttributes()) {
+                if (attrValue.getAttribute() != null && attrValue.getVal() != null) {
+                    attributes.put(attrValue.getAttribute().getCode(), attrValue.getVal());
+                }
+            }
+        }
+        this.attributes = Collections.unmodifiableMap(attributes);
+
+    }
+
+    /** {@inheritDoc} */
+    public String getEmail() {
+        return email;
+    }
+
+    /** {@inheritDoc} */
+    public String getFirstname() {
+        return firstname;
+    }
+
+    /** {@inheritDoc} */
+    public String getLastname() {
+        return lastname;
+    }
+
+    /** {@inheritDoc} */
+    public String getTag() {
+        return tag;
+    }
+
+    /** {@inheritDoc} */
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isRegistered() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public Set<String> getShops() {
+        return shops;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    /** {@inheritDoc} */
+    public String getAttributeValue(final String attributeCode) {
+        return attributes.get(attributeCode);
+    }
+
+}
@@ -26,6 +26,7 @@ import org.yes.cart.shoppingcart.Total;
 import org.yes.cart.shoppingcart.impl.TotalImpl;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * User: denispavlov
@@ -34,12 +35,19 @@ import java.util.*;
  */
 public class PromotionContextImpl implements PromotionContext {
 
+    private static final Pattern CUSTOMER_VARIABLE = Pattern.compile("\\b" + PromotionCondition.VAR_CUSTOMER + "\\b");
+
     private final String shopCode;
     private final PromotionApplicationStrategy strategy;
     private final Date timestamp = new Date();
 
     private final Map<String, List<List<PromoTriplet>>> promotionBuckets = new HashMap<String, List<List<PromoTriplet>>>();
     private final Map<String, PromoTriplet> promotionByCode = new HashMap<String, PromoTriplet>();
+    private final Map<PromoTriplet, PromotionTargeting> promotionTargeting = new HashMap<PromoTriplet, PromotionTargeting>();
+
+    private volatile ItemPromotionIndex itemPromotionIndex;
+
+    private boolean customerRequired = false;
 
     public PromotionContextImpl(final String shopCode, final PromotionApplicationStrategy strategy) {
         this.shopCode = shopCode;
@@ -60,6 +68,13 @@ public class PromotionContextImpl implements PromotionContext {
         final PromoTriplet promo = new PromoTripletImpl(promotion, condition, action);
 
         promotionByCode.put(promotion.getCode(), promo);
+        promotionTargeting.put(promo, PromotionTargeting.parse(promotion.getEligibilityCondition()));
+        if (!Promotion.TYPE_CUSTOMER_TAG.equals(promotion.getPromoType())
+                && promotion.getEligibilityCondition() != null
+                && CUSTOMER_VARIABLE.matcher(promotion.getEligibilityCondition()).find()) {
+            customerRequired = true; // condition needs full customer entity
+        }
+        itemPromotionIndex = null; // rebuild on next use
 
         List<List<PromoTriplet>> buckets = promotionBuckets.get(promotion.getPromoType());
 
@@ -86,6 +101,11 @@ public class PromotionContextImpl implements PromotionContext {
         return timestamp;
     }
 
+    /** {@inheritDoc} */
+    public boolean isCustomerRequired() {
+        return customerRequired;
+    }
+
     private List<String> getCustomerTags(Customer customer) {
         if (customer != null && customer.getTag() != null) {
             return Arrays.asList(customer.getTag().split(" "));
@@ -93,8 +113,15 @@ public class PromotionContextImpl implements PromotionContext {
         return Collections.emptyList();
     }
 
+    private List<String> getCustomerTags(CustomerPromotionSnapshot customer) {
+        if (customer != null) {
+            return customer.getTags();
+        }
+        return Collections.emptyList();
+    }
+
     /** {@inheritDoc} */
-    public void applyItemPromo(final Customer customer, final MutableShoppingCart cart) {
+    public void applyItemPromo(final Customer customer, final CustomerPromotionSnapshot customerSnapshot, final MutableShoppingCart cart) {
 
         cart.removeItemPromotions(); // remove all gifts and promo prices
 
@@ -104,24 +131,27 @@ public class PromotionContextImpl implements PromotionContext {
             return;
         }
 
+        final ItemPromotionIndex index = getItemPromotionIndex(itemPromoBuckets);
+
         final Map<String, Object> context = new HashMap<String, Object>();
-        context.put(PromotionCondition.VAR_REGISTERED, customer != null);
+        context.put(PromotionCondition.VAR_REGISTERED, customerSnapshot != null);
         context.put(PromotionCondition.VAR_CUSTOMER, customer);
-        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customer));
+        context.put(PromotionCondition.VAR_CUSTOMER_SNAPSHOT, customerSnapshot);
+        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customerSnapshot));
         context.put(PromotionCondition.VAR_CART, cart);
 
         for (final CartItem item : cart.getCartItemList()) {
 
             context.put(PromotionCondition.VAR_CART_ITEM, item);
 
-            applyPromotions(itemPromoBuckets, context);
+            applyPromotions(index.getCandidates(item.getProductSkuCode()), context);
 
         }
 
     }
 
     /** {@inheritDoc} */
-    public Total applyOrderPromo(final Customer customer, final MutableShoppingCart cart, final Total itemTotal) {
+    public Total applyOrderPromo(final Customer customer, final CustomerPromotionSnapshot customerSnapshot, final MutableShoppingCart cart, final Total itemTotal) {
 
         final List<List<PromoTriplet>> orderPromoBuckets = promotionBuckets.get(Promotion.TYPE_ORDER);
 
@@ -130,9 +160,10 @@ public class PromotionContextImpl implements PromotionContext {
         }
 
         final Map<String, Object> context = new HashMap<String, Object>();
-        context.put(PromotionCondition.VAR_REGISTERED, customer != null);
+        context.put(PromotionCondition.VAR_REGISTERED, customerSnapshot != null);
         context.put(PromotionCondition.VAR_CUSTOMER, customer);
-        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customer));
+        context.put(PromotionCondition.VAR_CUSTOMER_SNAPSHOT, customerSnapshot);
+        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customerSnapshot));
         context.put(PromotionCondition.VAR_CART, cart);
         context.put(PromotionCondition.VAR_CART_ITEM_TOTAL, itemTotal);
         context.put(PromotionCondition.VAR_TMP_TOTAL, new TotalImpl().add(itemTotal));
@@ -144,7 +175,7 @@ public class PromotionContextImpl implements PromotionContext {
     }
 
     /** {@inheritDoc} */
-    public void applyShippingPromo(final Customer customer, final MutableShoppingCart cart, final Total orderTotal) {
+    public void applyShippingPromo(final Customer customer, final CustomerPromotionSnapshot customerSnapshot, final MutableShoppingCart cart, final Total orderTotal) {
 
         final List<List<PromoTriplet>> orderPromoBuckets = promotionBuckets.get(Promotion.TYPE_SHIPPING);
 
@@ -153,9 +184,10 @@ public class PromotionContextImpl implements PromotionContext {
         }
 
         final Map<String, Object> context = new HashMap<String, Object>();
-        context.put(PromotionCondition.VAR_REGISTERED, customer != null);
+        context.put(PromotionCondition.VAR_REGISTERED, customerSnapshot != null);
         context.put(PromotionCondition.VAR_CUSTOMER, customer);
-        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customer));
+        context.put(PromotionCondition.VAR_CUSTOMER_SNAPSHOT, customerSnapshot);
+        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customerSnapshot));
         context.put(PromotionCondition.VAR_CART, cart);
         context.put(PromotionCondition.VAR_CART_ORDER_TOTAL, orderTotal);
 
@@ -195,7 +227,102 @@ public class PromotionContextImpl implements PromotionContext {
     private void applyPromotions(final List<List<PromoTriplet>> promoBuckets,
                                  final Map<String, Object> context) {
 
-        strategy.applyPromotions(promoBuckets, context);
+        final List<List<PromoTriplet>> candidates = filterCandidates(promoBuckets, context);
+        if (!candidates.isEmpty()) {
+            strategy.applyPromotions(candidates, context);
+        }
+
+    }
+
+    /*
+     * Remove promotions whose targeting predicates already fail for given context, so that
+     * strategy only evaluates groovy conditions of promotions that may be eligible.
+     */
+    private List<List<PromoTriplet>> filterCandidates(final List<List<PromoTriplet>> promoBuckets,
+                                                      final Map<String, Object> context) {
+
+        final List<List<PromoTriplet>> candidates = new ArrayList<List<PromoTriplet>>(promoBuckets.size());
+        for (final List<PromoTriplet> bucket : promoBuckets) {
+            List<PromoTriplet> filtered = bucket;
+            for (int i = 0; i < bucket.size(); i++) {
+                final PromoTriplet promo = bucket.get(i);
+                if (!promotionTargeting.get(promo).mayBeEligible(context)) {
+                    if (filtered == bucket) {
+                        filtered = new ArrayList<PromoTriplet>(bucket.subList(0, i));
+                    }
+                } else if (filtered != bucket) {
+                    filtered.add(promo);
+                }
+            }
+            if (!filtered.isEmpty()) {
+                candidates.add(filtered);
+            }
+        }
+        return candidates;
+
+    }
+
+    private ItemPromotionIndex getItemPromotionIndex(final List<List<PromoTriplet>> itemPromoBuckets) {
+        ItemPromotionIndex index = itemPromotionIndex;
+        if (index == null) {
+            index = new ItemPromotionIndex(itemPromoBuckets, promotionTargeting);
+            itemPromotionIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Item promotion buckets narrowed down per SKU code. Buckets for SKU contain promotions that target
+     * this SKU and all promotions that are not targeted by SKU, preserving combinable/non combinable
+     * bucket structure.
+     */
+    private static final class ItemPromotionIndex {
+
+        private final List<List<PromoTriplet>> anySku;
+        private final Map<String, List<List<PromoTriplet>>> bySku = new HashMap<String, List<List<PromoTriplet>>>();
+
+        private ItemPromotionIndex(final List<List<PromoTriplet>> buckets,
+                                   final Map<PromoTriplet, PromotionTargeting> targeting) {
+
+            final Set<String> skuCodes = new HashSet<String>();
+            for (final List<PromoTriplet> bucket : buckets) {
+                for (final PromoTriplet promo : bucket) {
+                    final Set<String> promoSkus = targeting.get(promo).getSkuCodes();
+                    if (promoSkus != null) {
+                        skuCodes.addAll(promoSkus);
+                    }
+                }
+            }
+
+            this.anySku = narrow(buckets, targeting, null);
+            for (final String skuCode : skuCodes) {
+                this.bySku.put(skuCode, narrow(buckets, targeting, skuCode));
+            }
+        }
+
+        private static List<List<PromoTriplet>> narrow(final List<List<PromoTriplet>> buckets,
+                                                       final Map<PromoTriplet, PromotionTargeting> targeting,
+                                                       final String skuCode) {
+            final List<List<PromoTriplet>> narrowed = new ArrayList<List<PromoTriplet>>(buckets.size());
+            for (final List<PromoTriplet> bucket : buckets) {
+                final List<PromoTriplet> candidates = new ArrayList<PromoTriplet>(bucket.size());
+                for (final PromoTriplet promo : bucket) {
+                    final PromotionTargeting promoTargeting = targeting.get(promo);
+                    if (skuCode == null ? promoTargeting.getSkuCodes() == null : promoTargeting.isTargeting(skuCode)) {
+                        candidates.add(promo);
+                    }
+                }
+                if (!candidates.isEmpty()) {
+                    narrowed.add(candidates);
+                }
+            }
+            return narrowed;
+        }
+
+        private List<List<PromoTriplet>> getCandidates(final String skuCode) {
+            final List<List<PromoTriplet>> candidates = bySku.get(skuCode);
+            return candidates != null ? candidates : anySku;
+        }
 
     }
 
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.promotion.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.yes.cart.promotion.PromotionCondition;
+import org.yes.cart.shoppingcart.CartItem;
+import org.yes.cart.shoppingcart.Total;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Simple targeting predicates extracted from promotion eligibility condition, so that promotions
+ * that cannot possibly apply are filtered out before their groovy condition is evaluated.
+ *
+ * Only conditions that are a plain conjunction (&amp;&amp;) are analysed and only conjuncts of the
+ * following forms are recognised:
+ * <pre>
+ *   shoppingCartItem.productSkuCode == 'SKU'
+ *   ['SKU1', 'SKU2'].contains(shoppingCartItem.productSkuCode)
+ *   customerTags.contains('tag')
+ *   shoppingCartItemTotal.priceSubTotal &gt; 100.00 (also subTotal, &gt;= and shoppingCartOrderTotal)
+ * </pre>
+ * Any other conjunct is left to the condition itself, therefore targeting is only ever a necessary
+ * condition and never replaces the eligibility check.
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 10:05 AM
+ */
+final class PromotionTargeting {
+
+    static final PromotionTargeting ANY = new PromotionTargeting(null, Collections.<String>emptySet(), Collections.<MinTotal>emptyList());
+
+    private static final Pattern SKU_EQ = Pattern.compile(
+            "^shoppingCartItem\\.productSkuCode\\s*==\\s*['\"]([^'\"]*)['\"]$");
+    private static final Pattern SKU_IN = Pattern.compile(
+            "^\\[((?:\\s*['\"][^'\"]*['\"]\\s*,?)+)\\]\\.contains\\(\\s*shoppingCartItem\\.productSkuCode\\s*\\)$");
+    private static final Pattern SKU_IN_ELEMENT = Pattern.compile("['\"]([^'\"]*)['\"]");
+    private static final Pattern TAG = Pattern.compile(
+            "^customerTags\\.contains\\(\\s*['\"]([^'\"]*)['\"]\\s*\\)$");
+    private static final Pattern MIN_TOTAL = Pattern.compile(
+            "^(shoppingCartItemTotal|shoppingCartOrderTotal)\\.(subTotal|priceSubTotal)\\s*(>=|>)\\s*([0-9]+(?:\\.[0-9]+)?)$");
+
+    private final Set<String> skuCodes;
+    private final Set<String> customerTags;
+    private final List<MinTotal> minTotals;
+
+    private PromotionTargeting(final Set<String> skuCodes,
+                               final Set<String> customerTags,
+                               final List<MinTotal> minTotals) {
+        this.skuCodes = skuCodes;
+        this.customerTags = customerTags;
+        this.minTotals = minTotals;
+    }
+
+    /**
+     * Extract targeting from eligibility condition.
+     *
+     * @param condition groovy eligibility condition
+     *
+     * @return targeting ({@link #ANY} if nothing could be extracted)
+     */
+    static PromotionTargeting parse(final String condition) {
+
+        if (StringUtils.isBlank(condition)) {
+            return ANY;
+        }
+
+        final String expression = condition.trim();
+        if (expression.contains("||") || expression.contains("?") || expression.contains(";")
+                || expression.contains("!(") || expression.contains("\n") || expression.contains("return")) {
+            return ANY; // not a plain conjunction
+        }
+
+        Set<String> skuCodes = null;
+        final Set<String> customerTags = new HashSet<String>();
+        final List<MinTotal> minTotals = new ArrayList<MinTotal>();
+
+        for (final String part : expression.split("&&")) {
+
+            final String conjunct = part.trim();
+
+            Set<String> conjunctSkus = null;
+            Matcher matcher = SKU_EQ.matcher(conjunct);
+            if (matcher.matches()) {
+                conjunctSkus = Collections.singleton(matcher.group(1));
+            } else {
+                matcher = SKU_IN.matcher(conjunct);
+                if (matcher.matches()) {
+                    conjunctSkus = new HashSet<String>();
+                    final Matcher element = SKU_IN_ELEMENT.matcher(matcher.group(1));
+                    while (element.find()) {
+                        conjunctSkus.add(element.group(1));
+                    }
+                }
+            }
+
+            if (conjunctSkus != null) {
+                if (skuCodes == null) {
+                    skuCodes = new HashSet<String>(conjunctSkus);
+                } else {
+                    skuCodes.retainAll(conjunctSkus);
+                }
+                continue;
+            }
+
+            matcher = TAG.matcher(conjunct);
+            if (matcher.matches()) {
+                customerTags.add(matcher.group(1));
+                continue;
+            }
+
+            matcher = MIN_TOTAL.matcher(conjunct);
+            if (matcher.matches()) {
+                minTotals.add(new MinTotal(matcher.group(1), "priceSubTotal".equals(matcher.group(2)),
+                        ">=".equals(matcher.group(3)), new BigDecimal(matcher.group(4))));
+            }
+
+        }
+
+        if (skuCodes == null && customerTags.isEmpty() && minTotals.isEmpty()) {
+            return ANY;
+        }
+        return new PromotionTargeting(
+                skuCodes == null ? null : Collections.unmodifiableSet(skuCodes),
+                Collections.unmodifiableSet(customerTags),
+                Collections.unmodifiableList(minTotals));
+    }
+
+    /**
+     * @return SKU codes this promotion is restricted to or null if promotion is not targeted by SKU
+     */
+    Set<String> getSkuCodes() {
+        return skuCodes;
+    }
+
+    /**
+     * @param skuCode SKU code of cart item
+     *
+     * @return true if promotion is not targeted by SKU or targets given SKU
+     */
+    boolean isTargeting(final String skuCode) {
+        return skuCodes == null || skuCodes.contains(skuCode);
+    }
+
+    /**
+     * Check all extracted predicates against condition context.
+     *
+     * @param context condition context (same as passed to {@link PromotionCondition#isEligible(java.util.Map)})
+     *
+     * @return false if promotion definitely is not eligible, true if condition has to be evaluated
+     */
+    boolean mayBeEligible(final Map<String, Object> context) {
+
+        if (this == ANY) {
+            return true;
+        }
+
+        if (skuCodes != null) {
+            final CartItem item = (CartItem) context.get(PromotionCondition.VAR_CART_ITEM);
+            if (item == null || !skuCodes.contains(item.getProductSkuCode())) {
+                return false;
+            }
+        }
+
+        if (!customerTags.isEmpty()) {
+            final Collection<?> tags = (Collection<?>) context.get(PromotionCondition.VAR_CUSTOMER_TAGS);
+            if (tags == null || !tags.containsAll(customerTags)) {
+                return false;
+            }
+        }
+
+        for (final MinTotal minTotal : minTotals) {
+            if (!minTotal.isSatisfied(context)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static final class MinTotal {
+
+        private final String variable;
+        private final boolean priceSubTotal;
+        private final boolean inclusive;
+        private final BigDecimal amount;
+
+        private MinTotal(final String variable, final boolean priceSubTotal, final boolean inclusive, final BigDecimal amount) {
+            this.variable = variable;
+            this.priceSubTotal = priceSubTotal;
+            this.inclusive = inclusive;
+            this.amount = amount;
+        }
+
+        private boolean isSatisfied(final Map<String, Object> context) {
+            final Total total = (Total) context.get(variable);
+            if (total == null) {
+                return false;
+            }
+            final BigDecimal value = priceSubTotal ? total.getPriceSubTotal() : total.getSubTotal();
+            if (value == null) {
+                return false;
+            }
+            final int cmp = value.compareTo(amount);
+            return inclusive ? cmp >= 0 : cmp > 0;
+        }
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.domain.impl;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory available to sell (ATS) ledger that keeps per SKU per warehouse ATS quantity
+ * for recently accessed products.
+ * <p/>
+ * Ledger is loaded from DB on first access and then updated with absolute ATS values after
+ * each row locked inventory write, so that inventory reads do not have to hit DB while stock
+ * is being reserved during checkout.
+ * <p/>
+ * This ledger is local to a node, hence entries expire after configured time to live so that
+ * changes made on other nodes become visible within this period.
+ *
+ * User: denispavlov
+ * Date: 14-06-11
+ * Time: 8:40 AM
+ */
+public class AvailableToSellLedger {
+
+    private final long timeToLiveMs;
+    private final int maxProducts;
+
+    private final ConcurrentMap<Long, ProductLedger> ledgers = new ConcurrentHashMap<Long, ProductLedger>();
+
+    /**
+     * Construct ledger.
+     *
+     * @param timeToLiveMs time to live for product entries (millis)
+     * @param maxProducts  max number of products to keep
+     */
+    public AvailableToSellLedger(final long timeToLiveMs, final int maxProducts) {
+        this.timeToLiveMs = timeToLiveMs;
+        this.maxProducts = maxProducts;
+    }
+
+    /**
+     * Get current generation for product, which must be passed to {@link #load(long, long, Collection, Map)}
+     * so that concurrent writes are not overwritten with data read before them.
+     *
+     * @param productId product PK
+     *
+     * @return generation
+     */
+    public long getGeneration(final long productId) {
+        final ProductLedger ledger = ledgers.get(productId);
+        return ledger == null ? 0L : ledger.generation;
+    }
+
+    /**
+     * Get ATS quantities for all SKU of given product.
+     *
+     * @param productId    product PK
+     * @param warehouseIds warehouses to sum up
+     *
+     * @return ATS by SKU code, or null if ledger does not have data for all requested warehouses
+     */
+    public Map<String, BigDecimal> getProductQuantity(final long productId, final Collection<Long> warehouseIds) {
+        final ProductLedger ledger = getValid(productId);
+        if (ledger == null || !ledger.warehouseIds.containsAll(warehouseIds)) {
+            return null;
+        }
+        final Map<String, BigDecimal> qty = new HashMap<String, BigDecimal>();
+        for (final Map.Entry<String, Map<Long, BigDecimal>> sku : ledger.ats.entrySet()) {
+            qty.put(sku.getKey(), sum(sku.getValue(), warehouseIds));
+        }
+        return qty;
+    }
+
+    /**
+     * Get ATS quantity for SKU.
+     *
+     * @param productId    product PK
+     * @param skuCode      SKU code
+     * @param warehouseIds warehouses to sum up
+     *
+     * @return ATS or null if ledger does not have data for all requested warehouses
+     */
+    public BigDecimal getSkuQuantity(final long productId, final String skuCode, final Collection<Long> warehouseIds) {
+        final ProductLedger ledger = getValid(productId);
+        if (ledger == null || !ledger.warehouseIds.containsAll(warehouseIds) || !ledger.ats.containsKey(skuCode)) {
+            return null;
+        }
+        return sum(ledger.ats.get(skuCode), warehouseIds);
+    }
+
+    /**
+     * Load product data read from DB into ledger.
+     *
+     * @param productId    product PK
+     * @param generation   generation obtained before DB read
+     * @param warehouseIds warehouses that were read
+     * @param ats          ATS by SKU code by warehouse PK (SKU without inventory records must be present with empty map)
+     */
+    public void load(final long productId, final long generation, final Collection<Long> warehouseIds, final Map<String, Map<Long, BigDecimal>> ats) {
+
+        if (ledgers.size() >= maxProducts && !ledgers.containsKey(productId)) {
+            ledgers.clear();
+        }
+
+        final ProductLedger existing = getValid(productId);
+        final ProductLedger loaded;
+        if (existing == null) {
+            loaded = new ProductLedger(generation, System.currentTimeMillis(), new HashSet<Long>(warehouseIds), copy(ats));
+        } else {
+            final Map<String, Map<Long, BigDecimal>> merged = copy(existing.ats);
+            for (final Map.Entry<String, Map<Long, BigDecimal>> sku : ats.entrySet()) {
+                Map<Long, BigDecimal> whs = merged.get(sku.getKey());
+                if (whs == null) {
+                    whs = new HashMap<Long, BigDecimal>();
+                    merged.put(sku.getKey(), whs);
+                }
+                whs.putAll(sku.getValue());
+            }
+            final Set<Long> whIds = new HashSet<Long>(existing.warehouseIds);
+            whIds.addAll(warehouseIds);
+            loaded = new ProductLedger(generation, existing.created, whIds, merged);
+        }
+
+        if (existing == null) {
+            if (generation == 0L) {
+                ledgers.putIfAbsent(productId, loaded);
+            }
+        } else if (existing.generation == generation) {
+            ledgers.replace(productId, existing, loaded);
+        }
+
+    }
+
+    /**
+     * Update ATS after inventory write. Data is only applied if ledger already tracks given product and warehouse,
+     * otherwise product generation is incremented to discard any loads that are in progress.
+     *
+     * @param productId   product PK
+     * @param skuCode     SKU code
+     * @param warehouseId warehouse PK
+     * @param ats         new absolute ATS quantity
+     */
+    public void update(final long productId, final String skuCode, final long warehouseId, final BigDecimal ats) {
+
+        while (true) {
+            final ProductLedger existing = ledgers.get(productId);
+            if (existing == null) {
+                // empty entry with bumped generation so that concurrent loads are discarded
+                final ProductLedger marker = new ProductLedger(1L, System.currentTimeMillis(),
+                        Collections.<Long>emptySet(), Collections.<String, Map<Long, BigDecimal>>emptyMap());
+                if (ledgers.putIfAbsent(productId, marker) == null) {
+                    return;
+                }
+                continue;
+            }
+            final ProductLedger updated;
+            if (existing.warehouseIds.contains(warehouseId)) {
+                final Map<String, Map<Long, BigDecimal>> changed = copy(existing.ats);
+                Map<Long, BigDecimal> whs = changed.get(skuCode);
+                if (whs == null) {
+                    whs = new HashMap<Long, BigDecimal>();
+                    changed.put(skuCode, whs);
+                }
+                whs.put(warehouseId, ats);
+                updated = new ProductLedger(existing.generation + 1, existing.created, existing.warehouseIds, changed);
+            } else {
+                // only bump generation so that concurrent loads are discarded
+                updated = new ProductLedger(existing.generation + 1, existing.created, existing.warehouseIds, existing.ats);
+            }
+            if (ledgers.replace(productId, existing, updated)) {
+                return;
+            }
+        }
+
+    }
+
+    /**
+     * Remove product from ledger.
+     *
+     * @param productId product PK
+     */
+    public void evict(final long productId) {
+        ledgers.remove(productId);
+    }
+
+    /**
+     * Remove all data from ledger.
+     */
+    public void clear() {
+        ledgers.clear();
+    }
+
+    private ProductLedger getValid(final long productId) {
+        final ProductLedger ledger = ledgers.get(productId);
+        if (ledger != null && ledger.created + timeToLiveMs < System.currentTimeMillis()) {
+            ledgers.remove(productId, ledger);
+            return null;
+        }
+        return ledger;
+    }
+
+    private BigDecimal sum(final Map<Long, BigDecimal> atsByWarehouse, final Collection<Long> warehouseIds) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (final Long warehouseId : warehouseIds) {
+            final BigDecimal ats = atsByWarehouse.get(warehouseId);
+            if (ats != null) {
+                total = total.add(ats);
+            }
+        }
+        return total;
+    }
+
+    private Map<String, Map<Long, BigDecimal>> copy(final Map<String, Map<Long, BigDecimal>> ats) {
+        final Map<String, Map<Long, BigDecimal>> copy = new HashMap<String, Map<Long, BigDecimal>>(ats.size());
+        for (final Map.Entry<String, Map<Long, BigDecimal>> sku : ats.entrySet()) {
+            copy.put(sku.getKey(), new HashMap<Long, BigDecimal>(sku.getValue()));
+        }
+        return copy;
+    }
+
+    /*
+     * Immutable snapshot of product inventory. Snapshots are replaced (copy on write).
+     */
+    private static final class ProductLedger {
+
+        private final long generation;
+        private final long created;
+        private final Set<Long> warehouseIds;
+        private final Map<String, Map<Long, BigDecimal>> ats;
+
+        private ProductLedger(final long generation,
+                              final long created,
+                              final Set<Long> warehouseIds,
+                              final Map<String, Map<Long, BigDecimal>> ats) {
+            this.generation = generation;
+            this.created = created;
+            this.warehouseIds = warehouseIds;
+            this.ats = ats;
+        }
+    }
+
+}
@@ -27,6 +27,7 @@ import org.yes.cart.domain.entity.AttrValue;
 import org.yes.cart.domain.entity.Category;
 import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.domain.entity.ShopCategory;
+import org.yes.cart.domain.entity.bridge.support.ShopCategoryRelationshipSupport;
 import org.yes.cart.domain.i18n.impl.FailoverStringI18NModel;
 import org.yes.cart.service.domain.CategoryService;
 
@@ -45,21 +46,26 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
 
     private final GenericDAO<Shop, Long> shopDao;
 
+    private final ShopCategoryRelationshipSupport shopCategoryRelationshipSupport;
+
     /**
      * Construct service to manage categories
      *
      * @param categoryDao     category dao to use
      * @param shopCategoryDao shop category dao to use
      * @param shopDao         shop dao
+     * @param shopCategoryRelationshipSupport category tree snapshot provider
      */
     public CategoryServiceImpl(
             final GenericDAO<Category, Long> categoryDao,
             final GenericDAO<ShopCategory, Long> shopCategoryDao,
-            final GenericDAO<Shop, Long> shopDao) {
+            final GenericDAO<Shop, Long> shopDao,
+            final ShopCategoryRelationshipSupport shopCategoryRelationshipSupport) {
         super(categoryDao);
         this.categoryDao = categoryDao;
         this.shopCategoryDao = shopCategoryDao;
         this.shopDao = shopDao;
+        this.shopCategoryRelationshipSupport = shopCategoryRelationshipSupport;
     }
 
     /**
@@ -92,8 +98,7 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
             "shopService-shopById",
             "shopService-shopByDomainName",
             "shopService-allShops",
-            "shopService-shopCategoriesIds",
-            "shopService-shopAllCategoriesIds",
+            "shopService-categoryTree",
             "categoryService-searchInSubcategory",
             "categoryService-categoryNewArrivalLimit",
             "categoryService-categoryNewArrivalDate"
@@ -116,8 +121,7 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
             "shopService-shopById",
             "shopService-shopByDomainName",
             "shopService-allShops",
-            "shopService-shopCategoriesIds",
-            "shopService-shopAllCategoriesIds",
+            "shopService-categoryTree",
             "categoryService-searchInSubcategory",
             "categoryService-categoryNewArrivalLimit",
             "categoryService-categoryNewArrivalDate"
@@ -379,13 +383,8 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "categoryService-childCategoriesRecursiveIds")
     public Set<Long> getChildCategoriesRecursiveIds(final long categoryId) {
-        final Set<Category> cats = getChildCategoriesRecursive(categoryId);
-        if (cats.isEmpty()) {
-            return Collections.emptySet();
-        }
-        return transform(cats);
+        return shopCategoryRelationshipSupport.getCategoryTree().getSubtreeIds(categoryId);
     }
 
     private void loadChildCategoriesRecursiveInternal(final Set<Category> result, final Category category) {
@@ -399,33 +398,8 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "categoryService-categoryHasSubcategory")
     public boolean isCategoryHasSubcategory(final long topCategoryId, final long subCategoryId) {
-        final Category start = proxy().findById(subCategoryId);
-        if (start != null) {
-            if (subCategoryId == topCategoryId) {
-                return true;
-            } else {
-                final List<Category> list = new ArrayList<Category>();
-                list.add(start);
-                addParent(list, topCategoryId);
-                return list.get(list.size() - 1).getCategoryId() == topCategoryId;
-            }
-        }
-        return false;
-    }
-
-    private void addParent(final List<Category> categoryChain, final long categoryIdStopAt) {
-        final Category cat = categoryChain.get(categoryChain.size() - 1);
-        if (!cat.isRoot()) {
-            final Category parent = findById(cat.getParentId());
-            if (parent != null) {
-                categoryChain.add(parent);
-                if (parent.getCategoryId() != categoryIdStopAt) {
-                    addParent(categoryChain, categoryIdStopAt);
-                }
-            }
-        }
+        return shopCategoryRelationshipSupport.getCategoryTree().isAncestor(topCategoryId, subCategoryId);
     }
 
     /**
@@ -436,14 +410,6 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
         return getGenericDao().findById(pk);
     }
 
-    private Set<Long> transform(final Collection<Category> categories) {
-        final Set<Long> result = new LinkedHashSet<Long>(categories.size());
-        for (Category category : categories) {
-            result.add(category.getCategoryId());
-        }
-        return result;
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -519,11 +485,8 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
             "categoryService-categoryHasChildren",
             "categoryService-childCategories",
             "categoryService-childCategoriesRecursive",
-            "categoryService-childCategoriesRecursiveIds",
-            "categoryService-categoryHasSubcategory",
-            "categoryService-byId",
-            "shopService-shopCategoriesIds",
-            "shopService-shopAllCategoriesIds"
+            "shopService-categoryTree",
+            "categoryService-byId"
     }, allEntries = true)
     public Category create(Category instance) {
         return super.create(instance);
@@ -546,11 +509,8 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
             "categoryService-categoryHasChildren",
             "categoryService-childCategories",
             "categoryService-childCategoriesRecursive",
-            "categoryService-childCategoriesRecursiveIds",
-            "categoryService-categoryHasSubcategory",
-            "categoryService-byId",
-            "shopService-shopCategoriesIds",
-            "shopService-shopAllCategoriesIds"
+            "shopService-categoryTree",
+            "categoryService-byId"
     }, allEntries = true)
     public Category update(Category instance) {
         return super.update(instance);
@@ -573,8 +533,7 @@ public class CategoryServiceImpl extends BaseGenericServiceImpl<Category> implem
             "categoryService-categoryHasChildren",
             "categoryService-childCategories",
             "categoryService-childCategoriesRecursive",
-            "categoryService-childCategoriesRecursiveIds",
-            "categoryService-categoryHasSubcategory",
+            "shopService-categoryTree",
             "categoryService-byId"
     }, allEntries = true)
     public void delete(Category instance) {
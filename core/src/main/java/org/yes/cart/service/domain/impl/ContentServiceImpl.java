@@ -103,7 +103,10 @@ public class ContentServiceImpl extends BaseGenericServiceImpl<Category> impleme
     /**
      * {@inheritDoc}
      */
-    @CacheEvict(value = "contentService-rootContent")
+    @CacheEvict(value = {
+            "contentService-rootContent",
+            "shopService-categoryTree"
+    }, allEntries = true)
     public Category createRootContent(final long shopId) {
         final List<Object> shops = categoryDao.findQueryObjectByNamedQuery("SHOPCODE.BY.SHOP.ID", shopId);
         if (shops != null && shops.size() == 1) {
@@ -432,8 +435,7 @@ public class ContentServiceImpl extends BaseGenericServiceImpl<Category> impleme
             "contentService-childContentRecursive",
             "contentService-byId",
             "contentService-contentHasSubcontent",
-            "shopService-shopContentIds",
-            "shopService-shopAllCategoriesIds"
+            "shopService-categoryTree"
 
     },allEntries = true)
     public Category create(Category instance) {
@@ -455,8 +457,7 @@ public class ContentServiceImpl extends BaseGenericServiceImpl<Category> impleme
             "contentService-childContentRecursive",
             "contentService-byId",
             "contentService-contentHasSubcontent",
-            "shopService-shopContentIds",
-            "shopService-shopAllCategoriesIds"
+            "shopService-categoryTree"
     }, allEntries = true)
     public Category update(Category instance) {
         return super.update(instance);
@@ -477,8 +478,7 @@ public class ContentServiceImpl extends BaseGenericServiceImpl<Category> impleme
             "contentService-childContentRecursive",
             "contentService-byId",
             "contentService-contentHasSubcontent",
-            "shopService-shopContentIds",
-            "shopService-shopAllCategoriesIds"
+            "shopService-categoryTree"
     }, allEntries = true)
     public void delete(Category instance) {
         super.delete(instance);
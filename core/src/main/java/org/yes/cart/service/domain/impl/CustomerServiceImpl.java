@@ -28,6 +28,8 @@ import org.yes.cart.constants.AttributeGroupNames;
 import org.yes.cart.constants.AttributeNamesKeys;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.*;
+import org.yes.cart.promotion.CustomerPromotionSnapshot;
+import org.yes.cart.promotion.impl.CustomerPromotionSnapshotImpl;
 import org.yes.cart.service.customer.CustomerNameFormatter;
 import org.yes.cart.service.domain.AttributeService;
 import org.yes.cart.service.domain.CustomerService;
@@ -99,6 +101,18 @@ public class CustomerServiceImpl extends BaseGenericServiceImpl<Customer> implem
         return customer;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Cacheable(value = "customerService-promotionSnapshotByEmail")
+    public CustomerPromotionSnapshot getCustomerPromotionSnapshotByEmail(final String email) {
+        final Customer customer = getGenericDao().findSingleByCriteria(Restrictions.eq("email", email));
+        if (customer != null) {
+            return new CustomerPromotionSnapshotImpl(customer);
+        }
+        return null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -215,7 +229,8 @@ public class CustomerServiceImpl extends BaseGenericServiceImpl<Customer> implem
      * @param attributeValue given attribute value
      */
     @CacheEvict(value = {
-            "customerService-customerByEmail"
+            "customerService-customerByEmail",
+            "customerService-promotionSnapshotByEmail"
     }, allEntries = false, key = "#customer.email")
     public void addAttribute(final Customer customer, final String attributeCode, final String attributeValue) {
         if (StringUtils.isNotBlank(attributeValue)) {
@@ -267,7 +282,8 @@ public class CustomerServiceImpl extends BaseGenericServiceImpl<Customer> implem
      * {@inheritDoc}
      */
     @CacheEvict(value = {
-        "customerService-customerByEmail"
+        "customerService-customerByEmail",
+        "customerService-promotionSnapshotByEmail"
     }, allEntries = false, key = "#customer.email")
     public Customer create(final Customer customer, final Shop shop) {
         if (shop != null) {
@@ -283,7 +299,8 @@ public class CustomerServiceImpl extends BaseGenericServiceImpl<Customer> implem
      * {@inheritDoc}
      */
     @CacheEvict(value = {
-            "customerService-customerByEmail"
+            "customerService-customerByEmail",
+            "customerService-promotionSnapshotByEmail"
     }, allEntries = false, key = "#email")
     public Customer update(final String email, final String shopCode) {
         final Shop shop = shopService.getShopByCode(shopCode);
@@ -303,6 +320,17 @@ public class CustomerServiceImpl extends BaseGenericServiceImpl<Customer> implem
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @CacheEvict(value = {
+            "customerService-customerByEmail",
+            "customerService-promotionSnapshotByEmail"
+    }, allEntries = false, key = "#instance.email")
+    public Customer update(final Customer instance) {
+        return super.update(instance);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -314,7 +342,8 @@ public class CustomerServiceImpl extends BaseGenericServiceImpl<Customer> implem
      * {@inheritDoc}
      */
     @CacheEvict(value = {
-            "customerService-customerByEmail"
+            "customerService-customerByEmail",
+            "customerService-promotionSnapshotByEmail"
     }, allEntries = false, key = "#customer.email")
     public void delete(final Customer customer) {
         for(CustomerShop cshop : customer.getShops()) {
@@ -16,15 +16,20 @@
 
 package org.yes.cart.service.domain.impl;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
 import org.hibernate.criterion.Restrictions;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.SeoImage;
+import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.service.domain.ImageService;
 import org.yes.cart.service.image.ImageNameStrategy;
 import org.yes.cart.service.image.ImageNameStrategyResolver;
+import org.yes.cart.service.image.ImageResizeStatistics;
 import org.yes.cart.stream.io.IOProvider;
 import org.yes.cart.util.ShopCodeContext;
 
@@ -36,8 +41,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Image service to resize and store resized image.
@@ -48,7 +59,7 @@ import java.util.Map;
  */
 public class ImageServiceImpl
         extends BaseGenericServiceImpl<SeoImage>
-        implements ImageService {
+        implements ImageService, ImageResizeStatistics {
 
     private final String allowedSizes;
 
@@ -64,6 +75,15 @@ public class ImageServiceImpl
 
     private final IOProvider ioProvider;
 
+    private ThreadPoolTaskExecutor resizeExecutor;
+
+    private final ConcurrentMap<String, Future<byte[]>> resizesInProgress = new ConcurrentHashMap<String, Future<byte[]>>();
+
+    private final AtomicLong resizeCount = new AtomicLong();
+    private final AtomicLong resizeCollapsedCount = new AtomicLong();
+    private final AtomicLong resizeTotalTimeMs = new AtomicLong();
+    private final AtomicLong resizeMaxTimeMs = new AtomicLong();
+
 
     /**
      * Construct image service.
@@ -106,6 +126,16 @@ public class ImageServiceImpl
         this.forceCropToFitOnSize = forceCropToFitOnSize;
     }
 
+    /**
+     * Bounded worker pool for resizing images, so that decoding and scaling of large originals
+     * does not happen on request threads. If not set resize is performed by the calling thread.
+     *
+     * @param resizeExecutor resize executor
+     */
+    public void setResizeExecutor(final ThreadPoolTaskExecutor resizeExecutor) {
+        this.resizeExecutor = resizeExecutor;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -125,11 +155,19 @@ public class ImageServiceImpl
                               final String height,
                               final boolean cropToFit) {
 
-        try {
+        return resizeImage(filename, new ByteArrayInputStream(content), width, height, cropToFit);
+
+    }
+
+    private byte[] resizeImage(final String filename,
+                               final InputStream content,
+                               final String width,
+                               final String height,
+                               final boolean cropToFit) {
 
-            final InputStream bis = new ByteArrayInputStream(content);
+        try {
 
-            final BufferedImage originalImg = ImageIO.read(bis);
+            final BufferedImage originalImg = ImageIO.read(content);
             final String codec = getCodecFromFilename(filename);
             final boolean supportsAlpha = hasAlphaSupport(codec);
 
@@ -286,6 +324,20 @@ public class ImageServiceImpl
         return isSizeAllowed(width + "x" + height);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public List<Pair<String, String>> getAllowedSizes() {
+        final List<Pair<String, String>> sizes = new ArrayList<Pair<String, String>>();
+        for (final String size : StringUtils.split(allowedSizes, ',')) {
+            final String[] widthHeight = StringUtils.split(size.trim(), 'x');
+            if (widthHeight.length == 2) {
+                sizes.add(new Pair<String, String>(widthHeight[0], widthHeight[1]));
+            }
+        }
+        return sizes;
+    }
+
     /** {@inheritDoc} */
     public ImageNameStrategy getImageNameStrategy(final String url) {
         return imageNameStrategyResolver.getImageNameStrategy(url);
@@ -311,17 +363,9 @@ public class ImageServiceImpl
 
             if (resized != null) {
 
-                final boolean resizedIsNewer = ioProvider.isNewerThan(resized, original, ctx);
-
-                if (!resizedIsNewer) {
-
-                    final byte[] originalContent = ioProvider.read(original, ctx);
-                    final byte[] resizedContent = resizeImage(original, originalContent, width, height);
-
-                    if (resizedContent.length > 0) {
-                        ioProvider.write(resized, resizedContent, ctx);
-                    }
+                final byte[] resizedContent = resizeIfNecessary(original, resized, width, height, cropToFit, ctx);
 
+                if (resizedContent != null) {
                     return resizedContent;
                 }
 
@@ -336,6 +380,170 @@ public class ImageServiceImpl
         }
     }
 
+    /** {@inheritDoc} */
+    public ReadableByteChannel openImage(final String original,
+                                         final String resized,
+                                         final String width,
+                                         final String height) throws IOException {
+
+        final Map<String, Object> ctx = Collections.EMPTY_MAP;
+
+        if (resized != null) {
+
+            final byte[] resizedContent = resizeIfNecessary(original, resized, width, height, cropToFit, ctx);
+
+            if (resizedContent != null && resizedContent.length == 0) {
+                // resize failed and nothing was written, same as resizeImage we give back empty content
+                return Channels.newChannel(new ByteArrayInputStream(resizedContent));
+            }
+
+            return ioProvider.open(resized, ctx);
+        }
+        return ioProvider.open(original, ctx);
+
+    }
+
+    /*
+     * Resize original if resized image does not exist or is older than original. Concurrent requests
+     * for the same resized image wait for single resize that is already in progress.
+     *
+     * @return resized content or null if resized image is up to date
+     */
+    private byte[] resizeIfNecessary(final String original,
+                                     final String resized,
+                                     final String width,
+                                     final String height,
+                                     final boolean cropToFit,
+                                     final Map<String, Object> ctx) throws IOException {
+
+        if (ioProvider.isNewerThan(resized, original, ctx)) {
+            return null;
+        }
+
+        final FutureTask<byte[]> resize = new FutureTask<byte[]>(new Callable<byte[]>() {
+            public byte[] call() throws Exception {
+                // another resize could have finished between our check and registering this one
+                if (ioProvider.isNewerThan(resized, original, ctx)) {
+                    return null;
+                }
+                return doResize(original, resized, width, height, cropToFit, ctx);
+            }
+        });
+
+        final Future<byte[]> inProgress = resizesInProgress.putIfAbsent(resized, resize);
+        if (inProgress != null) {
+            resizeCollapsedCount.incrementAndGet();
+            return waitForResize(inProgress, resized);
+        }
+
+        try {
+            if (resizeExecutor != null) {
+                try {
+                    resizeExecutor.execute(resize);
+                } catch (TaskRejectedException tre) {
+                    ShopCodeContext.getLog(this).warn("Resize queue is full, resizing {} on request thread", resized);
+                    resize.run();
+                }
+            } else {
+                resize.run();
+            }
+            return waitForResize(resize, resized);
+        } finally {
+            resizesInProgress.remove(resized, resize);
+        }
+    }
+
+    private byte[] waitForResize(final Future<byte[]> resize, final String resized) throws IOException {
+        try {
+            return resize.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for resize of " + resized);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException) {
+                throw (IOException) ee.getCause();
+            }
+            throw new IOException("Unable to resize " + resized, ee.getCause());
+        }
+    }
+
+    /*
+     * Original is decoded directly from stream, so we do not keep its bytes in memory.
+     */
+    private byte[] doResize(final String original,
+                            final String resized,
+                            final String width,
+                            final String height,
+                            final boolean cropToFit,
+                            final Map<String, Object> ctx) throws IOException {
+
+        final long start = System.currentTimeMillis();
+
+        final byte[] resizedContent;
+        final ReadableByteChannel originalContent = ioProvider.open(original, ctx);
+        try {
+            resizedContent = resizeImage(original, Channels.newInputStream(originalContent), width, height, cropToFit);
+        } finally {
+            originalContent.close();
+        }
+
+        if (resizedContent.length > 0) {
+            ioProvider.write(resized, resizedContent, ctx);
+        }
+
+        final long time = System.currentTimeMillis() - start;
+        resizeCount.incrementAndGet();
+        resizeTotalTimeMs.addAndGet(time);
+        long max = resizeMaxTimeMs.get();
+        while (time > max && !resizeMaxTimeMs.compareAndSet(max, time)) {
+            max = resizeMaxTimeMs.get();
+        }
+
+        return resizedContent;
+    }
+
+    /** {@inheritDoc} */
+    public long getResizeCount() {
+        return resizeCount.get();
+    }
+
+    /** {@inheritDoc} */
+    public long getResizeCollapsedCount() {
+        return resizeCollapsedCount.get();
+    }
+
+    /** {@inheritDoc} */
+    public long getResizeAverageTimeMs() {
+        final long count = resizeCount.get();
+        return count == 0L ? 0L : resizeTotalTimeMs.get() / count;
+    }
+
+    /** {@inheritDoc} */
+    public long getResizeMaxTimeMs() {
+        return resizeMaxTimeMs.get();
+    }
+
+    /** {@inheritDoc} */
+    public int getResizeInProgressCount() {
+        return resizesInProgress.size();
+    }
+
+    /** {@inheritDoc} */
+    public int getResizeQueueSize() {
+        if (resizeExecutor == null) {
+            return 0;
+        }
+        return resizeExecutor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    /** {@inheritDoc} */
+    public int getResizeActiveWorkers() {
+        if (resizeExecutor == null) {
+            return 0;
+        }
+        return resizeExecutor.getActiveCount();
+    }
+
     /** {@inheritDoc} */
     public boolean isImageInRepository(final String fullFileName,
                                        final String code,
@@ -20,6 +20,8 @@ import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Mail;
 import org.yes.cart.service.domain.MailService;
 
+import java.util.List;
+
 /**
  * User: denispavlov
  * Date: 10/11/2013
@@ -36,4 +38,10 @@ public class MailServiceImpl extends BaseGenericServiceImpl<Mail> implements Mai
     public Mail findOldestMail() {
         return getGenericDao().findSingleByNamedQuery("OLDEST.MAIL");
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Mail> findOldestMails(final int limit) {
+        return getGenericDao().findRangeByNamedQuery("OLDEST.MAIL", 0, limit);
+    }
 }
@@ -19,6 +19,8 @@ package org.yes.cart.service.domain.impl;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MultiMap;
 import org.apache.commons.collections.map.MultiValueMap;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.yes.cart.constants.Constants;
@@ -54,6 +56,7 @@ public class PriceServiceImpl
     private final PriceNavigation priceNavigation;
     private final ProductService productService;
     private final GenericDAO<SkuPrice, Long> skuPriceDao;
+    private final Cache minimalPriceCache;
 
 
     /**
@@ -62,15 +65,18 @@ public class PriceServiceImpl
      * @param priceNavigation     price navigation composer
      * @param productService      product service
      * @param skuPriceDao         sku price dao service
+     * @param cacheManager        cache manager
      */
     public PriceServiceImpl(final PriceNavigation priceNavigation,
                             final ProductService productService,
-                            final GenericDAO<SkuPrice, Long> skuPriceDao
+                            final GenericDAO<SkuPrice, Long> skuPriceDao,
+                            final CacheManager cacheManager
     ) {
         super(skuPriceDao);
         this.priceNavigation = priceNavigation;
         this.productService = productService;
         this.skuPriceDao = skuPriceDao;
+        this.minimalPriceCache = cacheManager.getCache("priceService-minimalPrice");
 
     }
 
@@ -78,13 +84,18 @@ public class PriceServiceImpl
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "priceService-minimalPrice")
     public SkuPrice getMinimalPrice(final Long productId,
                                     final String selectedSku,
                                     final long shopId,
                                     final String currencyCode,
                                     final BigDecimal quantity) {
 
+        final String key = minimalPriceKey(productId, selectedSku, shopId, currencyCode, quantity);
+        final Cache.ValueWrapper cached = minimalPriceCache.get(key);
+        if (cached != null) {
+            return (SkuPrice) cached.get();
+        }
+
         final List<Pair<String, SkuPrice>> skuPrices;
         if (selectedSku == null && productId != null) {
             skuPrices = getSkuPrices(productId, shopId, currencyCode);
@@ -94,7 +105,72 @@ public class PriceServiceImpl
             skuPrices = Collections.emptyList();
         }
 
-        return getMinimalSkuPrice(skuPrices, selectedSku, quantity);
+        final SkuPrice minimal = getMinimalSkuPrice(skuPrices, selectedSku, quantity);
+        minimalPriceCache.put(key, minimal);
+        return minimal;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<Long, SkuPrice> getMinimalPrices(final Map<Long, String> productSkus,
+                                                final long shopId,
+                                                final String currencyCode,
+                                                final BigDecimal quantity) {
+
+        final Map<Long, SkuPrice> rez = new HashMap<Long, SkuPrice>(productSkus.size() * 2);
+        final Set<Long> misses = new HashSet<Long>();
+
+        for (final Map.Entry<Long, String> productSku : productSkus.entrySet()) {
+            final Cache.ValueWrapper cached = minimalPriceCache.get(
+                    minimalPriceKey(productSku.getKey(), productSku.getValue(), shopId, currencyCode, quantity));
+            if (cached != null) {
+                rez.put(productSku.getKey(), (SkuPrice) cached.get());
+            } else {
+                misses.add(productSku.getKey());
+            }
+        }
+
+        if (!misses.isEmpty()) {
+
+            final Map<Long, List<Pair<String, SkuPrice>>> pricesByProduct = getSkuPriceFilteredByShopCurrency(misses, shopId, currencyCode);
+
+            for (final Long productId : misses) {
+                final String selectedSku = productSkus.get(productId);
+                List<Pair<String, SkuPrice>> skuPrices = pricesByProduct.get(productId);
+                if (skuPrices == null) {
+                    skuPrices = Collections.emptyList();
+                }
+                final SkuPrice minimal = getMinimalSkuPrice(skuPrices, selectedSku, quantity);
+                minimalPriceCache.put(minimalPriceKey(productId, selectedSku, shopId, currencyCode, quantity), minimal);
+                rez.put(productId, minimal);
+            }
+
+        }
+
+        return rez;
+    }
+
+    /*
+     * Minimal price for selected SKU does not depend on product, so single and bulk
+     * look ups share same cache entries.
+     */
+    private String minimalPriceKey(final Long productId,
+                                   final String selectedSku,
+                                   final long shopId,
+                                   final String currencyCode,
+                                   final BigDecimal quantity) {
+        final StringBuilder key = new StringBuilder();
+        if (selectedSku != null) {
+            key.append("S:").append(selectedSku);
+        } else {
+            key.append("P:").append(productId);
+        }
+        key.append(':').append(shopId).append(':').append(currencyCode).append(':');
+        if (quantity != null) {
+            key.append(quantity.toPlainString());
+        }
+        return key.toString();
     }
 
     private SkuPrice getMinimalSkuPrice(List<Pair<String, SkuPrice>> skuPrices, final String selectedSku, final BigDecimal quantity) {
@@ -438,6 +514,29 @@ public class PriceServiceImpl
 
     }
 
+    private Map<Long, List<Pair<String, SkuPrice>>> getSkuPriceFilteredByShopCurrency(final Collection<Long> productIds,
+                                                                                      final long shopId,
+                                                                                      final String currencyCode) {
+
+        final List<Object[]> prices = (List) getGenericDao().findQueryObjectByNamedQuery("SKUPRICE.BY.PRODUCTS.AND.CURRENCY.AND.SHOP",
+                productIds, currencyCode, shopId);
+        if (CollectionUtils.isNotEmpty(prices)) {
+            final Map<Long, List<Pair<String, SkuPrice>>> rez = new HashMap<Long, List<Pair<String, SkuPrice>>>();
+            for (final Object[] price : prices) {
+                final Long productId = (Long) price[2];
+                List<Pair<String, SkuPrice>> productPrices = rez.get(productId);
+                if (productPrices == null) {
+                    productPrices = new ArrayList<Pair<String, SkuPrice>>();
+                    rez.put(productId, productPrices);
+                }
+                productPrices.add(new Pair<String, SkuPrice>((String) price[1], (SkuPrice) price[0]));
+            }
+            return rez;
+        }
+        return Collections.emptyMap();
+
+    }
+
     /**
      * {@inheritDoc}
      */
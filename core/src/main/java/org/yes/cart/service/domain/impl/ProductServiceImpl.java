@@ -22,9 +22,13 @@ import org.hibernate.Hibernate;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Restrictions;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.util.CollectionUtils;
+import org.yes.cart.cache.impl.DependencyTrackingCache;
+import org.yes.cart.cache.impl.DependencyTrackingCacheManager;
 import org.yes.cart.constants.AttributeNamesKeys;
 import org.yes.cart.constants.Constants;
 import org.yes.cart.dao.CriteriaTuner;
@@ -74,6 +78,16 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
     private final ShopCategoryRelationshipSupport shopCategoryRelationshipSupport;
     private final Random rand;
     private final DtoFactory dtoFactory;
+    private final CacheManager cacheManager;
+
+    private static final String[] PRODUCT_DEPENDENT_CACHES = new String[] {
+            "productService-skuById",
+            "productService-defaultImage",
+            "productService-productAttributes",
+            "productService-productAttribute",
+            "productService-productBySkuCode",
+            "productService-productById"
+    };
 
     /**
      * Construct product service.
@@ -86,6 +100,8 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
      * @param productCategoryDao category dao to work with category information
      * @param productTypeAttrDao product type attributes need to work with range navigation
      * @param shopCategoryRelationshipSupport shop product category relationship support
+     * @param dtoFactory         dto factory
+     * @param cacheManager       cache manager to evict product dependent entries
      */
     public ProductServiceImpl(final GenericDAO<Product, Long> productDao,
                               final GenericDAO<ProductSku, Long> productSkuDao,
@@ -95,7 +111,8 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
                               final GenericDAO<ProductCategory, Long> productCategoryDao,
                               final GenericDAO<ProductTypeAttr, Long> productTypeAttrDao,
                               final ShopCategoryRelationshipSupport shopCategoryRelationshipSupport,
-                              final DtoFactory dtoFactory) {
+                              final DtoFactory dtoFactory,
+                              final CacheManager cacheManager) {
         super(productDao);
         this.productDao = productDao;
         this.productSkuDao = productSkuDao;
@@ -108,6 +125,7 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
         rand = new Random();
         rand.setSeed((new Date().getTime()));
         this.dtoFactory = dtoFactory;
+        this.cacheManager = cacheManager;
     }
 
     /** {@inheritDoc} */
@@ -178,7 +196,7 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "productService-productAttributes")
+    @Cacheable(value = "productService-productAttributes", key = "{#locale, #productId, #skuId, #productTypeId}")
     public Map<Pair<String, String>, Map<Pair<String, String>, List<Pair<String, String>>>> getProductAttributes(
             final String locale, final long productId, final long skuId, final long productTypeId) {
 
@@ -322,7 +340,7 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
         return map;
     }
 
-    @Cacheable(value = "productService-productAttribute")
+    @Cacheable(value = "productService-productAttribute", key = "{#locale, #productId, #skuId, #attributeCode}")
     public Pair<String, String> getProductAttribute(final String locale, final long productId, final long skuId, final String attributeCode) {
         if (skuId > 0L) {
             final List skuAvs =
@@ -1006,17 +1024,11 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
 
     /** {@inheritDoc} */
     @CacheEvict(value ={
-            "productService-skuById",
-            "productService-defaultImage",
             "productService-randomProductByCategory",
-            "productService-productAttributes",
-            "productService-productAttribute",
             "productService-allProductsAttributeValues",
             "productService-productAssociationsIds",
             "productService-featuredProducts",
             "productService-newProducts",
-            "productService-productBySkuCode",
-            "productService-productById",
             "productService-productByQuery",
             "productService-productSearchResultDTOByQuery",
             "productService-productQtyByQuery",
@@ -1027,22 +1039,18 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
 
     }, allEntries = true)
     public Product update(Product instance) {
-        return super.update(instance);
+        final Product updated = super.update(instance);
+        evictProductDependentCaches(instance.getProductId());
+        return updated;
     }
 
     /** {@inheritDoc} */
     @CacheEvict(value ={
-            "productService-skuById",
-            "productService-defaultImage",
             "productService-randomProductByCategory",
-            "productService-productAttributes",
-            "productService-productAttribute",
             "productService-allProductsAttributeValues",
             "productService-productAssociationsIds",
             "productService-featuredProducts",
             "productService-newProducts",
-            "productService-productBySkuCode",
-            "productService-productById",
             "productService-productByQuery",
             "productService-productSearchResultDTOByQuery",
             "productService-productQtyByQuery",
@@ -1053,7 +1061,25 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
 
     }, allEntries = true)
     public void delete(Product instance) {
+        final long productId = instance.getProductId();
         super.delete(instance);
+        evictProductDependentCaches(productId);
+    }
+
+    /**
+     * Evict entries that were built from given product. Caches that are configured for dependency
+     * tracking (see {@link DependencyTrackingCacheManager}) evict only entries of this product,
+     * all other caches are cleared.
+     *
+     * @param productId product PK
+     */
+    private void evictProductDependentCaches(final long productId) {
+        for (final String cacheName : PRODUCT_DEPENDENT_CACHES) {
+            final Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                DependencyTrackingCache.evictDependent(cache, productId);
+            }
+        }
     }
 
     private ProductService proxy;
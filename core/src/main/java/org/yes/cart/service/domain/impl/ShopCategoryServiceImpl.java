@@ -17,6 +17,7 @@
 package org.yes.cart.service.domain.impl;
 
 import org.hibernate.criterion.Restrictions;
+import org.springframework.cache.annotation.CacheEvict;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Category;
 import org.yes.cart.domain.entity.Shop;
@@ -43,6 +44,31 @@ public class ShopCategoryServiceImpl extends BaseGenericServiceImpl<ShopCategory
     /**
      * {@inheritDoc}
      */
+    @CacheEvict(value = "shopService-categoryTree", allEntries = true)
+    public ShopCategory create(final ShopCategory instance) {
+        return super.create(instance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @CacheEvict(value = "shopService-categoryTree", allEntries = true)
+    public ShopCategory update(final ShopCategory instance) {
+        return super.update(instance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @CacheEvict(value = "shopService-categoryTree", allEntries = true)
+    public void delete(final ShopCategory instance) {
+        super.delete(instance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @CacheEvict(value = "shopService-categoryTree", allEntries = true)
     public void deleteAll(final Category category) {
         final Collection<ShopCategory> shopCategories = shopCategoryDao.findByCriteria(
                 Restrictions.eq("category", category));
@@ -21,6 +21,7 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.*;
+import org.yes.cart.domain.entity.bridge.support.ShopCategoryRelationshipSupport;
 import org.yes.cart.service.domain.AttributeService;
 import org.yes.cart.service.domain.CategoryService;
 import org.yes.cart.service.domain.ContentService;
@@ -42,6 +43,8 @@ public class ShopServiceImpl extends BaseGenericServiceImpl<Shop> implements Sho
     private final CategoryService categoryService;
     private final ContentService contentService;
 
+    private final ShopCategoryRelationshipSupport shopCategoryRelationshipSupport;
+
 
     /**
      * Construct shop service.
@@ -49,16 +52,19 @@ public class ShopServiceImpl extends BaseGenericServiceImpl<Shop> implements Sho
      * @param categoryService {@link org.yes.cart.service.domain.CategoryService}
      * @param attributeService attribute service
      * @param contentService {@link org.yes.cart.service.domain.ContentService}
+     * @param shopCategoryRelationshipSupport category tree snapshot provider
      */
     public ShopServiceImpl(final GenericDAO<Shop, Long> shopDao,
                            final CategoryService categoryService,
                            final ContentService contentService,
-                           final AttributeService attributeService) {
+                           final AttributeService attributeService,
+                           final ShopCategoryRelationshipSupport shopCategoryRelationshipSupport) {
         super(shopDao);
         this.shopDao = shopDao;
         this.categoryService = categoryService;
         this.attributeService = attributeService;
         this.contentService = contentService;
+        this.shopCategoryRelationshipSupport = shopCategoryRelationshipSupport;
     }
 
     /**
@@ -108,57 +114,25 @@ public class ShopServiceImpl extends BaseGenericServiceImpl<Shop> implements Sho
         return shopDao.findSingleByNamedQuery("SHOP.BY.URL", serverName);
     }
 
-    private Set<Category> getShopCategories(final long shopId) {
-        Set<Category> result = new HashSet<Category>();
-        for (ShopCategory category : shopDao.findById(shopId).getShopCategory()) {
-            result.addAll(
-                    categoryService.getChildCategoriesRecursive(category.getCategory().getCategoryId())
-            );
-        }
-        return result;
-    }
-
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "shopService-shopCategoriesIds"/*, key ="shop.getShopId()"*/)
     public Set<Long> getShopCategoriesIds(final long shopId) {
-        return transform(getShopCategories(shopId));
-    }
-
-
-    private Set<Category> getShopContent(final long shopId) {
-        Set<Category> result = new HashSet<Category>();
-        final Category root = contentService.getRootContent(shopId);
-        if (root != null) {
-            result.addAll(
-                    contentService.getChildContentRecursive(root.getCategoryId())
-            );
-        }
-        return result;
+        return shopCategoryRelationshipSupport.getCategoryTree().getShopCategoriesIds(shopId, true);
     }
 
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "shopService-shopContentIds"/*, key ="shop.getShopId()"*/)
     public Set<Long> getShopContentIds(final long shopId) {
-        return transform(getShopContent(shopId));
+        return shopCategoryRelationshipSupport.getCategoryTree().getShopContentIds(shopId);
     }
 
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "shopService-shopAllCategoriesIds"/*, key ="shop.getShopId()"*/)
     public Set<Long> getShopAllCategoriesIds(final long shopId) {
-        final Set<Long> all = new HashSet<Long>();
-        all.addAll(getShopCategoriesIds(shopId));
-        all.addAll(getShopContentIds(shopId));
-        final Category root = contentService.getRootContent(shopId);
-        if (root != null) {
-            all.add(root.getCategoryId());
-        }
-        return all;
+        return shopCategoryRelationshipSupport.getCategoryTree().getShopAllCategoriesIds(shopId);
     }
 
     public Set<Long> transform(final Collection<Category> categories) {
@@ -224,9 +198,7 @@ public class ShopServiceImpl extends BaseGenericServiceImpl<Shop> implements Sho
 
     /** {@inheritDoc} */
     @CacheEvict(value ={
-            "shopService-shopCategoriesIds",
-            "shopService-shopContentIds",
-            "shopService-shopAllCategoriesIds"
+            "shopService-categoryTree"
     }, allEntries = true)
     public Shop create(final Shop instance) {
         final Shop shop = super.create(instance);
@@ -259,9 +231,7 @@ public class ShopServiceImpl extends BaseGenericServiceImpl<Shop> implements Sho
             "shopService-shopById",
             "shopService-shopByDomainName",
             "shopService-allShops",
-            "shopService-shopCategoriesIds",
-            "shopService-shopContentIds",
-            "shopService-shopAllCategoriesIds",
+            "shopService-categoryTree",
             "shopService-shopWarehouses",
             "shopService-shopWarehousesIds",
             "themeService-themeChainByShopId",
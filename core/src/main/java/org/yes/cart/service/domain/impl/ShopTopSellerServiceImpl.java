@@ -23,10 +23,7 @@ import org.yes.cart.domain.entity.ShopTopSeller;
 import org.yes.cart.service.domain.ShopTopSellerService;
 
 import java.math.BigDecimal;
-import java.util.Calendar;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -90,4 +87,14 @@ public class ShopTopSellerServiceImpl extends BaseGenericServiceImpl<ShopTopSell
         }
 
     }
+
+    /** {@inheritDoc} */
+    public List<Long> getTopSellerProductIds(final long shopId, final int limit) {
+        final List<Object> ids = getGenericDao().findQueryObjectRangeByNamedQuery("TOP.SELLER.PRODUCTIDS.BY.SHOPID", 0, limit, shopId);
+        final List<Long> productIds = new ArrayList<Long>(ids.size());
+        for (final Object id : ids) {
+            productIds.add((Long) id);
+        }
+        return productIds;
+    }
 }
@@ -20,6 +20,7 @@ import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.ShoppingCartState;
 import org.yes.cart.service.domain.ShoppingCartStateService;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -44,6 +45,13 @@ public class ShoppingCartStateServiceImpl extends BaseGenericServiceImpl<Shoppin
         return shoppingCartStateDao.findSingleByNamedQuery("SHOPPINGCARTSTATE.BY.GUID", guid);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public List<ShoppingCartState> findByGuids(final Collection<String> guids) {
+        return shoppingCartStateDao.findByNamedQuery("SHOPPINGCARTSTATE.BY.GUIDS", guids);
+    }
+
     /**
      * {@inheritDoc}
      */
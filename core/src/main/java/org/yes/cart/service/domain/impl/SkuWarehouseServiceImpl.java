@@ -18,10 +18,14 @@ package org.yes.cart.service.domain.impl;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.springframework.beans.BeansException;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.yes.cart.cache.impl.DependencyTrackingCache;
 import org.yes.cart.constants.Constants;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.dao.ResultsIterator;
@@ -54,6 +58,15 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
 
     private CustomerOrderService customerOrderService;
 
+    private CacheManager cacheManager;
+
+    private AvailableToSellLedger availableToSellLedger;
+
+    private static final String[] INVENTORY_CACHES = new String[] {
+            "skuWarehouseService-productOnWarehouse",
+            "skuWarehouseService-productSkusOnWarehouse"
+    };
+
 
     /**
      * Construct sku warehouse service.
@@ -68,7 +81,7 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "skuWarehouseService-productSkusOnWarehouse")
+    @Cacheable(value = "skuWarehouseService-productSkusOnWarehouse", key = "{#productId, #warehouseId}")
     public List<SkuWarehouse> getProductSkusOnWarehouse(final long productId, final long warehouseId) {
         return getGenericDao().findByNamedQuery(
                 "SKUS.ON.WAREHOUSE",
@@ -79,7 +92,7 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
     /**
      * {@inheritDoc}
      */
-    @Cacheable(value = "skuWarehouseService-productOnWarehouse")
+    @Cacheable(value = "skuWarehouseService-productOnWarehouse", key = "{#product.productId, #warehouses}")
     public Map<String, BigDecimal> getProductAvailableToSellQuantity(final Product product, final Collection<Warehouse> warehouses) {
 
         final Map<String, BigDecimal> qty = new HashMap<String, BigDecimal>();
@@ -96,6 +109,10 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
             whIds.add(wh.getWarehouseId());
         }
 
+        if (availableToSellLedger != null) {
+            return getProductAvailableToSellQuantityFromLedger(product, whIds, qty);
+        }
+
         final List<Object[]> skuQtyList = getGenericDao().findQueryObjectsByNamedQuery(
                 "PRODUCT.SKU.QTY.ON.WAREHOUSES.BY.SHOP",
                 product.getProductId(),
@@ -113,6 +130,51 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
         return qty;
     }
 
+    private Map<String, BigDecimal> getProductAvailableToSellQuantityFromLedger(final Product product,
+                                                                               final List<Long> whIds,
+                                                                               final Map<String, BigDecimal> qty) {
+
+        final Map<String, BigDecimal> ledgerQty = availableToSellLedger.getProductQuantity(product.getProductId(), whIds);
+        if (ledgerQty != null) {
+            for (final Map.Entry<String, BigDecimal> skuQty : qty.entrySet()) {
+                final BigDecimal ats = ledgerQty.get(skuQty.getKey());
+                if (ats != null) {
+                    skuQty.setValue(ats);
+                }
+            }
+            return qty;
+        }
+
+        final long generation = availableToSellLedger.getGeneration(product.getProductId());
+
+        final List<Object[]> skuQtyList = getGenericDao().findQueryObjectsByNamedQuery(
+                "PRODUCT.SKU.QTY.BY.WAREHOUSE.ON.WAREHOUSES",
+                product.getProductId(),
+                whIds);
+
+        final Map<String, Map<Long, BigDecimal>> atsBySku = new HashMap<String, Map<Long, BigDecimal>>();
+        for (final String skuCode : qty.keySet()) {
+            atsBySku.put(skuCode, new HashMap<Long, BigDecimal>());
+        }
+
+        for (final Object[] skuQty : skuQtyList) {
+            final String skuCode = (String) skuQty[0];
+            final Long warehouseId = (Long) skuQty[1];
+            final BigDecimal stock = (BigDecimal) skuQty[2];
+            final BigDecimal reserved = (BigDecimal) skuQty[3];
+
+            final BigDecimal ats = MoneyUtils.notNull(stock).subtract(MoneyUtils.notNull(reserved));
+            if (atsBySku.containsKey(skuCode)) {
+                atsBySku.get(skuCode).put(warehouseId, ats);
+                qty.put(skuCode, qty.get(skuCode).add(ats));
+            }
+        }
+
+        availableToSellLedger.load(product.getProductId(), generation, whIds, atsBySku);
+
+        return qty;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -130,6 +192,15 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
             whIds.add(wh.getWarehouseId());
         }
 
+        if (availableToSellLedger != null) {
+            final BigDecimal ats = availableToSellLedger.getSkuQuantity(
+                    productSku.getProduct().getProductId(), productSku.getCode(), whIds);
+            if (ats != null) {
+                qty.put(productSku.getCode(), ats);
+                return qty;
+            }
+        }
+
         final List<Object[]> skuQtyList = getGenericDao().findQueryObjectsByNamedQuery(
                 "SKU.QTY.ON.WAREHOUSES.BY.SHOP",
                 productSku.getSkuId(),
@@ -259,26 +330,64 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
     }
 
     /** {@inheritDoc}*/
-    @CacheEvict(value = {
-            "skuWarehouseService-productOnWarehouse",
-            "skuWarehouseService-productSkusOnWarehouse"
-    }, allEntries = true)
     public SkuWarehouse create(SkuWarehouse instance) {
         final SkuWarehouse rez = super.create(instance);
+        inventoryChanged(rez, rez.getAvailableToSell());
         return rez;
     }
 
     /** {@inheritDoc}*/
-    @CacheEvict(value = {
-            "skuWarehouseService-productOnWarehouse",
-            "skuWarehouseService-productSkusOnWarehouse"
-    }, allEntries = true)
     public SkuWarehouse update(SkuWarehouse instance) {
         final SkuWarehouse rez = super.update(instance);
         getGenericDao().flush(); // Need to make changes immediately available
+        inventoryChanged(rez, rez.getAvailableToSell());
         return rez;
     }
 
+    /** {@inheritDoc}*/
+    public void delete(SkuWarehouse instance) {
+        inventoryChanged(instance, BigDecimal.ZERO);
+        super.delete(instance);
+    }
+
+    /*
+     * Inventory caches are evicted only for product of changed SKU and only after transaction
+     * is committed, so that concurrent reads do not cache uncommitted state.
+     */
+    private void inventoryChanged(final SkuWarehouse inventory, final BigDecimal availableToSell) {
+
+        final long productId = inventory.getSku().getProduct().getProductId();
+        final String skuCode = inventory.getSku().getCode();
+        final long warehouseId = inventory.getWarehouse().getWarehouseId();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    applyInventoryChange(productId, skuCode, warehouseId, availableToSell);
+                }
+            });
+        } else {
+            applyInventoryChange(productId, skuCode, warehouseId, availableToSell);
+        }
+
+    }
+
+    private void applyInventoryChange(final long productId, final String skuCode, final long warehouseId, final BigDecimal availableToSell) {
+
+        if (availableToSellLedger != null) {
+            availableToSellLedger.update(productId, skuCode, warehouseId, availableToSell);
+        }
+
+        for (final String cacheName : INVENTORY_CACHES) {
+            final Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                DependencyTrackingCache.evictDependent(cache, productId);
+            }
+        }
+
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -397,6 +506,16 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
         this.productService = productService;
     }
 
+    /** IoC. Set cache manager. */
+    public void setCacheManager(final CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /** IoC. Set optional in-memory available to sell ledger. */
+    public void setAvailableToSellLedger(final AvailableToSellLedger availableToSellLedger) {
+        this.availableToSellLedger = availableToSellLedger;
+    }
+
     private OrderStateManager getOrderStateManager() {
         if (orderStateManager == null) {
             orderStateManager = applicationContext.getBean("orderStateManager", OrderStateManager.class);
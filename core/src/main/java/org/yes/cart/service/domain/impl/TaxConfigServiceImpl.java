@@ -19,18 +19,17 @@ package org.yes.cart.service.domain.impl;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Restrictions;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Tax;
 import org.yes.cart.domain.entity.TaxConfig;
 import org.yes.cart.service.domain.TaxConfigService;
 import org.yes.cart.service.domain.TaxService;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.io.Serializable;
+import java.util.*;
 
 /**
  * User: denispavlov
@@ -41,29 +40,151 @@ public class TaxConfigServiceImpl extends BaseGenericServiceImpl<TaxConfig> impl
 
     private final TaxService taxService;
 
+    private final Cache taxRuleIndexCache;
+
     public TaxConfigServiceImpl(final GenericDAO<TaxConfig, Long> genericDao,
-                                final TaxService taxService) {
+                                final TaxService taxService,
+                                final CacheManager cacheManager) {
         super(genericDao);
         this.taxService = taxService;
+        this.taxRuleIndexCache = cacheManager.getCache("taxConfigService-taxRuleIndex");
     }
 
-    /** {@inheritDoc} */
-    @Cacheable("taxConfigService-getTaxIdBy")
+    /**
+     * {@inheritDoc}
+     *
+     * All tax rules of shop in given currency are loaded once into {@link TaxRuleIndex}, so
+     * resolving tax for any product does not touch database and cache size does not depend
+     * on catalog size.
+     */
     public Long getTaxIdBy(final String shopCode, final String currency, final String countryCode, final String stateCode, final String productCode) {
 
+        return getTaxRuleIndex(shopCode, currency).resolve(
+                StringUtils.isBlank(countryCode) ? null : countryCode,
+                StringUtils.isBlank(stateCode) ? null : stateCode,
+                StringUtils.isBlank(productCode) ? null : productCode
+        );
+
+    }
+
+    private TaxRuleIndex getTaxRuleIndex(final String shopCode, final String currency) {
+
+        final String key = shopCode + ':' + currency;
+        final Cache.ValueWrapper cached = taxRuleIndexCache.get(key);
+        if (cached != null) {
+            return (TaxRuleIndex) cached.get();
+        }
+
+        final TaxRuleIndex index = new TaxRuleIndex();
         final List<Tax> shopTaxes = taxService.getTaxesByShopCode(shopCode, currency);
-        if (shopTaxes.isEmpty()) {
-            return null;
+        if (!shopTaxes.isEmpty()) {
+            final List<TaxConfig> taxConfigs = getGenericDao().findByNamedQuery("TAXCONFIG.IN.TAXES", shopTaxes);
+            for (final TaxConfig taxConfig : taxConfigs) {
+                index.add(taxConfig);
+            }
+        }
+        taxRuleIndexCache.put(key, index);
+        return index;
+
+    }
+
+    /**
+     * Lookup tables of tax rules for single shop and currency. Each table corresponds
+     * to one level of {@link #PRIORITY}, so resolution is a few hash lookups from most
+     * specific to least specific level.
+     */
+    static final class TaxRuleIndex implements Serializable {
+
+        private static final long serialVersionUID = 20140615L;
+
+        private final Map<String, Long> productState = new HashMap<String, Long>();
+        private final Map<String, Long> productCountry = new HashMap<String, Long>();
+        private final Map<String, Long> product = new HashMap<String, Long>();
+        private final Map<String, Long> state = new HashMap<String, Long>();
+        private final Map<String, Long> country = new HashMap<String, Long>();
+        private Long shop;
+
+        void add(final TaxConfig taxConfig) {
+
+            final String countryCode = StringUtils.isBlank(taxConfig.getCountryCode()) ? null : taxConfig.getCountryCode();
+            final String stateCode = StringUtils.isBlank(taxConfig.getStateCode()) ? null : taxConfig.getStateCode();
+            final String productCode = StringUtils.isBlank(taxConfig.getProductCode()) ? null : taxConfig.getProductCode();
+            final Long taxId = taxConfig.getTax().getTaxId();
+
+            if (productCode != null) {
+                if (stateCode != null) {
+                    putIfAbsent(productState, key(productCode, countryCode, stateCode), taxId);
+                } else if (countryCode != null) {
+                    putIfAbsent(productCountry, key(productCode, countryCode), taxId);
+                } else {
+                    putIfAbsent(product, productCode, taxId);
+                }
+            } else if (stateCode != null) {
+                putIfAbsent(state, key(countryCode, stateCode), taxId);
+            } else if (countryCode != null) {
+                putIfAbsent(country, countryCode, taxId);
+            } else if (shop == null) {
+                shop = taxId;
+            }
+
         }
 
-        final List<TaxConfig> taxConfigs = getGenericDao().findByNamedQuery("TAXCONFIG.BY.COUNTRYCODE.STATECODE.PRODUCTCODE.IN.TAXES", shopTaxes, countryCode, stateCode, productCode);
-        if (taxConfigs.isEmpty()) {
-            return null;
+        Long resolve(final String countryCode, final String stateCode, final String productCode) {
+
+            Long taxId;
+            if (productCode != null) {
+                if (stateCode != null) {
+                    taxId = productState.get(key(productCode, countryCode, stateCode));
+                    if (taxId == null && countryCode != null) {
+                        taxId = productState.get(key(productCode, null, stateCode));
+                    }
+                    if (taxId != null) {
+                        return taxId;
+                    }
+                }
+                if (countryCode != null) {
+                    taxId = productCountry.get(key(productCode, countryCode));
+                    if (taxId != null) {
+                        return taxId;
+                    }
+                }
+                taxId = product.get(productCode);
+                if (taxId != null) {
+                    return taxId;
+                }
+            }
+            if (stateCode != null) {
+                taxId = state.get(key(countryCode, stateCode));
+                if (taxId == null && countryCode != null) {
+                    taxId = state.get(key(null, stateCode));
+                }
+                if (taxId != null) {
+                    return taxId;
+                }
+            }
+            if (countryCode != null) {
+                taxId = country.get(countryCode);
+                if (taxId != null) {
+                    return taxId;
+                }
+            }
+            return shop;
+
         }
 
-        Collections.sort(taxConfigs, PRIORITY);
+        private static void putIfAbsent(final Map<String, Long> table, final String key, final Long taxId) {
+            if (!table.containsKey(key)) {
+                table.put(key, taxId);
+            }
+        }
 
-        return taxConfigs.get(0).getTax().getTaxId();
+        private static String key(final String... codes) {
+            final StringBuilder key = new StringBuilder();
+            for (final String code : codes) {
+                key.append(code == null ? "" : code).append('|');
+            }
+            return key.toString();
+        }
 
     }
 
@@ -164,7 +285,7 @@ public class TaxConfigServiceImpl extends BaseGenericServiceImpl<TaxConfig> impl
     }
 
     /** {@inheritDoc} */
-    @CacheEvict(value = "taxConfigService-getTaxIdBy", allEntries = true)
+    @CacheEvict(value = "taxConfigService-taxRuleIndex", allEntries = true)
     public TaxConfig create(final TaxConfig instance) {
         cleanRegionalTaxCodes(instance);
         regenerateGuid(instance);
@@ -172,7 +293,7 @@ public class TaxConfigServiceImpl extends BaseGenericServiceImpl<TaxConfig> impl
     }
 
     /** {@inheritDoc} */
-    @CacheEvict(value = "taxConfigService-getTaxIdBy", allEntries = true)
+    @CacheEvict(value = "taxConfigService-taxRuleIndex", allEntries = true)
     public TaxConfig update(final TaxConfig instance) {
         cleanRegionalTaxCodes(instance);
         regenerateGuid(instance);
@@ -180,7 +301,7 @@ public class TaxConfigServiceImpl extends BaseGenericServiceImpl<TaxConfig> impl
     }
 
     /** {@inheritDoc} */
-    @CacheEvict(value = "taxConfigService-getTaxIdBy", allEntries = true)
+    @CacheEvict(value = "taxConfigService-taxRuleIndex", allEntries = true)
     public void delete(final TaxConfig instance) {
         super.delete(instance);
     }
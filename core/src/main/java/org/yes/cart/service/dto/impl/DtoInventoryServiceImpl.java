@@ -23,6 +23,7 @@ import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.springframework.util.StringUtils;
 import org.yes.cart.dao.CriteriaTuner;
@@ -80,6 +81,11 @@ public class DtoInventoryServiceImpl implements DtoInventoryService {
 
     /** {@inheritDoc} */
     public List<InventoryDTO> getInventoryList(final InventoryFilter filter) {
+        return getInventoryList(filter, 0, -1);
+    }
+
+    /** {@inheritDoc} */
+    public List<InventoryDTO> getInventoryList(final InventoryFilter filter, final int firstResult, final int maxResults) {
 
         final List<InventoryDTO> inventory = new ArrayList<InventoryDTO>();
 
@@ -114,6 +120,14 @@ public class DtoInventoryServiceImpl implements DtoInventoryService {
                     crit.setFetchMode("warehouse", FetchMode.JOIN);
                     crit.setFetchMode("sku", FetchMode.JOIN);
                     crit.setFetchMode("prod", FetchMode.JOIN);
+                    if (maxResults > 0) {
+                        // stable order is required for paging
+                        crit.addOrder(Order.asc("sku.code"));
+                        crit.addOrder(Order.asc("quantity"));
+                        crit.addOrder(Order.asc("skuWarehouseId"));
+                        crit.setFirstResult(firstResult);
+                        crit.setMaxResults(maxResults);
+                    }
                 }
             }, criteria.toArray(new Criterion[criteria.size()]));
 
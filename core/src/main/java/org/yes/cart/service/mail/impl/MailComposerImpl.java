@@ -18,10 +18,14 @@ package org.yes.cart.service.mail.impl;
 
 import groovy.lang.Writable;
 import groovy.text.GStringTemplateEngine;
+import groovy.text.Template;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.yes.cart.domain.entity.CustomerOrder;
@@ -68,14 +72,33 @@ public class MailComposerImpl implements MailComposer {
 
     private final MailTemplateResourcesProvider mailTemplateResourcesProvider;
 
+    private final Cache compiledTemplates;
+
 
     /**
-     * Construct mail composer
+     * Construct mail composer with local compiled templates cache.
      *
      * @param mailTemplateResourcesProvider mail resources provider
      */
     public MailComposerImpl(final MailTemplateResourcesProvider mailTemplateResourcesProvider) throws ClassNotFoundException {
+        this(mailTemplateResourcesProvider, new ConcurrentMapCache("mailComposer-compiledTemplates"));
+    }
+
+    /**
+     * Construct mail composer
+     *
+     * @param mailTemplateResourcesProvider mail resources provider
+     * @param cacheManager                  cache manager that provides compiled templates cache
+     */
+    public MailComposerImpl(final MailTemplateResourcesProvider mailTemplateResourcesProvider,
+                            final CacheManager cacheManager) throws ClassNotFoundException {
+        this(mailTemplateResourcesProvider, cacheManager.getCache("mailComposer-compiledTemplates"));
+    }
+
+    private MailComposerImpl(final MailTemplateResourcesProvider mailTemplateResourcesProvider,
+                             final Cache compiledTemplates) throws ClassNotFoundException {
         this.mailTemplateResourcesProvider = mailTemplateResourcesProvider;
+        this.compiledTemplates = compiledTemplates;
         final ClassLoader classLoader = this.getClass().getClassLoader();
         classLoader.loadClass(DecimalFormat.class.getName());
         this.templateEngine = new GStringTemplateEngine(classLoader);
@@ -92,13 +115,78 @@ public class MailComposerImpl implements MailComposer {
      */
     String merge(final String view, final Map<String, Object> model)
             throws IOException, ClassNotFoundException {
-        final Writable writable = templateEngine.createTemplate(view).make(model);
+        return merge(templateEngine.createTemplate(view), model);
+    }
+
+    /**
+     * Merge model with compiled template for given template part. Compiled template is reused
+     * for as long as resolved template source is the same, so each template is compiled to
+     * groovy class only once.
+     *
+     * @param shopCode     shop code
+     * @param locale       locale
+     * @param templateName template name
+     * @param ext          template part (e.g. ".txt", ".html")
+     * @param view         groovy string template
+     * @param model        model
+     * @return merged view.
+     * @throws java.io.IOException    in case of inline resources can not be found
+     * @throws ClassNotFoundException in case if something wrong with template engine
+     */
+    String merge(final String shopCode,
+                 final String locale,
+                 final String templateName,
+                 final String ext,
+                 final String view,
+                 final Map<String, Object> model)
+            throws IOException, ClassNotFoundException {
+        return merge(getCompiledTemplate(shopCode, locale, templateName, ext, view), model);
+    }
+
+    private String merge(final Template template, final Map<String, Object> model) throws IOException {
+        final Writable writable = template.make(model);
         final StringWriter stringWriter = new StringWriter();
         writable.writeTo(stringWriter);
         stringWriter.close();
         return stringWriter.toString();
     }
 
+    Template getCompiledTemplate(final String shopCode,
+                                 final String locale,
+                                 final String templateName,
+                                 final String ext,
+                                 final String view)
+            throws IOException, ClassNotFoundException {
+
+        final String key = shopCode + ":" + locale + ":" + templateName + ":" + ext;
+        final Cache.ValueWrapper cached = compiledTemplates.get(key);
+        if (cached != null) {
+            final CompiledTemplate compiled = (CompiledTemplate) cached.get();
+            // theme or content may have changed since template was compiled
+            if (compiled.source.equals(view)) {
+                return compiled.template;
+            }
+        }
+        final Template template = templateEngine.createTemplate(view);
+        compiledTemplates.put(key, new CompiledTemplate(view, template));
+        return template;
+
+    }
+
+    /**
+     * Compiled template and source it was compiled from.
+     */
+    private static final class CompiledTemplate {
+
+        private final String source;
+        private final Template template;
+
+        private CompiledTemplate(final String source, final Template template) {
+            this.source = source;
+            this.template = template;
+        }
+    }
+
     void composeMessage(final MimeMessage message,
                         final String shopCode,
                         final String locale,
@@ -175,18 +263,18 @@ public class MailComposerImpl implements MailComposer {
 
         if (textTemplate == null || htmlTemplate == null) {
             if (textTemplate != null) {
-                helper.setText(merge(textTemplate, model), false);
+                helper.setText(merge(shopCode, locale, templateName, ".txt", textTemplate, model), false);
             }
 
             if (htmlTemplate != null) {
-                helper.setText(merge(htmlTemplate, model), true);
+                helper.setText(merge(shopCode, locale, templateName, ".html", htmlTemplate, model), true);
                 inlineResources(helper, htmlTemplate, mailTemplateChain, shopCode, locale, templateName);
             }
 
         } else {
             helper.setText(
-                    merge(textTemplate, model),
-                    merge(htmlTemplate, model)
+                    merge(shopCode, locale, templateName, ".txt", textTemplate, model),
+                    merge(shopCode, locale, templateName, ".html", htmlTemplate, model)
             );
             inlineResources(helper, htmlTemplate, mailTemplateChain, shopCode, locale, templateName);
         }
@@ -403,16 +491,16 @@ public class MailComposerImpl implements MailComposer {
 
         if (textTemplate == null || htmlTemplate == null) {
             if (textTemplate != null) {
-                mail.setTextVersion(merge(textTemplate, model));
+                mail.setTextVersion(merge(shopCode, locale, templateName, ".txt", textTemplate, model));
             }
             if (htmlTemplate != null) {
-                mail.setHtmlVersion(merge(htmlTemplate, model));
+                mail.setHtmlVersion(merge(shopCode, locale, templateName, ".html", htmlTemplate, model));
                 inlineResources(mail, htmlTemplate, mailTemplateChain, shopCode, locale, templateName);
             }
 
         } else {
-            mail.setTextVersion(merge(textTemplate, model));
-            mail.setHtmlVersion(merge(htmlTemplate, model));
+            mail.setTextVersion(merge(shopCode, locale, templateName, ".txt", textTemplate, model));
+            mail.setHtmlVersion(merge(shopCode, locale, templateName, ".html", htmlTemplate, model));
             inlineResources(mail, htmlTemplate, mailTemplateChain, shopCode, locale, templateName);
         }
 
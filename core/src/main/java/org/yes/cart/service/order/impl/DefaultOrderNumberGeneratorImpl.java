@@ -16,18 +16,23 @@
 
 package org.yes.cart.service.order.impl;
 
-import org.yes.cart.dao.GenericDAO;
-import org.yes.cart.domain.entity.CustomerOrder;
+import org.apache.commons.lang.time.FastDateFormat;
 import org.yes.cart.service.order.OrderNumberGenerator;
+import org.yes.cart.service.order.SequenceBlockAllocator;
+import org.yes.cart.util.ShopCodeContext;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  *
  *
- * Generate order numbers - yyyymmdd-xxxxxx format
+ * Generate order numbers - yyMMddHHmmss-xxxxxx format
  *
+ * Sequence part is taken from blocks reserved in shared storage by {@link SequenceBlockAllocator}
+ * (hi/lo), so numbers are unique across cluster nodes. Values within block are handed out without
+ * locking, storage is only accessed once per block.
  *
  * User: Igor Azarny iazarny@yahoo.com
  * Date: 09-May-2011
@@ -35,26 +40,41 @@ import java.util.Date;
  */
 public class DefaultOrderNumberGeneratorImpl implements OrderNumberGenerator {
 
-    private final GenericDAO<CustomerOrder, Long> customerOrderDao ;
+    private static final FastDateFormat DATE_FORMAT = FastDateFormat.getInstance("yyMMddHHmmss");
 
-    private static SimpleDateFormat dateFormat = new SimpleDateFormat("yyMMddHHmmss");
-    private static long orderSequence;
+    private static final int ALLOCATE_ATTEMPTS = 3;
+
+    private final SequenceBlockAllocator sequenceBlockAllocator;
+
+    private final AtomicReference<Block> currentBlock = new AtomicReference<Block>();
+
+    private final Object allocateLock = new Object();
+
+    private String sequenceName = "ORDER";
+
+    private int blockSize = 20;
 
     /**
      * Construct order number generator service.
-     * @param customerOrderDao order dao to use in check what consequence number need to use.
+     *
+     * @param sequenceBlockAllocator allocator of sequence blocks shared by all nodes.
      */
-    public DefaultOrderNumberGeneratorImpl(final GenericDAO<CustomerOrder, Long> customerOrderDao) {
-        this.customerOrderDao = customerOrderDao;
-        orderSequence = -1;
+    public DefaultOrderNumberGeneratorImpl(final SequenceBlockAllocator sequenceBlockAllocator) {
+        this.sequenceBlockAllocator = sequenceBlockAllocator;
     }
 
     /**
-     * Default constructor.
+     * Default constructor (single node sequence starting from 1).
      */
     DefaultOrderNumberGeneratorImpl() {
-        customerOrderDao = null;
-        orderSequence = 0;
+        this(new SequenceBlockAllocator() {
+
+            private final AtomicLong next = new AtomicLong(1L);
+
+            public long allocateBlock(final String sequenceName, final int blockSize) {
+                return next.getAndAdd(blockSize);
+            }
+        });
     }
 
     /**
@@ -62,18 +82,76 @@ public class DefaultOrderNumberGeneratorImpl implements OrderNumberGenerator {
      *
      * @return Generated order number.
      */
-    public synchronized String getNextOrderNumber() {
-        final String datePart = dateFormat.format(new Date()); //TODO: V2 get from time machine
+    public String getNextOrderNumber() {
+        final String datePart = DATE_FORMAT.format(new Date()); //TODO: V2 get from time machine
         return datePart + '-' + getOrderSequence();
     }
 
-    private  long getOrderSequence() {
-        if (DefaultOrderNumberGeneratorImpl.orderSequence == -1) {
-           DefaultOrderNumberGeneratorImpl.orderSequence = Long.valueOf(
-                   String.valueOf(customerOrderDao.getScalarResultByNamedQuery("ORDERS.COUNT")));
+    private long getOrderSequence() {
+        while (true) {
+            final Block block = currentBlock.get();
+            if (block != null) {
+                final long value = block.next.getAndIncrement();
+                if (value < block.limit) {
+                    return value;
+                }
+            }
+            allocateBlock(block);
+        }
+    }
+
+    /*
+     * Only one thread reserves next block, others wait for it instead of reserving blocks
+     * they would not use.
+     */
+    private void allocateBlock(final Block exhausted) {
+        synchronized (allocateLock) {
+            if (currentBlock.get() != exhausted) {
+                return; // another thread has already allocated new block
+            }
+            RuntimeException lastError = null;
+            for (int attempt = 0; attempt < ALLOCATE_ATTEMPTS; attempt++) {
+                try {
+                    final long first = sequenceBlockAllocator.allocateBlock(sequenceName, blockSize);
+                    currentBlock.set(new Block(first, first + blockSize));
+                    return;
+                } catch (RuntimeException exp) {
+                    ShopCodeContext.getLog(this).warn("Unable to allocate block for sequence {}, attempt {}: {}",
+                            new Object[] { sequenceName, attempt + 1, exp.getMessage() });
+                    lastError = exp;
+                }
+            }
+            throw lastError;
+        }
+    }
+
+    /**
+     * @param sequenceName name of sequence in storage
+     */
+    public void setSequenceName(final String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+
+    /**
+     * @param blockSize number of values reserved at once, larger blocks mean fewer storage
+     *                  round trips but bigger gaps in numbers on restart
+     */
+    public void setBlockSize(final int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Reserved block of sequence values.
+     */
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long limit;
+
+        private Block(final long first, final long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
         }
-        DefaultOrderNumberGeneratorImpl.orderSequence ++;
-        return DefaultOrderNumberGeneratorImpl.orderSequence;
     }
 
 }
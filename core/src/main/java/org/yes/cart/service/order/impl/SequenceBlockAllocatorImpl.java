@@ -0,0 +1,66 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.order.impl;
+
+import org.yes.cart.dao.GenericDAO;
+import org.yes.cart.service.order.SequenceBlockAllocator;
+
+/**
+ * Hi/lo block allocator backed by TSEQUENCE table. Each allocation increments the sequence row
+ * by block size, which locks the row until commit, so this must run in its own (new) transaction
+ * to keep lock short and to make sure reserved block is never rolled back with business transaction.
+ * <p/>
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 10:20 AM
+ */
+public class SequenceBlockAllocatorImpl implements SequenceBlockAllocator {
+
+    private final GenericDAO<?, Long> genericDao;
+
+    private long initialValue = 1L;
+
+    /**
+     * Construct allocator.
+     *
+     * @param genericDao any dao (used to execute sequence queries only)
+     */
+    public SequenceBlockAllocatorImpl(final GenericDAO<?, Long> genericDao) {
+        this.genericDao = genericDao;
+    }
+
+    /** {@inheritDoc} */
+    public long allocateBlock(final String sequenceName, final int blockSize) {
+
+        if (genericDao.executeUpdate("SEQUENCE.INCREMENT.BY.NAME", (long) blockSize, sequenceName) == 0) {
+            // first use of this sequence, concurrent create on other node will fail on PK and should be retried
+            genericDao.executeUpdate("SEQUENCE.CREATE", sequenceName, initialValue + blockSize);
+            return initialValue;
+        }
+
+        final Long next = (Long) genericDao.getScalarResultByNamedQuery("SEQUENCE.NEXT.VALUE.BY.NAME", sequenceName);
+        return next - blockSize;
+
+    }
+
+    /**
+     * @param initialValue first value of newly created sequence
+     */
+    public void setInitialValue(final long initialValue) {
+        this.initialValue = initialValue;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart;
+
+import java.io.IOException;
+
+/**
+ * Converts shopping cart to and from bytes for persistent cart states and cart tokens.
+ *
+ * User: denispavlov
+ * Date: 14-06-12
+ * Time: 2:15 PM
+ */
+public interface ShoppingCartStateSerializer {
+
+    /**
+     * Convert cart to bytes.
+     *
+     * @param shoppingCart cart
+     *
+     * @return bytes representing cart state
+     *
+     * @throws IOException if cart cannot be written
+     */
+    byte[] saveState(ShoppingCart shoppingCart) throws IOException;
+
+    /**
+     * Restore cart from bytes produced by {@link #saveState(ShoppingCart)} (or by plain Java
+     * serialization of earlier versions).
+     *
+     * @param bytes bytes representing cart state
+     *
+     * @return cart
+     *
+     * @throws IOException if state is corrupt or of unsupported version
+     */
+    ShoppingCart restoreState(byte[] bytes) throws IOException;
+
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart.impl;
+
+import org.yes.cart.shoppingcart.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact versioned binary format for {@link ShoppingCartImpl} and its parts ({@link CartItemImpl},
+ * {@link ShoppingContextImpl}, {@link OrderInfoImpl} and {@link TotalImpl}).
+ * <p/>
+ * State starts with two byte magic, format version and flags followed by field values in fixed
+ * order (optionally deflated). Numbers are written as variable length integers and decimals as
+ * unscaled value and scale, which makes typical cart several times smaller than Java serialization
+ * and independent of class structure changes.
+ * <p/>
+ * States that start with Java serialization stream magic (i.e. states saved before this format
+ * was introduced) are restored using {@link ObjectInputStream}.
+ *
+ * User: denispavlov
+ * Date: 14-06-12
+ * Time: 2:40 PM
+ */
+public class BinaryShoppingCartStateSerializerImpl implements ShoppingCartStateSerializer {
+
+    private static final int MAGIC_0 = 'Y';
+    private static final int MAGIC_1 = 'C';
+
+    private static final int JAVA_MAGIC_0 = 0xAC;
+    private static final int JAVA_MAGIC_1 = 0xED;
+
+    static final int VERSION = 1;
+
+    private static final int FLAG_DEFLATED = 1;
+
+    private final boolean compress;
+
+    /**
+     * Construct serializer.
+     *
+     * @param compress deflate cart fields (useful for carts stored in cookies and headers)
+     */
+    public BinaryShoppingCartStateSerializerImpl(final boolean compress) {
+        this.compress = compress;
+    }
+
+    /** {@inheritDoc} */
+    public byte[] saveState(final ShoppingCart shoppingCart) throws IOException {
+
+        if (!(shoppingCart instanceof ShoppingCartImpl)) {
+            throw new IOException("Unsupported cart implementation " + (shoppingCart == null ? null : shoppingCart.getClass()));
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        bytes.write(MAGIC_0);
+        bytes.write(MAGIC_1);
+        bytes.write(VERSION);
+        bytes.write(compress ? FLAG_DEFLATED : 0);
+
+        final DeflaterOutputStream deflater = compress ? new DeflaterOutputStream(bytes) : null;
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(deflater != null ? deflater : bytes, 512));
+        writeCart(out, (ShoppingCartImpl) shoppingCart);
+        out.flush();
+        if (deflater != null) {
+            deflater.finish();
+        }
+        out.close();
+
+        return bytes.toByteArray();
+    }
+
+    /** {@inheritDoc} */
+    public ShoppingCart restoreState(final byte[] bytes) throws IOException {
+
+        if (bytes == null || bytes.length < 4) {
+            throw new IOException("Cart state is empty or truncated");
+        }
+
+        final int magic0 = bytes[0] & 0xFF;
+        final int magic1 = bytes[1] & 0xFF;
+
+        if (magic0 == JAVA_MAGIC_0 && magic1 == JAVA_MAGIC_1) {
+            return restoreJavaSerializedState(bytes);
+        }
+
+        if (magic0 != MAGIC_0 || magic1 != MAGIC_1) {
+            throw new IOException("Unknown cart state format");
+        }
+
+        final int version = bytes[2] & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported cart state version " + version);
+        }
+
+        final InputStream payload = new ByteArrayInputStream(bytes, 4, bytes.length - 4);
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(
+                (bytes[3] & FLAG_DEFLATED) != 0 ? new InflaterInputStream(payload) : payload, 512));
+        try {
+            return readCart(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private ShoppingCart restoreJavaSerializedState(final byte[] bytes) throws IOException {
+        final ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return (ShoppingCart) objectInputStream.readObject();
+        } catch (ClassNotFoundException cnfe) {
+            throw new IOException("Unable to restore Java serialized cart state", cnfe);
+        } catch (ClassCastException cce) {
+            throw new IOException("Java serialized state is not a cart", cce);
+        } finally {
+            objectInputStream.close();
+        }
+    }
+
+    private void writeCart(final DataOutput out, final ShoppingCartImpl cart) throws IOException {
+
+        writeString(out, cart.getGuid());
+        writeString(out, cart.getCurrentLocale());
+        writeString(out, cart.getCurrencyCode());
+        writeVarLong(out, cart.getModifiedTimestamp());
+        writeVarLong(out, cart.getProcessingStartTimestamp());
+
+        writeItems(out, cart.getItems());
+        writeItems(out, cart.getGifts());
+        writeItems(out, cart.getShipping());
+        writeStrings(out, cart.getCoupons());
+
+        writeContext(out, cart.getShoppingContext());
+        writeOrderInfo(out, cart.getOrderInfo());
+        writeTotal(out, cart.getTotalState());
+
+    }
+
+    private ShoppingCartImpl readCart(final DataInput in) throws IOException {
+
+        final ShoppingCartImpl cart = new ShoppingCartImpl();
+
+        final String guid = readString(in);
+        cart.setCurrentLocale(readString(in));
+        cart.setCurrencyCode(readString(in));
+        final long modifiedTimestamp = readVarLong(in);
+        final long processingStartTimestamp = readVarLong(in);
+
+        readItems(in, cart.getItems());
+        readItems(in, cart.getGifts());
+        readItems(in, cart.getShipping());
+        final List<String> coupons = readStrings(in);
+        if (coupons != null) {
+            for (final String coupon : coupons) {
+                cart.addCoupon(coupon);
+            }
+        }
+
+        final MutableShoppingContext context = readContext(in);
+        final MutableOrderInfo orderInfo = readOrderInfo(in);
+        final Total total = readTotal(in);
+
+        cart.restoreState(guid, modifiedTimestamp, processingStartTimestamp, context, orderInfo, total);
+
+        return cart;
+    }
+
+    private void writeItems(final DataOutput out, final List<CartItemImpl> items) throws IOException {
+        writeVarInt(out, items.size());
+        for (final CartItemImpl item : items) {
+            writeString(out, item.getProductSkuCode());
+            writeDecimal(out, item.getQty());
+            writeDecimal(out, item.getPrice());
+            writeDecimal(out, item.getSalePrice());
+            writeDecimal(out, item.getListPrice());
+            writeDecimal(out, item.getNetPrice());
+            writeDecimal(out, item.getGrossPrice());
+            writeDecimal(out, item.getTaxRate());
+            writeString(out, item.getTaxCode());
+            writeString(out, item.getAppliedPromo());
+            out.writeByte((item.isTaxExclusiveOfPrice() ? 1 : 0) | (item.isGift() ? 2 : 0) | (item.isPromoApplied() ? 4 : 0));
+        }
+    }
+
+    private void readItems(final DataInput in, final List<CartItemImpl> items) throws IOException {
+        final int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            final CartItemImpl item = new CartItemImpl();
+            item.setProductSkuCode(readString(in));
+            item.setQuantity(readDecimal(in));
+            item.setPrice(readDecimal(in));
+            item.setSalePrice(readDecimal(in));
+            item.setListPrice(readDecimal(in));
+            item.setNetPrice(readDecimal(in));
+            item.setGrossPrice(readDecimal(in));
+            item.setTaxRate(readDecimal(in));
+            item.setTaxCode(readString(in));
+            item.setAppliedPromo(readString(in));
+            final int flags = in.readByte();
+            item.setTaxExclusiveOfPrice((flags & 1) != 0);
+            item.setGift((flags & 2) != 0);
+            item.setPromoApplied((flags & 4) != 0);
+            items.add(item);
+        }
+    }
+
+    private void writeContext(final DataOutput out, final ShoppingContext context) throws IOException {
+        writeVarLong(out, context.getShopId());
+        writeString(out, context.getShopCode());
+        writeString(out, context.getCountryCode());
+        writeString(out, context.getStateCode());
+        writeString(out, context.getCustomerName());
+        writeString(out, context.getCustomerEmail());
+        writeStrings(out, context.getCustomerShops());
+        writeStrings(out, context.getLatestViewedSkus());
+        writeStrings(out, context.getLatestViewedCategories());
+        writeString(out, context.getResolvedIp());
+    }
+
+    private MutableShoppingContext readContext(final DataInput in) throws IOException {
+        final ShoppingContextImpl context = new ShoppingContextImpl();
+        // shop must be set first as changing shop clears shop related parameters
+        context.setShopId(readVarLong(in));
+        final String shopCode = readString(in);
+        if (shopCode != null) {
+            context.setShopCode(shopCode);
+        }
+        context.setCountryCode(readString(in));
+        context.setStateCode(readString(in));
+        context.setCustomerName(readString(in));
+        context.setCustomerEmail(readString(in));
+        context.setCustomerShops(readStrings(in));
+        context.setLatestViewedSkus(readStrings(in));
+        context.setLatestViewedCategories(readStrings(in));
+        context.setResolvedIp(readString(in));
+        return context;
+    }
+
+    private void writeOrderInfo(final DataOutput out, final OrderInfo orderInfo) throws IOException {
+        writeString(out, orderInfo.getPaymentGatewayLabel());
+        writeString(out, orderInfo.getOrderMessage());
+        writeLong(out, orderInfo.getCarrierSlaId());
+        writeLong(out, orderInfo.getBillingAddressId());
+        writeLong(out, orderInfo.getDeliveryAddressId());
+        out.writeByte((orderInfo.isMultipleDelivery() ? 1 : 0)
+                | (orderInfo.isSeparateBillingAddress() ? 2 : 0)
+                | (orderInfo.isBillingAddressNotRequired() ? 4 : 0)
+                | (orderInfo.isDeliveryAddressNotRequired() ? 8 : 0));
+    }
+
+    private MutableOrderInfo readOrderInfo(final DataInput in) throws IOException {
+        final OrderInfoImpl orderInfo = new OrderInfoImpl();
+        orderInfo.setPaymentGatewayLabel(readString(in));
+        orderInfo.setOrderMessage(readString(in));
+        orderInfo.setCarrierSlaId(readLong(in));
+        orderInfo.setBillingAddressId(readLong(in));
+        orderInfo.setDeliveryAddressId(readLong(in));
+        final int flags = in.readByte();
+        orderInfo.setMultipleDelivery((flags & 1) != 0);
+        orderInfo.setSeparateBillingAddress((flags & 2) != 0);
+        orderInfo.setBillingAddressNotRequired((flags & 4) != 0);
+        orderInfo.setDeliveryAddressNotRequired((flags & 8) != 0);
+        return orderInfo;
+    }
+
+    private void writeTotal(final DataOutput out, final Total total) throws IOException {
+        out.writeBoolean(total != null);
+        if (total != null) {
+            writeDecimal(out, total.getListSubTotal());
+            writeDecimal(out, total.getSaleSubTotal());
+            writeDecimal(out, total.getNonSaleSubTotal());
+            writeDecimal(out, total.getPriceSubTotal());
+            out.writeBoolean(total.isOrderPromoApplied());
+            writeString(out, total.getAppliedOrderPromo());
+            writeDecimal(out, total.getSubTotal());
+            writeDecimal(out, total.getSubTotalTax());
+            writeDecimal(out, total.getSubTotalAmount());
+            writeDecimal(out, total.getDeliveryListCost());
+            writeDecimal(out, total.getDeliveryCost());
+            out.writeBoolean(total.isDeliveryPromoApplied());
+            writeString(out, total.getAppliedDeliveryPromo());
+            writeDecimal(out, total.getDeliveryTax());
+            writeDecimal(out, total.getDeliveryCostAmount());
+            writeDecimal(out, total.getTotal());
+            writeDecimal(out, total.getTotalTax());
+            writeDecimal(out, total.getListTotalAmount());
+            writeDecimal(out, total.getTotalAmount());
+        }
+    }
+
+    private Total readTotal(final DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return new TotalImpl(
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                in.readBoolean(),
+                readString(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                in.readBoolean(),
+                readString(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in)
+        );
+    }
+
+    private void writeStrings(final DataOutput out, final List<String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, values.size() + 1);
+        for (final String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private List<String> readStrings(final DataInput in) throws IOException {
+        final int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        final List<String> values = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private void writeString(final DataOutput out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private String readString(final DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private void writeLong(final DataOutput out, final Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeVarLong(out, value);
+        }
+    }
+
+    private Long readLong(final DataInput in) throws IOException {
+        return in.readBoolean() ? readVarLong(in) : null;
+    }
+
+    /*
+     * Decimal is written as scale + 1 (0 for null) followed by unscaled value, which is
+     * a zig-zag var long when it fits or length prefixed two's complement bytes otherwise.
+     */
+    private void writeDecimal(final DataOutput out, final BigDecimal value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        final int scale = value.scale();
+        if (scale < 0) {
+            writeDecimal(out, value.setScale(0));
+            return;
+        }
+        writeVarInt(out, scale + 1);
+        final BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 63) {
+            out.writeBoolean(true);
+            writeVarLong(out, unscaled.longValue());
+        } else {
+            out.writeBoolean(false);
+            final byte[] bytes = unscaled.toByteArray();
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private BigDecimal readDecimal(final DataInput in) throws IOException {
+        final int scale = readVarInt(in) - 1;
+        if (scale < 0) {
+            return null;
+        }
+        if (in.readBoolean()) {
+            return BigDecimal.valueOf(readVarLong(in), scale);
+        }
+        final byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    private void writeVarInt(final DataOutput out, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private int readVarInt(final DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed var int");
+    }
+
+    private void writeVarLong(final DataOutput out, final long value) throws IOException {
+        long remaining = (value << 1) ^ (value >> 63); // zig-zag so that small negatives are short too
+        while ((remaining & ~0x7FL) != 0L) {
+            out.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    private long readVarLong(final DataInput in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final int b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+        throw new IOException("Malformed var long");
+    }
+
+}
@@ -21,6 +21,7 @@ import org.yes.cart.constants.Constants;
 import org.yes.cart.domain.entity.Customer;
 import org.yes.cart.domain.entity.CustomerOrder;
 import org.yes.cart.domain.entity.CustomerOrderDelivery;
+import org.yes.cart.promotion.CustomerPromotionSnapshot;
 import org.yes.cart.promotion.PromotionContext;
 import org.yes.cart.promotion.PromotionContextFactory;
 import org.yes.cart.service.domain.CustomerService;
@@ -87,17 +88,22 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
     /** {@inheritDoc} */
     public Total calculate(final MutableShoppingCart cart) {
 
+        final PromotionContext promoCtx = promotionContextFactory.getInstance(cart.getShoppingContext().getShopCode(), cart.getCurrencyCode());
+
+        final CustomerPromotionSnapshot customerSnapshot;
         final Customer customer;
         if (StringUtils.isNotBlank(cart.getCustomerEmail())) {
-            customer = customerService.getCustomerByEmail(cart.getCustomerEmail());
+            customerSnapshot = customerService.getCustomerPromotionSnapshotByEmail(cart.getCustomerEmail());
+            // full entity is only loaded if some promotion condition uses "customer" variable
+            customer = customerSnapshot != null && promoCtx.isCustomerRequired() ?
+                    customerService.getCustomerByEmail(cart.getCustomerEmail()) : null;
         } else {
+            customerSnapshot = null;
             customer = null;
         }
 
-        final PromotionContext promoCtx = promotionContextFactory.getInstance(cart.getShoppingContext().getShopCode(), cart.getCurrencyCode());
-
         // 1. Apply all item level promotions as the first step
-        applyItemLevelPromotions(customer, cart, promoCtx);
+        applyItemLevelPromotions(customer, customerSnapshot, cart, promoCtx);
 
         // 2. Calculate current subtotal (including item promotions, excluding delivery cost)
         final Total itemTotal = applyTaxToCartItemsAndCalculateItemTotal(cart);
@@ -109,11 +115,11 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
         final Total draftOrderTotal = itemTotal.add(deliveryCostTotalNoTax);
 
         // 5. Use current cart + dummy item total to calculate order level promotions
-        final Total orderTotal = applyOrderLevelPromotions(customer, cart, draftOrderTotal, promoCtx);
+        final Total orderTotal = applyOrderLevelPromotions(customer, customerSnapshot, cart, draftOrderTotal, promoCtx);
 
         // 6. At this stage we have reliable total for the whole order so we can
         //    calculate shipping promotions
-        applyShippingPromotions(customer, cart, orderTotal, promoCtx);
+        applyShippingPromotions(customer, customerSnapshot, cart, orderTotal, promoCtx);
 
         // 7. Calculate final order total (including delivery cost)
         final Total finalTotal = applyTaxToShippingAndCalculateOrderTotal(cart, orderTotal);
@@ -123,19 +129,21 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
     }
 
     void applyItemLevelPromotions(final Customer customer,
+                                  final CustomerPromotionSnapshot customerSnapshot,
                                   final MutableShoppingCart cart,
                                   final PromotionContext promoCtx) {
 
-        promoCtx.applyItemPromo(customer, cart);
+        promoCtx.applyItemPromo(customer, customerSnapshot, cart);
 
     }
 
     Total applyOrderLevelPromotions(final Customer customer,
+                                    final CustomerPromotionSnapshot customerSnapshot,
                                     final MutableShoppingCart cart,
                                     final Total itemTotal,
                                     final PromotionContext promoCtx) {
 
-        final Total tmp = promoCtx.applyOrderPromo(customer, cart, itemTotal);
+        final Total tmp = promoCtx.applyOrderPromo(customer, customerSnapshot, cart, itemTotal);
 
         final BigDecimal orderLevelDiscountRatio = MoneyUtils.isFirstBiggerThanSecond(itemTotal.getSubTotal(), BigDecimal.ZERO) ? tmp.getSubTotal().divide(itemTotal.getSubTotal(), 16, RoundingMode.HALF_UP) : Total.ZERO;
 
@@ -173,11 +181,12 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
     }
 
     void applyShippingPromotions(final Customer customer,
+                                 final CustomerPromotionSnapshot customerSnapshot,
                                  final MutableShoppingCart cart,
                                  final Total orderTotal,
                                  final PromotionContext promoCtx) {
 
-        promoCtx.applyShippingPromo(customer, cart, orderTotal);
+        promoCtx.applyShippingPromo(customer, customerSnapshot, cart, orderTotal);
 
     }
 
@@ -564,6 +564,30 @@ public class ShoppingCartImpl implements MutableShoppingCart {
         return shipping;
     }
 
+    /**
+     * Internal access to restore state (see {@link BinaryShoppingCartStateSerializerImpl}).
+     */
+    void restoreState(final String guid,
+                      final long modifiedTimestamp,
+                      final long processingStartTimestamp,
+                      final MutableShoppingContext shoppingContext,
+                      final MutableOrderInfo orderInfo,
+                      final Total total) {
+        this.guid = guid;
+        this.modifiedTimestamp = modifiedTimestamp;
+        this.processingStartTimestamp = processingStartTimestamp;
+        this.shoppingContext = shoppingContext;
+        this.orderInfo = orderInfo;
+        this.total = total;
+    }
+
+    /**
+     * Internal access to total without recalculation warning.
+     */
+    Total getTotalState() {
+        return total;
+    }
+
     /** {@inheritDoc} */
     public String getCurrencyCode() {
         return currencyCode;
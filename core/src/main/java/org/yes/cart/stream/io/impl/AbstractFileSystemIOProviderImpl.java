@@ -22,6 +22,8 @@ import org.yes.cart.util.ShopCodeContext;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Map;
 
 /**
@@ -83,18 +85,41 @@ public abstract class AbstractFileSystemIOProviderImpl implements IOProvider {
 
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ReadableByteChannel open(final String uri, final Map<String, Object> context) throws IOException {
+
+        return new RandomAccessFile(resolveFileFromUri(uri, context), "r").getChannel();
+
+    }
+
     /** {@inheritDoc} */
     @Override
     public void write(final String uri, final byte[] content, final Map<String, Object> context) throws IOException {
 
         final File file = resolveFileFromUri(uri, context);
+        final File dir = file.getParentFile();
 
         // ensure we create all dirs necessary
-        if (!file.getParentFile().mkdirs()) {
+        if (!dir.exists() && !dir.mkdirs()) {
             ShopCodeContext.getLog(this).error("Unable to create directory {}", file.getParent());
         }
 
-        FileUtils.writeByteArrayToFile(resolveFileFromUri(uri, context), content);
+        // write to temporary file in the same directory and rename, so that readers never see partial content
+        final File tmp = File.createTempFile("." + file.getName() + "-", ".tmp", dir);
+        try {
+            FileUtils.writeByteArrayToFile(tmp, content);
+            if (!tmp.renameTo(file)) {
+                // some platforms do not allow to rename over existing file
+                if ((file.exists() && !file.delete()) || !tmp.renameTo(file)) {
+                    throw new IOException("Unable to move " + tmp.getAbsolutePath() + " to " + file.getAbsolutePath());
+                }
+            }
+        } finally {
+            if (tmp.exists() && !tmp.delete()) {
+                ShopCodeContext.getLog(this).error("Unable to delete temporary file {}", tmp.getAbsolutePath());
+            }
+        }
 
     }
 
@@ -19,6 +19,7 @@ package org.yes.cart.stream.io.impl;
 import org.yes.cart.stream.io.IOProvider;
 
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Map;
 
 /**
@@ -80,6 +81,17 @@ public class IOProviderFactoryImpl implements IOProvider {
         throw new IOException("Unsupported uri " + uri);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ReadableByteChannel open(final String uri, final Map<String, Object> context) throws IOException {
+        for (final IOProvider ioProvider : ioProviders) {
+            if (ioProvider.supports(uri)) {
+                return ioProvider.open(uri, context);
+            }
+        }
+        throw new IOException("Unsupported uri " + uri);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void write(final String uri, final byte[] content, final Map<String, Object> context) throws IOException {
@@ -50,6 +50,13 @@ public interface BackdoorService {
     @WebResult(name = "warmUp")
     void warmUp();
 
+    /**
+     * @return true if node has finished warm up and is ready to serve traffic
+     */
+    @WebMethod
+    @WebResult(name = "ready")
+    boolean isReady();
+
     /**
      * Reindex all products.
      *
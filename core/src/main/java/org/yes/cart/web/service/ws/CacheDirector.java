@@ -17,6 +17,7 @@ package org.yes.cart.web.service.ws;
 
 
 import org.yes.cart.domain.dto.impl.CacheInfoDTOImpl;
+import org.yes.cart.domain.dto.impl.CacheableChangeDTOImpl;
 
 import javax.jws.WebMethod;
 import javax.jws.WebResult;
@@ -81,4 +82,14 @@ public interface CacheDirector {
     @WebResult(name = "itemCount")
     int onCacheableChange(String entityOperation, String entityName, Long pkValue);
 
+    /**
+     * Fire batch of entity change events (e.g. all changes of single transaction). Each cache
+     * that has "all" eviction strategy is cleared only once per batch.
+     *
+     * @param changes changes
+     */
+    @WebMethod
+    @WebResult(name = "itemCount")
+    int onCacheableChanges(List<CacheableChangeDTOImpl> changes);
+
 }
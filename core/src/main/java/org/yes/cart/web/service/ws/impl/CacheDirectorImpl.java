@@ -17,7 +17,9 @@ package org.yes.cart.web.service.ws.impl;
 
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.yes.cart.cache.impl.DependencyTrackingCache;
 import org.yes.cart.domain.dto.impl.CacheInfoDTOImpl;
+import org.yes.cart.domain.dto.impl.CacheableChangeDTOImpl;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.util.ShopCodeContext;
 import org.yes.cart.web.service.ws.CacheDirector;
@@ -101,35 +103,88 @@ public class CacheDirectorImpl implements CacheDirector {
      */
     public int onCacheableChange(final String entityOperation, final String entityName, final Long pkValue) {
 
+        return onCacheableChanges(Collections.singletonList(new CacheableChangeDTOImpl(entityOperation, entityName, pkValue)));
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int onCacheableChanges(final List<CacheableChangeDTOImpl> changes) {
+
         int cnt = 0;
 
-        final Set<Pair<String, String>> cacheNames = resolveCacheNames(entityOperation, entityName);
+        if (changes == null || changes.isEmpty()) {
+            return cnt;
+        }
+
+        final CacheManager cm = getCacheManager();
+
+        // caches that are cleared are cleared only once and no need to evict keys from them
+        final Set<String> cleared = new HashSet<String>();
+        for (final CacheableChangeDTOImpl change : changes) {
+
+            final Set<Pair<String, String>> cacheNames = resolveCacheNames(change.getEntityOperation(), change.getEntityName());
+
+            if (cacheNames != null) {
+
+                for (Pair<String, String> cacheStrategy : cacheNames) {
+
+                    if ("all".equals(cacheStrategy.getSecond()) && !cleared.contains(cacheStrategy.getFirst())) {
+
+                        final Cache cache = cm.getCache(cacheStrategy.getFirst());
+
+                        if (cache != null) {
 
-        if (cacheNames != null) {
+                            cache.clear();
 
-            final CacheManager cm = getCacheManager();
+                            cleared.add(cacheStrategy.getFirst());
+
+                            cnt ++;
+
+                        }
+
+                    }
+
+                }
+
+            }
+
+        }
+
+        for (final CacheableChangeDTOImpl change : changes) {
+
+            final Set<Pair<String, String>> cacheNames = resolveCacheNames(change.getEntityOperation(), change.getEntityName());
+
+            if (cacheNames != null) {
+
+                for (Pair<String, String> cacheStrategy : cacheNames) {
+
+                    if ("all".equals(cacheStrategy.getSecond()) || cleared.contains(cacheStrategy.getFirst())) {
+                        continue;
+                    }
 
-            for (Pair<String, String> cacheStrategy : cacheNames) {
+                    final Cache cache = cm.getCache(cacheStrategy.getFirst());
 
-                final Cache cache = cm.getCache(cacheStrategy.getFirst());
+                    if (cache != null) {
 
-                if (cache != null) {
+                        if("key".equals(cacheStrategy.getSecond())) {
 
-                    if("all".equals(cacheStrategy.getSecond())) {
+                            cache.evict(change.getPkValue());
 
-                        cache.clear();
+                            cnt ++;
 
-                        cnt ++;
+                        } else if("dependency".equals(cacheStrategy.getSecond())) {
 
-                    } else if("key".equals(cacheStrategy.getSecond())) {
+                            DependencyTrackingCache.evictDependent(cache, change.getPkValue());
 
-                        cache.evict(pkValue);
+                            cnt ++;
 
-                        cnt ++;
+                        } else {
 
-                    } else {
+                            ShopCodeContext.getLog(this).warn("The [" + cacheStrategy.getSecond() + "] cache eviction strategy not supported");
 
-                        ShopCodeContext.getLog(this).warn("The [" + cacheStrategy.getSecond() + "] cache eviction strategy not supported");
+                        }
 
                     }
 
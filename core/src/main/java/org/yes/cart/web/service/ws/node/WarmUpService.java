@@ -31,4 +31,9 @@ public interface WarmUpService {
      */
     void warmUp();
 
+    /**
+     * @return true once warm up has finished and node is ready to serve traffic
+     */
+    boolean isReady();
+
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.bulkjob.mail;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mail.MailException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.yes.cart.domain.entity.AttrValueSystem;
+import org.yes.cart.domain.entity.Mail;
+import org.yes.cart.domain.entity.impl.MailEntity;
+import org.yes.cart.service.domain.MailService;
+import org.yes.cart.service.domain.RuntimeAttributeService;
+import org.yes.cart.service.domain.SystemService;
+import org.yes.cart.service.mail.MailComposer;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 3:10 PM
+ */
+public class BulkMailProcessorImplTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testRenderConcurrentlySendInOrder() throws Exception {
+
+        final MailService mailService = context.mock(MailService.class, "mailService");
+        final SystemService systemService = context.mock(SystemService.class, "systemService");
+        final RuntimeAttributeService runtimeAttributeService = context.mock(RuntimeAttributeService.class, "runtimeAttributeService");
+
+        final Mail mail1 = createMail(1L);
+        final Mail mail2 = createMail(2L);
+        final Mail mail3 = createMail(3L);
+
+        context.checking(new Expectations() {{
+            allowing(systemService).getAttributeValues(); will(returnValue(Collections.singletonMap("JOB_SEND_MAIL_PAUSE", (AttrValueSystem) null)));
+            allowing(systemService).getAttributeValue("JOB_SEND_MAIL_PAUSE"); will(returnValue("false"));
+            one(mailService).findOldestMails(2); will(returnValue(Arrays.asList(mail1, mail2)));
+            one(mailService).delete(mail1);
+            one(mailService).delete(mail2);
+            one(mailService).findOldestMails(2); will(returnValue(Arrays.asList(mail3)));
+            one(mailService).delete(mail3);
+            one(mailService).findOldestMails(2); will(returnValue(Collections.emptyList()));
+        }});
+
+        final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+
+        final JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl() {
+            @Override
+            public void send(final MimeMessage mimeMessage) throws MailException {
+                try {
+                    sent.add(mimeMessage.getSubject());
+                } catch (MessagingException exp) {
+                    throw new IllegalStateException(exp);
+                }
+            }
+        };
+
+        final MailComposer mailComposer = new MailComposer() {
+            public void composeMessage(final Mail mail, final String shopCode, final String locale, final List<String> mailTemplateChain,
+                                       final String templateName, final String from, final String toEmail, final String ccEmail,
+                                       final String bccEmail, final Map<String, Object> model) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void convertMessage(final Mail mail, final MimeMessage mimeMessage) throws MessagingException {
+                if (mail.getMailId() == 1L) {
+                    try {
+                        Thread.sleep(100L); // first message renders last
+                    } catch (InterruptedException e) {
+                        // continue
+                    }
+                }
+                mimeMessage.setSubject(mail.getSubject());
+            }
+        };
+
+        final BulkMailProcessorImpl processor = new BulkMailProcessorImpl(mailService, mailComposer, javaMailSender, systemService, runtimeAttributeService);
+        processor.setBatchSize(2);
+        processor.setCycleExceptionsThreshold(3);
+        processor.setRenderExecutor(new SimpleAsyncTaskExecutor());
+
+        processor.run();
+
+        assertEquals(Arrays.asList("Mail 1", "Mail 2", "Mail 3"), sent);
+
+        context.assertIsSatisfied();
+
+    }
+
+    private Mail createMail(final long id) {
+        final Mail mail = new MailEntity();
+        mail.setMailId(id);
+        mail.setSubject("Mail " + id);
+        mail.setRecipients("bender@futurama.com");
+        return mail;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache.impl;
+
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-10
+ * Time: 11:02 AM
+ */
+public class DependencyTrackingCacheTest {
+
+    @Test
+    public void testEvictDependentOnlyEvictsEntriesOfThatDependency() throws Exception {
+
+        final DependencyTrackingCache cache = new DependencyTrackingCache(
+                new ConcurrentMapCache("test"), new KeyElementCacheDependencyResolverImpl(1), 100);
+
+        cache.put(Arrays.asList("en", 10L, 0L), "p10-en");
+        cache.put(Arrays.asList("ru", 10L, 0L), "p10-ru");
+        cache.put(Arrays.asList("en", 11L, 0L), "p11-en");
+
+        assertEquals(2, cache.evictDependent(10L));
+
+        assertNull(cache.get(Arrays.asList("en", 10L, 0L)));
+        assertNull(cache.get(Arrays.asList("ru", 10L, 0L)));
+        assertEquals("p11-en", cache.get(Arrays.asList("en", 11L, 0L)).get());
+
+    }
+
+    @Test
+    public void testEvictDependentAlwaysEvictsUnresolvedEntries() throws Exception {
+
+        final DependencyTrackingCache cache = new DependencyTrackingCache(
+                new ConcurrentMapCache("test"), new ProductCacheDependencyResolverImpl(), 100);
+
+        cache.put("unknown", null);
+        cache.put("other", "value");
+
+        assertEquals(2, cache.evictDependent(10L));
+
+        assertNull(cache.get("unknown"));
+        assertNull(cache.get("other"));
+
+    }
+
+    @Test
+    public void testTrackingLimitClearsCache() throws Exception {
+
+        final DependencyTrackingCache cache = new DependencyTrackingCache(
+                new ConcurrentMapCache("test"), new KeyElementCacheDependencyResolverImpl(0), 2);
+
+        cache.put(1L, "1");
+        cache.put(2L, "2");
+        cache.put(3L, "3");
+
+        assertNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("3", cache.get(3L).get());
+
+    }
+
+    @Test
+    public void testEvictionPrunesDependencyIndex() throws Exception {
+
+        final DependencyTrackingCache cache = new DependencyTrackingCache(
+                new ConcurrentMapCache("test"), new KeyElementCacheDependencyResolverImpl(1), 100);
+
+        cache.put(Arrays.asList("en", 10L, 0L), "p10-en");
+        cache.put(Arrays.asList("en", 11L, 0L), "p11-en");
+        cache.put(Arrays.asList("en", 12L, 0L), "p12-en");
+
+        assertEquals(3, cache.getTrackedDependencies());
+        assertEquals(3, cache.getTrackedKeys());
+
+        cache.evict(Arrays.asList("en", 11L, 0L));
+
+        assertEquals(2, cache.getTrackedDependencies());
+        assertEquals(2, cache.getTrackedKeys());
+
+        assertEquals(1, cache.evictDependent(10L));
+
+        assertEquals(1, cache.getTrackedDependencies());
+        assertEquals(1, cache.getTrackedKeys());
+        assertEquals("p12-en", cache.get(Arrays.asList("en", 12L, 0L)).get());
+
+    }
+
+    @Test
+    public void testExpiredEntryIsPrunedOnGet() throws Exception {
+
+        final Cache delegate = new ConcurrentMapCache("test");
+        final DependencyTrackingCache cache = new DependencyTrackingCache(
+                delegate, new KeyElementCacheDependencyResolverImpl(1), 100);
+
+        cache.put(Arrays.asList("en", 10L, 0L), "p10-en");
+        assertEquals(1, cache.getTrackedKeys());
+
+        // underlying cache expires entry without notifying decorator
+        delegate.evict(Arrays.asList("en", 10L, 0L));
+
+        assertNull(cache.get(Arrays.asList("en", 10L, 0L)));
+        assertEquals(0, cache.getTrackedDependencies());
+        assertEquals(0, cache.getTrackedKeys());
+
+    }
+
+    @Test
+    public void testEvictDependentOnNonTrackingCacheClearsIt() throws Exception {
+
+        final Cache cache = new ConcurrentMapCache("test");
+        cache.put(1L, "1");
+
+        assertEquals(-1, DependencyTrackingCache.evictDependent(cache, 2L));
+        assertNull(cache.get(1L));
+
+    }
+
+}
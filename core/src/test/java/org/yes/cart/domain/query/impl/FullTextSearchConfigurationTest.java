@@ -449,14 +449,14 @@ public class FullTextSearchConfigurationTest extends AbstractTestDAO {
                 final FilteredNavigationRecordRequest priceInCategories =
                         new FilteredNavigationRecordRequestImpl(
                                 "priceFacet",
-                                "facet_price_10_EUR",
+                                "facet_nprice_10_EUR",
                                 new ArrayList<Pair<String, String>>() {{
-                                    add(new Pair<String, String>("00000000", "00001500")); // test exclusive hi PRODUCT1
-                                    add(new Pair<String, String>("00001500", "00001600")); // test inclusive lo PRODUCT1
-                                    add(new Pair<String, String>("00001600", "00030000")); // 2 in range, overlapping PRODUCT3
-                                    add(new Pair<String, String>("00025000", "00030000")); // overlapping PRODUCT3
-                                    add(new Pair<String, String>("00030000", "00040000")); // blank bucket
-                                    add(new Pair<String, String>("00030000", "01000000")); // 2 in range
+                                    add(new Pair<String, String>("0", "1500")); // test exclusive hi PRODUCT1
+                                    add(new Pair<String, String>("1500", "1600")); // test inclusive lo PRODUCT1
+                                    add(new Pair<String, String>("1600", "30000")); // 2 in range, overlapping PRODUCT3
+                                    add(new Pair<String, String>("25000", "30000")); // overlapping PRODUCT3
+                                    add(new Pair<String, String>("30000", "40000")); // blank bucket
+                                    add(new Pair<String, String>("30000", "1000000")); // 2 in range
                                 }}
                         );
 
@@ -466,17 +466,17 @@ public class FullTextSearchConfigurationTest extends AbstractTestDAO {
                 priceFacetResults = facets.get("priceFacet");
                 assertNotNull(priceFacetResults);
                 assertEquals(6, priceFacetResults.size());
-                assertEquals("[00000000, 00001500)", priceFacetResults.get(0).getFirst());
+                assertEquals("[0, 1500)", priceFacetResults.get(0).getFirst());
                 assertEquals(Integer.valueOf(0), priceFacetResults.get(0).getSecond());
-                assertEquals("[00001500, 00001600)", priceFacetResults.get(1).getFirst());
+                assertEquals("[1500, 1600)", priceFacetResults.get(1).getFirst());
                 assertEquals(Integer.valueOf(1), priceFacetResults.get(1).getSecond());
-                assertEquals("[00001600, 00030000)", priceFacetResults.get(2).getFirst());
+                assertEquals("[1600, 30000)", priceFacetResults.get(2).getFirst());
                 assertEquals(Integer.valueOf(2), priceFacetResults.get(2).getSecond());
-                assertEquals("[00025000, 00030000)", priceFacetResults.get(3).getFirst());
+                assertEquals("[25000, 30000)", priceFacetResults.get(3).getFirst());
                 assertEquals(Integer.valueOf(1), priceFacetResults.get(3).getSecond());
-                assertEquals("[00030000, 00040000)", priceFacetResults.get(4).getFirst());
+                assertEquals("[30000, 40000)", priceFacetResults.get(4).getFirst());
                 assertEquals(Integer.valueOf(0), priceFacetResults.get(4).getSecond());
-                assertEquals("[00030000, 01000000]", priceFacetResults.get(5).getFirst());
+                assertEquals("[30000, 1000000]", priceFacetResults.get(5).getFirst());
                 assertEquals(Integer.valueOf(2), priceFacetResults.get(5).getSecond());
 
                 context = luceneQueryFactory.getFilteredNavigationQueryChain(10L, null, null);
@@ -546,14 +546,14 @@ public class FullTextSearchConfigurationTest extends AbstractTestDAO {
                 final FilteredNavigationRecordRequest priceInShop1 =
                         new FilteredNavigationRecordRequestImpl(
                                 "priceFacet",
-                                "facet_price_10_EUR",
+                                "facet_nprice_10_EUR",
                                 new ArrayList<Pair<String, String>>() {{
-                                    add(new Pair<String, String>("00000000", "00001500"));
-                                    add(new Pair<String, String>("00001500", "00001600"));
-                                    add(new Pair<String, String>("00001600", "00030000"));
-                                    add(new Pair<String, String>("00025000", "00030000"));
-                                    add(new Pair<String, String>("00030000", "00040000"));
-                                    add(new Pair<String, String>("00030000", "01000000"));
+                                    add(new Pair<String, String>("0", "1500"));
+                                    add(new Pair<String, String>("1500", "1600"));
+                                    add(new Pair<String, String>("1600", "30000"));
+                                    add(new Pair<String, String>("25000", "30000"));
+                                    add(new Pair<String, String>("30000", "40000"));
+                                    add(new Pair<String, String>("30000", "1000000"));
                                 }}
                         );
 
@@ -563,31 +563,31 @@ public class FullTextSearchConfigurationTest extends AbstractTestDAO {
                 priceFacetResults = facets.get("priceFacet");
                 assertNotNull(priceFacetResults);
                 assertEquals(6, priceFacetResults.size());
-                assertEquals("[00000000, 00001500)", priceFacetResults.get(0).getFirst());
+                assertEquals("[0, 1500)", priceFacetResults.get(0).getFirst());
                 assertEquals(Integer.valueOf(4), priceFacetResults.get(0).getSecond());
-                assertEquals("[00001500, 00001600)", priceFacetResults.get(1).getFirst());
+                assertEquals("[1500, 1600)", priceFacetResults.get(1).getFirst());
                 assertEquals(Integer.valueOf(1), priceFacetResults.get(1).getSecond());
-                assertEquals("[00001600, 00030000)", priceFacetResults.get(2).getFirst());
+                assertEquals("[1600, 30000)", priceFacetResults.get(2).getFirst());
                 assertEquals(Integer.valueOf(11), priceFacetResults.get(2).getSecond());
-                assertEquals("[00025000, 00030000)", priceFacetResults.get(3).getFirst());
+                assertEquals("[25000, 30000)", priceFacetResults.get(3).getFirst());
                 assertEquals(Integer.valueOf(1), priceFacetResults.get(3).getSecond());
-                assertEquals("[00030000, 00040000)", priceFacetResults.get(4).getFirst());
+                assertEquals("[30000, 40000)", priceFacetResults.get(4).getFirst());
                 assertEquals(Integer.valueOf(0), priceFacetResults.get(4).getSecond());
-                assertEquals("[00030000, 01000000]", priceFacetResults.get(5).getFirst());
+                assertEquals("[30000, 1000000]", priceFacetResults.get(5).getFirst());
                 assertEquals(Integer.valueOf(2), priceFacetResults.get(5).getSecond());
 
                 final FilteredNavigationRecordRequest priceInShop2 =
                         new FilteredNavigationRecordRequestImpl(
                                 "priceFacet",
-                                "facet_price_10_EUR",
+                                "facet_nprice_10_EUR",
                                 new ArrayList<Pair<String, String>>() {{
-                                    add(new Pair<String, String>("00000000", "00001000"));
-                                    add(new Pair<String, String>("00001000", "00001500"));
-                                    add(new Pair<String, String>("00001500", "00002000"));
-                                    add(new Pair<String, String>("00002000", "00002500"));
-                                    add(new Pair<String, String>("00002500", "00006000"));
-                                    add(new Pair<String, String>("00006000", "00010000"));
-                                    add(new Pair<String, String>("00010000", "01000000"));
+                                    add(new Pair<String, String>("0", "1000"));
+                                    add(new Pair<String, String>("1000", "1500"));
+                                    add(new Pair<String, String>("1500", "2000"));
+                                    add(new Pair<String, String>("2000", "2500"));
+                                    add(new Pair<String, String>("2500", "6000"));
+                                    add(new Pair<String, String>("6000", "10000"));
+                                    add(new Pair<String, String>("10000", "1000000"));
                                 }}
                         );
 
@@ -597,19 +597,19 @@ public class FullTextSearchConfigurationTest extends AbstractTestDAO {
                 priceFacetResults = facets.get("priceFacet");
                 assertNotNull(priceFacetResults);
                 assertEquals(7, priceFacetResults.size());
-                assertEquals("[00000000, 00001000)", priceFacetResults.get(0).getFirst());
+                assertEquals("[0, 1000)", priceFacetResults.get(0).getFirst());
                 assertEquals(Integer.valueOf(2), priceFacetResults.get(0).getSecond());
-                assertEquals("[00001000, 00001500)", priceFacetResults.get(1).getFirst());
+                assertEquals("[1000, 1500)", priceFacetResults.get(1).getFirst());
                 assertEquals(Integer.valueOf(2), priceFacetResults.get(1).getSecond());
-                assertEquals("[00001500, 00002000)", priceFacetResults.get(2).getFirst());
+                assertEquals("[1500, 2000)", priceFacetResults.get(2).getFirst());
                 assertEquals(Integer.valueOf(2), priceFacetResults.get(2).getSecond());
-                assertEquals("[00002000, 00002500)", priceFacetResults.get(3).getFirst());
+                assertEquals("[2000, 2500)", priceFacetResults.get(3).getFirst());
                 assertEquals(Integer.valueOf(2), priceFacetResults.get(3).getSecond());
-                assertEquals("[00002500, 00006000)", priceFacetResults.get(4).getFirst());
+                assertEquals("[2500, 6000)", priceFacetResults.get(4).getFirst());
                 assertEquals(Integer.valueOf(4), priceFacetResults.get(4).getSecond());
-                assertEquals("[00006000, 00010000)", priceFacetResults.get(5).getFirst());
+                assertEquals("[6000, 10000)", priceFacetResults.get(5).getFirst());
                 assertEquals(Integer.valueOf(2), priceFacetResults.get(5).getSecond());
-                assertEquals("[00010000, 01000000]", priceFacetResults.get(6).getFirst());
+                assertEquals("[10000, 1000000]", priceFacetResults.get(6).getFirst());
                 assertEquals(Integer.valueOf(4), priceFacetResults.get(6).getSecond());
 
 
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.promotion.impl;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Test;
+import org.yes.cart.domain.entity.Promotion;
+import org.yes.cart.promotion.PromoTriplet;
+import org.yes.cart.promotion.PromotionApplicationStrategy;
+import org.yes.cart.promotion.PromotionCondition;
+import org.yes.cart.shoppingcart.CartItem;
+import org.yes.cart.shoppingcart.MutableShoppingCart;
+import org.yes.cart.shoppingcart.Total;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 11:20 AM
+ */
+public class PromotionTargetingTest {
+
+    private final Mockery mockery = new JUnit4Mockery();
+
+    @Test
+    public void testParseUntargeted() throws Exception {
+
+        assertSame(PromotionTargeting.ANY, PromotionTargeting.parse(null));
+        assertSame(PromotionTargeting.ANY, PromotionTargeting.parse("  "));
+        assertSame(PromotionTargeting.ANY, PromotionTargeting.parse("true"));
+        assertSame(PromotionTargeting.ANY, PromotionTargeting.parse("registered && shoppingCart != null"));
+        // disjunction and negation cannot be narrowed down
+        assertSame(PromotionTargeting.ANY, PromotionTargeting.parse("shoppingCartItem.productSkuCode == 'A' || registered"));
+        assertSame(PromotionTargeting.ANY, PromotionTargeting.parse("!(customerTags.contains('vip'))"));
+
+    }
+
+    @Test
+    public void testParseSkuTargeting() throws Exception {
+
+        final PromotionTargeting list = PromotionTargeting.parse("['CC_TEST4', 'CC_TEST5'].contains(shoppingCartItem.productSkuCode)");
+        assertEquals(new HashSet<String>(Arrays.asList("CC_TEST4", "CC_TEST5")), list.getSkuCodes());
+        assertTrue(list.isTargeting("CC_TEST4"));
+        assertFalse(list.isTargeting("CC_TEST6"));
+
+        final PromotionTargeting eq = PromotionTargeting.parse("shoppingCartItem.productSkuCode == \"CC_TEST6\" && registered");
+        assertEquals(Collections.singleton("CC_TEST6"), eq.getSkuCodes());
+
+        final PromotionTargeting both = PromotionTargeting.parse(
+                "['A', 'B'].contains(shoppingCartItem.productSkuCode) && shoppingCartItem.productSkuCode == 'B'");
+        assertEquals(Collections.singleton("B"), both.getSkuCodes());
+
+    }
+
+    @Test
+    public void testMayBeEligible() throws Exception {
+
+        final CartItem item = mockery.mock(CartItem.class, "item");
+        final Total total = mockery.mock(Total.class, "total");
+
+        mockery.checking(new Expectations() {{
+            allowing(item).getProductSkuCode(); will(returnValue("CC_TEST4"));
+            allowing(total).getPriceSubTotal(); will(returnValue(new BigDecimal("200.00")));
+        }});
+
+        final PromotionTargeting targeting = PromotionTargeting.parse(
+                "shoppingCartItem.productSkuCode == 'CC_TEST4' && customerTags.contains('vip') && shoppingCartItemTotal.priceSubTotal >= 200.00");
+
+        final Map<String, Object> context = new HashMap<String, Object>();
+        context.put(PromotionCondition.VAR_CART_ITEM, item);
+        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, Arrays.asList("vip", "other"));
+        context.put(PromotionCondition.VAR_CART_ITEM_TOTAL, total);
+
+        assertTrue(targeting.mayBeEligible(context));
+
+        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, Collections.emptyList());
+        assertFalse(targeting.mayBeEligible(context));
+
+        assertFalse(PromotionTargeting.parse("shoppingCartItemTotal.priceSubTotal > 200.00").mayBeEligible(context));
+        assertTrue(PromotionTargeting.parse("shoppingCartItemTotal.priceSubTotal > 199.99").mayBeEligible(context));
+
+    }
+
+    @Test
+    public void testItemPromotionsNarrowedBySku() throws Exception {
+
+        final PromotionApplicationStrategy strategy = mockery.mock(PromotionApplicationStrategy.class, "strategy");
+        final MutableShoppingCart cart = mockery.mock(MutableShoppingCart.class, "cart");
+        final CartItem item4 = mockery.mock(CartItem.class, "item4");
+        final CartItem item6 = mockery.mock(CartItem.class, "item6");
+
+        final Promotion forTest4 = promotion("P4", 1L, "['CC_TEST4'].contains(shoppingCartItem.productSkuCode)", true);
+        final Promotion forAll = promotion("PALL", 2L, "true", true);
+        final Promotion forTest5 = promotion("P5", 3L, "shoppingCartItem.productSkuCode == 'CC_TEST5'", false);
+
+        final PromotionContextImpl ctx = new PromotionContextImpl("SHOP10", strategy);
+        ctx.addPromotion(forTest4, new NullPromotionCondition(1L, "P4"), null);
+        ctx.addPromotion(forAll, new NullPromotionCondition(2L, "PALL"), null);
+        ctx.addPromotion(forTest5, new NullPromotionCondition(3L, "P5"), null);
+
+        final List<List<List<PromoTriplet>>> candidates = new ArrayList<List<List<PromoTriplet>>>();
+
+        mockery.checking(new Expectations() {{
+            one(cart).removeItemPromotions();
+            allowing(cart).getCartItemList(); will(returnValue(Arrays.asList(item4, item6)));
+            allowing(item4).getProductSkuCode(); will(returnValue("CC_TEST4"));
+            allowing(item6).getProductSkuCode(); will(returnValue("CC_TEST6"));
+            exactly(2).of(strategy).applyPromotions(with(any(List.class)), with(any(Map.class)));
+            will(new CustomAction("capture") {
+                public Object invoke(final Invocation invocation) throws Throwable {
+                    candidates.add((List<List<PromoTriplet>>) invocation.getParameter(0));
+                    return null;
+                }
+            });
+        }});
+
+        ctx.applyItemPromo(null, null, cart);
+
+        assertEquals(2, candidates.size());
+        assertEquals(Arrays.asList("P4", "PALL"), codes(candidates.get(0)));
+        assertEquals(Arrays.asList("PALL"), codes(candidates.get(1)));
+
+        mockery.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testCustomerRequiredOnlyIfConditionUsesCustomerVariable() throws Exception {
+
+        final PromotionApplicationStrategy strategy = mockery.mock(PromotionApplicationStrategy.class, "strategy");
+
+        final PromotionContextImpl ctx = new PromotionContextImpl("SHOP10", strategy);
+        ctx.addPromotion(promotion("PTAGS", 1L, "customerTags.contains('vip')", true), new NullPromotionCondition(1L, "PTAGS"), null);
+        ctx.addPromotion(promotion("PSNAP", 2L, "customerSnapshot?.getAttributeValue('MARKETING_OPT_IN') == 'true'", true), new NullPromotionCondition(2L, "PSNAP"), null);
+
+        assertFalse(ctx.isCustomerRequired());
+
+        ctx.addPromotion(promotion("PATTR", 3L, "customer?.getAttributeByCode('MARKETING_OPT_IN') != null", true), new NullPromotionCondition(3L, "PATTR"), null);
+
+        assertTrue(ctx.isCustomerRequired());
+
+    }
+
+    private Promotion promotion(final String code, final long id, final String condition, final boolean combinable) {
+        final Promotion promotion = mockery.mock(Promotion.class, code);
+        mockery.checking(new Expectations() {{
+            allowing(promotion).getCode(); will(returnValue(code));
+            allowing(promotion).getPromotionId(); will(returnValue(id));
+            allowing(promotion).getPromoType(); will(returnValue(Promotion.TYPE_ITEM));
+            allowing(promotion).getEligibilityCondition(); will(returnValue(condition));
+            allowing(promotion).isCanBeCombined(); will(returnValue(combinable));
+        }});
+        return promotion;
+    }
+
+    private List<String> codes(final List<List<PromoTriplet>> buckets) {
+        final List<String> codes = new ArrayList<String>();
+        for (final List<PromoTriplet> bucket : buckets) {
+            for (final PromoTriplet promo : bucket) {
+                codes.add(promo.getPromotion().getCode());
+            }
+        }
+        return codes;
+    }
+
+}
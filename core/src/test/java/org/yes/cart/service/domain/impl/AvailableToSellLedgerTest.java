@@ -0,0 +1,94 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.domain.impl;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-11
+ * Time: 10:15 AM
+ */
+public class AvailableToSellLedgerTest {
+
+    private Map<String, Map<Long, BigDecimal>> ats(final String sku, final Long warehouseId, final String qty) {
+        final Map<Long, BigDecimal> whs = new HashMap<Long, BigDecimal>();
+        whs.put(warehouseId, new BigDecimal(qty));
+        final Map<String, Map<Long, BigDecimal>> ats = new HashMap<String, Map<Long, BigDecimal>>();
+        ats.put(sku, whs);
+        return ats;
+    }
+
+    @Test
+    public void testLoadAndUpdate() throws Exception {
+
+        final AvailableToSellLedger ledger = new AvailableToSellLedger(60000L, 10);
+
+        assertNull(ledger.getProductQuantity(1L, Arrays.asList(1L)));
+
+        ledger.load(1L, ledger.getGeneration(1L), Arrays.asList(1L, 2L), ats("SKU1", 1L, "10"));
+
+        assertEquals(new BigDecimal("10"), ledger.getProductQuantity(1L, Arrays.asList(1L, 2L)).get("SKU1"));
+        assertEquals(new BigDecimal("10"), ledger.getSkuQuantity(1L, "SKU1", Arrays.asList(1L)));
+        assertEquals(BigDecimal.ZERO, ledger.getSkuQuantity(1L, "SKU1", Arrays.asList(2L)));
+        assertNull(ledger.getSkuQuantity(1L, "SKU1", Arrays.asList(3L)));
+
+        ledger.update(1L, "SKU1", 2L, new BigDecimal("5"));
+
+        assertEquals(new BigDecimal("15"), ledger.getSkuQuantity(1L, "SKU1", Arrays.asList(1L, 2L)));
+
+    }
+
+    @Test
+    public void testStaleLoadIsDiscarded() throws Exception {
+
+        final AvailableToSellLedger ledger = new AvailableToSellLedger(60000L, 10);
+
+        final long generation = ledger.getGeneration(1L);
+
+        // write committed while load was reading DB
+        ledger.update(1L, "SKU1", 1L, new BigDecimal("9"));
+
+        ledger.load(1L, generation, Arrays.asList(1L), ats("SKU1", 1L, "10"));
+
+        assertNull(ledger.getSkuQuantity(1L, "SKU1", Arrays.asList(1L)));
+
+        ledger.load(1L, ledger.getGeneration(1L), Arrays.asList(1L), ats("SKU1", 1L, "9"));
+
+        assertEquals(new BigDecimal("9"), ledger.getSkuQuantity(1L, "SKU1", Arrays.asList(1L)));
+
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+
+        final AvailableToSellLedger ledger = new AvailableToSellLedger(-1L, 10);
+
+        ledger.load(1L, ledger.getGeneration(1L), Arrays.asList(1L), ats("SKU1", 1L, "10"));
+
+        assertNull(ledger.getSkuQuantity(1L, "SKU1", Arrays.asList(1L)));
+
+    }
+
+}
@@ -23,17 +23,18 @@ import org.yes.cart.constants.Constants;
 import org.yes.cart.constants.ServiceSpringKeys;
 import org.yes.cart.domain.dto.SeoImageDTO;
 import org.yes.cart.domain.entity.SeoImage;
+import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.exception.UnableToCreateInstanceException;
 import org.yes.cart.exception.UnmappedInterfaceException;
 import org.yes.cart.service.domain.ImageService;
 import org.yes.cart.service.dto.DtoImageService;
 
 import java.io.File;
+import java.util.List;
 import java.util.UUID;
 
 import static junit.framework.Assert.assertNull;
-import static org.junit.Assert.assertArrayEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 /**
  * User: igora Igor Azarny
@@ -146,6 +147,21 @@ public class ImageServiceImplTest  extends BaseCoreDBTestCase {
 
     }
 
+    @Test
+    public void testGetAllowedSizes() throws Exception {
+
+        final ImageServiceImpl srv = new ImageServiceImpl(null, null, "40x40, 80x60,bad,200x200", 0, 0, 0, true, 0, null);
+
+        final List<Pair<String, String>> sizes = srv.getAllowedSizes();
+        assertEquals(3, sizes.size());
+        assertEquals(new Pair<String, String>("40", "40"), sizes.get(0));
+        assertEquals(new Pair<String, String>("80", "60"), sizes.get(1));
+        assertEquals(new Pair<String, String>("200", "200"), sizes.get(2));
+
+        assertTrue(new ImageServiceImpl(null, null, "", 0, 0, 0, true, 0, null).getAllowedSizes().isEmpty());
+
+    }
+
     @Test
     public void testResize() throws Exception {
 
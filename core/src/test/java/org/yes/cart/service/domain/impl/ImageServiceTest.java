@@ -25,6 +25,7 @@ import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.yes.cart.constants.Constants;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.AttrValueProduct;
@@ -37,8 +38,14 @@ import org.yes.cart.stream.io.IOProvider;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
@@ -114,6 +121,100 @@ public class ImageServiceTest {
         FileUtils.writeByteArrayToFile(new File(destinationFileName), resized);
     }
 
+    @Test
+    public void testResizeImageConcurrentRequestsShareSingleResize() throws Exception {
+
+        final String originalFileName = "src/test/resources/imgrepo/a/arbuz/speli_arbuz_arbuz_a.jpeg";
+        final String resizedFileName = "target/test/resources/imgrepo/50x150/a/arbuz/speli_arbuz_arbuz_a-concurrent.jpeg";
+
+        final CountDownLatch originalOpened = new CountDownLatch(1);
+        final CountDownLatch releaseResize = new CountDownLatch(1);
+        final AtomicInteger writes = new AtomicInteger();
+
+        final ThreadPoolTaskExecutor resizeExecutor = new ThreadPoolTaskExecutor();
+        resizeExecutor.setCorePoolSize(1);
+        resizeExecutor.setMaxPoolSize(1);
+        resizeExecutor.initialize();
+
+        imageService = new ImageServiceImpl(seoImageDao, imageNameStrategyResolver, "50x150", 255, 255, 255, false, 50, new IOProvider() {
+            @Override
+            public boolean supports(final String uri) {
+                return true;
+            }
+
+            @Override
+            public boolean exists(final String uri, final Map<String, Object> context) {
+                return new File(uri).exists();
+            }
+
+            @Override
+            public boolean isNewerThan(final String uriToCheck, final String uriToCheckAgainst, final Map<String, Object> context) {
+                return writes.get() > 0;
+            }
+
+            @Override
+            public byte[] read(final String uri, final Map<String, Object> context) throws IOException {
+                return FileUtils.readFileToByteArray(new File(uri));
+            }
+
+            @Override
+            public ReadableByteChannel open(final String uri, final Map<String, Object> context) throws IOException {
+                originalOpened.countDown();
+                try {
+                    // hold first resize until all requests are waiting for it
+                    releaseResize.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    throw new IOException("interrupted");
+                }
+                return new RandomAccessFile(uri, "r").getChannel();
+            }
+
+            @Override
+            public void write(final String uri, final byte[] content, final Map<String, Object> context) throws IOException {
+                writes.incrementAndGet();
+            }
+
+            @Override
+            public void delete(final String uri, final Map<String, Object> context) throws IOException {
+                assertTrue(new File(uri).delete());
+            }
+        });
+        imageService.setResizeExecutor(resizeExecutor);
+
+        final int requests = 5;
+        final ExecutorService requestThreads = Executors.newFixedThreadPool(requests);
+        final List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+        for (int i = 0; i < requests; i++) {
+            results.add(requestThreads.submit(new Callable<byte[]>() {
+                public byte[] call() throws Exception {
+                    return imageService.resizeImage(originalFileName, resizedFileName, "50", "150");
+                }
+            }));
+        }
+
+        assertTrue(originalOpened.await(10, TimeUnit.SECONDS));
+        final long until = System.currentTimeMillis() + 10000L;
+        while (imageService.getResizeCollapsedCount() < requests - 1 && System.currentTimeMillis() < until) {
+            Thread.sleep(10L);
+        }
+        assertEquals(1, imageService.getResizeInProgressCount());
+        releaseResize.countDown();
+
+        final byte[] first = results.get(0).get(10, TimeUnit.SECONDS);
+        assertTrue(first.length > 0);
+        for (final Future<byte[]> result : results) {
+            assertTrue(Arrays.equals(first, result.get(10, TimeUnit.SECONDS)));
+        }
+
+        assertEquals(1, writes.get());
+        assertEquals(1L, imageService.getResizeCount());
+        assertEquals((long) requests - 1, imageService.getResizeCollapsedCount());
+        assertEquals(0, imageService.getResizeInProgressCount());
+
+        requestThreads.shutdown();
+        resizeExecutor.shutdown();
+    }
+
     @Test
     public void testAddImageToRepository() throws Exception {
 
@@ -145,6 +246,11 @@ public class ImageServiceTest {
                 return FileUtils.readFileToByteArray(new File(uri));
             }
 
+            @Override
+            public ReadableByteChannel open(final String uri, final Map<String, Object> context) throws IOException {
+                return new RandomAccessFile(uri, "r").getChannel();
+            }
+
             @Override
             public void write(final String uri, final byte[] content, final Map<String, Object> context) throws IOException {
                 FileUtils.writeByteArrayToFile(new File(uri), content);
@@ -205,6 +311,11 @@ public class ImageServiceTest {
                 return FileUtils.readFileToByteArray(new File(uri));
             }
 
+            @Override
+            public ReadableByteChannel open(final String uri, final Map<String, Object> context) throws IOException {
+                return new RandomAccessFile(uri, "r").getChannel();
+            }
+
             @Override
             public void write(final String uri, final byte[] content, final Map<String, Object> context) throws IOException {
                 FileUtils.writeByteArrayToFile(new File(uri), content);
@@ -19,6 +19,7 @@ package org.yes.cart.service.domain.impl;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.yes.cart.BaseCoreDBTestCase;
 import org.yes.cart.constants.ServiceSpringKeys;
 import org.yes.cart.domain.entity.Category;
@@ -35,10 +36,7 @@ import org.yes.cart.service.domain.ProductService;
 import org.yes.cart.service.domain.ShopService;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -144,6 +142,35 @@ public class PriceServiceImplTest extends BaseCoreDBTestCase {
         assertNull(skuPrice.getSalePriceForCalculation());
     }
 
+    @Test
+    public void testGetMinimalPrices() throws Exception {
+        Shop shop = shopService.getShopByDomainName("www.gadget.yescart.org");
+        Product product = productService.getProductById(10000L);
+        assertNotNull(product);
+
+        final Map<Long, String> productSkus = new HashMap<Long, String>();
+        productSkus.put(10000L, null);
+        productSkus.put(11001L, null);
+        productSkus.put(999999L, null); // no such product
+
+        Map<Long, SkuPrice> prices = priceService.getMinimalPrices(productSkus, shop.getShopId(), "EUR", new BigDecimal("2"));
+        assertEquals(3, prices.size());
+        assertTrue((new BigDecimal("145.00")).equals(prices.get(10000L).getRegularPrice()));
+        assertTrue((new BigDecimal("30.00")).equals(prices.get(11001L).getRegularPrice()));
+        assertSame(priceService.getMinimalPrice(11001L, null, shop.getShopId(), "EUR", new BigDecimal("2")), prices.get(11001L));
+        assertNull(prices.get(999999L).getRegularPrice());
+
+        productSkus.put(10000L, product.getDefaultSku().getCode());
+        prices = priceService.getMinimalPrices(productSkus, shop.getShopId(), "EUR", new BigDecimal("2"));
+        assertTrue((new BigDecimal("150.85")).equals(prices.get(10000L).getRegularPrice()));
+
+        prices = priceService.getMinimalPrices(productSkus, shop.getShopId(), "BYR", BigDecimal.ONE);
+        assertEquals(3, prices.size());
+        for (final SkuPrice price : prices.values()) {
+            assertNull(price.getRegularPrice());
+        }
+    }
+
     @Test
     public void testGetAllCurrentPrices() throws Exception {
         Shop shop = shopService.getShopByDomainName("www.gadget.yescart.org");
@@ -171,7 +198,7 @@ public class PriceServiceImplTest extends BaseCoreDBTestCase {
     @Test
     public void testCreatePriceTierNodes() {
 
-        PriceServiceImpl priceService1 = new PriceServiceImpl(null, null, null);
+        PriceServiceImpl priceService1 = new PriceServiceImpl(null, null, null, new ConcurrentMapCacheManager());
 
         assertEquals( new BigDecimal("3000").intValue(), priceService1.niceBigDecimal(new BigDecimal("3000")).intValue());
         assertEquals( new BigDecimal("30").intValue(), priceService1.niceBigDecimal(new BigDecimal("30")).intValue());
@@ -193,7 +220,7 @@ public class PriceServiceImplTest extends BaseCoreDBTestCase {
     public void testAddAllTimePrice() {
         List<Pair<String, SkuPrice>> skuPricesForOneSku = getSkuPrices("sku1");
         skuPricesForOneSku.addAll(getSkuPrices("sku2"));
-        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null);
+        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null, new ConcurrentMapCacheManager());
         priceServiceImpl.reorderSkuPrices(skuPricesForOneSku);
         List<Pair<String, SkuPrice>> rez = new LinkedList<Pair<String, SkuPrice>>();
         assertTrue(priceServiceImpl.addAllTimePrice(rez, skuPricesForOneSku , System.currentTimeMillis()));
@@ -204,7 +231,7 @@ public class PriceServiceImplTest extends BaseCoreDBTestCase {
     @Test
     public void testAddStartPrice() {
         List<Pair<String, SkuPrice>> skuPricesForOneSku = getSkuPrices("sku1");
-        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null);
+        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null, new ConcurrentMapCacheManager());
         priceServiceImpl.reorderSkuPrices(skuPricesForOneSku);
         List<Pair<String, SkuPrice>> rez = new LinkedList<Pair<String, SkuPrice>>();
         assertTrue(priceServiceImpl.addStartPrice(rez, skuPricesForOneSku, System.currentTimeMillis()));
@@ -215,7 +242,7 @@ public class PriceServiceImplTest extends BaseCoreDBTestCase {
     @Test
     public void testAddEndPrice() {
         List<Pair<String, SkuPrice>> skuPricesForOneSku = getSkuPrices("sku1");
-        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null);
+        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null, new ConcurrentMapCacheManager());
         priceServiceImpl.reorderSkuPrices(skuPricesForOneSku);
         List<Pair<String, SkuPrice>> rez = new LinkedList<Pair<String, SkuPrice>>();
         assertTrue(priceServiceImpl.addEndPrice(rez, skuPricesForOneSku, System.currentTimeMillis()));
@@ -226,7 +253,7 @@ public class PriceServiceImplTest extends BaseCoreDBTestCase {
     @Test
     public void testAllFramedPrice() {
         List<Pair<String, SkuPrice>> skuPricesForOneSku = getSkuPrices("sku1");
-        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null);
+        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null, new ConcurrentMapCacheManager());
         priceServiceImpl.reorderSkuPrices(skuPricesForOneSku);
         List<Pair<String, SkuPrice>> rez = new LinkedList<Pair<String, SkuPrice>>();
         assertTrue(priceServiceImpl.addFramedPrice(rez, skuPricesForOneSku, System.currentTimeMillis()));
@@ -241,7 +268,7 @@ public class PriceServiceImplTest extends BaseCoreDBTestCase {
 
         skuPricesForOneSku.addAll(getSkuPrices("sku2"));
 
-        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null);
+        PriceServiceImpl priceServiceImpl = new PriceServiceImpl(null, null, null, new ConcurrentMapCacheManager());
 
         List<Pair<String, SkuPrice>> rez = priceServiceImpl.getSkuPricesFilteredByTimeFrame(skuPricesForOneSku);
 
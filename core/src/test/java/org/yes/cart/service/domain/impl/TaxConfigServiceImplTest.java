@@ -220,4 +220,29 @@ public class TaxConfigServiceImplTest extends BaseCoreDBTestCase {
 
     }
 
+    @Test
+    public void testGetTaxIdByReflectsConfigChanges() throws Exception {
+
+        final TaxService taxService = ctx().getBean("taxService", TaxService.class);
+        final TaxConfigService taxConfigService = ctx().getBean("taxConfigService", TaxConfigService.class);
+
+        assertEquals(Long.valueOf(1011L), taxConfigService.getTaxIdBy("SHOIP1", "EUR", "UA", null, "CC_TEST2"));
+
+        final TaxConfig cfgProductLevel = taxConfigService.getGenericDao().getEntityFactory().getByIface(TaxConfig.class);
+        cfgProductLevel.setTax(taxService.getById(1015L));
+        cfgProductLevel.setCountryCode("UA");
+        cfgProductLevel.setProductCode("CC_TEST2");
+
+        taxConfigService.create(cfgProductLevel);
+
+        assertEquals(Long.valueOf(1015L), taxConfigService.getTaxIdBy("SHOIP1", "EUR", "UA", null, "CC_TEST2"));
+        assertEquals(Long.valueOf(1015L), taxConfigService.getTaxIdBy("SHOIP1", "EUR", "UA", "", "CC_TEST2"));
+        assertEquals(Long.valueOf(1010L), taxConfigService.getTaxIdBy("SHOIP1", "EUR", "GB", null, "CC_TEST2"));
+
+        taxConfigService.delete(cfgProductLevel);
+
+        assertEquals(Long.valueOf(1011L), taxConfigService.getTaxIdBy("SHOIP1", "EUR", "UA", null, "CC_TEST2"));
+
+    }
+
 }
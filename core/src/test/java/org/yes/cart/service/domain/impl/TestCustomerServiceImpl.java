@@ -21,6 +21,7 @@ import org.junit.Test;
 import org.yes.cart.BaseCoreDBTestCase;
 import org.yes.cart.constants.ServiceSpringKeys;
 import org.yes.cart.domain.entity.Customer;
+import org.yes.cart.promotion.CustomerPromotionSnapshot;
 import org.yes.cart.service.domain.CustomerService;
 import org.yes.cart.service.domain.ShopService;
 
@@ -67,6 +68,33 @@ public class TestCustomerServiceImpl extends BaseCoreDBTestCase {
         assertEquals("Freeman", customer.getLastname());
     }
 
+    @Test
+    public void testGetCustomerPromotionSnapshotByEmail() {
+        Customer customer = getCustomer(getTestName());
+        customer.setTag("vip  tester");
+        customer = customerService.create(customer, shopService.getById(10L));
+
+        final CustomerPromotionSnapshot snapshot = customerService.getCustomerPromotionSnapshotByEmail(customer.getEmail());
+        assertNotNull(snapshot);
+        assertTrue(snapshot.isRegistered());
+        assertEquals(customer.getEmail(), snapshot.getEmail());
+        assertEquals(2, snapshot.getTags().size());
+        assertTrue(snapshot.getTags().contains("vip"));
+        assertTrue(snapshot.getTags().contains("tester"));
+        assertTrue(snapshot.getShops().contains(shopService.getById(10L).getCode()));
+
+        assertSame(snapshot, customerService.getCustomerPromotionSnapshotByEmail(customer.getEmail()));
+
+        customer.setTag("regular");
+        customerService.update(customer);
+
+        final CustomerPromotionSnapshot updated = customerService.getCustomerPromotionSnapshotByEmail(customer.getEmail());
+        assertEquals(1, updated.getTags().size());
+        assertEquals("regular", updated.getTags().get(0));
+
+        assertNull(customerService.getCustomerPromotionSnapshotByEmail("nobody-" + customer.getEmail()));
+    }
+
     // TODO fix to not depend on order of running
     @Test
     public void testDelete() {
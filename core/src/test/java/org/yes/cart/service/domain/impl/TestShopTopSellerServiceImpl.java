@@ -33,6 +33,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
@@ -89,5 +92,18 @@ public class TestShopTopSellerServiceImpl extends BaseCoreDBTestCase {
             }
         }
         assertThat(expectation.keySet(), hasSize(0));
+
+        final long shopId = shoppingCart.getShoppingContext().getShopId();
+        final Map<Long, BigDecimal> shopCounters = new HashMap<Long, BigDecimal>();
+        BigDecimal maxCounter = BigDecimal.ZERO;
+        for (ShopTopSeller ts : allTopSellers) {
+            if (ts.getShop().getShopId() == shopId) {
+                shopCounters.put(ts.getProduct().getProductId(), ts.getCounter());
+                maxCounter = maxCounter.max(ts.getCounter());
+            }
+        }
+        final List<Long> top = shopTopSellerService.getTopSellerProductIds(shopId, 3);
+        assertTrue(top.size() <= 3);
+        assertEquals(0, maxCounter.compareTo(shopCounters.get(top.get(0))));
     }
 }
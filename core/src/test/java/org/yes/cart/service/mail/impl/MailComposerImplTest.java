@@ -75,6 +75,20 @@ public class MailComposerImplTest {
         assertEquals("1.23", result);
     }
 
+    @Test
+    public void testMergeCompiledTemplateIsReusedUntilSourceChanges() throws ClassNotFoundException, IOException {
+        MailComposerImpl mailComposer = new MailComposerImpl(null);
+
+        final String template = "$name lives...somewhere in time.";
+        final groovy.text.Template compiled = mailComposer.getCompiledTemplate("SHOP10", "en", "welcome", ".txt", template);
+        assertSame(compiled, mailComposer.getCompiledTemplate("SHOP10", "en", "welcome", ".txt", new String(template)));
+        assertNotSame(compiled, mailComposer.getCompiledTemplate("SHOP10", "de", "welcome", ".txt", template));
+
+        final String changed = "$name lives in theme park.";
+        assertNotSame(compiled, mailComposer.getCompiledTemplate("SHOP10", "en", "welcome", ".txt", changed));
+        assertEquals("Bender lives in theme park.", mailComposer.merge("SHOP10", "en", "welcome", ".txt", changed, createModel()));
+    }
+
     @Test
     public void testGetResourcesId() throws ClassNotFoundException {
         MailComposerImpl mailComposer = new MailComposerImpl(null);
@@ -17,13 +17,20 @@
 package org.yes.cart.service.order.impl;
 
 import org.junit.Test;
+import org.yes.cart.service.order.SequenceBlockAllocator;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -59,6 +66,81 @@ public class DefaultOrderNumberGeneratorImplTest {
         assertEquals(THREADGROUPSIZE, rez.size());
     }
 
+    @Test
+    public void testGetNextOrderNumberAcrossNodes() throws Exception {
+
+        final int nodes = 4;
+        final int threadsPerNode = 8;
+        final int numbersPerThread = 500;
+
+        final AtomicInteger allocations = new AtomicInteger();
+        final SequenceBlockAllocator sharedStorage = new SequenceBlockAllocator() {
+
+            private final AtomicLong next = new AtomicLong(1L);
+
+            public long allocateBlock(final String sequenceName, final int blockSize) {
+                allocations.incrementAndGet();
+                return next.getAndAdd(blockSize);
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(nodes * threadsPerNode);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+
+        for (int node = 0; node < nodes; node++) {
+            final DefaultOrderNumberGeneratorImpl generator = new DefaultOrderNumberGeneratorImpl(sharedStorage);
+            generator.setBlockSize(7);
+            for (int thread = 0; thread < threadsPerNode; thread++) {
+                results.add(executor.submit(new Callable<List<String>>() {
+                    public List<String> call() throws Exception {
+                        start.await();
+                        final List<String> numbers = new ArrayList<String>(numbersPerThread);
+                        for (int i = 0; i < numbersPerThread; i++) {
+                            numbers.add(generator.getNextOrderNumber());
+                        }
+                        return numbers;
+                    }
+                }));
+            }
+        }
+
+        start.countDown();
+
+        final Set<Long> sequences = new HashSet<Long>();
+        for (final Future<List<String>> result : results) {
+            for (final String orderNum : result.get(30, TimeUnit.SECONDS)) {
+                assertTrue(sequences.add(Long.valueOf(orderNum.substring(orderNum.indexOf('-') + 1))));
+            }
+        }
+        executor.shutdown();
+
+        final int total = nodes * threadsPerNode * numbersPerThread;
+        assertEquals(total, sequences.size());
+        // every node wastes at most one partially used block
+        assertTrue(allocations.get() <= total / 7 + nodes + 1);
+
+    }
+
+    @Test
+    public void testGetNextOrderNumberRetriesFailedAllocation() throws Exception {
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final DefaultOrderNumberGeneratorImpl generator = new DefaultOrderNumberGeneratorImpl(new SequenceBlockAllocator() {
+            public long allocateBlock(final String sequenceName, final int blockSize) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("concurrent sequence create");
+                }
+                return 100L;
+            }
+        });
+
+        final String orderNum = generator.getNextOrderNumber();
+        assertEquals("-100", orderNum.substring(orderNum.indexOf("-")));
+        assertEquals(2, attempts.get());
+
+    }
+
     class MyOrderCreatorThread extends Thread {
 
         private DefaultOrderNumberGeneratorImpl defaultOrderNumberGenerator;
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.order.impl;
+
+import org.junit.Test;
+import org.yes.cart.BaseCoreDBTestCase;
+import org.yes.cart.service.order.OrderNumberGenerator;
+import org.yes.cart.service.order.SequenceBlockAllocator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 11:05 AM
+ */
+public class SequenceBlockAllocatorImplTest extends BaseCoreDBTestCase {
+
+    @Test
+    public void testAllocateBlock() throws Exception {
+
+        final SequenceBlockAllocator allocator = ctx().getBean("sequenceBlockAllocator", SequenceBlockAllocator.class);
+
+        assertEquals(1L, allocator.allocateBlock("TEST-BLOCKS", 10));
+        assertEquals(11L, allocator.allocateBlock("TEST-BLOCKS", 10));
+        assertEquals(21L, allocator.allocateBlock("TEST-BLOCKS", 5));
+        assertEquals(1L, allocator.allocateBlock("TEST-OTHER", 10));
+        assertEquals(26L, allocator.allocateBlock("TEST-BLOCKS", 10));
+
+    }
+
+    @Test
+    public void testOrderNumbersFromDbSequence() throws Exception {
+
+        final OrderNumberGenerator generator = ctx().getBean("orderNumberGenerator", OrderNumberGenerator.class);
+
+        final String first = generator.getNextOrderNumber();
+        final String second = generator.getNextOrderNumber();
+
+        assertFalse(first.equals(second));
+
+    }
+
+}
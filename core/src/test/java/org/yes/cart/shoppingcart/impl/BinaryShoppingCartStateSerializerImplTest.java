@@ -0,0 +1,218 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart.impl;
+
+import org.junit.Test;
+import org.yes.cart.domain.entity.CustomerOrder;
+import org.yes.cart.domain.entity.CustomerOrderDelivery;
+import org.yes.cart.shoppingcart.AmountCalculationStrategy;
+import org.yes.cart.shoppingcart.MutableShoppingCart;
+import org.yes.cart.shoppingcart.ShoppingCart;
+import org.yes.cart.shoppingcart.Total;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-13
+ * Time: 10:15 AM
+ */
+public class BinaryShoppingCartStateSerializerImplTest {
+
+    @Test
+    public void testRoundTripPlain() throws Exception {
+
+        final ShoppingCartImpl cart = create();
+        final byte[] bytes = new BinaryShoppingCartStateSerializerImpl(false).saveState(cart);
+
+        assertEquals('Y', bytes[0]);
+        assertEquals('C', bytes[1]);
+        assertEquals(BinaryShoppingCartStateSerializerImpl.VERSION, bytes[2]);
+        assertEquals(0, bytes[3]);
+
+        assertRestored(cart, new BinaryShoppingCartStateSerializerImpl(false).restoreState(bytes));
+        // flags in header tell whether state is compressed, so reader settings do not matter
+        assertRestored(cart, new BinaryShoppingCartStateSerializerImpl(true).restoreState(bytes));
+
+    }
+
+    @Test
+    public void testRoundTripCompressed() throws Exception {
+
+        final ShoppingCartImpl cart = create();
+        final byte[] bytes = new BinaryShoppingCartStateSerializerImpl(true).saveState(cart);
+
+        assertEquals(1, bytes[3]);
+
+        assertRestored(cart, new BinaryShoppingCartStateSerializerImpl(false).restoreState(bytes));
+
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJavaSerialization() throws Exception {
+
+        final ShoppingCartImpl cart = create();
+
+        final byte[] binary = new BinaryShoppingCartStateSerializerImpl(false).saveState(cart);
+        final byte[] java = javaSerialize(cart);
+
+        assertTrue(binary.length < java.length);
+
+    }
+
+    @Test
+    public void testRestoreJavaSerializedState() throws Exception {
+
+        final ShoppingCartImpl cart = create();
+
+        assertRestored(cart, new BinaryShoppingCartStateSerializerImpl(false).restoreState(javaSerialize(cart)));
+
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreUnknownFormat() throws Exception {
+
+        new BinaryShoppingCartStateSerializerImpl(false).restoreState(new byte[] { 1, 2, 3, 4, 5 });
+
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreUnsupportedVersion() throws Exception {
+
+        final byte[] bytes = new BinaryShoppingCartStateSerializerImpl(false).saveState(create());
+        bytes[2] = (byte) (BinaryShoppingCartStateSerializerImpl.VERSION + 1);
+
+        new BinaryShoppingCartStateSerializerImpl(false).restoreState(bytes);
+
+    }
+
+    private void assertRestored(final ShoppingCartImpl expected, final ShoppingCart actual) {
+
+        assertNotNull(actual);
+        assertEquals(expected.getGuid(), actual.getGuid());
+        assertEquals(expected.getCurrencyCode(), actual.getCurrencyCode());
+        assertEquals(expected.getCurrentLocale(), actual.getCurrentLocale());
+        assertEquals(expected.getModifiedTimestamp(), actual.getModifiedTimestamp());
+        assertEquals(expected.getProcessingStartTimestamp(), actual.getProcessingStartTimestamp());
+
+        assertEquals(expected.getCartItemList().size(), actual.getCartItemList().size());
+        for (int i = 0; i < expected.getCartItemList().size(); i++) {
+            final CartItemImpl item = (CartItemImpl) expected.getCartItemList().get(i);
+            final CartItemImpl restored = (CartItemImpl) actual.getCartItemList().get(i);
+            assertEquals(item.getProductSkuCode(), restored.getProductSkuCode());
+            assertEquals(item.getQty(), restored.getQty());
+            assertEquals(item.getPrice(), restored.getPrice());
+            assertEquals(item.getSalePrice(), restored.getSalePrice());
+            assertEquals(item.getListPrice(), restored.getListPrice());
+            assertEquals(item.getAppliedPromo(), restored.getAppliedPromo());
+            assertEquals(item.isPromoApplied(), restored.isPromoApplied());
+            assertEquals(item.isGift(), restored.isGift());
+        }
+        assertEquals(expected.getShippingList().size(), actual.getShippingList().size());
+        assertEquals(expected.getCoupons(), actual.getCoupons());
+
+        assertEquals(expected.getShoppingContext().getShopId(), actual.getShoppingContext().getShopId());
+        assertEquals(expected.getShoppingContext().getShopCode(), actual.getShoppingContext().getShopCode());
+        assertEquals(expected.getShoppingContext().getCustomerEmail(), actual.getShoppingContext().getCustomerEmail());
+        assertEquals(expected.getShoppingContext().getCustomerName(), actual.getShoppingContext().getCustomerName());
+        assertEquals(expected.getShoppingContext().getLatestViewedSkus(), actual.getShoppingContext().getLatestViewedSkus());
+
+        assertEquals(expected.getOrderInfo().getCarrierSlaId(), actual.getOrderInfo().getCarrierSlaId());
+        assertEquals(expected.getOrderInfo().getBillingAddressId(), actual.getOrderInfo().getBillingAddressId());
+        assertEquals(expected.getOrderInfo().getOrderMessage(), actual.getOrderInfo().getOrderMessage());
+        assertEquals(expected.getOrderInfo().isSeparateBillingAddress(), actual.getOrderInfo().isSeparateBillingAddress());
+
+        assertEquals(expected.getTotal().getListSubTotal(), actual.getTotal().getListSubTotal());
+        assertEquals(expected.getTotal().getAppliedOrderPromo(), actual.getTotal().getAppliedOrderPromo());
+        assertEquals(expected.getTotal().getTotalAmount(), actual.getTotal().getTotalAmount());
+
+    }
+
+    private byte[] javaSerialize(final ShoppingCart cart) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(cart);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private ShoppingCartImpl create() {
+
+        final ShoppingCartImpl cart = new ShoppingCartImpl();
+
+        cart.setCurrencyCode("EUR");
+        cart.setCurrentLocale("en");
+
+        cart.addProductSkuToCart("ABC-1", new BigDecimal("2"));
+        cart.setProductSkuPrice("ABC-1", new BigDecimal("9.99"), new BigDecimal("12.50"));
+        cart.setProductSkuPromotion("ABC-1", new BigDecimal("8.99"), "IPROMO-1");
+        cart.addProductSkuToCart("ABC-2", new BigDecimal("1.5"));
+        cart.setProductSkuPrice("ABC-2", new BigDecimal("123456789012345678901234567890.12"), new BigDecimal("-1.00"));
+        cart.addGiftToCart("GIFT-1", BigDecimal.ONE, "CPROMO-1");
+        cart.setGiftPrice("GIFT-1", new BigDecimal("5.00"), new BigDecimal("5.00"));
+        cart.addShippingToCart("20", BigDecimal.ONE);
+        cart.addCoupon("COUPON-1");
+
+        final Total total = new TotalImpl(
+                new BigDecimal("30.00"), new BigDecimal("19.98"), new BigDecimal("0.00"), new BigDecimal("17.98"),
+                true, "OPROMO-1",
+                new BigDecimal("17.98"), new BigDecimal("3.00"), new BigDecimal("17.98"),
+                new BigDecimal("5.00"), new BigDecimal("4.00"), true, "SPROMO-1",
+                new BigDecimal("0.67"), new BigDecimal("4.00"),
+                new BigDecimal("21.98"), new BigDecimal("3.67"), new BigDecimal("35.00"), new BigDecimal("21.98"));
+
+        cart.initialise(new AmountCalculationStrategy() {
+            @Override
+            public Total calculate(final MutableShoppingCart cart) {
+                return total;
+            }
+
+            @Override
+            public Total calculate(final CustomerOrder order, final CustomerOrderDelivery orderDelivery) {
+                fail("Not used in this test");
+                return null;
+            }
+
+            @Override
+            public Total calculate(final CustomerOrder order) {
+                fail("Not used in this test");
+                return null;
+            }
+        });
+        cart.recalculate();
+
+        cart.getShoppingContext().setShopId(10L);
+        cart.getShoppingContext().setShopCode("SHOP10");
+        cart.getShoppingContext().setCustomerEmail("bob@doe.com");
+        cart.getShoppingContext().setCustomerName("Bob Doe");
+        cart.getShoppingContext().setLatestViewedSkus(Arrays.asList("ABC-1", "ABC-2"));
+
+        cart.getOrderInfo().setSeparateBillingAddress(true);
+        cart.getOrderInfo().setBillingAddressId(10L);
+        cart.getOrderInfo().setCarrierSlaId(20L);
+        cart.getOrderInfo().setOrderMessage("Some message");
+
+        return cart;
+    }
+
+}
@@ -23,6 +23,7 @@ import org.junit.Test;
 import org.yes.cart.domain.entity.Customer;
 import org.yes.cart.domain.entity.CustomerOrder;
 import org.yes.cart.domain.entity.CustomerOrderDelivery;
+import org.yes.cart.promotion.CustomerPromotionSnapshot;
 import org.yes.cart.promotion.PromotionContext;
 import org.yes.cart.promotion.PromotionContextFactory;
 import org.yes.cart.service.domain.CustomerService;
@@ -1019,7 +1020,8 @@ public class DefaultAmountCalculationStrategyTest {
 
         final MutableShoppingCart cart = context.mock(MutableShoppingCart.class, "cart");
         final MutableShoppingContext shoppingContext = context.mock(MutableShoppingContext.class, "ctx");
-        final Customer customer = context.mock(Customer.class, "customer");
+        final CustomerPromotionSnapshot customer = context.mock(CustomerPromotionSnapshot.class, "customer");
+        final Customer customerEntity = context.mock(Customer.class, "customerEntity");
         final TaxProvider.Tax tax = context.mock(TaxProvider.Tax.class, "tax");
         final BigDecimal deliveryListCost = new BigDecimal("20.00");
         final Total deliveryTotal = new TotalImpl(
@@ -1050,7 +1052,9 @@ public class DefaultAmountCalculationStrategyTest {
             allowing(deliveryCostCalculationStrategy).calculate(cart); will(returnValue(deliveryTotal));
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
             allowing(cart).getCustomerEmail(); will(returnValue("bob@doe.com"));
-            allowing(customerService).getCustomerByEmail("bob@doe.com"); will(returnValue(customer));
+            allowing(customerService).getCustomerPromotionSnapshotByEmail("bob@doe.com"); will(returnValue(customer));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(true));
+            allowing(customerService).getCustomerByEmail("bob@doe.com"); will(returnValue(customerEntity));
             allowing(cart).getShoppingContext(); will(returnValue(shoppingContext));
             allowing(shoppingContext).getShopCode(); will(returnValue("SHOP10"));
             allowing(shoppingContext).getCountryCode(); will(returnValue("GB"));
@@ -1104,23 +1108,26 @@ public class DefaultAmountCalculationStrategyTest {
         final Total rezTaxIncluded = new DefaultAmountCalculationStrategy(taxProvider, deliveryCostCalculationStrategy, promotionContextFactory, customerService) {
 
             @Override
-            void applyItemLevelPromotions(final Customer cust, final MutableShoppingCart scart, final PromotionContext promoCtx) {
-                assertSame(customer, cust);
+            void applyItemLevelPromotions(final Customer cust, final CustomerPromotionSnapshot snapshot, final MutableShoppingCart scart, final PromotionContext promoCtx) {
+                assertSame(customerEntity, cust);
+                assertSame(customer, snapshot);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
             }
 
             @Override
-            Total applyOrderLevelPromotions(final Customer cust, final MutableShoppingCart scart, final Total itemTotal, final PromotionContext promoCtx) {
-                assertSame(customer, cust);
+            Total applyOrderLevelPromotions(final Customer cust, final CustomerPromotionSnapshot snapshot, final MutableShoppingCart scart, final Total itemTotal, final PromotionContext promoCtx) {
+                assertSame(customerEntity, cust);
+                assertSame(customer, snapshot);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
                 return itemTotal;
             }
 
             @Override
-            void applyShippingPromotions(final Customer cust, final MutableShoppingCart scart, final Total orderTotal, final PromotionContext promoCtx) {
-                assertSame(customer, cust);
+            void applyShippingPromotions(final Customer cust, final CustomerPromotionSnapshot snapshot, final MutableShoppingCart scart, final Total orderTotal, final PromotionContext promoCtx) {
+                assertSame(customerEntity, cust);
+                assertSame(customer, snapshot);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
             }
@@ -1164,7 +1171,7 @@ public class DefaultAmountCalculationStrategyTest {
 
         final MutableShoppingCart cart = context.mock(MutableShoppingCart.class, "cart");
         final MutableShoppingContext shoppingContext = context.mock(MutableShoppingContext.class, "ctx");
-        final Customer customer = context.mock(Customer.class, "customer");
+        final CustomerPromotionSnapshot customer = context.mock(CustomerPromotionSnapshot.class, "customer");
         final TaxProvider.Tax tax = context.mock(TaxProvider.Tax.class, "tax");
         final BigDecimal deliveryListCost = new BigDecimal("20.00");
         final Total deliveryTotal = new TotalImpl(
@@ -1195,7 +1202,8 @@ public class DefaultAmountCalculationStrategyTest {
             allowing(deliveryCostCalculationStrategy).calculate(cart); will(returnValue(deliveryTotal));
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
             allowing(cart).getCustomerEmail(); will(returnValue("bob@doe.com"));
-            allowing(customerService).getCustomerByEmail("bob@doe.com"); will(returnValue(customer));
+            allowing(customerService).getCustomerPromotionSnapshotByEmail("bob@doe.com"); will(returnValue(customer));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
             allowing(cart).getShoppingContext(); will(returnValue(shoppingContext));
             allowing(shoppingContext).getShopCode(); will(returnValue("SHOP10"));
             allowing(shoppingContext).getCountryCode(); will(returnValue("GB"));
@@ -1248,23 +1256,26 @@ public class DefaultAmountCalculationStrategyTest {
         final Total rezTaxExcluded = new DefaultAmountCalculationStrategy(taxProvider, deliveryCostCalculationStrategy, promotionContextFactory, customerService) {
 
             @Override
-            void applyItemLevelPromotions(final Customer cust, final MutableShoppingCart scart, final PromotionContext promoCtx) {
-                assertSame(customer, cust);
+            void applyItemLevelPromotions(final Customer cust, final CustomerPromotionSnapshot snapshot, final MutableShoppingCart scart, final PromotionContext promoCtx) {
+                assertNull(cust);
+                assertSame(customer, snapshot);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
             }
 
             @Override
-            Total applyOrderLevelPromotions(final Customer cust, final MutableShoppingCart scart, final Total itemTotal, final PromotionContext promoCtx) {
-                assertSame(customer, cust);
+            Total applyOrderLevelPromotions(final Customer cust, final CustomerPromotionSnapshot snapshot, final MutableShoppingCart scart, final Total itemTotal, final PromotionContext promoCtx) {
+                assertNull(cust);
+                assertSame(customer, snapshot);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
                 return itemTotal;
             }
 
             @Override
-            void applyShippingPromotions(final Customer cust, final MutableShoppingCart scart, final Total orderTotal, final PromotionContext promoCtx) {
-                assertSame(customer, cust);
+            void applyShippingPromotions(final Customer cust, final CustomerPromotionSnapshot snapshot, final MutableShoppingCart scart, final Total orderTotal, final PromotionContext promoCtx) {
+                assertNull(cust);
+                assertSame(customer, snapshot);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
             }
@@ -23,6 +23,7 @@ import org.yes.cart.domain.entity.CustomerOrderDelivery;
 import org.yes.cart.shoppingcart.AmountCalculationStrategy;
 import org.yes.cart.shoppingcart.MutableShoppingCart;
 import org.yes.cart.shoppingcart.ShoppingCart;
+import org.yes.cart.shoppingcart.ShoppingCartStateSerializer;
 import org.yes.cart.shoppingcart.Total;
 
 import java.io.*;
@@ -58,15 +59,41 @@ public class ShoppingCartImplSerializationTest {
      *
      * Conclusion: to and back is around ~1ms
      *
-     * == Exterializable custom implementation: ============================================
-     *
+     * == Binary BinaryShoppingCartStateSerializerImpl implementation: =====================
      *
+     * Run testBinarySerializationPerformance() (plain and deflated) on the same machine to
+     * compare, numbers above are only valid for the hardware they were taken on.
      *
      * @throws Exception
      */
     @Test
     public void testSerializationPerformance() throws Exception {
 
+        benchmark("Java Serializable", new ShoppingCartStateSerializer() {
+            @Override
+            public byte[] saveState(final ShoppingCart shoppingCart) {
+                return ShoppingCartImplSerializationTest.this.saveState(shoppingCart);
+            }
+
+            @Override
+            public ShoppingCart restoreState(final byte[] bytes) {
+                return ShoppingCartImplSerializationTest.this.restoreState(bytes);
+            }
+        });
+
+    }
+
+    @Test
+    public void testBinarySerializationPerformance() throws Exception {
+
+        benchmark("Binary", new BinaryShoppingCartStateSerializerImpl(false));
+        benchmark("Binary deflated", new BinaryShoppingCartStateSerializerImpl(true));
+
+    }
+
+    private void benchmark(final String name, final ShoppingCartStateSerializer serializer) throws Exception {
+
+        System.out.println("== " + name + " ==");
 
         final int sampleSize = 10000;
 
@@ -79,7 +106,7 @@ public class ShoppingCartImplSerializationTest {
         byte[] bytes = null;
         final long startSerializing = System.currentTimeMillis();
         for (final ShoppingCart cart : carts) {
-            bytes = saveState(cart);
+            bytes = serializer.saveState(cart);
             cartsB.add(bytes);
         }
         final long finishSerializing = System.currentTimeMillis();
@@ -91,7 +118,7 @@ public class ShoppingCartImplSerializationTest {
 
         final long startDeserializing = System.currentTimeMillis();
         for (byte[] b : cartsB) {
-            cart = restoreState(b);
+            cart = serializer.restoreState(b);
         }
         final long finishDeserializing = System.currentTimeMillis();
 
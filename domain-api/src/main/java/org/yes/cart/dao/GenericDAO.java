@@ -22,6 +22,7 @@ import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.domain.queryobject.FilteredNavigationRecordRequest;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -400,6 +401,16 @@ public interface GenericDAO<T, PK extends Serializable> {
      */
     int fullTextSearchReindex(PK primaryKey, boolean purgeOnly);
 
+    /**
+     * Force reindex given entities in a single indexing session, which is opened
+     * specifically for this batch (this method is intended for background indexers).
+     *
+     * @param primaryKeys to reindex.
+     *
+     * @return document quantity processed
+     */
+    int fullTextSearchReindex(Collection<PK> primaryKeys);
+
 
     /**
      * Get the full text search result.
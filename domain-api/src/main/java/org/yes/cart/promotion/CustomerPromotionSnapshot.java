@@ -0,0 +1,82 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.promotion;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lightweight immutable view of customer that holds only data necessary to evaluate
+ * cart promotions (available as "customerSnapshot" variable in eligibility conditions,
+ * whereas "customer" variable remains full customer entity).
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 1:10 PM
+ */
+public interface CustomerPromotionSnapshot extends Serializable {
+
+    /**
+     * @return customer email
+     */
+    String getEmail();
+
+    /**
+     * @return first name
+     */
+    String getFirstname();
+
+    /**
+     * @return last name
+     */
+    String getLastname();
+
+    /**
+     * @return raw tag string (space separated tags)
+     */
+    String getTag();
+
+    /**
+     * @return customer tags
+     */
+    List<String> getTags();
+
+    /**
+     * @return true if this is registered customer
+     */
+    boolean isRegistered();
+
+    /**
+     * @return codes of shops this customer is registered in
+     */
+    Set<String> getShops();
+
+    /**
+     * @return attribute values by attribute code
+     */
+    Map<String, String> getAttributes();
+
+    /**
+     * @param attributeCode attribute code
+     *
+     * @return attribute value or null
+     */
+    String getAttributeValue(String attributeCode);
+
+}
@@ -43,33 +43,45 @@ public interface PromotionContext extends Serializable {
      */
     Date getTimestamp();
 
+    /**
+     * Full customer entity is only needed if eligibility conditions of item, order or shipping
+     * promotions refer to "customer" variable. Other conditions are evaluated using customer
+     * snapshot, which is cheaper to obtain.
+     *
+     * @return true if full customer entity must be supplied to apply*Promo methods
+     */
+    boolean isCustomerRequired();
+
     /**
      * Apply item level promotions on cart.
      *
-     * @param customer customer
+     * @param customer customer (null for anonymous or if not {@link #isCustomerRequired()})
+     * @param customerSnapshot customer snapshot (null for anonymous)
      * @param cart cart
      */
-    void applyItemPromo(Customer customer, MutableShoppingCart cart);
+    void applyItemPromo(Customer customer, CustomerPromotionSnapshot customerSnapshot, MutableShoppingCart cart);
 
     /**
      * Apply order level promotions on cart.
      *
-     * @param customer customer
+     * @param customer customer (null for anonymous or if not {@link #isCustomerRequired()})
+     * @param customerSnapshot customer snapshot (null for anonymous)
      * @param cart cart
      * @param itemTotal current total after item promotions
      *
      * @return  order total (does not include shipping promotions)
      */
-    Total applyOrderPromo(Customer customer, MutableShoppingCart cart, Total itemTotal);
+    Total applyOrderPromo(Customer customer, CustomerPromotionSnapshot customerSnapshot, MutableShoppingCart cart, Total itemTotal);
 
     /**
      * Apply shipping promotions on cart.
      *
-     * @param customer customer
+     * @param customer customer (null for anonymous or if not {@link #isCustomerRequired()})
+     * @param customerSnapshot customer snapshot (null for anonymous)
      * @param cart cart
      * @param orderTotal current total after order promotions
      */
-    void applyShippingPromo(Customer customer, MutableShoppingCart cart, Total orderTotal);
+    void applyShippingPromo(Customer customer, CustomerPromotionSnapshot customerSnapshot, MutableShoppingCart cart, Total orderTotal);
 
     /**
      * Apply promotion on customer. This is not strictly speaking promotion
@@ -19,6 +19,7 @@ package org.yes.cart.service.domain;
 import org.yes.cart.domain.entity.AttrValueCustomer;
 import org.yes.cart.domain.entity.Customer;
 import org.yes.cart.domain.entity.Shop;
+import org.yes.cart.promotion.CustomerPromotionSnapshot;
 
 import java.util.List;
 
@@ -50,6 +51,14 @@ public interface CustomerService extends GenericService<Customer> {
      */
     Customer getCustomerByEmail(String email);
 
+    /**
+     * Get lightweight snapshot of customer data used by promotion engine.
+     *
+     * @param email email
+     * @return snapshot or null if customer not found
+     */
+    CustomerPromotionSnapshot getCustomerPromotionSnapshotByEmail(String email);
+
     /**
      * Get customer shops by email.
      *
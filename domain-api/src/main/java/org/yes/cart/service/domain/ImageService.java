@@ -17,9 +17,12 @@
 package org.yes.cart.service.domain;
 
 import org.yes.cart.domain.entity.SeoImage;
+import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.service.image.ImageNameStrategy;
 
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -40,6 +43,23 @@ public interface ImageService extends GenericService<SeoImage> {
      */
     byte[] resizeImage(String original, String resized, String width, String height);
 
+    /**
+     * Resize given file (if necessary) to requested width and height and open resulting image
+     * for streaming. Unlike {@link #resizeImage(String, String, String, String)} content is not
+     * loaded into memory, so it can be transferred directly to the client (for file system based
+     * repositories channel is {@link java.nio.channels.FileChannel}). Caller must close the channel.
+     *
+     * @param original path to original image
+     * @param resized  path to resized image (optional, if null original is opened)
+     * @param width    requested width
+     * @param height   requested height
+     *
+     * @return channel to read image from
+     *
+     * @throws IOException if image cannot be opened
+     */
+    ReadableByteChannel openImage(String original, String resized, String width, String height) throws IOException;
+
 
     /**
      * Resize given file to requested width and height
@@ -108,6 +128,14 @@ public interface ImageService extends GenericService<SeoImage> {
      */
     boolean isSizeAllowed(String width, String height);
 
+    /**
+     * Get all image sizes allowed for resizing (i.e. all sizes for which
+     * {@link #isSizeAllowed(String, String)} is true).
+     *
+     * @return list of width - height pairs
+     */
+    List<Pair<String, String>> getAllowedSizes();
+
     /**
      * Get the image name strategy.
      *
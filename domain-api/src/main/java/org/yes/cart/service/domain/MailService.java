@@ -18,6 +18,8 @@ package org.yes.cart.service.domain;
 
 import org.yes.cart.domain.entity.Mail;
 
+import java.util.List;
+
 /**
  * User: denispavlov
  * Date: 10/11/2013
@@ -30,4 +32,11 @@ public interface MailService extends GenericService<Mail> {
      */
     Mail findOldestMail();
 
+    /**
+     * @param limit max number of emails
+     *
+     * @return email objects ordered by creation timestamp, oldest first
+     */
+    List<Mail> findOldestMails(int limit);
+
 }
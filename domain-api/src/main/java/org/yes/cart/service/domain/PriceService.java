@@ -23,6 +23,7 @@ import org.yes.cart.domain.queryobject.FilteredNavigationRecord;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Price service.
@@ -53,6 +54,23 @@ public interface PriceService extends GenericService<SkuPrice> {
                              final String currencyCode,
                              final BigDecimal quantity);
 
+    /**
+     * Get minimal prices for several products at once (e.g. product listing page) using
+     * single query per shop and currency for prices that are not yet cached.
+     *
+     * @param productSkus  map of product id to optional selected sku (null value means that all
+     *                     product skus will be considered to determine minimal price)
+     * @param shopId       shop
+     * @param currencyCode desirable currency
+     * @param quantity     quantity
+     *
+     * @return map of product id to lowest available sku price (blank price object if none available)
+     */
+    Map<Long, SkuPrice> getMinimalPrices(final Map<Long, String> productSkus,
+                                         final long shopId,
+                                         final String currencyCode,
+                                         final BigDecimal quantity);
+
     /**
      * Get all prices for given product skus (all), shop, currency and quantity.
      *
@@ -18,6 +18,8 @@ package org.yes.cart.service.domain;
 
 import org.yes.cart.domain.entity.ShopTopSeller;
 
+import java.util.List;
+
 /**
  * User: Igor Azarny iazarny@yahoo.com
  * Date: 6/5/11
@@ -31,4 +33,14 @@ public interface ShopTopSellerService  extends GenericService<ShopTopSeller> {
      */
    void updateTopSellers(int calculationPeriodInDays);
 
+    /**
+     * Get top selling products of given shop as calculated by last {@link #updateTopSellers(int)}.
+     *
+     * @param shopId shop PK
+     * @param limit  max number of products
+     *
+     * @return product PK's, best sellers first
+     */
+    List<Long> getTopSellerProductIds(long shopId, int limit);
+
 }
@@ -18,6 +18,7 @@ package org.yes.cart.service.domain;
 
 import org.yes.cart.domain.entity.ShoppingCartState;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -37,6 +38,15 @@ public interface ShoppingCartStateService extends GenericService<ShoppingCartSta
      */
     ShoppingCartState findByGuid(String guid);
 
+    /**
+     * Get states by guids in single query.
+     *
+     * @param guids guids
+     *
+     * @return states that exist for given guids
+     */
+    List<ShoppingCartState> findByGuids(Collection<String> guids);
+
     /**
      * Get state by guid.
      *
@@ -48,6 +48,17 @@ public interface DtoInventoryService {
      */
     List<InventoryDTO> getInventoryList(InventoryFilter filter) throws UnmappedInterfaceException, UnableToCreateInstanceException;
 
+    /**
+     * Range of inventory by filter ordered by SKU code, quantity and id, so that
+     * large inventory lists can be paged through.
+     *
+     * @param filter      inventory filter
+     * @param firstResult first row of result
+     * @param maxResults  size of result set
+     * @return inventory
+     */
+    List<InventoryDTO> getInventoryList(InventoryFilter filter, int firstResult, int maxResults) throws UnmappedInterfaceException, UnableToCreateInstanceException;
+
     /**
      * Create or update inventory object.
      *
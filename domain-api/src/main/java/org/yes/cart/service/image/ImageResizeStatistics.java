@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.image;
+
+/**
+ * Runtime statistics of on demand image resizing (exposed via JMX).
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 4:10 PM
+ */
+public interface ImageResizeStatistics {
+
+    /**
+     * @return number of resize operations performed since start up
+     */
+    long getResizeCount();
+
+    /**
+     * @return number of requests that did not resize themselves but waited for
+     *         resize of the same image that was already in progress
+     */
+    long getResizeCollapsedCount();
+
+    /**
+     * @return average time of single resize (decode, scale, encode and write) in milliseconds
+     */
+    long getResizeAverageTimeMs();
+
+    /**
+     * @return maximum time of single resize in milliseconds
+     */
+    long getResizeMaxTimeMs();
+
+    /**
+     * @return number of distinct images currently being resized or waiting in queue
+     */
+    int getResizeInProgressCount();
+
+    /**
+     * @return number of resize tasks waiting for a free worker
+     */
+    int getResizeQueueSize();
+
+    /**
+     * @return number of workers currently resizing images
+     */
+    int getResizeActiveWorkers();
+
+}
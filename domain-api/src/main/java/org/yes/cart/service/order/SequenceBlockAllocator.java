@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.order;
+
+/**
+ * Reserves blocks of sequence values in shared storage, so that several cluster nodes can
+ * hand out unique values from their own block without coordinating on every value.
+ * <p/>
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 10:12 AM
+ */
+public interface SequenceBlockAllocator {
+
+    /**
+     * Reserve next block of values for given sequence. Values from
+     * first (inclusive) to first + blockSize (exclusive) belong exclusively to caller.
+     *
+     * @param sequenceName sequence name
+     * @param blockSize    number of values to reserve
+     *
+     * @return first value of reserved block
+     */
+    long allocateBlock(String sequenceName, int blockSize);
+
+}
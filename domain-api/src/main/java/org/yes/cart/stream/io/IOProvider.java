@@ -17,6 +17,7 @@
 package org.yes.cart.stream.io;
 
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Map;
 
 /**
@@ -71,6 +72,20 @@ public interface IOProvider {
      */
     byte[] read(String uri, Map<String, Object> context) throws IOException;
 
+    /**
+     * Open content for streaming read, so that content does not have to be loaded into memory.
+     * File system based providers return {@link java.nio.channels.FileChannel}, which allows
+     * random access and zero copy transfer. Caller is responsible for closing the channel.
+     *
+     * @param uri uri of the read target
+     * @param context any applicable context for given provider
+     *
+     * @return channel to read content from
+     *
+     * @throws IOException in case if target cannot be opened
+     */
+    ReadableByteChannel open(String uri, Map<String, Object> context) throws IOException;
+
     /**
      * Write content as bytes.
      *
@@ -860,5 +860,15 @@ INSERT INTO TATTRIBUTE (ATTRIBUTE_ID, GUID, CODE, MANDATORY, VAL, NAME, DESCRIPT
   VALUES (  10984,  'PRODUCT_DISPLAY_MAN_CODE_SHOP', 'PRODUCT_DISPLAY_MANUFACTURER_CODE_SHOP',  0,  NULL,  'Product: show manufacturer code',
     'Flag whether to use manufacturer code or seller code as primary UI property',  1008, 1001);
 
+--
+--  Cluster safe order numbers: hi/lo blocks reserved from sequence table
+--
+
+create table TSEQUENCE (
+    SEQUENCE_NAME varchar(64) not null,
+    NEXT_VALUE bigint not null,
+    primary key (SEQUENCE_NAME)
+);
 
+INSERT INTO TSEQUENCE (SEQUENCE_NAME, NEXT_VALUE) SELECT 'ORDER', COUNT(*) + 1 FROM TCUSTOMERORDER;
 
@@ -75,6 +75,7 @@ public class CsvBulkImportServiceImpl extends AbstractImportService implements I
     private final LookUpQueryParameterStrategy descriptorInsert = new CsvDescriptorNativeInsertStrategy();
     private final LookUpQueryParameterStrategy columnLookUp = new CsvColumnLookUpQueryStrategy();
     private EntityCacheKeyStrategy cacheKey;
+    private int batchSize = 1;
 
     public CsvBulkImportServiceImpl(final FederationFacade federationFacade) {
         super(federationFacade);
@@ -216,13 +217,27 @@ public class CsvBulkImportServiceImpl extends AbstractImportService implements I
                     csvImportDescriptor.getImportFileDescriptor().isIgnoreFirstLine());
 
             String[] line;
+            CsvImportTuple tuple = null;
+            CsvImportTuple batchStart = null;
+            int tuplesInBatch = 0;
             while ((line = csvFileReader.readLine()) != null) {
-                final CsvImportTuple tuple = new CsvImportTupleImpl(filename, lineNumber++, line);
+                tuple = new CsvImportTupleImpl(filename, lineNumber++, line);
+                if (batchStart == null) {
+                    batchStart = tuple;
+                }
                 if (mode == ImportDescriptor.ImportMode.DELETE) {
                     doImportDelete(statusListener, tuple, csvImportDescriptorName, csvImportDescriptor);
                 } else {
                     doImportMerge(statusListener, tuple, csvImportDescriptorName, csvImportDescriptor, null);
                 }
+                if (++tuplesInBatch >= batchSize) {
+                    flushBatch(statusListener, batchStart, tuple, csvImportDescriptorName);
+                    batchStart = null;
+                    tuplesInBatch = 0;
+                }
+            }
+            if (batchStart != null) {
+                flushBatch(statusListener, batchStart, tuple, csvImportDescriptorName);
             }
             final String msgInfoLines = MessageFormat.format("total data lines : {0}",
                     (csvImportDescriptor.getImportFileDescriptor().isIgnoreFirstLine() ? csvFileReader.getRowsRead() - 1 : csvFileReader.getRowsRead()));
@@ -294,7 +309,6 @@ public class CsvBulkImportServiceImpl extends AbstractImportService implements I
 
                         genericDAO.delete(object);
 
-                        genericDAO.flushClear();
                     }
 
                 }
@@ -390,8 +404,6 @@ public class CsvBulkImportServiceImpl extends AbstractImportService implements I
                     validateAccessAfterUpdate(object, descriptor.getEntityTypeClass());
                 }
 
-                genericDAO.flushClear();
-
             }
             statusListener.notifyPing("Importing tuple: " + tuple.getSourceId()); // make sure we do not time out
 
@@ -432,6 +444,37 @@ public class CsvBulkImportServiceImpl extends AbstractImportService implements I
         }
     }
 
+    /*
+     * Flush changes made by a batch of tuples and clear session. All statements of the batch
+     * are sent together, so JDBC batching (hibernate.jdbc.batch_size) can be utilised.
+     */
+    private void flushBatch(final JobStatusListener statusListener,
+                            final ImportTuple first,
+                            final ImportTuple last,
+                            final String csvImportDescriptorName) throws Exception {
+        try {
+
+            genericDAO.flushClear();
+
+        } catch (Exception e) {
+
+            final Logger log = ShopCodeContext.getLog(this);
+            String message = MessageFormat.format(
+                    "during import rows : {0} - {1} \ndescriptor {2} \nerror {3}\n{4}",
+                    first.getSourceId(),
+                    last.getSourceId(),
+                    csvImportDescriptorName,
+                    e.getMessage(),
+                    ExceptionUtil.stackTraceToString(e)
+            );
+            log.error(message, e);
+            statusListener.notifyError(message);
+            genericDAO.clear();
+
+            throw new Exception(message, e);
+        }
+    }
+
     private void executeNativeQuery(final ImportDescriptor descriptor,
                                     final Object masterObject,
                                     final ImportTuple tuple,
@@ -719,4 +762,15 @@ public class CsvBulkImportServiceImpl extends AbstractImportService implements I
         this.cacheKey = new ColumnLookUpQueryCacheKeyStrategy(columnLookUp, genericDAO);
     }
 
+    /**
+     * IoC. Number of tuples to import before flushing changes and clearing session. Default is 1.
+     * Lookups still see changes of the current batch since hibernate flushes before queries that
+     * touch modified tables. Import runs in single transaction, so all or nothing semantics is kept.
+     *
+     * @param batchSize number of tuples per flush
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize > 0 ? batchSize : 1;
+    }
+
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import org.yes.cart.bulkimport.image.ImageImportDomainObjectStrategy;
 import org.yes.cart.bulkimport.model.ImportDescriptor;
 import org.yes.cart.bulkimport.service.ImportService;
 import org.yes.cart.bulkimport.service.impl.AbstractImportService;
+import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.service.async.JobStatusListener;
 import org.yes.cart.service.async.model.JobContext;
 import org.yes.cart.service.async.model.JobContextKeys;
@@ -33,7 +34,10 @@ import org.yes.cart.service.image.ImageNameStrategy;
 import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -48,6 +52,10 @@ public class ImagesBulkImportServiceImpl extends AbstractImportService implement
 
     private final ImageImportDomainObjectStrategy[] strategies;
 
+    private boolean preRenderThumbnails = false;
+
+    private int preRenderWorkers = 2;
+
     /**
      * Construct bilk import service.
      *
@@ -63,6 +71,23 @@ public class ImagesBulkImportServiceImpl extends AbstractImportService implement
         this.strategies = strategies;
     }
 
+    /**
+     * Pre-render all allowed sizes ({@link ImageService#getAllowedSizes()}) of imported images,
+     * so that storefront does not have to resize them on first request.
+     *
+     * @param preRenderThumbnails true to pre-render thumbnails after import
+     */
+    public void setPreRenderThumbnails(final boolean preRenderThumbnails) {
+        this.preRenderThumbnails = preRenderThumbnails;
+    }
+
+    /**
+     * @param preRenderWorkers number of threads used to pre-render thumbnails
+     */
+    public void setPreRenderWorkers(final int preRenderWorkers) {
+        this.preRenderWorkers = preRenderWorkers;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -93,11 +118,16 @@ public class ImagesBulkImportServiceImpl extends AbstractImportService implement
             LOG.info(info);
             int count = 0;
             int total = files.length;
+            final List<String[]> thumbnails = new ArrayList<String[]>();
             for (File file : files) {
-                doImport(file, importDescriptor, statusListener, importedFiles, imageVaultRootDirectory);
+                doImport(file, importDescriptor, statusListener, importedFiles, imageVaultRootDirectory, thumbnails);
                 statusListener.notifyPing("Processed " + (++count) + " of " + total + " images");
             }
 
+            if (!thumbnails.isEmpty()) {
+                preRenderThumbnails(thumbnails, statusListener);
+            }
+
         }
         return BulkImportResult.OK;
 
@@ -114,12 +144,14 @@ public class ImagesBulkImportServiceImpl extends AbstractImportService implement
      * @param statusListener error report
      * @param importedFiles add file to this set if imported it successfully imported.
      * @param imageVaultRootDirectory path to image vault
+     * @param thumbnails thumbnails to pre-render (original, resized, width, height)
      */
     private void doImport(final File file,
                           final ImportDescriptor importDescriptor,
                           final JobStatusListener statusListener,
                           final Set<String> importedFiles,
-                          final String imageVaultRootDirectory) {
+                          final String imageVaultRootDirectory,
+                          final List<String[]> thumbnails) {
 
         final ImageNameStrategy strategy = imageService.getImageNameStrategy(importDescriptor.getSelectSql());
 
@@ -149,6 +181,20 @@ public class ImagesBulkImportServiceImpl extends AbstractImportService implement
                 statusListener.notifyMessage(info);
                 LOG.info(info);
 
+                if (preRenderThumbnails) {
+                    final String original = imageVaultRootDirectory
+                            + strategy.resolveRelativeInternalFileNamePath(newFileName, code, null);
+                    for (final Pair<String, String> size : imageService.getAllowedSizes()) {
+                        thumbnails.add(new String[] {
+                                original,
+                                imageVaultRootDirectory + strategy.resolveRelativeInternalFileNamePath(
+                                        newFileName, code, null, size.getFirst(), size.getSecond()),
+                                size.getFirst(),
+                                size.getSecond()
+                        });
+                    }
+                }
+
             } catch (IOException e) {
                 final String err = MessageFormat.format(
                         "can not add {0} to image repository. Try to add it manually. Error is {1}", file.getAbsolutePath(), e.getMessage());
@@ -161,4 +207,59 @@ public class ImagesBulkImportServiceImpl extends AbstractImportService implement
 
     }
 
+    /**
+     * Resize imported images to all allowed sizes using several worker threads. Progress is
+     * reported from import thread as workers complete.
+     *
+     * @param thumbnails     thumbnails to pre-render (original, resized, width, height)
+     * @param statusListener status listener
+     */
+    private void preRenderThumbnails(final List<String[]> thumbnails,
+                                     final JobStatusListener statusListener) {
+
+        final String info = MessageFormat.format(
+                "\nINFO pre-rendering {0} thumbnails using {1} workers",
+                thumbnails.size(), preRenderWorkers);
+        statusListener.notifyMessage(info);
+        LOG.info(info);
+
+        final ExecutorService workers = Executors.newFixedThreadPool(preRenderWorkers);
+        try {
+            final CompletionService<String> completed = new ExecutorCompletionService<String>(workers);
+            for (final String[] thumbnail : thumbnails) {
+                completed.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        final byte[] resized = imageService.resizeImage(thumbnail[0], thumbnail[1], thumbnail[2], thumbnail[3]);
+                        return resized.length > 0 ? null : thumbnail[1];
+                    }
+                });
+            }
+
+            final int total = thumbnails.size();
+            for (int count = 1; count <= total; count++) {
+                String failed;
+                try {
+                    failed = completed.take().get();
+                } catch (ExecutionException ee) {
+                    failed = ee.getCause().getMessage();
+                }
+                if (failed != null) {
+                    final String warn = MessageFormat.format("unable to pre-render thumbnail {0}", failed);
+                    LOG.warn(warn);
+                    statusListener.notifyWarning(warn);
+                }
+                statusListener.notifyPing("Pre-rendered " + count + " of " + total + " thumbnails");
+            }
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            final String err = "thumbnails pre-rendering was interrupted";
+            LOG.error(err, ie);
+            statusListener.notifyError(err);
+        } finally {
+            workers.shutdownNow();
+        }
+
+    }
+
 }
@@ -17,11 +17,13 @@
 
 package org.yes.cart.domain.interceptor;
 
+import org.hibernate.Transaction;
 import org.hibernate.type.Type;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
-import org.yes.cart.constants.AttributeNamesKeys;
+import org.yes.cart.cache.CacheInvalidationTransport;
+import org.yes.cart.domain.dto.impl.CacheableChangeDTOImpl;
 import org.yes.cart.domain.entity.Identifiable;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.service.async.model.AsyncContext;
@@ -29,15 +31,9 @@ import org.yes.cart.service.async.utils.ThreadLocalAsyncContextUtils;
 import org.yes.cart.util.ShopCodeContext;
 import org.yes.cart.web.service.ws.CacheDirector;
 import org.yes.cart.web.service.ws.client.AsyncFlexContextImpl;
-import org.yes.cart.web.service.ws.client.WsAbstractFactoryClientFactory;
-import org.yes.cart.web.service.ws.client.WsClientFactory;
-import org.yes.cart.web.service.ws.node.NodeService;
-import org.yes.cart.web.service.ws.node.dto.Node;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -45,12 +41,17 @@ import java.util.Set;
  * Time: 16:13:01
  * <p/>
  * Delegate cache eviction to shops in case if operation was performed on a cacheable entity.
+ * <p/>
+ * Changes are collected per transaction (duplicates removed) and published to all nodes as
+ * single batch via {@link CacheInvalidationTransport} once transaction is committed. Changes of
+ * rolled back transactions are discarded.
  */
 public class AdminInterceptor extends AuditInterceptor implements ApplicationContextAware {
 
     private ApplicationContext applicationContext;
-    private NodeService nodeService;
-    private WsAbstractFactoryClientFactory wsAbstractFactoryClientFactory;
+    private CacheInvalidationTransport cacheInvalidationTransport;
+
+    private final ThreadLocal<Set<CacheableChangeDTOImpl>> pendingChanges = new ThreadLocal<Set<CacheableChangeDTOImpl>>();
 
     private Map<String, Map<String, Set<Pair<String, String>>>> entityOperationCache;
     private Set<String> cachedEntities;
@@ -95,13 +96,37 @@ public class AdminInterceptor extends AuditInterceptor implements ApplicationCon
     }
 
 
+    @Override
+    public void afterTransactionCompletion(final Transaction tx) {
+        try {
+            super.afterTransactionCompletion(tx);
+        } finally {
+            final Set<CacheableChangeDTOImpl> changes = pendingChanges.get();
+            pendingChanges.remove();
+            if (changes != null && !changes.isEmpty() && (tx == null || tx.wasCommitted())) {
+                publish(new ArrayList<CacheableChangeDTOImpl>(changes));
+            }
+        }
+    }
+
+
     void invalidateCache(final String op, final String entityName, final Long pk) {
 
-        if (nodeService == null) {
+        Set<CacheableChangeDTOImpl> changes = pendingChanges.get();
+        if (changes == null) {
+            changes = new LinkedHashSet<CacheableChangeDTOImpl>();
+            pendingChanges.set(changes);
+        }
+        changes.add(new CacheableChangeDTOImpl(op, entityName, pk));
+
+    }
+
+    void publish(final List<CacheableChangeDTOImpl> changes) {
+
+        if (cacheInvalidationTransport == null) {
             synchronized (this) {
-                if (nodeService == null) {
-                    nodeService = applicationContext.getBean("nodeService", NodeService.class);
-                    wsAbstractFactoryClientFactory = applicationContext.getBean("wsAbstractFactoryClientFactory", WsAbstractFactoryClientFactory.class);
+                if (cacheInvalidationTransport == null) {
+                    cacheInvalidationTransport = applicationContext.getBean("cacheInvalidationTransport", CacheInvalidationTransport.class);
                 }
             }
         }
@@ -109,32 +134,15 @@ public class AdminInterceptor extends AuditInterceptor implements ApplicationCon
         final AsyncContext async = getAsyncContext();
         if (async == null) {
             ShopCodeContext.getLog(this)
-                    .error("Cannot invalidate cache for entity [" + entityName + "] pk value =  [" + pk + "] - no async context ");
+                    .error("Cannot invalidate cache for " + changes + " - no async context ");
             return;
         }
-        String userName = async.getAttribute(AsyncContext.USERNAME);
-        String password = async.getAttribute(AsyncContext.CREDENTIALS);
-        final int timeout = Integer.parseInt(nodeService.getConfiguration().get(AttributeNamesKeys.System.SYSTEM_BACKDOOR_CACHE_TIMEOUT_MS));
-
-        for (final Node node : nodeService.getYesNodes()) {
-
-            try {
-
-                final WsClientFactory<CacheDirector> factory =
-                        wsAbstractFactoryClientFactory.getFactory(CacheDirector.class, userName, password, node.getCacheManagerUri(), timeout);
-                CacheDirector wsCacheDirector = factory.getService();
-                wsCacheDirector.onCacheableChange(op, entityName, pk);
-                factory.release(wsCacheDirector);
-                wsCacheDirector = null;
-
-            } catch (Exception e) {
-
-                ShopCodeContext.getLog(this)
-                        .error("Cannot invalidate cache for entity [" + entityName
-                                + "] pk value =  [" + pk + "] url [" + node.getNodeId() + ":" + node.getCacheManagerUri() + "]");
-
-            }
 
+        try {
+            cacheInvalidationTransport.publish(async, changes);
+        } catch (Exception e) {
+            ShopCodeContext.getLog(this)
+                    .error("Cannot invalidate cache for " + changes, e);
         }
 
     }
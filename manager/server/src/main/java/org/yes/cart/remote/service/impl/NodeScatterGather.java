@@ -0,0 +1,190 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.remote.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.yes.cart.web.service.ws.node.dto.Node;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Performs same operation on several nodes in parallel (scatter) and collects results (gather).
+ * Whole operation is bound by single deadline, so that cluster wide call takes as long as the
+ * slowest node (or deadline) rather than sum of all nodes. Nodes that fail or do not respond in
+ * time do not affect results of other nodes.
+ *
+ * User: denispavlov
+ * Date: 14-06-13
+ * Time: 2:10 PM
+ */
+public class NodeScatterGather {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NodeScatterGather.class);
+
+    /**
+     * Node operation.
+     *
+     * @param <T> result type
+     */
+    public interface NodeOperation<T> {
+
+        /**
+         * @param node node to perform operation on
+         *
+         * @return result
+         *
+         * @throws Exception any error
+         */
+        T execute(Node node) throws Exception;
+
+    }
+
+    /**
+     * Status of operation on single node.
+     */
+    public enum Status { OK, FAILED, TIMEOUT }
+
+    /**
+     * Result of operation on single node.
+     *
+     * @param <T> result type
+     */
+    public static final class NodeResult<T> {
+
+        private final Node node;
+        private final Status status;
+        private final T result;
+        private final Throwable error;
+
+        NodeResult(final Node node, final Status status, final T result, final Throwable error) {
+            this.node = node;
+            this.status = status;
+            this.result = result;
+            this.error = error;
+        }
+
+        /**
+         * @return node
+         */
+        public Node getNode() {
+            return node;
+        }
+
+        /**
+         * @return status
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return result (null unless status is OK)
+         */
+        public T getResult() {
+            return result;
+        }
+
+        /**
+         * @return error for FAILED status
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * @return true if operation succeeded
+         */
+        public boolean isOk() {
+            return status == Status.OK;
+        }
+    }
+
+    private final AsyncTaskExecutor executor;
+
+    /**
+     * Construct scatter gather.
+     *
+     * @param executor executor for node operations (should allow at least as many threads as there are nodes)
+     */
+    public NodeScatterGather(final AsyncTaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Perform operation on all nodes in parallel.
+     *
+     * @param operationName operation name for logging
+     * @param nodes         nodes
+     * @param operation     operation
+     * @param deadlineMs    max time to wait for all nodes
+     * @param <T>           result type
+     *
+     * @return node id to result
+     */
+    public <T> Map<String, NodeResult<T>> execute(final String operationName,
+                                                  final List<Node> nodes,
+                                                  final NodeOperation<T> operation,
+                                                  final long deadlineMs) {
+
+        final long deadline = System.currentTimeMillis() + deadlineMs;
+
+        final Map<Node, Future<T>> futures = new LinkedHashMap<Node, Future<T>>();
+        final Map<String, NodeResult<T>> results = new LinkedHashMap<String, NodeResult<T>>();
+        for (final Node node : nodes) {
+            try {
+                futures.put(node, executor.submit(new Callable<T>() {
+                    public T call() throws Exception {
+                        return operation.execute(node);
+                    }
+                }));
+            } catch (RejectedExecutionException ree) {
+                results.put(node.getNodeId(), new NodeResult<T>(node, Status.FAILED, null, ree));
+            }
+        }
+
+        for (final Map.Entry<Node, Future<T>> future : futures.entrySet()) {
+            final Node node = future.getKey();
+            try {
+                final long wait = Math.max(0L, deadline - System.currentTimeMillis());
+                results.put(node.getNodeId(), new NodeResult<T>(node, Status.OK, future.getValue().get(wait, TimeUnit.MILLISECONDS), null));
+            } catch (TimeoutException te) {
+                future.getValue().cancel(true);
+                results.put(node.getNodeId(), new NodeResult<T>(node, Status.TIMEOUT, null, te));
+            } catch (ExecutionException ee) {
+                results.put(node.getNodeId(), new NodeResult<T>(node, Status.FAILED, null, ee.getCause()));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                future.getValue().cancel(true);
+                results.put(node.getNodeId(), new NodeResult<T>(node, Status.FAILED, null, ie));
+            }
+        }
+
+        for (final NodeResult<T> result : results.values()) {
+            if (!result.isOk() && LOG.isErrorEnabled()) {
+                LOG.error("Cannot " + operationName + ", node [" + result.getNode().getNodeId() + "] status: "
+                        + result.getStatus(), result.getError());
+            }
+        }
+
+        return results;
+
+    }
+
+}
@@ -16,8 +16,6 @@
 
 package org.yes.cart.remote.service.impl;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.yes.cart.constants.AttributeNamesKeys;
 import org.yes.cart.domain.dto.impl.CacheInfoDTOImpl;
 import org.yes.cart.exception.UnableToCreateInstanceException;
@@ -33,62 +31,54 @@ import org.yes.cart.web.service.ws.node.NodeService;
 import org.yes.cart.web.service.ws.node.dto.Node;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
+ * Cluster wide operations are performed on all nodes in parallel using {@link NodeScatterGather},
+ * failed or timed out nodes are reported with failure value in result map.
+ *
  * User: iazarny@yahoo.com Igor Azarny
  * Date: 4 - feb - 12
  * Time: 5:44 PM
  */
 public class RemoteBackdoorServiceImpl implements RemoteBackdoorService {
 
-    private static final Logger LOG = LoggerFactory.getLogger(RemoteBackdoorServiceImpl.class);
+    private static final long DEADLINE_GRACE_MS = 1000L;
 
     private final NodeService nodeService;
     private final BackdoorService localBackdoorService;
     private final CacheDirector localCacheDirector;
     private final WsAbstractFactoryClientFactory wsAbstractFactoryClientFactory;
+    private final NodeScatterGather nodeScatterGather;
 
 
     public RemoteBackdoorServiceImpl(final NodeService nodeService,
                                      final BackdoorService localBackdoorService,
                                      final CacheDirector localCacheDirector,
-                                     final WsAbstractFactoryClientFactory wsAbstractFactoryClientFactory) {
+                                     final WsAbstractFactoryClientFactory wsAbstractFactoryClientFactory,
+                                     final NodeScatterGather nodeScatterGather) {
         this.nodeService = nodeService;
         this.localBackdoorService = localBackdoorService;
         this.localCacheDirector = localCacheDirector;
         this.wsAbstractFactoryClientFactory = wsAbstractFactoryClientFactory;
+        this.nodeScatterGather = nodeScatterGather;
     }
 
     /**
      * {@inheritDoc}
      */
     public void warmUp(final AsyncContext context) {
-        for (final Node yesNode : nodeService.getYesNodes()) {
-            try {
-                final WsClientFactory<BackdoorService> factory =
-                        getBackdoorService(context, yesNode.getBackdoorUri(),
-                                AttributeNamesKeys.System.SYSTEM_BACKDOOR_TIMEOUT_MS);
-
-                BackdoorService service = factory.getService();
-                try {
-                    service.warmUp();
-                } finally {
-                    factory.release(service);
-                    service = null;
-                }
-
-            } catch (Exception e) {
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot warmUp server,  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getBackdoorUri()
-                            + "] . Will try next one, if exists",
-                            e);
-                }
-            }
-        }
+        callBackdoor(context, "warmUp", nodeService.getYesNodes(),
+                AttributeNamesKeys.System.SYSTEM_BACKDOOR_TIMEOUT_MS,
+                new BackdoorOperation<Boolean>() {
+                    public Boolean execute(final BackdoorService service) {
+                        service.warmUp();
+                        return Boolean.TRUE;
+                    }
+                });
     }
 
     /**
@@ -100,40 +90,16 @@ public class RemoteBackdoorServiceImpl implements RemoteBackdoorService {
         if (indexFinished == null) {
             throw new IllegalArgumentException("Must have [" + JobContextKeys.NODE_FULL_PRODUCT_INDEX_STATE + "] attribute [Map<String, Boolean>] in async context");
         }
-        final Map<String, Integer> indexStatus = new HashMap<String, Integer>();
-        for (final Node yesNode : nodeService.getYesNodes()) {
-            try {
-                final Boolean finished = indexFinished.get(yesNode) != null && indexFinished.get(yesNode);
-                if (!finished) {
-                    final WsClientFactory<BackdoorService> factory =
-                            getBackdoorService(context, yesNode.getBackdoorUri(),
-                                    AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_BULK_INDEX_TIMEOUT_MS);
-
-                    BackdoorService service = factory.getService();
-                    try {
+        return toResultMap(callBackdoor(context, "reindex products", getUnfinishedNodes(indexFinished),
+                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_BULK_INDEX_TIMEOUT_MS,
+                new BackdoorOperation<Integer>() {
+                    public Integer execute(final BackdoorService service) {
                         if (shopId != null && shopId > 0L) {
-                            indexStatus.put(yesNode.getNodeId(), service.reindexShopProducts(shopId));
-                        } else {
-                            indexStatus.put(yesNode.getNodeId(), service.reindexAllProducts());
+                            return service.reindexShopProducts(shopId);
                         }
-                    } finally {
-                        factory.release(service);
-                        service = null;
+                        return service.reindexAllProducts();
                     }
-
-                }
-            } catch (Exception e) {
-                indexStatus.put(yesNode.getNodeId(), null);
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot reindex products,  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getBackdoorUri()
-                            + "] . Will try next one, if exists",
-                            e);
-                }
-            }
-
-        }
-        return indexStatus;
+                }), null);
     }
 
     /**
@@ -145,172 +111,79 @@ public class RemoteBackdoorServiceImpl implements RemoteBackdoorService {
         if (indexFinished == null) {
             throw new IllegalArgumentException("Must have [" + JobContextKeys.NODE_FULL_PRODUCT_INDEX_STATE + "] attribute [Map<String, Boolean>] in async context");
         }
-        final Map<String, Integer> indexStatus = new HashMap<String, Integer>();
-        for (final Node yesNode : nodeService.getYesNodes()) {
-            try {
-                final Boolean finished = indexFinished.get(yesNode) != null && indexFinished.get(yesNode);
-                if (!finished) {
-                    final WsClientFactory<BackdoorService> factory =
-                            getBackdoorService(context, yesNode.getBackdoorUri(),
-                                    AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_BULK_INDEX_TIMEOUT_MS);
-
-                    BackdoorService service = factory.getService();
-                    try {
+        return toResultMap(callBackdoor(context, "reindex products", getUnfinishedNodes(indexFinished),
+                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_BULK_INDEX_TIMEOUT_MS,
+                new BackdoorOperation<Integer>() {
+                    public Integer execute(final BackdoorService service) {
                         if (shopId != null && shopId > 0L) {
-                            indexStatus.put(yesNode.getNodeId(), service.reindexShopProductsSku(shopId));
-                        } else {
-                            indexStatus.put(yesNode.getNodeId(), service.reindexAllProductsSku());
+                            return service.reindexShopProductsSku(shopId);
                         }
-                    } finally {
-                        factory.release(service);
-                        service = null;
+                        return service.reindexAllProductsSku();
                     }
+                }), null);
+    }
 
-                }
-            } catch (Exception e) {
-                indexStatus.put(yesNode.getNodeId(), null);
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot reindex products,  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getBackdoorUri()
-                            + "] . Will try next one, if exists",
-                            e);
-                }
+    private List<Node> getUnfinishedNodes(final Map<String, Boolean> indexFinished) {
+        final List<Node> unfinished = new ArrayList<Node>();
+        for (final Node yesNode : nodeService.getYesNodes()) {
+            final Boolean finished = indexFinished.get(yesNode) != null && indexFinished.get(yesNode);
+            if (!finished) {
+                unfinished.add(yesNode);
             }
-
         }
-        return indexStatus;
+        return unfinished;
     }
 
     /**
      * {@inheritDoc}
      */
     public Map<String, Integer> reindexProduct(final AsyncContext context, final long productPk) {
-        final Map<String, Integer> reindexResult = new HashMap<String, Integer>();
-        for (final Node yesNode : nodeService.getYesNodes()) {
-            try {
-                final WsClientFactory<BackdoorService> factory =
-                        getBackdoorService(context, yesNode.getBackdoorUri(),
-                                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_SINGLE_INDEX_TIMEOUT_MS);
-
-                BackdoorService service = factory.getService();
-                try {
-                    reindexResult.put(yesNode.getNodeId(), service.reindexProduct(productPk));
-                } finally {
-                    factory.release(service);
-                    service = null;
-                }
-
-            } catch (Exception e) {
-                reindexResult.put(yesNode.getNodeId(), -1);
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot reindex product [" + productPk + "],  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getBackdoorUri()
-                            + "] . Will try next one, if exists",
-                            e);
-                }
-            }
-
-        }
-        return reindexResult;
+        return toResultMap(callBackdoor(context, "reindex product [" + productPk + "]", nodeService.getYesNodes(),
+                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_SINGLE_INDEX_TIMEOUT_MS,
+                new BackdoorOperation<Integer>() {
+                    public Integer execute(final BackdoorService service) {
+                        return service.reindexProduct(productPk);
+                    }
+                }), -1);
     }
 
     /**
      * {@inheritDoc}
      */
     public Map<String, Integer> reindexProductSku(final AsyncContext context, final long productPk) {
-        final Map<String, Integer> reindexResult = new HashMap<String, Integer>();
-        for (final Node yesNode : nodeService.getYesNodes()) {
-            try {
-                final WsClientFactory<BackdoorService> factory =
-                        getBackdoorService(context, yesNode.getBackdoorUri(),
-                                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_SINGLE_INDEX_TIMEOUT_MS);
-
-                BackdoorService service = factory.getService();
-                try {
-                    reindexResult.put(yesNode.getNodeId(), service.reindexProductSku(productPk));
-                } finally {
-                    factory.release(service);
-                    service = null;
-                }
-
-            } catch (Exception e) {
-                reindexResult.put(yesNode.getNodeId(), null);
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot reindex product sku [" + productPk + "],  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getBackdoorUri()
-                            + "] . Will try next one, if exists",
-                            e);
-                }
-            }
-
-        }
-        return reindexResult;
+        return toResultMap(callBackdoor(context, "reindex product sku [" + productPk + "]", nodeService.getYesNodes(),
+                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_SINGLE_INDEX_TIMEOUT_MS,
+                new BackdoorOperation<Integer>() {
+                    public Integer execute(final BackdoorService service) {
+                        return service.reindexProductSku(productPk);
+                    }
+                }), null);
     }
 
     /**
      * {@inheritDoc}
      */
     public Map<String, Integer> reindexProductSkuCode(final AsyncContext context, final String productSkuCode) {
-        final Map<String, Integer> reindexResult = new HashMap<String, Integer>();
-        for (final Node yesNode : nodeService.getYesNodes()) {
-            try {
-                final WsClientFactory<BackdoorService> factory =
-                        getBackdoorService(context, yesNode.getBackdoorUri(),
-                                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_SINGLE_INDEX_TIMEOUT_MS);
-
-                BackdoorService service = factory.getService();
-                try {
-                    reindexResult.put(yesNode.getNodeId(), service.reindexProductSkuCode(productSkuCode));
-                } finally {
-                    factory.release(service);
-                    service = null;
-                }
-
-            } catch (Exception e) {
-                reindexResult.put(yesNode.getNodeId(), null);
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot reindex product sku [" + productSkuCode + "],  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getBackdoorUri()
-                            + "] . Will try next one, if exists",
-                            e);
-                }
-            }
-
-        }
-        return reindexResult;
+        return toResultMap(callBackdoor(context, "reindex product sku [" + productSkuCode + "]", nodeService.getYesNodes(),
+                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_SINGLE_INDEX_TIMEOUT_MS,
+                new BackdoorOperation<Integer>() {
+                    public Integer execute(final BackdoorService service) {
+                        return service.reindexProductSkuCode(productSkuCode);
+                    }
+                }), null);
     }
 
     /**
      * {@inheritDoc}
      */
     public Map<String, Integer> reindexProducts(final AsyncContext context, final long[] productPks) {
-        final Map<String, Integer> reindexResult = new HashMap<String, Integer>();
-        for (final Node yesNode : nodeService.getYesNodes()) {
-            try {
-                final WsClientFactory<BackdoorService> factory =
-                        getBackdoorService(context, yesNode.getBackdoorUri(),
-                                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_SINGLE_INDEX_TIMEOUT_MS);
-
-                BackdoorService service = factory.getService();
-                try {
-                    reindexResult.put(yesNode.getNodeId(), service.reindexProducts(productPks));
-                } finally {
-                    factory.release(service);
-                    service = null;
-                }
-
-            } catch (Exception e) {
-                reindexResult.put(yesNode.getNodeId(), null);
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot reindex products [" + productPks + "],  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getBackdoorUri()
-                            + "] . Will try next one, if exists",
-                            e);
-                }
-            }
-
-        }
-        return reindexResult;
+        return toResultMap(callBackdoor(context, "reindex products " + Arrays.toString(productPks), nodeService.getYesNodes(),
+                AttributeNamesKeys.System.SYSTEM_BACKDOOR_PRODUCT_SINGLE_INDEX_TIMEOUT_MS,
+                new BackdoorOperation<Integer>() {
+                    public Integer execute(final BackdoorService service) {
+                        return service.reindexProducts(productPks);
+                    }
+                }), null);
     }
 
     /**
@@ -389,47 +262,27 @@ public class RemoteBackdoorServiceImpl implements RemoteBackdoorService {
     public Map<String, List<CacheInfoDTOImpl>> getCacheInfo(final AsyncContext context)
             throws UnmappedInterfaceException, UnableToCreateInstanceException {
 
-        final Map<String, List<CacheInfoDTOImpl>> info = new HashMap<String, List<CacheInfoDTOImpl>>();
-
-        for (final Node yesNode : nodeService.getYesNodes()) {
-
-            try {
+        final Map<String, NodeScatterGather.NodeResult<List<CacheInfoDTOImpl>>> results =
+                callCacheDirector(context, "get cache info", new CacheDirectorOperation<List<CacheInfoDTOImpl>>() {
+                    public List<CacheInfoDTOImpl> execute(final CacheDirector cacheDirector) {
+                        return cacheDirector.getCacheInfo();
+                    }
+                });
 
+        final Map<String, List<CacheInfoDTOImpl>> info = new HashMap<String, List<CacheInfoDTOImpl>>();
+        for (final NodeScatterGather.NodeResult<List<CacheInfoDTOImpl>> result : results.values()) {
+            final Node yesNode = result.getNode();
+            if (result.isOk()) {
                 final List<CacheInfoDTOImpl> rez = new ArrayList<CacheInfoDTOImpl>();
-
-                final WsClientFactory<CacheDirector> factory = getCacheDirector(context, yesNode.getCacheManagerUri());
-                CacheDirector cacheDirector = factory.getService();
-                List<CacheInfoDTOImpl> shopRez = null;
-                try {
-                    shopRez = cacheDirector.getCacheInfo();
-                } finally {
-                    factory.release(cacheDirector);
-                    cacheDirector = null;
-                }
-
-                for (final CacheInfoDTOImpl cacheInfoDTO : shopRez) {
+                for (final CacheInfoDTOImpl cacheInfoDTO : result.getResult()) {
                     cacheInfoDTO.setNodeId(yesNode.getNodeId());
                     cacheInfoDTO.setNodeUri(yesNode.getCacheManagerUri());
                     rez.add(cacheInfoDTO);
                 }
-
                 info.put(yesNode.getNodeId(), rez);
-
-            } catch (Exception e) {
-
+            } else {
                 info.put(yesNode.getNodeId(), null);
-
-                if (LOG.isWarnEnabled()) {
-                    LOG.warn("Cannot to get cache info  from url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getCacheManagerUri()
-                            + "] . Will try next one, if exists",
-                            e);
-
-                }
-
-
             }
-
         }
 
         final String yum = nodeService.getCurrentNodeId();
@@ -448,79 +301,115 @@ public class RemoteBackdoorServiceImpl implements RemoteBackdoorService {
      */
     public Map<String, Boolean> evictAllCache(final AsyncContext context) throws UnmappedInterfaceException, UnableToCreateInstanceException {
 
-        final Map<String, Boolean> evicts = new HashMap<String, Boolean>();
-        for (final Node yesNode : nodeService.getYesNodes()) {
+        final Map<String, Boolean> evicts = toResultMap(
+                callCacheDirector(context, "evict cache", new CacheDirectorOperation<Boolean>() {
+                    public Boolean execute(final CacheDirector cacheDirector) {
+                        cacheDirector.evictAllCache();
+                        return Boolean.TRUE;
+                    }
+                }), Boolean.FALSE);
 
-            try {
+        localCacheDirector.evictAllCache();
+        evicts.put(nodeService.getCurrentNodeId(), Boolean.TRUE);
 
-                final WsClientFactory<CacheDirector> factory = getCacheDirector(context, yesNode.getCacheManagerUri());
-                CacheDirector cacheDirector = factory.getService();
-                try {
-                    cacheDirector.evictAllCache();
-                } finally {
-                    factory.release(cacheDirector);
-                    cacheDirector = null;
-                }
-                evicts.put(yesNode.getNodeId(), Boolean.TRUE);
+        return evicts;
 
-            } catch (Exception e) {
-                evicts.put(yesNode.getNodeId(), Boolean.FALSE);
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot evict cache,  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getCacheManagerUri()
-                            + "] . Will try next one, if exists",
-                            e);
+    }
 
-                }
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Boolean> evictCache(final AsyncContext context, final String name) throws UnmappedInterfaceException, UnableToCreateInstanceException {
 
-            }
-        }
+        final Map<String, Boolean> evicts = toResultMap(
+                callCacheDirector(context, "evict cache [" + name + "]", new CacheDirectorOperation<Boolean>() {
+                    public Boolean execute(final CacheDirector cacheDirector) {
+                        cacheDirector.evictCache(name);
+                        return Boolean.TRUE;
+                    }
+                }), Boolean.FALSE);
 
-        localCacheDirector.evictAllCache();
+        localCacheDirector.evictCache(name);
         evicts.put(nodeService.getCurrentNodeId(), Boolean.TRUE);
 
         return evicts;
 
     }
 
-    /**
-     * {@inheritDoc}
+    /*
+     * Operation on backdoor service of single node.
      */
-    public Map<String, Boolean> evictCache(final AsyncContext context, final String name) throws UnmappedInterfaceException, UnableToCreateInstanceException {
+    private interface BackdoorOperation<T> {
 
-        final Map<String, Boolean> evicts = new HashMap<String, Boolean>();
-        for (final Node yesNode : nodeService.getYesNodes()) {
+        T execute(BackdoorService service) throws Exception;
+
+    }
+
+    /*
+     * Operation on cache director of single node.
+     */
+    private interface CacheDirectorOperation<T> {
+
+        T execute(CacheDirector cacheDirector) throws Exception;
+
+    }
+
+    private <T> Map<String, NodeScatterGather.NodeResult<T>> callBackdoor(final AsyncContext context,
+                                                                          final String operationName,
+                                                                          final List<Node> nodes,
+                                                                          final String timeoutKey,
+                                                                          final BackdoorOperation<T> operation) {
+
+        return nodeScatterGather.execute(operationName, nodes, new NodeScatterGather.NodeOperation<T>() {
+            public T execute(final Node yesNode) throws Exception {
+                final WsClientFactory<BackdoorService> factory =
+                        getBackdoorService(context, yesNode.getBackdoorUri(), timeoutKey);
+
+                BackdoorService service = factory.getService();
+                try {
+                    return operation.execute(service);
+                } finally {
+                    factory.release(service);
+                    service = null;
+                }
+            }
+        }, getDeadline(timeoutKey));
+
+    }
 
-            try {
+    private <T> Map<String, NodeScatterGather.NodeResult<T>> callCacheDirector(final AsyncContext context,
+                                                                               final String operationName,
+                                                                               final CacheDirectorOperation<T> operation) {
 
+        return nodeScatterGather.execute(operationName, nodeService.getYesNodes(), new NodeScatterGather.NodeOperation<T>() {
+            public T execute(final Node yesNode) throws Exception {
                 final WsClientFactory<CacheDirector> factory = getCacheDirector(context, yesNode.getCacheManagerUri());
                 CacheDirector cacheDirector = factory.getService();
                 try {
-                    cacheDirector.evictCache(name);
+                    return operation.execute(cacheDirector);
                 } finally {
                     factory.release(cacheDirector);
                     cacheDirector = null;
                 }
-                evicts.put(yesNode.getNodeId(), Boolean.TRUE);
-
-            } catch (Exception e) {
-                evicts.put(yesNode.getNodeId(), Boolean.FALSE);
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Cannot evict cache [" + name + "],  url ["
-                            + yesNode.getNodeId() + ":" + yesNode.getCacheManagerUri()
-                            + "] . Will try next one, if exists",
-                            e);
-
-                }
-
             }
-        }
+        }, getDeadline(AttributeNamesKeys.System.SYSTEM_BACKDOOR_CACHE_TIMEOUT_MS));
 
-        localCacheDirector.evictCache(name);
-        evicts.put(nodeService.getCurrentNodeId(), Boolean.TRUE);
+    }
 
-        return evicts;
+    /*
+     * All nodes are called in parallel, so whole operation must complete within single node timeout
+     * (plus grace period for creating WS client).
+     */
+    private long getDeadline(final String timeoutKey) {
+        return Integer.parseInt(nodeService.getConfiguration().get(timeoutKey)) + DEADLINE_GRACE_MS;
+    }
 
+    private <T> Map<String, T> toResultMap(final Map<String, NodeScatterGather.NodeResult<T>> results, final T failed) {
+        final Map<String, T> out = new HashMap<String, T>();
+        for (final Map.Entry<String, NodeScatterGather.NodeResult<T>> result : results.entrySet()) {
+            out.put(result.getKey(), result.getValue().isOk() ? result.getValue().getResult() : failed);
+        }
+        return out;
     }
 
     private WsClientFactory<BackdoorService> getBackdoorService(final AsyncContext context,
@@ -59,6 +59,15 @@ public class RemoteInventoryServiceImpl implements RemoteInventoryService {
         return Collections.emptyList();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public List<InventoryDTO> getInventoryList(final InventoryFilter filter, final int firstResult, final int maxResults) throws UnmappedInterfaceException, UnableToCreateInstanceException {
+        if (filter.getWarehouse() != null && federationFacade.isManageable(filter.getWarehouse().getWarehouseId(), WarehouseDTO.class)) {
+            return dtoInventoryService.getInventoryList(filter, firstResult, maxResults);
+        }
+        return Collections.emptyList();
+    }
+
     /** {@inheritDoc} */
     @Override
     public InventoryDTO createInventory(final InventoryDTO inventory) throws UnmappedInterfaceException, UnableToCreateInstanceException {
@@ -50,7 +50,8 @@ public interface ReportService {
     List<ReportDescriptor> getReportDescriptors();
 
     /**
-     * Download report.
+     * Download report. Whole report is buffered in memory, so this method is only intended
+     * for Flex client, server side consumers should use {@link ReportStreamService} instead.
      *
      * @param reportId report descriptor.
      * @param params   report parameter values.
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.report;
+
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Streaming report generation for server side consumers (e.g. report download controller).
+ * This interface is deliberately kept separate from {@link ReportService}, since an
+ * {@link OutputStream} cannot be passed over Flex remoting.
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 10:12
+ */
+public interface ReportStreamService {
+
+    /**
+     * Write report directly to given stream (e.g. servlet response or temporary file),
+     * so that whole report does not have to be held in memory.
+     *
+     * @param lang         given lang to produce report.
+     * @param reportId     report descriptor.
+     * @param params       report parameter values.
+     * @param reportStream report output, closed after report is written
+     * @return true in case if report was generated successfully, false if there is nothing
+     *         to report (in which case stream is left untouched).
+     * @throws Exception in case of errors
+     */
+    boolean writeReport(String lang, String reportId, Map<String, Object> params, OutputStream reportStream) throws Exception;
+
+}
@@ -18,6 +18,7 @@ package org.yes.cart.report;
 
 import org.yes.cart.report.impl.ReportPair;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -40,13 +41,14 @@ public interface ReportWorker {
     List<ReportPair> getParameterValues(String lang, String param, Map<String, Object> currentSelection);
 
     /**
-     * Get results for given report criteria
+     * Get results for given report criteria. Rows are consumed one by one while
+     * report is rendered, so implementations may fetch them lazily.
      *
      * @param lang language
      * @param currentSelection  optional param value map for complex selectors
      *
-     * @return list of result object
+     * @return result rows
      */
-    List<Object> getResult(String lang, Map<String, Object> currentSelection);
+    Iterator<Object> getResult(String lang, Map<String, Object> currentSelection);
 
 }
@@ -23,10 +23,14 @@ import org.yes.cart.remote.service.RemoteCustomerOrderService;
 import org.yes.cart.report.ReportWorker;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 /**
+ * Delivery report is a single row (order with all its deliveries), so unlike other
+ * workers it does not need to page through results.
+ *
  * User: denispavlov
  * Date: 12/11/2014
  * Time: 13:52
@@ -49,20 +53,20 @@ public class DeliveryReportWorker implements ReportWorker {
     /**
      * {@inheritDoc}
      */
-    public List<Object> getResult(final String lang, final Map<String, Object> currentSelection) {
+    public Iterator<Object> getResult(final String lang, final Map<String, Object> currentSelection) {
 
         final String orderNumber = (String) currentSelection.get("orderNumber");
 
         if (StringUtils.isBlank(orderNumber)) {
-            return Collections.emptyList();
+            return Collections.emptyList().iterator();
         }
 
         try {
             final List<CustomerOrderDTO> orders = remoteCustomerOrderService.findCustomerOrdersByCriteria(0, null, null, null, null, null, null, orderNumber);
             final List rez =  remoteCustomerOrderService.findDeliveryByOrderNumber(orderNumber, null); // All deliveries
-            return (List) Collections.singletonList(new Pair(orders.get(0), rez));
+            return (Iterator) Collections.singletonList(new Pair(orders.get(0), rez)).iterator();
         } catch (Exception e) {
-            return Collections.emptyList();
+            return Collections.emptyList().iterator();
         }
 
     }
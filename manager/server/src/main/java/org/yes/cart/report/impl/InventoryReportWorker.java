@@ -33,6 +33,8 @@ import java.util.*;
  */
 public class InventoryReportWorker implements ReportWorker {
 
+    private static final int PAGE_SIZE = 500;
+
     private final RemoteWarehouseService remoteWarehouseService;
     private final RemoteInventoryService remoteInventoryService;
 
@@ -65,7 +67,7 @@ public class InventoryReportWorker implements ReportWorker {
     /**
      * {@inheritDoc}
      */
-    public List<Object> getResult(final String lang, final Map<String, Object> currentSelection) {
+    public Iterator<Object> getResult(final String lang, final Map<String, Object> currentSelection) {
         final String warehouse = (String) currentSelection.get("warehouse");
         final String skuCode = (String) currentSelection.get("skuCode");
         final long warehouseId = NumberUtils.toLong(warehouse);
@@ -75,26 +77,21 @@ public class InventoryReportWorker implements ReportWorker {
                 final InventoryFilterImpl inventoryFilter = new InventoryFilterImpl();
                 inventoryFilter.setWarehouse(warehouseDTO);
                 inventoryFilter.setProductCode(skuCode);
-                final List<InventoryDTO> result = remoteInventoryService.getInventoryList(inventoryFilter);
-                Collections.sort(result, new Comparator<InventoryDTO>() {
+
+                return new PagedReportRowsIterator<InventoryDTO>(PAGE_SIZE) {
                     @Override
-                    public int compare(final InventoryDTO i1, final InventoryDTO i2) {
-                        int comp = i1.getSkuCode().compareTo(i2.getSkuCode());
-                        if (comp == 0) {
-                            comp = i1.getQuantity().compareTo(i2.getQuantity());
-                            if (comp == 0) {
-                                return Long.valueOf(i1.getSkuWarehouseId()).compareTo(Long.valueOf(i2.getSkuWarehouseId()));
-                            }
+                    protected List<InventoryDTO> fetch(final int firstResult, final int maxResults) {
+                        try {
+                            return remoteInventoryService.getInventoryList(inventoryFilter, firstResult, maxResults);
+                        } catch (Exception e) {
+                            throw new RuntimeException(e.getMessage(), e);
                         }
-                        return comp;
                     }
-                });
-
-                return (List) result;
+                };
             } catch (Exception e) {
                 // do nothing
             }
         }
-        return Collections.emptyList();
+        return Collections.emptyList().iterator();
     }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.report.impl;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Report rows iterator that fetches rows page by page while report is rendered,
+ * so that only one page of rows is held in memory at any time.
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 11:02
+ */
+public abstract class PagedReportRowsIterator<T> implements Iterator<Object> {
+
+    private final int pageSize;
+
+    private int firstResult = 0;
+    private boolean lastPage = false;
+    private Iterator<T> page = Collections.<T>emptyList().iterator();
+
+    /**
+     * @param pageSize number of rows to fetch per page
+     */
+    protected PagedReportRowsIterator(final int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Fetch next page of rows. Rows must be returned in stable order.
+     *
+     * @param firstResult first row of page
+     * @param maxResults  page size
+     *
+     * @return rows, less than page size indicates last page
+     */
+    protected abstract List<T> fetch(int firstResult, int maxResults);
+
+    /**
+     * Filter fetched page (e.g. apply federation restrictions). Filtering does not
+     * affect paging as next page offset is calculated from unfiltered page size.
+     *
+     * @param rows fetched page
+     *
+     * @return rows to include in report
+     */
+    protected List<T> filter(final List<T> rows) {
+        return rows;
+    }
+
+    /** {@inheritDoc} */
+    public boolean hasNext() {
+        while (!page.hasNext() && !lastPage) {
+            final List<T> rows = fetch(firstResult, pageSize);
+            firstResult += rows.size();
+            lastPage = rows.size() < pageSize;
+            page = filter(rows).iterator();
+        }
+        return page.hasNext();
+    }
+
+    /** {@inheritDoc} */
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /** {@inheritDoc} */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
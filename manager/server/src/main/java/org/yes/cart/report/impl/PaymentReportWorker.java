@@ -16,11 +16,15 @@
 
 package org.yes.cart.report.impl;
 
-import org.yes.cart.remote.service.RemotePaymentModulesManagementService;
+import org.yes.cart.payment.persistence.entity.CustomerOrderPayment;
+import org.yes.cart.payment.service.CustomerOrderPaymentService;
 import org.yes.cart.report.ReportWorker;
+import org.yes.cart.service.federation.FederationFacade;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -31,10 +35,15 @@ import java.util.Map;
  */
 public class PaymentReportWorker implements ReportWorker {
 
-    private final RemotePaymentModulesManagementService remotePaymentModulesManagementService;
+    private static final int PAGE_SIZE = 500;
 
-    public PaymentReportWorker(final RemotePaymentModulesManagementService remotePaymentModulesManagementService) {
-        this.remotePaymentModulesManagementService = remotePaymentModulesManagementService;
+    private final CustomerOrderPaymentService customerOrderPaymentService;
+    private final FederationFacade federationFacade;
+
+    public PaymentReportWorker(final CustomerOrderPaymentService customerOrderPaymentService,
+                               final FederationFacade federationFacade) {
+        this.customerOrderPaymentService = customerOrderPaymentService;
+        this.federationFacade = federationFacade;
     }
 
     /**
@@ -47,11 +56,23 @@ public class PaymentReportWorker implements ReportWorker {
     /**
      * {@inheritDoc}
      */
-    public List<Object> getResult(final String lang, final Map<String, Object> currentSelection) {
+    public Iterator<Object> getResult(final String lang, final Map<String, Object> currentSelection) {
         final String orderNumber = (String) currentSelection.get("orderNumber");
         final Date fromDate = (Date) currentSelection.get("fromDate");
         final Date tillDate = (Date) currentSelection.get("tillDate");
 
-        return (List) remotePaymentModulesManagementService.findPayments(orderNumber, fromDate, tillDate, null, null, null);
+        return new PagedReportRowsIterator<CustomerOrderPayment>(PAGE_SIZE) {
+            @Override
+            protected List<CustomerOrderPayment> fetch(final int firstResult, final int maxResults) {
+                return customerOrderPaymentService.findBy(orderNumber, fromDate, tillDate, null, null, null, firstResult, maxResults);
+            }
+
+            @Override
+            protected List<CustomerOrderPayment> filter(final List<CustomerOrderPayment> rows) {
+                final List<CustomerOrderPayment> payments = new ArrayList<CustomerOrderPayment>(rows);
+                federationFacade.applyFederationFilter(payments, CustomerOrderPayment.class);
+                return payments;
+            }
+        };
     }
 }
@@ -16,6 +16,8 @@
 
 package org.yes.cart.report.impl;
 
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.SaxWriter;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Predicate;
 import org.apache.commons.lang.StringUtils;
@@ -27,42 +29,64 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 import org.springframework.web.context.ServletContextAware;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
 import org.yes.cart.report.ReportService;
+import org.yes.cart.report.ReportStreamService;
 import org.yes.cart.report.ReportWorker;
 
 import javax.servlet.ServletContext;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamSource;
 import java.io.*;
 import java.net.URL;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 //JAXP
 //FOP
 
 
 /**
+ * Report pipeline is fully streamed: rows yielded by report worker are marshalled one by one into
+ * SAX events, which are piped through precompiled XSLT templates into FOP that writes PDF directly
+ * to the output stream. Compiled templates and configured FOP factory are shared by all reports.
+ *
  * User: Igor Azarny iazarny@yahoo.com
  * Date: 7/2/12
  * Time: 2:46 PM
  */
-public class ReportServiceImpl implements ReportService, ServletContextAware {
+public class ReportServiceImpl implements ReportService, ReportStreamService, ServletContextAware {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReportServiceImpl.class);
 
+    private static final String ROOT_NODE = "yes-report";
+
     private final List<ReportDescriptor> reportDescriptors;
 
     private final Map<String, ReportWorker> reportWorkers;
 
     private final String reportFolder;
 
+    private final XStream xStream = ReportObjectStreamFactory.getXStream();
+
+    private final ConcurrentMap<String, CompiledXslfo> templatesCache = new ConcurrentHashMap<String, CompiledXslfo>();
+
+    private volatile FopFactory fopFactory;
+
     private ServletContext servletContext;
 
     /**
@@ -137,174 +161,183 @@ public class ReportServiceImpl implements ReportService, ServletContextAware {
      */
     public byte[] downloadReport(String lang, String reportId, Map<String, Object> params) throws Exception {
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        if (createReport(lang, reportId, baos, params)) {
+        if (writeReport(lang, reportId, params, baos)) {
             return baos.toByteArray();
         } else {
             throw new Exception("Unable to create report");
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean writeReport(final String lang, final String reportId, final Map<String, Object> params, final OutputStream reportStream) throws Exception {
 
-    private boolean createReport(final String lang, final String reportId, final OutputStream reportStream, final Map<String, Object> currentSelection) throws Exception {
+        final Iterator<Object> rows = getQueryResult(lang, reportId, params);
 
-        final List<Object> rez = getQueryResult(lang, reportId, currentSelection);
+        if (!rows.hasNext()) {
+            return false; // nothing to report
+        }
 
-        return createReport(lang, reportId, reportStream, rez);
+        return createReport(lang, reportId, reportStream, rows);
 
     }
 
     /*
      * @param reportId report descriptor.
-     * @param reportStream report filename
+     * @param reportStream report output
      * @param lang     given lang to produce report.
-     * @param rez      list of object for report
+     * @param rows     report rows
      * @return true in case if report was generated
-     * @throws SAXException
      * @throws IOException
      */
-    private boolean createReport(String lang, String reportId, OutputStream reportStream, List<Object> rez) throws SAXException, IOException {
+    private boolean createReport(String lang, String reportId, OutputStream reportStream, Iterator<Object> rows) throws IOException {
 
-        final byte[] xmlfile = getXml(rez);
+        final String xslFoFile = getReportDescriptorbyId(reportId).getLangXslfo(lang);
 
-        if (LOG.isDebugEnabled()) {
-//            System.out.println(new String(xmlfile));
-            LOG.debug(new String(xmlfile));
+        final File xsltfile;
+        if (servletContext == null) {
+            xsltfile = new File(reportFolder + xslFoFile);
+        } else {
+            xsltfile = new File(servletContext.getRealPath(reportFolder + xslFoFile));
         }
 
-        final String xslFoFile = getReportDescriptorbyId(reportId).getLangXslfo(lang);
+        if (!xsltfile.exists()) {
+            LOG.error("XSLT file does not exist: " + xsltfile.getAbsolutePath());
+            return false;
+        }
 
-        if (xmlfile != null && xmlfile.length > 0) {
+        // Setup output
+        OutputStream out = new BufferedOutputStream(reportStream);
 
-            final File xsltfile;
+        try {
 
-            // configure fopFactory as desired
-            final FopFactory fopFactory = FopFactory.newInstance();
+            final FopFactory fopFactory = getFopFactory();
 
             final FOUserAgent foUserAgent = fopFactory.newFOUserAgent();
-            // configure foUserAgent as desired
-
-
-            final URL configFileUrl =
-                    this.getClass().getClassLoader().getResource("fop-userconfig.xml");
-            if (configFileUrl == null) {
-                LOG.error("FOP config file not  found, " +
-                        "please put the fop-userconfig.xml file into the classpath of the  server, UTF - 8characters won't be displayed correctly");
-            } else {
-                File userConfigXml = new
-                        File(configFileUrl.getFile());
-                fopFactory.setUserConfig(userConfigXml);
-            }
-
-
-            if (servletContext == null) {
-                xsltfile = new File(reportFolder + xslFoFile);
-            } else {
-                xsltfile = new File(servletContext.getRealPath(reportFolder + xslFoFile));
-                fopFactory.getFontManager().setFontBaseURL(servletContext.getRealPath("WEB-INF"));
+            if (servletContext != null) {
                 foUserAgent.setBaseURL("file:///" + servletContext.getRealPath("WEB-INF/report/"));
             }
 
-            if (!xsltfile.exists()) {
-                LOG.error("XSLT file does not exist: " + xsltfile.getAbsolutePath());
-                return false;
-            }
-
-            // Setup output
-            OutputStream out = new BufferedOutputStream(reportStream);
+            // Construct fop with desired output format
+            final Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, foUserAgent, out);
 
-            try {
-                // Construct fop with desired output format
-                final Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, foUserAgent, out);
+            // Transformer is cheap to create from compiled templates, but is not thread safe
+            final Transformer transformer = getTemplates(xsltfile).newTransformer();
 
-                // Setup XSLT 2.0
-                final TransformerFactory factory = TransformerFactory.newInstance("net.sf.saxon.TransformerFactoryImpl", null);
-                final Transformer transformer = factory.newTransformer(new StreamSource(xsltfile));
+            // Set the value of a <param> in the stylesheet
+            transformer.setParameter("versionParam", "2.0");
+            transformer.setOutputProperty("encoding", "UTF-8");
 
-                // Set the value of a <param> in the stylesheet
-                transformer.setParameter("versionParam", "2.0");
-                transformer.setOutputProperty("encoding", "UTF-8");
+            // Setup input for XSLT transformation
+            final Source src = getXmlSource(rows);
 
+            // Resulting SAX events (the generated FO) must be piped through to FOP
+            final Result res = new SAXResult(fop.getDefaultHandler());
 
-                // Setup input for XSLT transformation
-                final Source src = new StreamSource(
-                        new InputStreamReader(new ByteArrayInputStream(xmlfile), "UTF-8"));
+            // Start XSLT transformation and FOP processing
+            transformer.transform(src, res);
 
-                // Resulting SAX events (the generated FO) must be piped through to FOP
-                final Result res = new SAXResult(fop.getDefaultHandler());
+        } catch (Exception ex) {
 
-                // Start XSLT transformation and FOP processing
-                transformer.transform(src, res);
+            LOG.error("Cannot create pdf " + ex.getMessage(), ex);
 
-            } catch (Exception ex) {
+            return false;
 
-                LOG.error("Cannot create pdf " + ex.getMessage(), ex);
+        } finally {
 
-                return false;
+            out.close();
 
-            } finally {
+        }
 
-                out.close();
+        return true;
 
-            }
+    }
 
+    /*
+     * Shared FOP factory, configured once on first use (servlet context is not available at construction).
+     */
+    private FopFactory getFopFactory() throws IOException, SAXException {
+
+        FopFactory factory = this.fopFactory;
+        if (factory == null) {
+            synchronized (this) {
+                factory = this.fopFactory;
+                if (factory == null) {
+
+                    factory = FopFactory.newInstance();
+
+                    final URL configFileUrl =
+                            this.getClass().getClassLoader().getResource("fop-userconfig.xml");
+                    if (configFileUrl == null) {
+                        LOG.error("FOP config file not  found, " +
+                                "please put the fop-userconfig.xml file into the classpath of the  server, UTF - 8characters won't be displayed correctly");
+                    } else {
+                        File userConfigXml = new
+                                File(configFileUrl.getFile());
+                        factory.setUserConfig(userConfigXml);
+                    }
 
-            return true;
+                    if (servletContext != null) {
+                        factory.getFontManager().setFontBaseURL(servletContext.getRealPath("WEB-INF"));
+                    }
 
+                    this.fopFactory = factory;
+                }
+            }
         }
+        return factory;
 
-        return false;
     }
 
-    /**
-     * Write into given file name xml result.
-     *
-     * @param rez list of objects.
-     * @return tmp xml file name
+    /*
+     * XSLT compiled once per file, recompiled only if file is modified.
      */
-    byte[] getXml(final List<Object> rez) {
+    private Templates getTemplates(final File xsltfile) throws Exception {
 
-        final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-        ObjectOutputStream os = null;
-
-        try {
+        final String key = xsltfile.getAbsolutePath();
+        final long lastModified = xsltfile.lastModified();
 
-            os = ReportObjectStreamFactory.getObjectOutputStream(new OutputStreamWriter(bytesOut));
+        final CompiledXslfo cached = templatesCache.get(key);
+        if (cached != null && cached.lastModified == lastModified) {
+            return cached.templates;
+        }
 
-            for (Object obj : rez) {
-                os.writeObject(obj);
-            }
+        // Setup XSLT 2.0
+        final TransformerFactory factory = TransformerFactory.newInstance("net.sf.saxon.TransformerFactoryImpl", null);
+        final Templates templates = factory.newTemplates(new StreamSource(xsltfile));
+        templatesCache.put(key, new CompiledXslfo(templates, lastModified));
+        return templates;
 
-        } catch (Exception e) {
-            LOG.error("Cannot create xml ", e);
+    }
 
-        } finally {
-            if (os != null) {
-                try {
-                    os.close();
-                } catch (IOException e) {
-                    LOG.error("Cannot close file", e);
-                }
-            }
+    /**
+     * Create XML source for report rows. Rows are marshalled into SAX events one by one
+     * while XSLT is consuming them, so whole report XML is never held in memory.
+     *
+     * @param rows report rows.
+     * @return XML source
+     */
+    Source getXmlSource(final Iterator<Object> rows) {
 
-        }
+        return new SAXSource(new ReportRowsReader(xStream, rows), new InputSource());
 
-        return bytesOut.toByteArray();
     }
 
     /**
-     * Get query result as object list.
+     * Get query result as row iterator.
      *
      * @param lang language
      * @param reportId reportId
      * @param currentSelection parameters.
-     * @return list of objects.
+     * @return report rows.
      */
-    List<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
+    Iterator<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
 
         if (reportWorkers.containsKey(reportId)) {
             return reportWorkers.get(reportId).getResult(lang, currentSelection);
         }
-        return Collections.emptyList();
+        return Collections.emptyList().iterator();
 
     }
 
@@ -315,4 +348,56 @@ public class ReportServiceImpl implements ReportService, ServletContextAware {
         this.servletContext = servletContext;
     }
 
+    /**
+     * Compiled XSLT and modification time of file it was compiled from.
+     */
+    private static final class CompiledXslfo {
+
+        private final Templates templates;
+        private final long lastModified;
+
+        private CompiledXslfo(final Templates templates, final long lastModified) {
+            this.templates = templates;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * SAX reader that produces report document (same structure as {@link ReportObjectStreamFactory#getObjectOutputStream(java.io.Writer)})
+     * by marshalling each row directly to SAX events when parse is requested by XSLT processor.
+     */
+    private static final class ReportRowsReader extends XMLFilterImpl {
+
+        private final XStream xStream;
+        private final Iterator<Object> rows;
+
+        private ReportRowsReader(final XStream xStream, final Iterator<Object> rows) {
+            this.xStream = xStream;
+            this.rows = rows;
+        }
+
+        @Override
+        public void parse(final InputSource input) throws SAXException, IOException {
+
+            final ContentHandler handler = getContentHandler();
+
+            final SaxWriter rowWriter = new SaxWriter(false);
+            rowWriter.setContentHandler(handler);
+
+            handler.startDocument();
+            handler.startElement("", ROOT_NODE, ROOT_NODE, new AttributesImpl());
+            while (rows.hasNext()) {
+                xStream.marshal(rows.next(), rowWriter);
+            }
+            handler.endElement("", ROOT_NODE, ROOT_NODE);
+            handler.endDocument();
+
+        }
+
+        @Override
+        public void parse(final String systemId) throws SAXException, IOException {
+            parse(new InputSource(systemId));
+        }
+    }
+
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.web.report;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.HttpRequestHandler;
+import org.yes.cart.report.ReportStreamService;
+import org.yes.cart.report.impl.ReportDescriptor;
+import org.yes.cart.report.impl.ReportParameter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams generated report PDF directly into the servlet response, so that report
+ * of any size can be downloaded without buffering it in memory.
+ * <p/>
+ * Request parameters: "lang", "reportId" and report parameters by their parameter id.
+ * Parameters of "Date" business type are expected in {@link #DATE_FORMAT} format and
+ * parameters of "Number" business type are converted to {@link Double} (same as Flex
+ * remoting does), the rest are passed as is.
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 10:24
+ */
+public class ReportDownloadController implements HttpRequestHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReportDownloadController.class);
+
+    static final String DATE_FORMAT = "yyyy-MM-dd";
+
+    private static final String PARAM_LANG = "lang";
+    private static final String PARAM_REPORT_ID = "reportId";
+
+    private final ReportStreamService reportStreamService;
+
+    private final List<ReportDescriptor> reportDescriptors;
+
+    /**
+     * Construct report download controller.
+     *
+     * @param reportStreamService report service
+     * @param reportDescriptors   list of configured reports (used to determine parameter types)
+     */
+    public ReportDownloadController(final ReportStreamService reportStreamService,
+                                    final List<ReportDescriptor> reportDescriptors) {
+        this.reportStreamService = reportStreamService;
+        this.reportDescriptors = reportDescriptors;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void handleRequest(final HttpServletRequest request,
+                              final HttpServletResponse response) throws ServletException, IOException {
+
+        final String lang = request.getParameter(PARAM_LANG);
+        final String reportId = request.getParameter(PARAM_REPORT_ID);
+
+        final ReportDescriptor descriptor = getReportDescriptor(reportId);
+        if (StringUtils.isBlank(lang) || descriptor == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        final Map<String, Object> params;
+        try {
+            params = getReportParameters(request, descriptor);
+        } catch (ParseException pe) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, pe.getMessage());
+            return;
+        }
+
+        response.setContentType("application/pdf");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + descriptor.getReportId() + ".pdf\"");
+
+        final boolean created;
+        try {
+            created = reportStreamService.writeReport(lang, descriptor.getReportId(), params, response.getOutputStream());
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception exp) {
+            LOG.error("Unable to create report " + reportId, exp);
+            throw new ServletException(exp);
+        }
+
+        if (!created) {
+            // nothing was written, so response is not committed yet
+            response.reset();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Nothing to report");
+        }
+
+    }
+
+    private ReportDescriptor getReportDescriptor(final String reportId) {
+        if (StringUtils.isNotBlank(reportId)) {
+            for (final ReportDescriptor descriptor : reportDescriptors) {
+                if (reportId.equalsIgnoreCase(descriptor.getReportId())) {
+                    return descriptor;
+                }
+            }
+        }
+        return null;
+    }
+
+    Map<String, Object> getReportParameters(final HttpServletRequest request,
+                                            final ReportDescriptor descriptor) throws ParseException {
+
+        final Map<String, String> types = new HashMap<String, String>();
+        if (descriptor.getParameters() != null) {
+            for (final ReportParameter parameter : descriptor.getParameters()) {
+                types.put(parameter.getParameterId(), parameter.getBusinesstype());
+            }
+        }
+
+        final Map<String, Object> params = new HashMap<String, Object>();
+        final Enumeration names = request.getParameterNames();
+        while (names.hasMoreElements()) {
+            final String name = (String) names.nextElement();
+            if (PARAM_LANG.equals(name) || PARAM_REPORT_ID.equals(name)) {
+                continue;
+            }
+            final String value = request.getParameter(name);
+            if (StringUtils.isBlank(value)) {
+                params.put(name, null);
+            } else if ("Date".equals(types.get(name))) {
+                params.put(name, new SimpleDateFormat(DATE_FORMAT).parse(value));
+            } else if ("Number".equals(types.get(name))) {
+                try {
+                    params.put(name, Double.valueOf(value));
+                } catch (NumberFormatException nfe) {
+                    throw new ParseException("Invalid number for " + name + ": " + value, 0);
+                }
+            } else {
+                params.put(name, value);
+            }
+        }
+        return params;
+    }
+
+}
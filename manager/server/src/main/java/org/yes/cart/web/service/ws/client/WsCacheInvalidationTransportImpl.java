@@ -0,0 +1,76 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.web.service.ws.client;
+
+import org.yes.cart.cache.CacheInvalidationTransport;
+import org.yes.cart.constants.AttributeNamesKeys;
+import org.yes.cart.domain.dto.impl.CacheableChangeDTOImpl;
+import org.yes.cart.remote.service.impl.NodeScatterGather;
+import org.yes.cart.service.async.model.AsyncContext;
+import org.yes.cart.web.service.ws.CacheDirector;
+import org.yes.cart.web.service.ws.node.NodeService;
+import org.yes.cart.web.service.ws.node.dto.Node;
+
+import java.util.List;
+
+/**
+ * Sends whole batch of changes to cache director of every storefront node in single WS call
+ * per node, all nodes are called in parallel.
+ *
+ * User: denispavlov
+ * Date: 14-06-14
+ * Time: 10:45 AM
+ */
+public class WsCacheInvalidationTransportImpl implements CacheInvalidationTransport {
+
+    private final NodeService nodeService;
+    private final WsAbstractFactoryClientFactory wsAbstractFactoryClientFactory;
+    private final NodeScatterGather nodeScatterGather;
+
+    public WsCacheInvalidationTransportImpl(final NodeService nodeService,
+                                            final WsAbstractFactoryClientFactory wsAbstractFactoryClientFactory,
+                                            final NodeScatterGather nodeScatterGather) {
+        this.nodeService = nodeService;
+        this.wsAbstractFactoryClientFactory = wsAbstractFactoryClientFactory;
+        this.nodeScatterGather = nodeScatterGather;
+    }
+
+    /** {@inheritDoc} */
+    public void publish(final AsyncContext context, final List<CacheableChangeDTOImpl> changes) {
+
+        final String userName = context.getAttribute(AsyncContext.USERNAME);
+        final String password = context.getAttribute(AsyncContext.CREDENTIALS);
+        final int timeout = Integer.parseInt(nodeService.getConfiguration().get(AttributeNamesKeys.System.SYSTEM_BACKDOOR_CACHE_TIMEOUT_MS));
+
+        nodeScatterGather.execute("invalidate cache for " + changes, nodeService.getYesNodes(),
+                new NodeScatterGather.NodeOperation<Integer>() {
+                    public Integer execute(final Node node) throws Exception {
+                        final WsClientFactory<CacheDirector> factory =
+                                wsAbstractFactoryClientFactory.getFactory(CacheDirector.class, userName, password, node.getCacheManagerUri(), timeout);
+                        CacheDirector wsCacheDirector = factory.getService();
+                        try {
+                            return wsCacheDirector.onCacheableChanges(changes);
+                        } finally {
+                            factory.release(wsCacheDirector);
+                            wsCacheDirector = null;
+                        }
+                    }
+                }, timeout);
+
+    }
+
+}
@@ -54,6 +54,13 @@ public class LocalBackdoorServiceImpl implements BackdoorService {
         throw new UnsupportedOperationException("YUM does nto support product warm up");
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isReady() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -25,7 +25,9 @@ import org.jmock.Mockery;
 import org.jmock.integration.junit4.JUnit4Mockery;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
+import org.springframework.aop.framework.Advised;
 import org.yes.cart.BaseCoreDBTestCase;
 import org.yes.cart.bulkimport.csv.CsvFileReader;
 import org.yes.cart.bulkimport.model.ImportDescriptor;
@@ -38,10 +40,12 @@ import org.yes.cart.stream.xml.XStreamProvider;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.PrintWriter;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static junit.framework.Assert.*;
@@ -888,4 +892,89 @@ public class CsvBulkImportServiceImplTest extends BaseCoreDBTestCase {
         mockery.assertIsSatisfied();
 
     }
+
+    /**
+     * Compares flush per tuple with batched flush on generated 100k rows price file.
+     * This is not a test but a benchmark, numbers are only valid for the hardware they were taken on.
+     */
+    @Ignore("This is not a test but a benchmark to see how batch size affects import")
+    @Test
+    public void testDoSkuPriceImportBatchSizeBenchmark() throws Exception {
+
+        final JobStatusListener listener = mockery.mock(JobStatusListener.class, "listener");
+
+        mockery.checking(new Expectations() {{
+            allowing(listener).notifyPing();
+            allowing(listener).notifyPing(with(any(String.class)));
+            allowing(listener).notifyMessage(with(any(String.class)));
+        }});
+
+        final CsvBulkImportServiceImpl target = (CsvBulkImportServiceImpl) ((Advised) bulkImportService).getTargetSource().getTarget();
+
+        final List<String> skuCodes = new ArrayList<String>();
+        ResultSet rs = getConnection().getConnection().createStatement().executeQuery("select CODE from TSKU");
+        while (rs.next()) {
+            skuCodes.add(rs.getString(1));
+        }
+        rs.close();
+
+        final int rows = 100000;
+
+        benchmarkSkuPriceImport(target, listener, skuCodes, rows, 1, "AUD");
+        benchmarkSkuPriceImport(target, listener, skuCodes, rows, 50, "CAD");
+
+        mockery.assertIsSatisfied();
+
+    }
+
+    private void benchmarkSkuPriceImport(final CsvBulkImportServiceImpl target,
+                                         final JobStatusListener listener,
+                                         final List<String> skuCodes,
+                                         final int rows,
+                                         final int batchSize,
+                                         final String currency) throws Exception {
+
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "yc-import-benchmark-" + currency);
+        dir.mkdirs();
+        final File csv = new File(dir, "skuprices.csv");
+        final PrintWriter writer = new PrintWriter(csv, "UTF-8");
+        try {
+            writer.println("sku code;model;shop code;currency;list price;tier");
+            for (int i = 0; i < rows; i++) {
+                // tier makes each row unique for sku, shop, currency and quantity
+                writer.println("\"" + skuCodes.get(i % skuCodes.size()) + "\";\"benchmark\";\"SHOIP1\";\"" + currency + "\";"
+                        + (100 + i % 1000) + ".99;" + (1 + i / skuCodes.size()));
+            }
+        } finally {
+            writer.close();
+        }
+
+        final ImportDescriptor descriptor = xml.fromXML(new FileInputStream(new File("src/test/resources/import/skuprices.xml")));
+        descriptor.setImportDirectory(dir.getAbsolutePath());
+        final JobContext context = new JobContextImpl(false, listener, new HashMap<String, Object>() {{
+            put(JobContextKeys.IMPORT_DESCRIPTOR, descriptor);
+            put(JobContextKeys.IMPORT_DESCRIPTOR_NAME, "skuprices.xml");
+            put(JobContextKeys.IMPORT_FILE_SET, new HashSet<String>());
+        }});
+
+        target.setBatchSize(batchSize);
+
+        final long start = System.currentTimeMillis();
+        bulkImportService.doImport(context);
+        final long millis = System.currentTimeMillis() - start;
+
+        System.out.println(rows + " sku price records with batch size " + batchSize + " in " + millis + "millis (~"
+                + (millis * 1000 / rows) + " micros per item)");
+
+        final ResultSet rs = getConnection().getConnection().createStatement().executeQuery(
+                "select count(*) from TSKUPRICE where CURRENCY = '" + currency + "'");
+        rs.next();
+        final long cnt = rs.getLong(1);
+        rs.close();
+        assertEquals((long) rows, cnt);
+
+        csv.delete();
+        dir.delete();
+
+    }
 }
@@ -31,9 +31,11 @@ import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Product;
 import org.yes.cart.domain.entity.ProductSku;
 import org.yes.cart.domain.entity.impl.AttrValueEntityProduct;
+import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.service.async.JobStatusListener;
 import org.yes.cart.service.async.model.JobContext;
 import org.yes.cart.service.async.model.JobContextKeys;
+import org.yes.cart.service.domain.ImageService;
 import org.yes.cart.service.domain.ProductService;
 import org.yes.cart.stream.xml.XStreamProvider;
 
@@ -127,6 +129,10 @@ public class ImagesBulkImportServiceImplTest extends BaseCoreDBTestCase {
 
                     final Set<String> imported = new HashSet<String>();
 
+                    final ImageService imageService = createContext().getBean("imageService", ImageService.class);
+                    final List<Pair<String, String>> sizes = imageService.getAllowedSizes();
+                    assertFalse(sizes.isEmpty());
+
                     mockery.checking(new Expectations() {{
                         allowing(context).getListener(); will(returnValue(listener));
                         allowing(context).getAttribute(JobContextKeys.IMPORT_FILE_SET); will(returnValue(imported));
@@ -136,6 +142,10 @@ public class ImagesBulkImportServiceImplTest extends BaseCoreDBTestCase {
                         allowing(context).getAttribute(JobContextKeys.IMPORT_DESCRIPTOR); will(returnValue(descriptor));
                         allowing(listener).notifyMessage(with(any(String.class)));
                         allowing(listener).notifyPing("Processed 1 of 1 images");
+                        for (int i = 1; i <= sizes.size(); i++) {
+                            // all allowed sizes pre-rendered for imported image
+                            one(listener).notifyPing("Pre-rendered " + i + " of " + sizes.size() + " thumbnails");
+                        }
                     }});
 
                     ImportService service = (ImportService) createContext().getBean("imagesBulkImportService");
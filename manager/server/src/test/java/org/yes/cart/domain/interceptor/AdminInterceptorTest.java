@@ -0,0 +1,127 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.interceptor;
+
+import org.hibernate.Transaction;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.yes.cart.cache.CacheInvalidationTransport;
+import org.yes.cart.cache.impl.LoopbackCacheInvalidationTransportImpl;
+import org.yes.cart.domain.dto.impl.CacheableChangeDTOImpl;
+import org.yes.cart.domain.misc.Pair;
+import org.yes.cart.service.async.model.AsyncContext;
+import org.yes.cart.service.async.utils.ThreadLocalAsyncContextUtils;
+import org.yes.cart.web.service.ws.CacheDirector;
+
+import java.util.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-14
+ * Time: 11:30 AM
+ */
+public class AdminInterceptorTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    private AsyncContext asyncContext;
+
+    @Before
+    public void setUp() throws Exception {
+        asyncContext = context.mock(AsyncContext.class, "asyncContext");
+        context.checking(new Expectations() {{
+            allowing(asyncContext).getAttribute(AsyncContext.SECURITY_CTX); will(returnValue(new SecurityContextImpl()));
+        }});
+        ThreadLocalAsyncContextUtils.init(asyncContext);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ThreadLocalAsyncContextUtils.clear();
+    }
+
+    @Test
+    public void testChangesArePublishedAsSingleBatchOnCommit() throws Exception {
+
+        final ApplicationContext applicationContext = context.mock(ApplicationContext.class, "applicationContext");
+        final CacheDirector node1 = context.mock(CacheDirector.class, "node1");
+        final CacheDirector node2 = context.mock(CacheDirector.class, "node2");
+        final Transaction tx = context.mock(Transaction.class, "tx");
+
+        final CacheInvalidationTransport loopback = new LoopbackCacheInvalidationTransportImpl(Arrays.asList(node1, node2));
+
+        final List<CacheableChangeDTOImpl> expected = Arrays.asList(
+                new CacheableChangeDTOImpl(CacheDirector.EntityOperation.UPDATE, "ProductEntity", 1L),
+                new CacheableChangeDTOImpl(CacheDirector.EntityOperation.DELETE, "ProductEntity", 2L)
+        );
+
+        context.checking(new Expectations() {{
+            one(applicationContext).getBean("cacheInvalidationTransport", CacheInvalidationTransport.class); will(returnValue(loopback));
+            allowing(tx).wasCommitted(); will(returnValue(true));
+            one(node1).onCacheableChanges(expected); will(returnValue(2));
+            one(node2).onCacheableChanges(expected); will(returnValue(2));
+        }});
+
+        final AdminInterceptor interceptor = createInterceptor(applicationContext);
+
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "ProductEntity", 1L);
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "ProductEntity", 1L);
+        interceptor.invalidateCache(CacheDirector.EntityOperation.DELETE, "ProductEntity", 2L);
+
+        interceptor.afterTransactionCompletion(tx);
+
+        // nothing pending for next transaction
+        interceptor.afterTransactionCompletion(tx);
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testChangesAreDiscardedOnRollback() throws Exception {
+
+        final ApplicationContext applicationContext = context.mock(ApplicationContext.class, "applicationContext");
+        final Transaction tx = context.mock(Transaction.class, "tx");
+
+        context.checking(new Expectations() {{
+            allowing(tx).wasCommitted(); will(returnValue(false));
+        }});
+
+        final AdminInterceptor interceptor = createInterceptor(applicationContext);
+
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "ProductEntity", 1L);
+
+        interceptor.afterTransactionCompletion(tx);
+
+        context.assertIsSatisfied();
+
+    }
+
+    private AdminInterceptor createInterceptor(final ApplicationContext applicationContext) {
+        final AdminInterceptor interceptor = new AdminInterceptor();
+        interceptor.setApplicationContext(applicationContext);
+        interceptor.setEntityOperationCache(new HashMap<String, Map<String, Set<Pair<String, String>>>>());
+        return interceptor;
+    }
+
+}
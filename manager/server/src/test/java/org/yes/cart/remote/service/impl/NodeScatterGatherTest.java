@@ -0,0 +1,112 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.remote.service.impl;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.yes.cart.web.service.ws.node.dto.Node;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-13
+ * Time: 3:05 PM
+ */
+public class NodeScatterGatherTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    private ThreadPoolTaskExecutor executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.initialize();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testExecuteInParallelWithPerNodeStatus() throws Exception {
+
+        final Node ok1 = node("OK1");
+        final Node ok2 = node("OK2");
+        final Node failed = node("FAILED");
+        final Node slow = node("SLOW");
+
+        final long start = System.currentTimeMillis();
+
+        final Map<String, NodeScatterGather.NodeResult<String>> results =
+                new NodeScatterGather(executor).execute("test", Arrays.asList(ok1, ok2, failed, slow),
+                        new NodeScatterGather.NodeOperation<String>() {
+                            public String execute(final Node node) throws Exception {
+                                if ("FAILED".equals(node.getNodeId())) {
+                                    throw new IllegalStateException("node is down");
+                                } else if ("SLOW".equals(node.getNodeId())) {
+                                    Thread.sleep(5000L);
+                                } else {
+                                    Thread.sleep(300L);
+                                }
+                                return "done " + node.getNodeId();
+                            }
+                        }, 1000L);
+
+        final long duration = System.currentTimeMillis() - start;
+
+        // two 300ms calls in parallel and slow node cut by deadline
+        assertTrue("Took " + duration + "ms", duration < 2000L);
+
+        assertEquals(4, results.size());
+
+        assertEquals(NodeScatterGather.Status.OK, results.get("OK1").getStatus());
+        assertEquals("done OK1", results.get("OK1").getResult());
+        assertEquals(NodeScatterGather.Status.OK, results.get("OK2").getStatus());
+        assertEquals("done OK2", results.get("OK2").getResult());
+
+        assertEquals(NodeScatterGather.Status.FAILED, results.get("FAILED").getStatus());
+        assertNull(results.get("FAILED").getResult());
+        assertTrue(results.get("FAILED").getError() instanceof IllegalStateException);
+
+        assertEquals(NodeScatterGather.Status.TIMEOUT, results.get("SLOW").getStatus());
+        assertNull(results.get("SLOW").getResult());
+
+        context.assertIsSatisfied();
+
+    }
+
+    private Node node(final String id) {
+        final Node node = context.mock(Node.class, id);
+        context.checking(new Expectations() {{
+            allowing(node).getNodeId(); will(returnValue(id));
+        }});
+        return node;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.report.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 11:24
+ */
+public class PagedReportRowsIteratorTest {
+
+    @Test
+    public void testPagesUntilShortPage() throws Exception {
+
+        final List<Integer> all = Arrays.asList(1, 2, 3, 4, 5);
+        final List<Integer> offsets = new ArrayList<Integer>();
+
+        final PagedReportRowsIterator<Integer> rows = new PagedReportRowsIterator<Integer>(2) {
+            @Override
+            protected List<Integer> fetch(final int firstResult, final int maxResults) {
+                offsets.add(firstResult);
+                return all.subList(firstResult, Math.min(all.size(), firstResult + maxResults));
+            }
+        };
+
+        final List<Object> out = new ArrayList<Object>();
+        while (rows.hasNext()) {
+            out.add(rows.next());
+        }
+
+        assertEquals(Arrays.<Object>asList(1, 2, 3, 4, 5), out);
+        assertEquals(Arrays.asList(0, 2, 4), offsets);
+
+    }
+
+    @Test
+    public void testFilteredPageDoesNotAffectOffset() throws Exception {
+
+        final List<Integer> all = Arrays.asList(1, 2, 3, 4, 5, 6);
+        final List<Integer> offsets = new ArrayList<Integer>();
+
+        final PagedReportRowsIterator<Integer> rows = new PagedReportRowsIterator<Integer>(3) {
+            @Override
+            protected List<Integer> fetch(final int firstResult, final int maxResults) {
+                offsets.add(firstResult);
+                return all.subList(Math.min(all.size(), firstResult), Math.min(all.size(), firstResult + maxResults));
+            }
+
+            @Override
+            protected List<Integer> filter(final List<Integer> page) {
+                final List<Integer> filtered = new ArrayList<Integer>();
+                for (final Integer row : page) {
+                    if (row > 3) {
+                        filtered.add(row);
+                    }
+                }
+                return filtered;
+            }
+        };
+
+        final List<Object> out = new ArrayList<Object>();
+        while (rows.hasNext()) {
+            out.add(rows.next());
+        }
+
+        // first page is filtered out completely, but iteration continues
+        assertEquals(Arrays.<Object>asList(4, 5, 6), out);
+        // full last page requires one more empty fetch to detect the end
+        assertEquals(Arrays.asList(0, 3, 6), offsets);
+        assertFalse(rows.hasNext());
+
+    }
+
+}
@@ -2,14 +2,19 @@ package org.yes.cart.report.impl;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.yes.cart.domain.misc.Pair;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 import java.io.*;
-import java.nio.charset.Charset;
 import java.util.*;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -45,22 +50,92 @@ public class ReportServiceImplTest  {
         allReportToTestCreation.add(reportDescriptor);
     }
 
+    @Test
+    public void testGetXmlSourceStreamsRows() throws Exception {
+
+        final ReportServiceImpl reportService = new ReportServiceImpl(allReportToTestCreation, null, null);
+
+        final List<Object> rows = new ArrayList<Object>();
+        rows.add(new Pair<String, String>("SKU-001", "10"));
+        rows.add(new Pair<String, String>("SKU-002", "20"));
+
+        final StringWriter xml = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(
+                reportService.getXmlSource(rows.iterator()), new StreamResult(xml));
+
+        final String out = xml.toString();
+        assertTrue(out, out.contains("<yes-report>"));
+        assertTrue(out, out.contains("<first>SKU-001</first>"));
+        assertTrue(out, out.contains("<second>20</second>"));
+        assertEquals(2, out.split("<pair>").length - 1);
+
+    }
+
+    @Test(expected = Exception.class)
+    public void testGetReportEmptyResult() throws Exception {
+        ReportServiceImpl reportService = new ReportServiceImpl(allReportToTestCreation, null, null) {
+            /** {@inheritDoc} */
+            Iterator<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
+                return Collections.emptyList().iterator();
+            }
+        };
+
+        reportService.downloadReport(null, "reportAvailableStock", null);
+
+    }
+
+    @Test
+    public void testWriteReportEmptyResult() throws Exception {
+        ReportServiceImpl reportService = new ReportServiceImpl(allReportToTestCreation, null, null) {
+            /** {@inheritDoc} */
+            Iterator<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
+                return Collections.emptyList().iterator();
+            }
+        };
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertFalse(reportService.writeReport(null, "reportAvailableStock", null, out));
+        assertEquals(0, out.size());
+
+    }
+
+    @Test
+    public void testWriteReportAvailableStock() throws Exception {
+        ReportServiceImpl reportService = new ReportServiceImpl(allReportToTestCreation, null, null) {
+            /** {@inheritDoc} */
+            Iterator<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
+                return Collections.<Object>singletonList(new Object()).iterator();
+            }
+            /** {@inheritDoc} */
+            Source getXmlSource(final Iterator<Object> rows) {
+
+                return new StreamSource(new File(ROOT_DIR + "xslfo/available-stock-report.xml"));
+
+            }
+        };
+
+        final File pdf = File.createTempFile("reportAvailableStock", ".pdf");
+        try {
+            assertTrue(reportService.writeReport(null, "reportAvailableStock", null, new FileOutputStream(pdf)));
+            assertTrue(pdf.length() > 30720); // more than 30K means it is a valid pdf
+        } finally {
+            pdf.delete();
+        }
+
+    }
+
     @Test
     public void testGetReportAvailableStock() throws Exception {
         ReportServiceImpl reportService = new ReportServiceImpl(allReportToTestCreation, null, null) {
             /** {@inheritDoc} */
-            List<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
-                return Collections.EMPTY_LIST;
+            Iterator<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
+                return Collections.<Object>singletonList(new Object()).iterator();
             }
             /** {@inheritDoc} */
-            byte[] getXml(final List<Object> rez) {
+            Source getXmlSource(final Iterator<Object> rows) {
 
-                try {
-                    return new Scanner(new File(ROOT_DIR + "xslfo/available-stock-report.xml")).useDelimiter("\\Z").next().getBytes(Charset.forName("UTF-8"));
-                } catch (FileNotFoundException e) {
-                    fail(e.getMessage());
-                    return null;
-                }
+                return new StreamSource(new File(ROOT_DIR + "xslfo/available-stock-report.xml"));
 
             }
         };
@@ -79,18 +154,13 @@ public class ReportServiceImplTest  {
     public void testGetReportPayments() throws Exception {
         ReportServiceImpl reportService = new ReportServiceImpl(allReportToTestCreation, null, null) {
             /** {@inheritDoc} */
-            List<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
-                return Collections.EMPTY_LIST;
+            Iterator<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
+                return Collections.<Object>singletonList(new Object()).iterator();
             }
             /** {@inheritDoc} */
-            byte[] getXml(final List<Object> rez) {
+            Source getXmlSource(final Iterator<Object> rows) {
 
-                try {
-                    return new Scanner(new File(ROOT_DIR + "xslfo/payment-report.xml")).useDelimiter("\\Z").next().getBytes(Charset.forName("UTF-8"));
-                } catch (FileNotFoundException e) {
-                    fail(e.getMessage());
-                    return null;
-                }
+                return new StreamSource(new File(ROOT_DIR + "xslfo/payment-report.xml"));
 
             }
         };
@@ -108,18 +178,13 @@ public class ReportServiceImplTest  {
     public void testGetReportDelivery() throws Exception {
         ReportServiceImpl reportService = new ReportServiceImpl(allReportToTestCreation, null, null) {
             /** {@inheritDoc} */
-            List<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
-                return Collections.EMPTY_LIST;
+            Iterator<Object> getQueryResult(final String lang, final String reportId, final Map<String, Object> currentSelection) {
+                return Collections.<Object>singletonList(new Object()).iterator();
             }
             /** {@inheritDoc} */
-            byte[] getXml(final List<Object> rez) {
-
-                try {
-                    return new Scanner(new File(ROOT_DIR + "xslfo/delivery-report.xml")).useDelimiter("\\Z").next().getBytes(Charset.forName("UTF-8"));
-                } catch (FileNotFoundException e) {
-                    fail(e.getMessage());
-                    return null;
-                }
+            Source getXmlSource(final Iterator<Object> rows) {
+
+                return new StreamSource(new File(ROOT_DIR + "xslfo/delivery-report.xml"));
 
             }
         };
@@ -76,6 +76,17 @@ public interface PaymentModuleGenericDAO<T, PK extends Serializable> {
      */
     List<T> findByCriteria(Criterion... criterion);
 
+    /**
+     * Find range of entities by criteria. Entities are ordered by primary key, so
+     * consecutive ranges can be used to page through large result sets.
+     *
+     * @param firstResult first row of result
+     * @param maxResults  size of result set
+     * @param criterion   given criterias
+     * @return list of found entities.
+     */
+    List<T> findRangeByCriteria(int firstResult, int maxResults, Criterion... criterion);
+
     /**
      * Find single entity by criteria.
      *
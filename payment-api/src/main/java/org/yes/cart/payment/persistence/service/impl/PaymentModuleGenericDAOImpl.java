@@ -21,6 +21,7 @@ import org.hibernate.LockMode;
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
 import org.yes.cart.payment.persistence.service.PaymentModuleGenericDAO;
 
 import java.io.Serializable;
@@ -198,6 +199,21 @@ public class PaymentModuleGenericDAOImpl<T, PK extends Serializable>
         return crit.list();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings(UNCHECKED)
+    public List<T> findRangeByCriteria(final int firstResult, final int maxResults, final Criterion... criterion) {
+        Criteria crit = sessionFactory.getCurrentSession().createCriteria(getPersistentClass());
+        for (Criterion c : criterion) {
+            crit.add(c);
+        }
+        crit.addOrder(Order.asc(sessionFactory.getClassMetadata(getPersistentClass()).getIdentifierPropertyName()));
+        crit.setFirstResult(firstResult);
+        crit.setMaxResults(maxResults);
+        return crit.list();
+    }
+
 
     /**
      * {@inheritDoc}
@@ -68,6 +68,31 @@ public interface CustomerOrderPaymentService extends PaymentModuleGenericService
             String paymentGateway
             );
 
+    /**
+     * Find range of payments by given parameters, ordered by payment id, so that
+     * large result sets can be paged through.
+     *
+     * @param orderNumber            given order number. optional
+     * @param fromDate from date
+     * @param tillDate till date
+     * @param lastCardDigits last 4 digits of plastic card
+     * @param cardHolderName card holder name
+     * @param paymentGateway payment gateway
+     * @param firstResult first row of result
+     * @param maxResults size of result set
+     * @return list of payments which satisfy search criteria
+     */
+    List<CustomerOrderPayment> findBy(
+            String orderNumber,
+            Date fromDate,
+            Date tillDate,
+            String lastCardDigits,
+            String cardHolderName,
+            String paymentGateway,
+            int firstResult,
+            int maxResults
+            );
+
 
     /**
      * Get order amount
@@ -85,6 +85,43 @@ public class CustomerOrderPaymentServiceImpl
             final String paymentGateway
     ) {
 
+        return getGenericDao().findByCriteria(
+                getCriteria(orderNumber, fromDate, tillDate, lastCardDigits, cardHolderName, paymentGateway)
+        );
+
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<CustomerOrderPayment> findBy(
+            final String orderNumber,
+            final Date fromDate,
+            final Date tillDate,
+            final String lastCardDigits,
+            final String cardHolderName,
+            final String paymentGateway,
+            final int firstResult,
+            final int maxResults
+    ) {
+
+        return getGenericDao().findRangeByCriteria(
+                firstResult,
+                maxResults,
+                getCriteria(orderNumber, fromDate, tillDate, lastCardDigits, cardHolderName, paymentGateway)
+        );
+
+    }
+
+
+    private Criterion[] getCriteria(final String orderNumber,
+                                    final Date fromDate,
+                                    final Date tillDate,
+                                    final String lastCardDigits,
+                                    final String cardHolderName,
+                                    final String paymentGateway) {
+
         final ArrayList<Criterion> creterias = new ArrayList<Criterion>(6);
 
         if (orderNumber != null) {
@@ -111,9 +148,7 @@ public class CustomerOrderPaymentServiceImpl
             creterias.add(Restrictions.eq("transactionGatewayLabel", paymentGateway));
         }
 
-        return getGenericDao().findByCriteria(
-                creterias.toArray(new Criterion[creterias.size()])
-        );
+        return creterias.toArray(new Criterion[creterias.size()]);
 
     }
 
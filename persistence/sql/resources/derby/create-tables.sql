@@ -1533,3 +1533,9 @@
     );
 
     insert into HIBERNATE_UNIQUE_KEYS values ( 0 );
+
+    create table TSEQUENCE (
+        SEQUENCE_NAME varchar(64) not null,
+        NEXT_VALUE bigint not null,
+        primary key (SEQUENCE_NAME)
+    );
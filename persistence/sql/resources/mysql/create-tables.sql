@@ -1073,6 +1073,12 @@
          value integer 
     );
 
+    create table TSEQUENCE (
+        SEQUENCE_NAME varchar(64) not null,
+        NEXT_VALUE bigint not null,
+        primary key (SEQUENCE_NAME)
+    );
+
     alter table TADDRESS 
         add index FKADDRCUSTOMER (CUSTOMER_ID), 
         add constraint FKADDRCUSTOMER 
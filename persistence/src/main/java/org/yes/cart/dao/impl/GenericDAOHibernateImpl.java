@@ -18,12 +18,15 @@ package org.yes.cart.dao.impl;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.FixedBitSet;
 import org.hibernate.*;
 import org.hibernate.Query;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Example;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
 import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.search.FullTextQuery;
 import org.hibernate.search.FullTextSession;
@@ -48,6 +51,7 @@ import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.dao.ResultsIterator;
 import org.yes.cart.domain.entity.Identifiable;
 import org.yes.cart.domain.entity.Product;
+import org.yes.cart.domain.entity.bridge.SkuPriceBridge;
 import org.yes.cart.domain.entityindexer.IndexFilter;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.domain.queryobject.FilteredNavigationRecordRequest;
@@ -56,6 +60,13 @@ import org.yes.cart.util.ShopCodeContext;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -75,10 +86,19 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
     private final boolean persistentClassIndexble;
     private final EntityFactory entityFactory;
     private final EntityIndexingInterceptor entityIndexingInterceptor;
+    private final MultiValueFacetCounter multiValueFacetCounter = new MultiValueFacetCounter();
     protected SessionFactory sessionFactory;
 
     private TaskExecutor indexExecutor;
 
+    private static final long PARTITION_TERMINATION_TIMEOUT_SEC = 60L;
+
+    private int indexPartitions = 1;
+
+    private int indexBatchSize = 20;
+
+    private boolean purgeOnFullReindex = true;
+
 
     /**
      * Set the Hibernate SessionFactory to be used by this DAO.
@@ -98,6 +118,37 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
         this.indexExecutor = indexExecutor;
     }
 
+    /**
+     * Number of PK range partitions for asynchronous full reindex. Each partition is indexed on its own
+     * thread and session. Default is 1 (single forward only scroll over whole table). Synchronous reindex
+     * always uses single scroll in current session.
+     *
+     * @param indexPartitions number of partitions
+     */
+    public void setIndexPartitions(final int indexPartitions) {
+        this.indexPartitions = indexPartitions;
+    }
+
+    /**
+     * Number of entities to index before flushing to indexes and clearing session. Default is 20.
+     *
+     * @param indexBatchSize batch size
+     */
+    public void setIndexBatchSize(final int indexBatchSize) {
+        this.indexBatchSize = indexBatchSize;
+    }
+
+    /**
+     * Purge whole index before global full reindex. Default is true. When false the index is rebuilt in place:
+     * every entity document is replaced as it is reindexed and documents of entities that no longer exist are
+     * purged at the end, so searches keep returning complete results while rebuild is running.
+     *
+     * @param purgeOnFullReindex true to purge all documents before full reindex
+     */
+    public void setPurgeOnFullReindex(final boolean purgeOnFullReindex) {
+        this.purgeOnFullReindex = purgeOnFullReindex;
+    }
+
     /**
      * Default constructor.
      *
@@ -569,6 +620,60 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
         return  fullTextSearchReindex(primaryKey, false);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public int fullTextSearchReindex(final Collection<PK> primaryKeys) {
+        int result = 0;
+        if (persistentClassIndexble && !primaryKeys.isEmpty()) {
+
+            final Session session = sessionFactory.openSession();
+            Transaction tx = null;
+            try {
+
+                FullTextSession fullTextSession = Search.getFullTextSession(session);
+                fullTextSession.setFlushMode(FlushMode.MANUAL);
+                fullTextSession.setCacheMode(CacheMode.IGNORE);
+                tx = fullTextSession.beginTransaction();
+
+                for (final PK primaryKey : primaryKeys) {
+
+                    sessionFactory.getCache().evictEntity(getPersistentClass(), primaryKey);
+                    fullTextSession.purge(getPersistentClass(), primaryKey);
+
+                    final Object entity = fullTextSession.get(getPersistentClass(), primaryKey);
+                    if (entity != null) {
+                        final T unproxied = (T) HibernateHelper.unproxy(entity);
+
+                        if (entityIndexingInterceptor != null) {
+                            if (IndexingOverride.APPLY_DEFAULT == entityIndexingInterceptor.onAdd(unproxied)) {
+                                fullTextSession.index(unproxied);
+                            }
+                        } else {
+                            fullTextSession.index(unproxied);
+                        }
+                    }
+                    result++;
+
+                }
+
+                fullTextSession.flushToIndexes(); //apply changes to indexes
+                fullTextSession.clear(); //clear since the queue is processed
+                tx.commit();
+
+            } catch (RuntimeException exp) {
+                if (tx != null) {
+                    tx.rollback();
+                }
+                throw exp;
+            } finally {
+                session.close();
+            }
+
+        }
+        return result;
+    }
+
     private final int IDLE = -3;
     private final int COMPLETED = -1;
     private final int LASTUPDATE = -2;
@@ -625,20 +730,23 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
     }
 
     private Runnable createIndexingRunnable(final boolean async, final int[] count, final IndexFilter<T> filter) {
-        final int BATCH_SIZE = 20;
+        final int BATCH_SIZE = indexBatchSize;
         return new Runnable() {
             @Override
             public void run() {
                 int index = 0;
                 try {
 
-                    if (persistentClassIndexble) {
+                    if (persistentClassIndexble && async && indexPartitions > 1) {
+                        index = reindexPartitioned(async, filter);
+                    } else if (persistentClassIndexble) {
                         FullTextSession fullTextSession = Search.getFullTextSession(async ? sessionFactory.openSession() : sessionFactory.getCurrentSession());
                         fullTextSession.setFlushMode(FlushMode.MANUAL);
                         fullTextSession.setCacheMode(CacheMode.IGNORE);
-                        if (filter == null) {  // only purge global full reindex because this clears all entries
+                        if (filter == null && purgeOnFullReindex) {  // only purge global full reindex because this clears all entries
                             fullTextSession.purgeAll(getPersistentClass());
                         }
+                        final Set<Serializable> indexed = filter == null && !purgeOnFullReindex ? new HashSet<Serializable>() : null;
                         ScrollableResults results = fullTextSession.createCriteria(persistentClass)
                                 .setFetchSize(BATCH_SIZE)
                                 .scroll(ScrollMode.FORWARD_ONLY);
@@ -652,12 +760,8 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
                                 continue; // skip this object
                             }
 
-                            if (entityIndexingInterceptor != null) {
-                                if (IndexingOverride.APPLY_DEFAULT == entityIndexingInterceptor.onAdd(entity)) {
-                                    fullTextSession.index(entity);
-                                }
-                            } else {
-                                fullTextSession.index(entity);
+                            if (indexEntity(fullTextSession, entity) && indexed != null) {
+                                indexed.add(fullTextSession.getIdentifier(entity));
                             }
                             index++;
 
@@ -677,6 +781,9 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
                         if (log.isInfoEnabled()) {
                             log.info("Indexed " + index + " items of " + persistentClass + " class");
                         }
+                        if (indexed != null) {
+                            purgeStaleDocuments(fullTextSession, indexed);
+                        }
                         fullTextSession.getSearchFactory().optimize(getPersistentClass());
                     }
                 } catch (Exception exp) {
@@ -694,6 +801,247 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
         };
     }
 
+    /*
+     * Splits PK range into partitions and indexes each partition on its own thread and session.
+     * Progress of all partitions is accumulated in currentIndexingCount.
+     */
+    private int reindexPartitioned(final boolean async, final IndexFilter<T> filter) throws Exception {
+
+        final String idProperty = sessionFactory.getClassMetadata(getPersistentClass()).getIdentifierPropertyName();
+
+        final Object[] range;
+        final Session session = sessionFactory.openSession();
+        try {
+            final FullTextSession fullTextSession = Search.getFullTextSession(session);
+            if (filter == null && purgeOnFullReindex) {  // only purge global full reindex because this clears all entries
+                fullTextSession.purgeAll(getPersistentClass());
+                fullTextSession.flushToIndexes();
+            }
+            range = (Object[]) session.createCriteria(persistentClass)
+                    .setProjection(Projections.projectionList()
+                            .add(Projections.min(idProperty))
+                            .add(Projections.max(idProperty)))
+                    .uniqueResult();
+        } finally {
+            session.close();
+        }
+
+        if (range == null || range[0] == null || range[1] == null) {
+            return 0; // nothing to index
+        }
+
+        final Set<Serializable> indexed = filter == null && !purgeOnFullReindex ?
+                Collections.newSetFromMap(new ConcurrentHashMap<Serializable, Boolean>()) : null;
+
+        final List<Callable<Integer>> partitions = new ArrayList<Callable<Integer>>(indexPartitions);
+        for (final long[] partitionRange : partitionRanges(((Number) range[0]).longValue(), ((Number) range[1]).longValue(), indexPartitions)) {
+            partitions.add(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    return reindexPartition(async, filter, idProperty, partitionRange[0], partitionRange[1], indexed);
+                }
+            });
+        }
+
+        final int index = runPartitions(partitions);
+
+        final Session optimizeSession = sessionFactory.openSession();
+        try {
+            final FullTextSession fullTextSession = Search.getFullTextSession(optimizeSession);
+            if (indexed != null) {
+                purgeStaleDocuments(fullTextSession, indexed);
+            }
+            fullTextSession.getSearchFactory().optimize(getPersistentClass());
+        } finally {
+            optimizeSession.close();
+        }
+
+        return index;
+
+    }
+
+    /*
+     * Splits [min..max] PK range into at most given number of contiguous non overlapping [from..to] ranges.
+     */
+    static List<long[]> partitionRanges(final long min, final long max, final int partitions) {
+        final long step = (max - min) / partitions + 1;
+        final List<long[]> ranges = new ArrayList<long[]>(partitions);
+        for (long from = min; from <= max; from += step) {
+            ranges.add(new long[] { from, Math.min(from + step - 1, max) });
+        }
+        return ranges;
+    }
+
+    /*
+     * Runs each partition on its own thread and sums indexed counts. If any partition fails remaining partitions
+     * are interrupted and awaited before exception is rethrown, so no indexing is running once this method exits.
+     */
+    static int runPartitions(final List<Callable<Integer>> partitions) throws Exception {
+
+        final ExecutorService partitionExecutor = Executors.newFixedThreadPool(partitions.size());
+        try {
+            final CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(partitionExecutor);
+            for (final Callable<Integer> partition : partitions) {
+                completion.submit(partition);
+            }
+
+            int index = 0;
+            for (int i = 0; i < partitions.size(); i++) {
+                index += completion.take().get(); // in order of completion, so first failure is seen immediately
+            }
+            return index;
+
+        } catch (Exception exp) {
+            partitionExecutor.shutdownNow();
+            partitionExecutor.awaitTermination(PARTITION_TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
+            throw exp;
+        } finally {
+            partitionExecutor.shutdown();
+        }
+
+    }
+
+    private int reindexPartition(final boolean async, final IndexFilter<T> filter,
+                                 final String idProperty, final long from, final long to,
+                                 final Set<Serializable> indexed) throws InterruptedException {
+
+        final Logger log = ShopCodeContext.getLog(this);
+        final String partition = persistentClass + " partition [" + from + ".." + to + "]";
+
+        int index = 0;
+        final Session session = sessionFactory.openSession();
+        try {
+            final FullTextSession fullTextSession = Search.getFullTextSession(session);
+            fullTextSession.setFlushMode(FlushMode.MANUAL);
+            fullTextSession.setCacheMode(CacheMode.IGNORE);
+
+            final ScrollableResults results = fullTextSession.createCriteria(persistentClass)
+                    .add(Restrictions.between(idProperty, from, to))
+                    .setFetchSize(indexBatchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+
+            while (results.next()) {
+
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Indexing of " + partition + " cancelled after " + index + " items");
+                }
+
+                final T entity = (T) HibernateHelper.unproxy(results.get(0));
+
+                if (filter != null && filter.skipIndexing(entity)) {
+                    continue; // skip this object
+                }
+
+                if (indexEntity(fullTextSession, entity) && indexed != null) {
+                    indexed.add(fullTextSession.getIdentifier(entity));
+                }
+                index++;
+
+                if (index % indexBatchSize == 0) {
+                    fullTextSession.flushToIndexes(); //apply changes to indexes
+                    fullTextSession.clear(); //clear since the queue is processed
+                    if (log.isInfoEnabled()) {
+                        log.info("Indexed " + index + " items of " + partition);
+                    }
+                }
+                if (async) {
+                    currentIndexingCount.incrementAndGet();
+                }
+            }
+            results.close();
+            fullTextSession.flushToIndexes(); //apply changes to indexes
+            fullTextSession.clear(); //clear since the queue is processed
+            if (log.isInfoEnabled()) {
+                log.info("Indexed " + index + " items of " + partition);
+            }
+        } finally {
+            session.close();
+        }
+        return index;
+
+    }
+
+    /*
+     * Index entity unless interceptor rejects it. Rejected entities are not tracked as indexed, so in place
+     * full reindex purges their old documents at the end (e.g. product went out of stock).
+     */
+    private boolean indexEntity(final FullTextSession fullTextSession, final T entity) {
+        if (!isIndexable(entity)) {
+            return false;
+        }
+        fullTextSession.index(entity);
+        return true;
+    }
+
+    private boolean isIndexable(final T entity) {
+        return entityIndexingInterceptor == null
+                || IndexingOverride.APPLY_DEFAULT == entityIndexingInterceptor.onAdd(entity);
+    }
+
+    /*
+     * Purges documents of entities that were not seen during in place full reindex (i.e. entities removed
+     * from database since last reindex without index being updated, or rejected by interceptor).
+     * Documents that were not seen are only candidates: entities created after the scroll (or partition)
+     * had passed their id, or reindexed incrementally while full reindex was running, are not in indexed
+     * set either. Therefore candidates are checked against database in batches and only documents of
+     * entities that no longer exist or are rejected by interceptor are purged.
+     */
+    void purgeStaleDocuments(final FullTextSession fullTextSession, final Set<Serializable> indexed) throws IOException {
+
+        final String idField = sessionFactory.getClassMetadata(getPersistentClass()).getIdentifierPropertyName();
+        final boolean longId = Long.class.equals(
+                sessionFactory.getClassMetadata(getPersistentClass()).getIdentifierType().getReturnedClass());
+
+        final List<Serializable> candidates = new ArrayList<Serializable>();
+        final IndexReader reader = fullTextSession.getSearchFactory().getIndexReaderAccessor().open(getPersistentClass());
+        try {
+            final TermEnum terms = reader.terms(new Term(idField, ""));
+            try {
+                do {
+                    final Term term = terms.term();
+                    if (term == null || !idField.equals(term.field())) {
+                        break;
+                    }
+                    final Serializable id = longId ? Long.valueOf(term.text()) : term.text();
+                    if (!indexed.contains(id)) {
+                        candidates.add(id);
+                    }
+                } while (terms.next());
+            } finally {
+                terms.close();
+            }
+        } finally {
+            fullTextSession.getSearchFactory().getIndexReaderAccessor().close(reader);
+        }
+
+        final List<Serializable> stale = new ArrayList<Serializable>();
+        for (int from = 0; from < candidates.size(); from += indexBatchSize) {
+            final List<Serializable> batch = candidates.subList(from, Math.min(from + indexBatchSize, candidates.size()));
+            final Set<Serializable> live = new HashSet<Serializable>();
+            for (final Object entity : fullTextSession.createCriteria(persistentClass)
+                    .add(Restrictions.in(idField, batch))
+                    .list()) {
+                final T unproxied = (T) HibernateHelper.unproxy(entity);
+                if (isIndexable(unproxied)) {
+                    live.add(fullTextSession.getIdentifier(unproxied));
+                }
+            }
+            fullTextSession.clear(); // do not keep loaded batch in session
+            for (final Serializable id : batch) {
+                if (!live.contains(id)) {
+                    stale.add(id);
+                }
+            }
+        }
+
+        for (final Serializable id : stale) {
+            fullTextSession.purge(getPersistentClass(), id);
+        }
+        fullTextSession.flushToIndexes();
+
+        ShopCodeContext.getLog(this).info("Purged {} stale documents of {} class", stale.size(), persistentClass);
+
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -795,8 +1143,9 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
         FullTextSession fullTextSession = Search.getFullTextSession(sessionFactory.getCurrentSession());
         FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery(query, getPersistentClass());
         if (sortFieldName != null) {
+            // price fields are numeric, so string sort would order by trie encoded terms
             Sort sort = new Sort(
-                    new SortField(sortFieldName, SortField.STRING, reverse));
+                    new SortField(sortFieldName, SkuPriceBridge.isPriceField(sortFieldName) ? SortField.LONG : SortField.STRING, reverse));
             fullTextQuery.setSort(sort);
         }
         fullTextQuery.setFirstResult(firstResult);
@@ -827,35 +1176,44 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
             fullTextQuery.setMaxResults(1);
             final FacetManager facetManager = fullTextQuery.getFacetManager();
             boolean hasMultivalue = false;
+            final List<String> multiValueFields = new ArrayList<String>();
             for (final FilteredNavigationRecordRequest facetingRequestItem : facetingRequest) {
                 if (facetingRequestItem.isRangeValue()) {
                     final FacetRangeAboveBelowContext facetCtx = qb.facet().name(facetingRequestItem.getFacetName())
                             .onField(facetingRequestItem.getField()).range();
+                    // numeric price fields need numeric limits so that facet counts are collected from long field cache
+                    final boolean numeric = SkuPriceBridge.isPriceField(facetingRequestItem.getField());
                     final Iterator<Pair<String, String>> rageIt = facetingRequestItem.getRangeValues().iterator();
                     while (rageIt.hasNext()) {
                         final Pair<String, String> range = rageIt.next();
+                        final Object from = numeric ? (Object) Long.valueOf(range.getFirst()) : range.getFirst();
+                        final Object to = numeric ? (Object) Long.valueOf(range.getSecond()) : range.getSecond();
                         if (rageIt.hasNext()) {
-                            facetCtx.from(range.getFirst()).to(range.getSecond()).excludeLimit();
+                            facetCtx.from(from).to(to).excludeLimit();
                         } else {
-                            facetManager.enableFaceting(facetCtx.from(range.getFirst()).to(range.getSecond())
+                            facetManager.enableFaceting(facetCtx.from(from).to(to)
                                     .orderedBy(FacetSortOrder.RANGE_DEFINITION_ODER).createFacetingRequest());
                         }
                     }
+                } else if (facetingRequestItem.isMultiValue()) {
+                    // multi value fields are counted by multiValueFacetCounter, facet manager only supports single value
+                    hasMultivalue = true;
+                    if (!multiValueFields.contains(facetingRequestItem.getField())) {
+                        multiValueFields.add(facetingRequestItem.getField());
+                    }
                 } else {
                     final DiscreteFacetContext facetCtx = qb.facet().name(facetingRequestItem.getFacetName())
                             .onField(facetingRequestItem.getField()).discrete();
                     facetManager.enableFaceting(facetCtx
-                            .includeZeroCounts(facetingRequestItem.isMultiValue())
+                            .includeZeroCounts(false)
                             .createFacetingRequest());
-                    if (facetingRequestItem.isMultiValue()) {
-                        hasMultivalue = true;
-                    }
                 }
             }
 
             final Map<String, List<Pair<String, Integer>>> out = new HashMap<String, List<Pair<String, Integer>>>();
             IndexReader indexReader = null;
             FixedBitSet baseBitSet = null;
+            Map<String, List<Pair<String, Integer>>> multiValueCounts = Collections.emptyMap();
             try {
 
                 if (hasMultivalue) {
@@ -873,6 +1231,13 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
                         LOGFTQ.error("Stacktrace:", e);
                         baseBitSet = new FixedBitSet(1);
                     }
+                    try {
+                        // one pass over matching documents for all multi value fields
+                        multiValueCounts = multiValueFacetCounter.count(indexReader, baseBitSet, multiValueFields);
+                    } catch (IOException e) {
+                        LOGFTQ.error("Unable to count multi value facets for query {} and faceting request {}", query, facetingRequest);
+                        LOGFTQ.error("Stacktrace:", e);
+                    }
                 }
 
                 for (final FilteredNavigationRecordRequest facetingRequestItem : facetingRequest) {
@@ -880,35 +1245,16 @@ public class GenericDAOHibernateImpl<T, PK extends Serializable>
                     final List<Pair<String, Integer>> facetsPairs =
                             new ArrayList<Pair<String, Integer>>();
 
-                    final List<Facet> facets =  facetManager.getFacets(facetingRequestItem.getFacetName());
-
                     LOGFTQ.debug("Faceting request request: {}", facetingRequestItem);
 
                     if (facetingRequestItem.isMultiValue() && !facetingRequestItem.isRangeValue()) {
-                        // Multivalue black magic
-                        for (final Facet facet : facets) {
-
-                            final org.apache.lucene.search.Query facetQuery = new TermQuery(new Term(facet.getFieldName(), facet.getValue()));
-                            try {
-                                CachingWrapperFilter filter = new CachingWrapperFilter(new QueryWrapperFilter(facetQuery));
-                                DocIdSet docIdSet = filter.getDocIdSet(indexReader);
-                                if (docIdSet instanceof FixedBitSet) {
-                                    FixedBitSet filterBitSet = (FixedBitSet) docIdSet;
-                                    filterBitSet.and(baseBitSet);
-                                    long count = filterBitSet.cardinality();
-                                    if (count > 0L) {
-                                        LOGFTQ.debug("Has facet: {}", facet);
-                                        facetsPairs.add(new Pair<String, Integer>(facet.getValue(), (int) count));
-                                    }
-                                }
-                            } catch (IOException e) {
-                                LOGFTQ.error("Unable to create filter query bit set for query {} and faceting query {}", query, facetQuery);
-                                LOGFTQ.error("Stacktrace:", e);
-                            }
-
+                        final List<Pair<String, Integer>> counts = multiValueCounts.get(facetingRequestItem.getField());
+                        if (counts != null) {
+                            facetsPairs.addAll(counts);
                         }
                     } else {
                         // Standard discrete values and ranges
+                        final List<Facet> facets =  facetManager.getFacets(facetingRequestItem.getFacetName());
                         for (final Facet facet : facets) {
                             LOGFTQ.debug("Has facet: {}", facet);
                             facetsPairs.add(new Pair<String, Integer>(facet.getValue(), facet.getCount()));
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.dao.impl;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.ReaderUtil;
+import org.yes.cart.domain.misc.Pair;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Counts values of multi value facet fields (i.e. fields that have several terms per document)
+ * in a single pass over documents that match base query.
+ *
+ * Each field is un-inverted once per index segment into term ordinals per document. Ordinals are
+ * cached by segment core key, so they are reused by all subsequent requests for as long as the
+ * segment is open (segments are immutable, so reindex only invalidates new or merged segments).
+ *
+ * User: denispavlov
+ * Date: 14-06-12
+ * Time: 9:40 AM
+ */
+public class MultiValueFacetCounter {
+
+    /*
+     * Most frequent values first, ties ordered by term so that output is deterministic.
+     */
+    private static final Comparator<Pair<String, Integer>> BY_COUNT_THEN_TERM = new Comparator<Pair<String, Integer>>() {
+        public int compare(final Pair<String, Integer> c1, final Pair<String, Integer> c2) {
+            final int byCount = c2.getSecond().compareTo(c1.getSecond());
+            if (byCount != 0) {
+                return byCount;
+            }
+            return c1.getFirst().compareTo(c2.getFirst());
+        }
+    };
+
+    private final Map<Object, Map<String, FieldOrdinals>> ordinalsCache = new WeakHashMap<Object, Map<String, FieldOrdinals>>();
+
+    /**
+     * Count all terms of given fields for documents set in matching bit set.
+     *
+     * @param reader   top level index reader against which matching bit set was created
+     * @param matching documents that match base query
+     * @param fields   multi value fields to count
+     *
+     * @return map of field to list of term - count pairs (only terms with non zero count),
+     *         most frequent terms first
+     *
+     * @throws IOException if index cannot be read
+     */
+    public Map<String, List<Pair<String, Integer>>> count(final IndexReader reader,
+                                                          final FixedBitSet matching,
+                                                          final List<String> fields) throws IOException {
+
+        final List<Map<String, Integer>> totals = new ArrayList<Map<String, Integer>>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            totals.add(new HashMap<String, Integer>());
+        }
+
+        final List<IndexReader> segments = new ArrayList<IndexReader>();
+        ReaderUtil.gatherSubReaders(segments, reader);
+
+        int docBase = 0;
+        for (final IndexReader segment : segments) {
+
+            final int maxDoc = segment.maxDoc();
+            final FieldOrdinals[] ordinals = new FieldOrdinals[fields.size()];
+            final int[][] counts = new int[fields.size()][];
+            for (int i = 0; i < fields.size(); i++) {
+                ordinals[i] = getOrdinals(segment, fields.get(i));
+                counts[i] = new int[ordinals[i].terms.length];
+            }
+
+            // single pass over matching documents of this segment for all fields
+            final int end = Math.min(docBase + maxDoc, matching.length());
+            int doc = docBase < end ? matching.nextSetBit(docBase) : -1;
+            while (doc != -1 && doc < end) {
+                final int local = doc - docBase;
+                for (int i = 0; i < ordinals.length; i++) {
+                    final FieldOrdinals fieldOrdinals = ordinals[i];
+                    final int[] fieldCounts = counts[i];
+                    for (int pos = fieldOrdinals.offsets[local]; pos < fieldOrdinals.offsets[local + 1]; pos++) {
+                        fieldCounts[fieldOrdinals.ords[pos]]++;
+                    }
+                }
+                doc = doc + 1 < end ? matching.nextSetBit(doc + 1) : -1;
+            }
+
+            for (int i = 0; i < ordinals.length; i++) {
+                final Map<String, Integer> fieldTotals = totals.get(i);
+                for (int ord = 0; ord < counts[i].length; ord++) {
+                    if (counts[i][ord] > 0) {
+                        final String term = ordinals[i].terms[ord];
+                        final Integer total = fieldTotals.get(term);
+                        fieldTotals.put(term, total == null ? counts[i][ord] : total + counts[i][ord]);
+                    }
+                }
+            }
+
+            docBase += maxDoc;
+        }
+
+        final Map<String, List<Pair<String, Integer>>> out = new HashMap<String, List<Pair<String, Integer>>>();
+        for (int i = 0; i < fields.size(); i++) {
+            final List<Pair<String, Integer>> fieldCounts = new ArrayList<Pair<String, Integer>>(totals.get(i).size());
+            for (final Map.Entry<String, Integer> total : totals.get(i).entrySet()) {
+                fieldCounts.add(new Pair<String, Integer>(total.getKey(), total.getValue()));
+            }
+            Collections.sort(fieldCounts, BY_COUNT_THEN_TERM);
+            out.put(fields.get(i), fieldCounts);
+        }
+        return out;
+    }
+
+    private FieldOrdinals getOrdinals(final IndexReader segment, final String field) throws IOException {
+
+        final Object key = segment.getCoreCacheKey();
+        synchronized (ordinalsCache) {
+            final Map<String, FieldOrdinals> segmentOrdinals = ordinalsCache.get(key);
+            if (segmentOrdinals != null && segmentOrdinals.containsKey(field)) {
+                return segmentOrdinals.get(field);
+            }
+        }
+
+        final FieldOrdinals ordinals = uninvert(segment, field);
+
+        synchronized (ordinalsCache) {
+            Map<String, FieldOrdinals> segmentOrdinals = ordinalsCache.get(key);
+            if (segmentOrdinals == null) {
+                segmentOrdinals = new HashMap<String, FieldOrdinals>();
+                ordinalsCache.put(key, segmentOrdinals);
+            }
+            segmentOrdinals.put(field, ordinals);
+        }
+        return ordinals;
+    }
+
+    /*
+     * Two passes over field postings: first counts terms per document to size offsets, second fills ordinals.
+     */
+    private FieldOrdinals uninvert(final IndexReader segment, final String field) throws IOException {
+
+        final int maxDoc = segment.maxDoc();
+        final int[] offsets = new int[maxDoc + 1];
+        final List<String> terms = new ArrayList<String>();
+
+        final TermDocs termDocs = segment.termDocs();
+        try {
+            TermEnum termEnum = segment.terms(new Term(field, ""));
+            try {
+                do {
+                    final Term term = termEnum.term();
+                    if (term == null || !field.equals(term.field())) {
+                        break;
+                    }
+                    terms.add(term.text());
+                    termDocs.seek(termEnum);
+                    while (termDocs.next()) {
+                        offsets[termDocs.doc() + 1]++;
+                    }
+                } while (termEnum.next());
+            } finally {
+                termEnum.close();
+            }
+
+            for (int doc = 0; doc < maxDoc; doc++) {
+                offsets[doc + 1] += offsets[doc];
+            }
+
+            final int[] ords = new int[offsets[maxDoc]];
+            final int[] fill = new int[maxDoc];
+            termEnum = segment.terms(new Term(field, ""));
+            try {
+                for (int ord = 0; ord < terms.size(); ord++) {
+                    termDocs.seek(termEnum);
+                    while (termDocs.next()) {
+                        final int doc = termDocs.doc();
+                        ords[offsets[doc] + fill[doc]++] = ord;
+                    }
+                    termEnum.next();
+                }
+            } finally {
+                termEnum.close();
+            }
+
+            return new FieldOrdinals(terms.toArray(new String[terms.size()]), offsets, ords);
+
+        } finally {
+            termDocs.close();
+        }
+    }
+
+    /**
+     * Term ordinals of single field in single segment. Ordinals of document N are
+     * ords[offsets[N]] ... ords[offsets[N + 1] - 1].
+     */
+    private static final class FieldOrdinals {
+
+        private final String[] terms;
+        private final int[] offsets;
+        private final int[] ords;
+
+        private FieldOrdinals(final String[] terms, final int[] offsets, final int[] ords) {
+            this.terms = terms;
+            this.offsets = offsets;
+            this.ords = ords;
+        }
+    }
+
+}
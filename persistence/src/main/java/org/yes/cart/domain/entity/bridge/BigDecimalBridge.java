@@ -60,6 +60,20 @@ public class BigDecimalBridge implements StringBridge, ParameterizedBridge {
         return null;
     }
 
+    /**
+     * Convert money amount to minor units for numeric index fields.
+     *
+     * @param bigDecimalPriceObject amount
+     *
+     * @return amount in minor units (or 0 if amount is not a {@link BigDecimal})
+     */
+    public long objectToLong(final Object bigDecimalPriceObject) {
+        if (bigDecimalPriceObject instanceof BigDecimal) {
+            return ((BigDecimal) bigDecimalPriceObject).movePointRight(scale).longValue();
+        }
+        return 0L;
+    }
+
     @Override
     public void setParameterValues(final Map<String, String> parameters) {
         this.scale = Integer.valueOf(parameters.get("scale"));
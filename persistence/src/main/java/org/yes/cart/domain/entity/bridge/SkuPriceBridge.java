@@ -18,6 +18,7 @@ package org.yes.cart.domain.entity.bridge;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
 import org.hibernate.search.bridge.FieldBridge;
 import org.hibernate.search.bridge.LuceneOptions;
 import org.yes.cart.constants.Constants;
@@ -34,12 +35,28 @@ import java.util.Map;
  *
  * Bridge to product sku price.
  *
+ * Prices are indexed as numeric (trie) long fields in minor units, so that price filtering
+ * and price range facets use numeric range queries instead of string term ranges.
+ * Numeric fields use different name prefix to legacy zero padded string fields, therefore
+ * documents in old indexes keep working with {@link #getLegacyFieldName(long, String)} until
+ * they are reindexed.
+ *
 * User: Igor Azarny iazarny@yahoo.com
  * Date: 07-May-2011
  * Time: 16:13:01
  * */
 public class SkuPriceBridge implements FieldBridge {
 
+    /**
+     * Prefix of numeric price fields: facet_nprice_shopid_currency.
+     */
+    public static final String PRICE_FIELD_PREFIX = "facet_nprice_";
+
+    /**
+     * Prefix of legacy zero padded string price fields: facet_price_shopid_currency.
+     */
+    public static final String LEGACY_PRICE_FIELD_PREFIX = "facet_price_";
+
     private final BigDecimalBridge moneyBridge = new BigDecimalBridge(Constants.DEFAULT_SCALE);
 
     /** {@inheritDoc} */
@@ -84,15 +101,10 @@ public class SkuPriceBridge implements FieldBridge {
                     for (final Map.Entry<String, SkuPrice> currency : shop.getValue().entrySet()) {
 
                         BigDecimal price = MoneyUtils.minPositive(currency.getValue().getRegularPrice(), currency.getValue().getSalePrice());
-                        Pair<String, String> rez = objectToString(shop.getKey(), currency.getKey(), price);
-
-                        Field facetField = new Field(
-                                rez.getFirst(),
-                                rez.getSecond(),
-                                Field.Store.NO,
-                                Field.Index.NOT_ANALYZED,
-                                luceneOptions.getTermVector()
-                        );
+                        Pair<String, Long> rez = objectToLong(shop.getKey(), currency.getKey(), price);
+
+                        NumericField facetField = new NumericField(rez.getFirst(), Field.Store.NO, true);
+                        facetField.setLongValue(rez.getSecond());
                         document.add(facetField);
                     }
                 }
@@ -102,7 +114,20 @@ public class SkuPriceBridge implements FieldBridge {
 
 
     /**
-     * Create index value for given shop currency and price.
+     * Create numeric index value for given shop currency and price.
+     *
+     * @param shopId shop id
+     * @param currency currency code
+     * @param regularPrice regular price
+     *
+     * @return pair where first is field name and second is price in minor units. Field has format facet_nprice_shopid_currency.
+     */
+    public Pair<String, Long> objectToLong(final long shopId, final String currency, final BigDecimal regularPrice) {
+        return new Pair<String, Long>(getFieldName(shopId, currency), moneyBridge.objectToLong(regularPrice));
+    }
+
+    /**
+     * Create legacy string index value for given shop currency and price.
      *
      * @param shopId shop id
      * @param currency currency code
@@ -112,7 +137,36 @@ public class SkuPriceBridge implements FieldBridge {
      *         All digital value will be left padded according to formatter.
      */
     public Pair<String, String> objectToString(final long shopId, final String currency, final BigDecimal regularPrice) {
-        return new Pair<String, String>("facet_price_" + shopId + "_" + currency, moneyBridge.objectToString(regularPrice));
+        return new Pair<String, String>(getLegacyFieldName(shopId, currency), moneyBridge.objectToString(regularPrice));
+    }
+
+    /**
+     * @param shopId shop id
+     * @param currency currency code
+     *
+     * @return numeric price field name
+     */
+    public static String getFieldName(final long shopId, final String currency) {
+        return PRICE_FIELD_PREFIX + shopId + "_" + currency;
+    }
+
+    /**
+     * @param shopId shop id
+     * @param currency currency code
+     *
+     * @return legacy string price field name
+     */
+    public static String getLegacyFieldName(final long shopId, final String currency) {
+        return LEGACY_PRICE_FIELD_PREFIX + shopId + "_" + currency;
+    }
+
+    /**
+     * @param fieldName index field name
+     *
+     * @return true if this is numeric price field (i.e. should be sorted and ranged as long)
+     */
+    public static boolean isPriceField(final String fieldName) {
+        return fieldName != null && fieldName.startsWith(PRICE_FIELD_PREFIX);
     }
 
 }
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.entity.bridge.support;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable in memory snapshot of whole category tree (catalog and content) and its shop assignments.
+ *
+ * Nodes are addressed by position in sorted array of category PK's, tree is kept as parent/children
+ * position arrays and each node has pre/post order numbers of depth first traversal, so that ancestor
+ * check is two integer comparisons. Shop category sets are precomputed as sorted primitive long arrays.
+ *
+ * Availability (available from/to) is evaluated against snapshot timestamp.
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 2:10 PM
+ */
+public final class CategoryTreeSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 20140615L;
+
+    private static final int NONE = -1;
+
+    private final Date timestamp;
+
+    private final long[] ids;
+    private final int[] parent;
+    private final int[][] children;
+    private final boolean[] available;
+    private final int[] pre;
+    private final int[] post;
+
+    private final Map<Long, IdSet> shopCategories;
+    private final Map<Long, IdSet> shopCategoriesWithUnavailable;
+    private final Map<Long, IdSet> shopContent;
+    private final Map<Long, IdSet> shopAll;
+
+    private final ConcurrentMap<Long, IdSet> subtrees = new ConcurrentHashMap<Long, IdSet>();
+
+    /**
+     * Build snapshot.
+     *
+     * @param nodes          rows of [category PK, parent PK, available from, available to]
+     * @param shopCategories rows of [shop PK, category PK] for categories assigned to shops
+     * @param contentRoots   rows of [shop PK, category PK] for root content of shops
+     * @param timestamp      time against which availability is evaluated
+     *
+     * @return snapshot
+     */
+    public static CategoryTreeSnapshot build(final List<Object[]> nodes,
+                                             final List<Object[]> shopCategories,
+                                             final List<Object[]> contentRoots,
+                                             final Date timestamp) {
+        return new CategoryTreeSnapshot(nodes, shopCategories, contentRoots, timestamp);
+    }
+
+    private CategoryTreeSnapshot(final List<Object[]> nodes,
+                                 final List<Object[]> shopCategoryRows,
+                                 final List<Object[]> contentRootRows,
+                                 final Date timestamp) {
+
+        this.timestamp = timestamp;
+
+        final long[][] rows = new long[nodes.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            final Object[] node = nodes.get(i);
+            rows[i] = new long[] {
+                    ((Number) node[0]).longValue(),
+                    ((Number) node[1]).longValue(),
+                    isAvailable((Date) node[2], (Date) node[3], timestamp) ? 1L : 0L
+            };
+        }
+        Arrays.sort(rows, new Comparator<long[]>() {
+            public int compare(final long[] o1, final long[] o2) {
+                return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+            }
+        });
+
+        final int size = rows.length;
+        this.ids = new long[size];
+        this.available = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            this.ids[i] = rows[i][0];
+            this.available[i] = rows[i][2] == 1L;
+        }
+
+        this.parent = new int[size];
+        final int[] childCount = new int[size];
+        for (int i = 0; i < size; i++) {
+            final int p = rows[i][1] == rows[i][0] ? NONE : position(rows[i][1]); // root references itself
+            this.parent[i] = p;
+            if (p != NONE) {
+                childCount[p]++;
+            }
+        }
+        this.children = new int[size][];
+        for (int i = 0; i < size; i++) {
+            this.children[i] = new int[childCount[i]];
+            childCount[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            if (parent[i] != NONE) {
+                children[parent[i]][childCount[parent[i]]++] = i;
+            }
+        }
+
+        this.pre = new int[size];
+        this.post = new int[size];
+        Arrays.fill(pre, NONE);
+        Arrays.fill(post, NONE);
+        final int[] stack = new int[size];
+        final int[] next = new int[size];
+        int counter = 0;
+        for (int i = 0; i < size; i++) {
+            if (parent[i] == NONE) {
+                counter = number(i, counter, stack, next);
+            }
+        }
+
+        this.shopCategories = new HashMap<Long, IdSet>();
+        this.shopCategoriesWithUnavailable = new HashMap<Long, IdSet>();
+        final Map<Long, List<Integer>> assigned = groupByShop(shopCategoryRows);
+        for (final Map.Entry<Long, List<Integer>> shop : assigned.entrySet()) {
+            this.shopCategories.put(shop.getKey(), collect(shop.getValue(), true));
+            this.shopCategoriesWithUnavailable.put(shop.getKey(), collect(shop.getValue(), false));
+        }
+
+        this.shopContent = new HashMap<Long, IdSet>();
+        this.shopAll = new HashMap<Long, IdSet>();
+        final Map<Long, List<Integer>> contentRoots = groupByShop(contentRootRows);
+        final Set<Long> shops = new HashSet<Long>(assigned.keySet());
+        shops.addAll(contentRoots.keySet());
+        for (final Long shopId : shops) {
+            final List<Integer> roots = contentRoots.get(shopId);
+            final IdSet content = roots == null ? IdSet.EMPTY : collect(roots, true);
+            this.shopContent.put(shopId, content);
+            final IdSet categories = this.shopCategories.get(shopId);
+            this.shopAll.put(shopId, categories == null ? content : categories.union(content));
+        }
+
+    }
+
+    private static boolean isAvailable(final Date from, final Date to, final Date now) {
+        return (from == null || from.before(now)) && (to == null || to.after(now));
+    }
+
+    /*
+     * Iterative depth first numbering (trees can be deep, so no recursion).
+     */
+    private int number(final int root, final int start, final int[] stack, final int[] next) {
+        int counter = start;
+        int top = 0;
+        stack[top] = root;
+        next[top] = 0;
+        pre[root] = counter++;
+        while (top >= 0) {
+            final int node = stack[top];
+            if (next[top] < children[node].length) {
+                final int child = children[node][next[top]++];
+                if (pre[child] == NONE) {
+                    top++;
+                    stack[top] = child;
+                    next[top] = 0;
+                    pre[child] = counter++;
+                }
+            } else {
+                post[node] = counter++;
+                top--;
+            }
+        }
+        return counter;
+    }
+
+    private Map<Long, List<Integer>> groupByShop(final List<Object[]> rows) {
+        final Map<Long, List<Integer>> byShop = new HashMap<Long, List<Integer>>();
+        for (final Object[] row : rows) {
+            final int position = position(((Number) row[1]).longValue());
+            if (position != NONE) {
+                final Long shopId = ((Number) row[0]).longValue();
+                List<Integer> positions = byShop.get(shopId);
+                if (positions == null) {
+                    positions = new ArrayList<Integer>();
+                    byShop.put(shopId, positions);
+                }
+                positions.add(position);
+            }
+        }
+        return byShop;
+    }
+
+    /*
+     * Collect given nodes and their descendants. When availability is required, subtree of unavailable
+     * child is skipped, however given start nodes are always included.
+     */
+    private IdSet collect(final List<Integer> roots, final boolean withAvailability) {
+        final boolean[] seen = new boolean[ids.length];
+        final int[] queue = new int[ids.length];
+        int head = 0;
+        int tail = 0;
+        for (final int root : roots) {
+            if (!seen[root]) {
+                seen[root] = true;
+                queue[tail++] = root;
+            }
+        }
+        while (head < tail) {
+            final int node = queue[head++];
+            for (final int child : children[node]) {
+                if (!seen[child] && (!withAvailability || available[child])) {
+                    seen[child] = true;
+                    queue[tail++] = child;
+                }
+            }
+        }
+        final long[] out = new long[tail];
+        for (int i = 0; i < tail; i++) {
+            out[i] = ids[queue[i]];
+        }
+        Arrays.sort(out);
+        return new IdSet(out);
+    }
+
+    private int position(final long categoryId) {
+        final int position = Arrays.binarySearch(ids, categoryId);
+        return position < 0 ? NONE : position;
+    }
+
+    /**
+     * @return time against which availability of categories was evaluated
+     */
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @param categoryId category PK
+     *
+     * @return true if category exists
+     */
+    public boolean contains(final long categoryId) {
+        return position(categoryId) != NONE;
+    }
+
+    /**
+     * Check if sub category belongs to branch of top category (category is considered a sub category of itself).
+     * Availability is not taken into account.
+     *
+     * @param topCategoryId top category PK
+     * @param subCategoryId sub category PK
+     *
+     * @return true if top category is ancestor of sub category
+     */
+    public boolean isAncestor(final long topCategoryId, final long subCategoryId) {
+        final int top = position(topCategoryId);
+        final int sub = position(subCategoryId);
+        if (top == NONE || sub == NONE || pre[top] == NONE || pre[sub] == NONE) {
+            return false;
+        }
+        return pre[top] <= pre[sub] && post[sub] <= post[top];
+    }
+
+    /**
+     * @param categoryId category PK
+     *
+     * @return given category and all its available descendants (empty set if category does not exist)
+     */
+    public IdSet getSubtreeIds(final long categoryId) {
+        IdSet subtree = subtrees.get(categoryId);
+        if (subtree == null) {
+            final int position = position(categoryId);
+            if (position == NONE) {
+                return IdSet.EMPTY;
+            }
+            subtree = collect(Collections.singletonList(position), true);
+            subtrees.putIfAbsent(categoryId, subtree);
+        }
+        return subtree;
+    }
+
+    /**
+     * @param shopId shop PK
+     * @param withAvailability true to exclude unavailable categories (and their sub trees)
+     *
+     * @return assigned categories and their sub categories
+     */
+    public IdSet getShopCategoriesIds(final long shopId, final boolean withAvailability) {
+        final IdSet set = (withAvailability ? shopCategories : shopCategoriesWithUnavailable).get(shopId);
+        return set == null ? IdSet.EMPTY : set;
+    }
+
+    /**
+     * @param shopId shop PK
+     *
+     * @return root content of the shop and all available content
+     */
+    public IdSet getShopContentIds(final long shopId) {
+        final IdSet set = shopContent.get(shopId);
+        return set == null ? IdSet.EMPTY : set;
+    }
+
+    /**
+     * @param shopId shop PK
+     *
+     * @return union of {@link #getShopCategoriesIds(long, boolean)} (with availability) and {@link #getShopContentIds(long)}
+     */
+    public IdSet getShopAllCategoriesIds(final long shopId) {
+        final IdSet set = shopAll.get(shopId);
+        return set == null ? IdSet.EMPTY : set;
+    }
+
+    /**
+     * Immutable set of PK's backed by sorted primitive array. {@link #contains(long)} is a binary search
+     * without boxing.
+     */
+    public static final class IdSet extends AbstractSet<Long> implements Serializable {
+
+        private static final long serialVersionUID = 20140615L;
+
+        public static final IdSet EMPTY = new IdSet(new long[0]);
+
+        private final long[] sorted;
+
+        private IdSet(final long[] sorted) {
+            this.sorted = sorted;
+        }
+
+        /**
+         * @param id PK
+         *
+         * @return true if set contains given PK
+         */
+        public boolean contains(final long id) {
+            return Arrays.binarySearch(sorted, id) >= 0;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean contains(final Object o) {
+            return o instanceof Long && contains(((Long) o).longValue());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Iterator<Long> iterator() {
+            return new Iterator<Long>() {
+                private int next = 0;
+
+                public boolean hasNext() {
+                    return next < sorted.length;
+                }
+
+                public Long next() {
+                    if (next >= sorted.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return sorted[next++];
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException("Immutable set");
+                }
+            };
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int size() {
+            return sorted.length;
+        }
+
+        private IdSet union(final IdSet other) {
+            final long[] merged = new long[sorted.length + other.sorted.length];
+            int i = 0, j = 0, k = 0;
+            while (i < sorted.length || j < other.sorted.length) {
+                final long value;
+                if (j == other.sorted.length || (i < sorted.length && sorted[i] < other.sorted[j])) {
+                    value = sorted[i++];
+                } else if (i == sorted.length || other.sorted[j] < sorted[i]) {
+                    value = other.sorted[j++];
+                } else {
+                    value = sorted[i++];
+                    j++;
+                }
+                merged[k++] = value;
+            }
+            return new IdSet(Arrays.copyOf(merged, k));
+        }
+
+    }
+
+}
@@ -44,4 +44,12 @@ public interface ShopCategoryRelationshipSupport {
      */
     Set<Long> getShopCategoriesIds(long shopId);
 
+    /**
+     * Get snapshot of whole category tree and its shop assignments. Snapshot is shared
+     * and rebuilt as a whole when categories or shop assignments change.
+     *
+     * @return category tree snapshot
+     */
+    CategoryTreeSnapshot getCategoryTree();
+
 }
@@ -20,10 +20,12 @@ import org.springframework.cache.annotation.Cacheable;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Category;
 import org.yes.cart.domain.entity.Shop;
-import org.yes.cart.domain.entity.ShopCategory;
+import org.yes.cart.domain.entity.bridge.support.CategoryTreeSnapshot;
 import org.yes.cart.domain.entity.bridge.support.ShopCategoryRelationshipSupport;
 
-import java.util.*;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Extra logic to determine relationship between categories and shops.
@@ -49,53 +51,42 @@ public class ShopCategoryRelationshipSupportImpl implements ShopCategoryRelation
         return this.shopDao.findAll();
     }
 
-    private Set<Category> getShopCategories(final long shopId) {
-
-        final Set<Category> result = new HashSet<Category>();
-
-        for (ShopCategory shopCategory : shopDao.findById(shopId).getShopCategory()) {
-
-            loadChildCategoriesRecursiveInternal(result, shopCategory.getCategory().getCategoryId());
-
-        }
-
-        return result;
+    /**
+     * {@inheritDoc}
+     */
+    public Set<Long> getShopCategoriesIds(final long shopId) {
+        return proxy().getCategoryTree().getShopCategoriesIds(shopId, false);
     }
 
-    private void loadChildCategoriesRecursiveInternal(final Set<Category> result, final Long categoryId) {
-
-        result.add(categoryDao.findById(categoryId));
-
-        final List<Category> categories = categoryDao.findByNamedQueryCached(
-                "CATEGORIES.BY.PARENTID.WITHOUT.DATE.FILTERING",
-                categoryId
+    /**
+     * {@inheritDoc}
+     */
+    @Cacheable(value = "shopService-categoryTree")
+    public CategoryTreeSnapshot getCategoryTree() {
+        return CategoryTreeSnapshot.build(
+                categoryDao.findQueryObjectsByNamedQuery("CATEGORY.TREE.NODES"),
+                categoryDao.findQueryObjectsByNamedQuery("CATEGORY.TREE.SHOP.CATEGORIES"),
+                categoryDao.findQueryObjectsByNamedQuery("CATEGORY.TREE.SHOP.ROOTCONTENT"),
+                new Date()
         );
+    }
 
-        result.addAll(categories);
-
-        for (Category subCategory : categories) {
 
-            loadChildCategoriesRecursiveInternal(result, subCategory.getCategoryId());
+    private ShopCategoryRelationshipSupport proxy;
 
+    private ShopCategoryRelationshipSupport proxy() {
+        if (proxy == null) {
+            proxy = getSelf();
         }
-
+        return proxy;
     }
 
-
     /**
-     * {@inheritDoc}
+     * @return self proxy to reuse AOP caching
      */
-    @Cacheable(value = "shopService-shopCategoriesIds"/*, key ="shop.getShopId()"*/)
-    public Set<Long> getShopCategoriesIds(final long shopId) {
-        return transform(getShopCategories(shopId));
-    }
-
-    public Set<Long> transform(final Collection<Category> categories) {
-        final Set<Long> result = new LinkedHashSet<Long>(categories.size());
-        for (Category category : categories) {
-            result.add(category.getCategoryId());
-        }
-        return result;
+    public ShopCategoryRelationshipSupport getSelf() {
+        // Spring lookup method to get self proxy
+        return null;
     }
 
 }
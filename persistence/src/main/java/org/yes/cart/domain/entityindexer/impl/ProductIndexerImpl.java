@@ -22,37 +22,84 @@ import org.yes.cart.domain.entity.Product;
 import org.yes.cart.domain.entityindexer.ProductIndexer;
 import org.yes.cart.util.ShopCodeContext;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Coalescing product indexer. Submitted product PK's are collected into a pending set, so
+ * that product that is changed many times (e.g. during bulk price/stock update) is reindexed
+ * only once. Pending set is drained after short delay in batches, each batch is indexed in a
+ * single full text session with single flush to indexes.
+ * <p/>
+ * Submitting never blocks the caller.
+ *
  * User: Igor Azarny iazarny@yahoo.com
  * Date: 5/5/12
  * Time: 1:34 PM
  */
 public class ProductIndexerImpl implements ProductIndexer {
 
-    private final ExecutorService threadPool;
+    private static final long DEFAULT_COALESCE_DELAY_MS = 500L;
 
-    private final ArrayBlockingQueue<Long> reindexQueue;
+    private final ScheduledExecutorService threadPool;
 
     private final GenericDAO<Product, Long> productDao;
 
+    private final int batchSize;
+
+    private final long coalesceDelayMs;
+
+    /** Pending PK's with time they were first submitted. */
+    private final ConcurrentMap<Long, Long> pending = new ConcurrentHashMap<Long, Long>();
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong submittedCount = new AtomicLong(0L);
+    private final AtomicLong indexedCount = new AtomicLong(0L);
+    private final AtomicLong batchCount = new AtomicLong(0L);
+    private final AtomicLong failedBatchCount = new AtomicLong(0L);
+    private final AtomicLong lastIndexingLagMs = new AtomicLong(0L);
+    private final AtomicLong maxIndexingLagMs = new AtomicLong(0L);
+
     /**
      * Construct indexer.
      *
      * @param productDao     dao to perform reindex
-     * @param queueLength    queue length to reindex product
+     * @param batchSize      max number of products to reindex in single session
      * @param threadPoolSize quantity of executors.
      */
-    public ProductIndexerImpl(final GenericDAO<Product, Long> productDao, final int queueLength, final int threadPoolSize) {
+    public ProductIndexerImpl(final GenericDAO<Product, Long> productDao, final int batchSize, final int threadPoolSize) {
+        this(productDao, batchSize, threadPoolSize, DEFAULT_COALESCE_DELAY_MS);
+    }
+
+    /**
+     * Construct indexer.
+     *
+     * @param productDao      dao to perform reindex
+     * @param batchSize       max number of products to reindex in single session
+     * @param threadPoolSize  quantity of executors.
+     * @param coalesceDelayMs delay before pending products are reindexed, all changes within this
+     *                        period are coalesced
+     */
+    public ProductIndexerImpl(final GenericDAO<Product, Long> productDao,
+                              final int batchSize,
+                              final int threadPoolSize,
+                              final long coalesceDelayMs) {
 
         this.productDao = productDao;
+        this.batchSize = batchSize;
+        this.coalesceDelayMs = coalesceDelayMs;
 
-        reindexQueue = new ArrayBlockingQueue<Long>(queueLength);
-
-        threadPool = Executors.newFixedThreadPool(threadPoolSize);
+        threadPool = Executors.newScheduledThreadPool(threadPoolSize);
 
     }
 
@@ -63,25 +110,117 @@ public class ProductIndexerImpl implements ProductIndexer {
      */
     public void submitIndexTask(final Long productPkValue) {
 
-        final Logger log = ShopCodeContext.getLog(this);
-        try {
-            reindexQueue.put(productPkValue);
-            threadPool.submit(
-                    new Runnable() {
-
-                        public void run() {
-                            try {
-                                productDao.fullTextSearchReindex(reindexQueue.take());
-                            } catch (InterruptedException e) {
-                                log.error("Cant get product pk from queue to reindex", e);
-                            }
-                        }
-                    }
-            );
-        } catch (InterruptedException e) {
-            log.error("Cant put product pk from queue to reindex", e);
+        submittedCount.incrementAndGet();
+        pending.putIfAbsent(productPkValue, System.currentTimeMillis());
+        scheduleDrain();
+
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            threadPool.schedule(new Runnable() {
+                public void run() {
+                    drain();
+                }
+            }, coalesceDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+
+        drainScheduled.set(false);
+
+        final Iterator<Map.Entry<Long, Long>> it = pending.entrySet().iterator();
+        List<Long> batch = new ArrayList<Long>(batchSize);
+        long oldest = Long.MAX_VALUE;
+        while (it.hasNext()) {
+            final Map.Entry<Long, Long> item = it.next();
+            if (pending.remove(item.getKey(), item.getValue())) {
+                batch.add(item.getKey());
+                oldest = Math.min(oldest, item.getValue());
+                if (batch.size() == batchSize) {
+                    submitBatch(batch, oldest);
+                    batch = new ArrayList<Long>(batchSize);
+                    oldest = Long.MAX_VALUE;
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            submitBatch(batch, oldest);
         }
 
     }
 
+    private void submitBatch(final List<Long> batch, final long oldestSubmitted) {
+
+        threadPool.execute(new Runnable() {
+            public void run() {
+                final Logger log = ShopCodeContext.getLog(this);
+                try {
+                    indexedCount.addAndGet(productDao.fullTextSearchReindex(batch));
+                    batchCount.incrementAndGet();
+                    final long lag = System.currentTimeMillis() - oldestSubmitted;
+                    lastIndexingLagMs.set(lag);
+                    long max = maxIndexingLagMs.get();
+                    while (lag > max && !maxIndexingLagMs.compareAndSet(max, lag)) {
+                        max = maxIndexingLagMs.get();
+                    }
+                } catch (Exception exp) {
+                    failedBatchCount.incrementAndGet();
+                    log.error("Cant reindex products " + batch, exp);
+                }
+            }
+        });
+
+    }
+
+    /**
+     * @return number of products awaiting reindex
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * @return number of submitted reindex requests (before coalescing)
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * @return number of reindexed products
+     */
+    public long getIndexedCount() {
+        return indexedCount.get();
+    }
+
+    /**
+     * @return number of successfully indexed batches
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return number of batches that failed
+     */
+    public long getFailedBatchCount() {
+        return failedBatchCount.get();
+    }
+
+    /**
+     * @return time between first submission of oldest product in last batch and completion of that batch
+     */
+    public long getLastIndexingLagMs() {
+        return lastIndexingLagMs.get();
+    }
+
+    /**
+     * @return max observed indexing lag
+     */
+    public long getMaxIndexingLagMs() {
+        return maxIndexingLagMs.get();
+    }
+
 }
@@ -18,7 +18,10 @@ package org.yes.cart.domain.query.impl;
 
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.CollectionUtils;
@@ -57,6 +60,15 @@ public class LuceneQueryFactoryImpl implements LuceneQueryFactory {
     private final SearchQueryBuilder productTagBuilder;
     private final SearchQueryBuilder skuAttributeBuilder;
 
+    private int maxCachedFilters = 1000;
+
+    private final Map<String, Query> structuralQueryCache = new LinkedHashMap<String, Query>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Query> eldest) {
+            return size() > maxCachedFilters;
+        }
+    };
+
     /**
      * Construct query builder factory.
      *
@@ -89,6 +101,16 @@ public class LuceneQueryFactoryImpl implements LuceneQueryFactory {
         this.useQueryRelaxation = useQueryRelaxation;
     }
 
+    /**
+     * Maximum number of shop/category structural filters to keep. Least recently used
+     * filters are discarded first. Default is 1000.
+     *
+     * @param maxCachedFilters max number of cached filters
+     */
+    public void setMaxCachedFilters(final int maxCachedFilters) {
+        this.maxCachedFilters = maxCachedFilters;
+    }
+
     private Query join(final List<Query> allQueries, BooleanClause.Occur with) {
 
         if (CollectionUtils.isEmpty(allQueries)) {
@@ -203,17 +225,9 @@ public class LuceneQueryFactoryImpl implements LuceneQueryFactory {
         final List<Query> skuQueryChainStrict = new ArrayList<Query>();
         final List<Query> skuQueryChainRelaxed = new ArrayList<Query>();
 
-        final Query cats = productCategoryBuilder.createStrictQuery(shopId, ProductSearchQueryBuilder.PRODUCT_CATEGORY_FIELD, categories);
-        if (cats != null) {
-            // Every category belongs to a store, so no need to add store query too
-            productQueryChainStrict.add(cats);
-            productQueryChainRelaxed.add(cats);
-        } else {
-            // If we have no category criteria need to ensure we only view products that belong to current store
-            final Query store = productShopBuilder.createStrictQuery(shopId, ProductSearchQueryBuilder.PRODUCT_SHOP_FIELD, shopId);
-            productQueryChainStrict.add(store);
-            productQueryChainRelaxed.add(store);
-        }
+        final Query structural = getStructuralQuery(shopId, categories);
+        productQueryChainStrict.add(structural);
+        productQueryChainRelaxed.add(structural);
 
         final Map<String, List<String>> navigationParameters = new HashMap<String, List<String>>();
         if (requestParameters != null) {
@@ -308,6 +322,36 @@ public class LuceneQueryFactoryImpl implements LuceneQueryFactory {
         return new NavigationContextImpl(shopId, categories, navigationParameters, prod, sku);
     }
 
+    /*
+     * Shop/category clause is the same for all queries on a given page, so it is turned into constant score
+     * cached filter. CachingWrapperFilter keeps bit sets per index segment (re-cached on deletes), so bit sets
+     * are reused until reindex replaces segments and are never stale.
+     */
+    Query getStructuralQuery(final Long shopId, final List<Long> categories) {
+
+        final String key = shopId + "_" + categories;
+        synchronized (structuralQueryCache) {
+            final Query cached = structuralQueryCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Query structural = productCategoryBuilder.createStrictQuery(shopId, ProductSearchQueryBuilder.PRODUCT_CATEGORY_FIELD, categories);
+        if (structural == null) {
+            // If we have no category criteria need to ensure we only view products that belong to current store
+            structural = productShopBuilder.createStrictQuery(shopId, ProductSearchQueryBuilder.PRODUCT_SHOP_FIELD, shopId);
+        } // else every category belongs to a store, so no need to add store query too
+
+        final Query filtered = new ConstantScoreQuery(
+                new CachingWrapperFilter(new QueryWrapperFilter(structural), CachingWrapperFilter.DeletesMode.RECACHE));
+
+        synchronized (structuralQueryCache) {
+            structuralQueryCache.put(key, filtered);
+        }
+        return filtered;
+    }
+
     private Date earliestNewArrivalDate(final Long shopId, final List<Long> categories) {
         Date beforeDays = new Date();
         if (CollectionUtils.isEmpty(categories)) {
@@ -17,6 +17,9 @@
 package org.yes.cart.domain.query.impl;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
 import org.yes.cart.domain.entity.bridge.SkuPriceBridge;
 import org.yes.cart.domain.misc.Pair;
@@ -35,11 +38,24 @@ public class PriceSearchQueryBuilder extends AbstractSearchQueryBuilderImpl impl
     private final PriceNavigation priceNavigation;
     private final SkuPriceBridge skuPriceBridge = new SkuPriceBridge();
 
+    private boolean includeLegacyPriceFields = false;
+
 
     public PriceSearchQueryBuilder(final PriceNavigation priceNavigation) {
         this.priceNavigation = priceNavigation;
     }
 
+    /**
+     * Migration support for indexes built before prices were indexed as numeric fields. When true price
+     * query also matches legacy zero padded string fields, so that documents not yet reindexed are
+     * still found. Default is false.
+     *
+     * @param includeLegacyPriceFields true to also query legacy string price fields
+     */
+    public void setIncludeLegacyPriceFields(final boolean includeLegacyPriceFields) {
+        this.includeLegacyPriceFields = includeLegacyPriceFields;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -53,11 +69,22 @@ public class PriceSearchQueryBuilder extends AbstractSearchQueryBuilderImpl impl
         final Pair<String, Pair<BigDecimal, BigDecimal>> priceParams =
                 priceNavigation.decomposePriceRequestParams(searchValue);
 
-        final Pair<String, String> from = skuPriceBridge.objectToString(shopId, priceParams.getFirst(), priceParams.getSecond().getFirst());
-        final Pair<String, String> to = skuPriceBridge.objectToString(shopId, priceParams.getFirst(), priceParams.getSecond().getSecond());
+        final Pair<String, Long> from = skuPriceBridge.objectToLong(shopId, priceParams.getFirst(), priceParams.getSecond().getFirst());
+        final Pair<String, Long> to = skuPriceBridge.objectToLong(shopId, priceParams.getFirst(), priceParams.getSecond().getSecond());
 
         // field name for from and to will be the same
-        return createRangeQuery(from.getFirst(), from.getSecond(), to.getSecond());
+        final Query numeric = NumericRangeQuery.newLongRange(from.getFirst(), from.getSecond(), to.getSecond(), true, false);
+        if (!includeLegacyPriceFields) {
+            return numeric;
+        }
+
+        final Pair<String, String> legacyFrom = skuPriceBridge.objectToString(shopId, priceParams.getFirst(), priceParams.getSecond().getFirst());
+        final Pair<String, String> legacyTo = skuPriceBridge.objectToString(shopId, priceParams.getFirst(), priceParams.getSecond().getSecond());
+
+        final BooleanQuery query = new BooleanQuery();
+        query.add(numeric, BooleanClause.Occur.SHOULD);
+        query.add(createRangeQuery(legacyFrom.getFirst(), legacyFrom.getSecond(), legacyTo.getSecond()), BooleanClause.Occur.SHOULD);
+        return query;
     }
 
     /**
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.dao.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.yes.cart.dao.GenericDAO;
+import org.yes.cart.dao.constants.DaoServiceBeanKeys;
+import org.yes.cart.domain.entity.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 11:20 AM
+ */
+public class GenericDAOHibernateImplTest extends AbstractTestDAO {
+
+    private GenericDAO<Product, Long> productDao;
+
+    @Before
+    public void setUp()  {
+        productDao = (GenericDAO<Product, Long>) ctx().getBean(DaoServiceBeanKeys.PRODUCT_DAO);
+        super.setUp();
+    }
+
+    @Test
+    public void testPartitionRangesSingleId() throws Exception {
+
+        final List<long[]> ranges = GenericDAOHibernateImpl.partitionRanges(10L, 10L, 4);
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new long[] { 10L, 10L }, ranges.get(0));
+
+    }
+
+    @Test
+    public void testPartitionRangesLessIdsThanPartitions() throws Exception {
+
+        final List<long[]> ranges = GenericDAOHibernateImpl.partitionRanges(1L, 3L, 4);
+        assertEquals(3, ranges.size());
+        assertArrayEquals(new long[] { 1L, 1L }, ranges.get(0));
+        assertArrayEquals(new long[] { 2L, 2L }, ranges.get(1));
+        assertArrayEquals(new long[] { 3L, 3L }, ranges.get(2));
+
+    }
+
+    @Test
+    public void testPartitionRangesEven() throws Exception {
+
+        final List<long[]> ranges = GenericDAOHibernateImpl.partitionRanges(1L, 100L, 4);
+        assertEquals(4, ranges.size());
+        assertArrayEquals(new long[] { 1L, 25L }, ranges.get(0));
+        assertArrayEquals(new long[] { 26L, 50L }, ranges.get(1));
+        assertArrayEquals(new long[] { 51L, 75L }, ranges.get(2));
+        assertArrayEquals(new long[] { 76L, 100L }, ranges.get(3));
+
+    }
+
+    @Test
+    public void testPartitionRangesSparse() throws Exception {
+
+        // sparse ids, e.g. 10, 11, 500000, 1000007
+        final List<long[]> ranges = GenericDAOHibernateImpl.partitionRanges(10L, 1000007L, 4);
+        assertEquals(4, ranges.size());
+        assertEquals(10L, ranges.get(0)[0]);
+        assertEquals(1000007L, ranges.get(3)[1]);
+        for (int i = 0; i < ranges.size(); i++) {
+            assertTrue(ranges.get(i)[0] <= ranges.get(i)[1]);
+            if (i > 0) {
+                // contiguous and non overlapping, so every id is in exactly one partition
+                assertEquals(ranges.get(i - 1)[1] + 1, ranges.get(i)[0]);
+            }
+        }
+        for (final long id : Arrays.asList(10L, 11L, 500000L, 1000007L)) {
+            int found = 0;
+            for (final long[] range : ranges) {
+                if (range[0] <= id && id <= range[1]) {
+                    found++;
+                }
+            }
+            assertEquals("Id " + id + " must be in one partition", 1, found);
+        }
+
+    }
+
+    @Test
+    public void testRunPartitionsSumsCounts() throws Exception {
+
+        final List<Callable<Integer>> partitions = new ArrayList<Callable<Integer>>();
+        for (int i = 1; i <= 4; i++) {
+            final int count = i;
+            partitions.add(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    return count;
+                }
+            });
+        }
+
+        assertEquals(10, GenericDAOHibernateImpl.runPartitions(partitions));
+
+    }
+
+    @Test
+    public void testRunPartitionsCancelsRemainingPartitionsOnFailure() throws Exception {
+
+        final CountDownLatch slowStarted = new CountDownLatch(1);
+        final AtomicBoolean slowInterrupted = new AtomicBoolean(false);
+        final AtomicBoolean slowFinished = new AtomicBoolean(false);
+
+        final List<Callable<Integer>> partitions = new ArrayList<Callable<Integer>>();
+        partitions.add(new Callable<Integer>() {
+            public Integer call() throws Exception {
+                slowStarted.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+                } catch (InterruptedException ie) {
+                    slowInterrupted.set(true);
+                    throw ie;
+                } finally {
+                    slowFinished.set(true);
+                }
+                return 1;
+            }
+        });
+        partitions.add(new Callable<Integer>() {
+            public Integer call() throws Exception {
+                slowStarted.await();
+                throw new IllegalStateException("partition failed");
+            }
+        });
+
+        final long start = System.currentTimeMillis();
+        try {
+            GenericDAOHibernateImpl.runPartitions(partitions);
+            fail("Failed partition must fail whole reindex");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof IllegalStateException);
+        }
+
+        assertTrue("Slow partition must be interrupted", slowInterrupted.get());
+        assertTrue("Slow partition must finish before failure is rethrown", slowFinished.get());
+        assertTrue(System.currentTimeMillis() - start < TimeUnit.MINUTES.toMillis(1));
+
+    }
+
+    @Test
+    public void testAsyncPartitionedFullReindexFinalCount() throws Exception {
+
+        final int products = getTx().execute(new TransactionCallback<Integer>() {
+            public Integer doInTransaction(final TransactionStatus status) {
+                return productDao.findAll().size();
+            }
+        });
+        assertTrue(products > 0);
+
+        // productDao is configured with 4 partitions, async state polling returns final count and then -1
+        int last = productDao.fullTextSearchReindex(true);
+        int state = last;
+        final long timeout = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2);
+        while (state >= 0) {
+            assertTrue("Reindex did not finish in time", System.currentTimeMillis() < timeout);
+            last = state;
+            Thread.sleep(100L);
+            state = productDao.fullTextSearchReindex(true);
+        }
+
+        assertEquals(products, last);
+
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.dao.impl;
+
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.Version;
+import org.junit.Test;
+import org.yes.cart.domain.misc.Pair;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-12
+ * Time: 10:25 AM
+ */
+public class MultiValueFacetCounterTest {
+
+    @Test
+    public void testCountAcrossSegments() throws Exception {
+
+        final RAMDirectory directory = new RAMDirectory();
+        final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_35, new KeywordAnalyzer()));
+
+        writer.addDocument(doc(new String[] { "small", "medium" }, new String[] { "red" }));      // 0
+        writer.addDocument(doc(new String[] { "medium", "large" }, new String[] { "red", "blue" })); // 1
+        writer.commit(); // first segment
+        writer.addDocument(doc(new String[] { "xxl" }, new String[0]));                            // 2
+        writer.addDocument(doc(new String[] { "small", "xxl" }, new String[] { "blue" }));         // 3
+        writer.commit(); // second segment
+        writer.close();
+
+        final IndexReader reader = IndexReader.open(directory);
+        try {
+
+            assertTrue(reader.getSequentialSubReaders().length > 1);
+
+            final FixedBitSet matching = new FixedBitSet(reader.maxDoc());
+            matching.set(1);
+            matching.set(2);
+            matching.set(3);
+
+            final MultiValueFacetCounter counter = new MultiValueFacetCounter();
+
+            // second run uses cached ordinals and must produce same counts
+            for (int run = 0; run < 2; run++) {
+
+                final Map<String, List<Pair<String, Integer>>> counts =
+                        counter.count(reader, matching, Arrays.asList("facet_SIZE", "facet_COLOR"));
+
+                assertEquals(2, counts.size());
+                assertEquals(asMap(counts.get("facet_SIZE")), new HashMap<String, Integer>() {{
+                    put("small", 1);
+                    put("medium", 1);
+                    put("large", 1);
+                    put("xxl", 2);
+                }});
+                assertEquals(asMap(counts.get("facet_COLOR")), new HashMap<String, Integer>() {{
+                    put("red", 1);
+                    put("blue", 2);
+                }});
+                // most frequent first, ties by term
+                assertEquals(Arrays.asList("xxl", "large", "medium", "small"), terms(counts.get("facet_SIZE")));
+                assertEquals(Arrays.asList("blue", "red"), terms(counts.get("facet_COLOR")));
+            }
+
+        } finally {
+            reader.close();
+        }
+
+    }
+
+    private Document doc(final String[] sizes, final String[] colors) {
+        final Document doc = new Document();
+        for (final String size : sizes) {
+            doc.add(new Field("facet_SIZE", size, Field.Store.NO, Field.Index.NOT_ANALYZED));
+        }
+        for (final String color : colors) {
+            doc.add(new Field("facet_COLOR", color, Field.Store.NO, Field.Index.NOT_ANALYZED));
+        }
+        return doc;
+    }
+
+    private Map<String, Integer> asMap(final List<Pair<String, Integer>> counts) {
+        final Map<String, Integer> map = new HashMap<String, Integer>();
+        for (final Pair<String, Integer> count : counts) {
+            map.put(count.getFirst(), count.getSecond());
+        }
+        return map;
+    }
+
+    private List<String> terms(final List<Pair<String, Integer>> counts) {
+        final List<String> terms = new ArrayList<String>();
+        for (final Pair<String, Integer> count : counts) {
+            terms.add(count.getFirst());
+        }
+        return terms;
+    }
+
+}
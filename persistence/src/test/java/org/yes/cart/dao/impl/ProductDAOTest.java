@@ -17,6 +17,8 @@
 package org.yes.cart.dao.impl;
 
 import org.apache.lucene.search.Query;
+import org.hibernate.SessionFactory;
+import org.hibernate.search.Search;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.transaction.TransactionStatus;
@@ -28,6 +30,8 @@ import org.yes.cart.domain.entity.impl.*;
 import org.yes.cart.domain.query.SearchQueryBuilder;
 import org.yes.cart.domain.query.impl.ProductSkuCodeSearchQueryBuilder;
 
+import java.io.IOException;
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.*;
 
@@ -272,6 +276,78 @@ public class ProductDAOTest extends AbstractTestDAO {
 
     }
 
+    @Test
+    public void testFullReindexInPlaceRemovesDocumentOfRejectedProduct() throws InterruptedException {
+
+        getTx().execute(new TransactionCallbackWithoutResult() {
+            public void doInTransactionWithoutResult(TransactionStatus status) {
+
+                final long pk = createProduct(102L, "LG_REJECTED_PLAYER", "product lg rejected player", 3L, 134L);
+
+                final SearchQueryBuilder queryBuilder = new ProductSkuCodeSearchQueryBuilder();
+                final Query query = queryBuilder.createStrictQuery(0L, null, Arrays.asList("LG_REJECTED_PLAYER"));
+
+                assertEquals("Product must be found . Failed query [" + query + "]", 1, productDao.fullTextSearchCount(query));
+
+                final Product product = productDao.findById(pk);
+                for (final ProductSku sku : product.getSku()) {
+                    for (final SkuWarehouse skuWarehouse : new ArrayList<SkuWarehouse>(sku.getQuantityOnWarehouse())) {
+                        sku.getQuantityOnWarehouse().remove(skuWarehouse);
+                        skuWareHouseDao.delete(skuWarehouse);
+                    }
+                }
+                skuWareHouseDao.flush(); // flush to make changes visible on SKU
+
+                // in place full reindex (no purge), interceptor rejects product since it is out of stock
+                productDao.fullTextSearchReindex(false);
+
+                assertEquals("Failed SKU search [" + query + "] because product is out of stock", 0, productDao.fullTextSearchCount(query));
+
+                status.setRollbackOnly();
+
+            }
+        });
+
+    }
+
+    @Test
+    public void testFullReindexInPlaceKeepsDocumentOfProductCreatedDuringReindex() throws InterruptedException {
+
+        getTx().execute(new TransactionCallbackWithoutResult() {
+            public void doInTransactionWithoutResult(TransactionStatus status) {
+
+                // ids seen by in place full reindex scroll before new product was created
+                final Set<Serializable> indexed = new HashSet<Serializable>();
+                for (final Product product : productDao.findAll()) {
+                    indexed.add(product.getProductId());
+                }
+
+                // product is created (and indexed incrementally) after scroll has passed its id
+                final long pk = createProduct(102L, "LG_LATE_PLAYER", "product lg late player", 3L, 134L);
+                assertFalse(indexed.contains(pk));
+
+                final SearchQueryBuilder queryBuilder = new ProductSkuCodeSearchQueryBuilder();
+                final Query query = queryBuilder.createStrictQuery(0L, null, Arrays.asList("LG_LATE_PLAYER"));
+
+                assertEquals("Product must be found . Failed query [" + query + "]", 1, productDao.fullTextSearchCount(query));
+
+                // end of in place full reindex
+                try {
+                    ((GenericDAOHibernateImpl) productDao).purgeStaleDocuments(
+                            Search.getFullTextSession(((SessionFactory) ctx().getBean("sessionFactory")).getCurrentSession()), indexed);
+                } catch (IOException ioe) {
+                    fail(ioe.getMessage());
+                }
+
+                assertEquals("Product created during reindex must not be purged. Failed query [" + query + "]", 1, productDao.fullTextSearchCount(query));
+
+                status.setRollbackOnly();
+
+            }
+        });
+
+    }
+
     @Test
     public void testCreateNewProductWithPreorderAvailabilityOutOfStock() throws InterruptedException {
 
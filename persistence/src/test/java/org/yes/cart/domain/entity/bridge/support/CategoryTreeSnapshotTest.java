@@ -0,0 +1,125 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.entity.bridge.support;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 3:05 PM
+ */
+public class CategoryTreeSnapshotTest {
+
+    private static final Date NOW = new Date();
+    private static final Date PAST = new Date(NOW.getTime() - 100000L);
+    private static final Date FUTURE = new Date(NOW.getTime() + 100000L);
+
+    /*
+     *  100 (root)
+     *   +- 101
+     *   |   +- 103
+     *   |   +- 104 (available from future)
+     *   |       +- 105
+     *   +- 102 (expired)
+     *       +- 106
+     *
+     *  200 (content root of shop 10, parent 0)
+     *   +- 201
+     */
+    private CategoryTreeSnapshot snapshot() {
+        final List<Object[]> nodes = Arrays.asList(
+                new Object[] { 100L, 100L, null, null },
+                new Object[] { 105L, 104L, null, null },
+                new Object[] { 101L, 100L, PAST, null },
+                new Object[] { 102L, 100L, null, PAST },
+                new Object[] { 103L, 101L, null, FUTURE },
+                new Object[] { 104L, 101L, FUTURE, null },
+                new Object[] { 106L, 102L, null, null },
+                new Object[] { 200L, 0L, null, null },
+                new Object[] { 201L, 200L, null, null }
+        );
+        final List<Object[]> shopCategories = Arrays.asList(
+                new Object[] { 10L, 101L },
+                new Object[] { 10L, 102L },
+                new Object[] { 20L, 104L }
+        );
+        final List<Object[]> contentRoots = Collections.singletonList(
+                new Object[] { 10L, 200L }
+        );
+        return CategoryTreeSnapshot.build(nodes, shopCategories, contentRoots, NOW);
+    }
+
+    @Test
+    public void testIsAncestor() throws Exception {
+
+        final CategoryTreeSnapshot tree = snapshot();
+
+        assertTrue(tree.isAncestor(100L, 105L));
+        assertTrue(tree.isAncestor(101L, 105L));
+        assertTrue(tree.isAncestor(104L, 104L));
+        assertTrue(tree.isAncestor(102L, 106L)); // availability is not considered
+        assertFalse(tree.isAncestor(105L, 101L));
+        assertFalse(tree.isAncestor(102L, 105L));
+        assertFalse(tree.isAncestor(100L, 201L)); // content is separate tree
+        assertFalse(tree.isAncestor(100L, 999L));
+        assertFalse(tree.isAncestor(999L, 999L));
+
+    }
+
+    @Test
+    public void testSubtreeIds() throws Exception {
+
+        final CategoryTreeSnapshot tree = snapshot();
+
+        assertEquals(new HashSet<Long>(Arrays.asList(101L, 103L)), tree.getSubtreeIds(101L));
+        // start node is always included
+        assertEquals(new HashSet<Long>(Arrays.asList(104L, 105L)), tree.getSubtreeIds(104L));
+        assertSame(tree.getSubtreeIds(101L), tree.getSubtreeIds(101L));
+        assertTrue(tree.getSubtreeIds(999L).isEmpty());
+
+    }
+
+    @Test
+    public void testShopIds() throws Exception {
+
+        final CategoryTreeSnapshot tree = snapshot();
+
+        // assigned categories are always included, children only if available
+        assertEquals(new HashSet<Long>(Arrays.asList(101L, 102L, 103L, 106L)), tree.getShopCategoriesIds(10L, true));
+        assertEquals(new HashSet<Long>(Arrays.asList(101L, 102L, 103L, 104L, 105L, 106L)), tree.getShopCategoriesIds(10L, false));
+        assertEquals(new HashSet<Long>(Arrays.asList(200L, 201L)), tree.getShopContentIds(10L));
+        assertEquals(new HashSet<Long>(Arrays.asList(101L, 102L, 103L, 106L, 200L, 201L)), tree.getShopAllCategoriesIds(10L));
+
+        assertEquals(new HashSet<Long>(Arrays.asList(104L, 105L)), tree.getShopCategoriesIds(20L, true));
+        assertTrue(tree.getShopContentIds(20L).isEmpty());
+
+        assertTrue(tree.getShopCategoriesIds(30L, true).isEmpty());
+
+        final CategoryTreeSnapshot.IdSet ids = tree.getShopAllCategoriesIds(10L);
+        assertTrue(ids.contains(201L));
+        assertTrue(ids.contains(Long.valueOf(201L)));
+        assertFalse(ids.contains(104L));
+        assertFalse(ids.contains("201"));
+
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.entityindexer.impl;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Test;
+import org.yes.cart.dao.GenericDAO;
+import org.yes.cart.domain.entity.Product;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 11:48
+ */
+public class ProductIndexerImplTest {
+
+    private static final long WAIT_MS = 5000L;
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testDuplicateSubmissionsAreCoalescedIntoSingleBatch() throws Exception {
+
+        final GenericDAO<Product, Long> productDao = context.mock(GenericDAO.class, "productDao");
+
+        final List<Collection<Long>> batches = Collections.synchronizedList(new ArrayList<Collection<Long>>());
+
+        context.checking(new Expectations() {{
+            one(productDao).fullTextSearchReindex(with(any(Collection.class)));
+            will(capture(batches));
+        }});
+
+        final ProductIndexerImpl indexer = new ProductIndexerImpl(productDao, 10, 1, 200L);
+
+        indexer.submitIndexTask(1L);
+        indexer.submitIndexTask(2L);
+        indexer.submitIndexTask(1L);
+        indexer.submitIndexTask(3L);
+        indexer.submitIndexTask(2L);
+        indexer.submitIndexTask(1L);
+
+        assertEquals(3, indexer.getQueueDepth());
+
+        waitForBatches(indexer, 1L);
+
+        assertEquals(1, batches.size());
+        final Collection<Long> batch = batches.get(0);
+        assertEquals(3, batch.size());
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L, 3L)), new HashSet<Long>(batch));
+
+        assertEquals(6L, indexer.getSubmittedCount());
+        assertEquals(3L, indexer.getIndexedCount());
+        assertEquals(1L, indexer.getBatchCount());
+        assertEquals(0L, indexer.getFailedBatchCount());
+        assertEquals(0, indexer.getQueueDepth());
+        assertTrue(indexer.getMaxIndexingLagMs() >= indexer.getLastIndexingLagMs());
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testPendingProductsAreSplitIntoBatchesOfConfiguredSize() throws Exception {
+
+        final GenericDAO<Product, Long> productDao = context.mock(GenericDAO.class, "productDao");
+
+        final List<Collection<Long>> batches = Collections.synchronizedList(new ArrayList<Collection<Long>>());
+
+        context.checking(new Expectations() {{
+            exactly(3).of(productDao).fullTextSearchReindex(with(any(Collection.class)));
+            will(capture(batches));
+        }});
+
+        final ProductIndexerImpl indexer = new ProductIndexerImpl(productDao, 2, 1, 200L);
+
+        for (long pk = 1L; pk <= 5L; pk++) {
+            indexer.submitIndexTask(pk);
+        }
+
+        waitForBatches(indexer, 3L);
+
+        final Set<Long> indexed = new HashSet<Long>();
+        for (final Collection<Long> batch : batches) {
+            assertTrue(batch.size() <= 2);
+            indexed.addAll(batch);
+        }
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L, 3L, 4L, 5L)), indexed);
+
+        assertEquals(5L, indexer.getSubmittedCount());
+        assertEquals(5L, indexer.getIndexedCount());
+        assertEquals(3L, indexer.getBatchCount());
+        assertEquals(0L, indexer.getFailedBatchCount());
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testFailedBatchIsCounted() throws Exception {
+
+        final GenericDAO<Product, Long> productDao = context.mock(GenericDAO.class, "productDao");
+
+        context.checking(new Expectations() {{
+            one(productDao).fullTextSearchReindex(with(any(Collection.class)));
+            will(throwException(new RuntimeException("index is locked")));
+        }});
+
+        final ProductIndexerImpl indexer = new ProductIndexerImpl(productDao, 10, 1, 200L);
+
+        indexer.submitIndexTask(1L);
+        indexer.submitIndexTask(1L);
+
+        final long until = System.currentTimeMillis() + WAIT_MS;
+        while (indexer.getFailedBatchCount() == 0L && System.currentTimeMillis() < until) {
+            Thread.sleep(20L);
+        }
+
+        assertEquals(2L, indexer.getSubmittedCount());
+        assertEquals(0L, indexer.getIndexedCount());
+        assertEquals(0L, indexer.getBatchCount());
+        assertEquals(1L, indexer.getFailedBatchCount());
+
+        context.assertIsSatisfied();
+
+    }
+
+    private CustomAction capture(final List<Collection<Long>> batches) {
+        return new CustomAction("capture batch") {
+            public Object invoke(final Invocation invocation) throws Throwable {
+                final Collection<Long> batch = new ArrayList<Long>((Collection<Long>) invocation.getParameter(0));
+                batches.add(batch);
+                return batch.size();
+            }
+        };
+    }
+
+    private void waitForBatches(final ProductIndexerImpl indexer, final long expected) throws InterruptedException {
+        final long until = System.currentTimeMillis() + WAIT_MS;
+        while (indexer.getBatchCount() < expected && System.currentTimeMillis() < until) {
+            Thread.sleep(20L);
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.query.impl;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.yes.cart.domain.query.ProductSearchQueryBuilder;
+import org.yes.cart.domain.query.SearchQueryBuilder;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 12:10
+ */
+public class LuceneQueryFactoryImplTest {
+
+    private static final String CATEGORY = ProductSearchQueryBuilder.PRODUCT_CATEGORY_FIELD;
+    private static final String SHOP = ProductSearchQueryBuilder.PRODUCT_SHOP_FIELD;
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testStructuralQueryIsCachedFilter() throws Exception {
+
+        final SearchQueryBuilder categoryBuilder = context.mock(SearchQueryBuilder.class, "category");
+        final SearchQueryBuilder shopBuilder = context.mock(SearchQueryBuilder.class, "shop");
+
+        final List<Long> categories = Arrays.asList(1L, 2L);
+
+        context.checking(new Expectations() {{
+            one(categoryBuilder).createStrictQuery(10L, CATEGORY, categories);
+            will(returnValue(new TermQuery(new Term(CATEGORY, "1"))));
+        }});
+
+        final LuceneQueryFactoryImpl factory = newFactory(categoryBuilder, shopBuilder);
+
+        final Query first = factory.getStructuralQuery(10L, categories);
+        final Query second = factory.getStructuralQuery(10L, Arrays.asList(1L, 2L));
+
+        assertTrue(first instanceof ConstantScoreQuery);
+        assertTrue(((ConstantScoreQuery) first).getFilter() instanceof CachingWrapperFilter);
+        assertSame(first, second);
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testStructuralQueryWithoutCategoriesUsesShopAndIsCached() throws Exception {
+
+        final SearchQueryBuilder categoryBuilder = context.mock(SearchQueryBuilder.class, "category");
+        final SearchQueryBuilder shopBuilder = context.mock(SearchQueryBuilder.class, "shop");
+
+        context.checking(new Expectations() {{
+            one(categoryBuilder).createStrictQuery(10L, CATEGORY, null);
+            will(returnValue(null));
+            one(shopBuilder).createStrictQuery(10L, SHOP, 10L);
+            will(returnValue(new TermQuery(new Term(SHOP, "10"))));
+        }});
+
+        final LuceneQueryFactoryImpl factory = newFactory(categoryBuilder, shopBuilder);
+
+        final Query first = factory.getStructuralQuery(10L, null);
+        final Query second = factory.getStructuralQuery(10L, null);
+
+        assertSame(first, second);
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testStructuralQueryKeyIncludesShopAndCategories() throws Exception {
+
+        final SearchQueryBuilder categoryBuilder = context.mock(SearchQueryBuilder.class, "category");
+        final SearchQueryBuilder shopBuilder = context.mock(SearchQueryBuilder.class, "shop");
+
+        context.checking(new Expectations() {{
+            one(categoryBuilder).createStrictQuery(10L, CATEGORY, Arrays.asList(1L));
+            will(returnValue(new TermQuery(new Term(CATEGORY, "1"))));
+            one(categoryBuilder).createStrictQuery(20L, CATEGORY, Arrays.asList(1L));
+            will(returnValue(new TermQuery(new Term(CATEGORY, "1"))));
+            one(categoryBuilder).createStrictQuery(10L, CATEGORY, Arrays.asList(2L));
+            will(returnValue(new TermQuery(new Term(CATEGORY, "2"))));
+        }});
+
+        final LuceneQueryFactoryImpl factory = newFactory(categoryBuilder, shopBuilder);
+
+        final Query shop10cat1 = factory.getStructuralQuery(10L, Arrays.asList(1L));
+        final Query shop20cat1 = factory.getStructuralQuery(20L, Arrays.asList(1L));
+        final Query shop10cat2 = factory.getStructuralQuery(10L, Arrays.asList(2L));
+
+        assertNotSame(shop10cat1, shop20cat1);
+        assertNotSame(shop10cat1, shop10cat2);
+        assertNotSame(shop20cat1, shop10cat2);
+
+        assertSame(shop10cat1, factory.getStructuralQuery(10L, Arrays.asList(1L)));
+        assertSame(shop20cat1, factory.getStructuralQuery(20L, Arrays.asList(1L)));
+        assertSame(shop10cat2, factory.getStructuralQuery(10L, Arrays.asList(2L)));
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testStructuralQueryCacheEvictsLeastRecentlyUsed() throws Exception {
+
+        final SearchQueryBuilder categoryBuilder = context.mock(SearchQueryBuilder.class, "category");
+        final SearchQueryBuilder shopBuilder = context.mock(SearchQueryBuilder.class, "shop");
+
+        context.checking(new Expectations() {{
+            one(categoryBuilder).createStrictQuery(10L, CATEGORY, Arrays.asList(1L));
+            will(returnValue(new TermQuery(new Term(CATEGORY, "1"))));
+            exactly(2).of(categoryBuilder).createStrictQuery(10L, CATEGORY, Arrays.asList(2L));
+            will(returnValue(new TermQuery(new Term(CATEGORY, "2"))));
+            one(categoryBuilder).createStrictQuery(10L, CATEGORY, Arrays.asList(3L));
+            will(returnValue(new TermQuery(new Term(CATEGORY, "3"))));
+        }});
+
+        final LuceneQueryFactoryImpl factory = newFactory(categoryBuilder, shopBuilder);
+        factory.setMaxCachedFilters(2);
+
+        final Query cat1 = factory.getStructuralQuery(10L, Arrays.asList(1L));
+        final Query cat2 = factory.getStructuralQuery(10L, Arrays.asList(2L));
+        assertSame(cat1, factory.getStructuralQuery(10L, Arrays.asList(1L))); // cat2 is now least recently used
+        factory.getStructuralQuery(10L, Arrays.asList(3L)); // evicts cat2
+
+        assertSame(cat1, factory.getStructuralQuery(10L, Arrays.asList(1L)));
+        assertNotSame(cat2, factory.getStructuralQuery(10L, Arrays.asList(2L))); // rebuilt
+
+        context.assertIsSatisfied();
+
+    }
+
+    private LuceneQueryFactoryImpl newFactory(final SearchQueryBuilder categoryBuilder,
+                                              final SearchQueryBuilder shopBuilder) {
+
+        final Map<String, SearchQueryBuilder> productBuilders = new HashMap<String, SearchQueryBuilder>();
+        productBuilders.put(CATEGORY, categoryBuilder);
+        productBuilders.put(SHOP, shopBuilder);
+
+        return new LuceneQueryFactoryImpl(null, null, null,
+                productBuilders, Collections.<String, SearchQueryBuilder>emptyMap(), Collections.<String>emptySet());
+    }
+
+}
@@ -83,7 +83,7 @@ public class PriceSearchQueryBuilderTest {
 
         final Query query = buider.createStrictQuery(10L, "price", "EUR-_-10-_-20");
         assertNotNull(query);
-        assertEquals("facet_price_10_EUR:[00001000 TO 00002000}", query.toString());
+        assertEquals("facet_nprice_10_EUR:[1000 TO 2000}", query.toString());
 
     }
 
@@ -131,7 +131,31 @@ public class PriceSearchQueryBuilderTest {
 
         final Query query = buider.createRelaxedQuery(10L, "price", "EUR-_-10-_-20");
         assertNotNull(query);
-        assertEquals("facet_price_10_EUR:[00001000 TO 00002000}", query.toString());
+        assertEquals("facet_nprice_10_EUR:[1000 TO 2000}", query.toString());
+
+    }
+
+    @Test
+    public void testCreateStrictQueryWithLegacyFields() throws Exception {
+
+        final PriceNavigation priceNavigation = context.mock(PriceNavigation.class, "priceNavigation");
+
+        final PriceSearchQueryBuilder buider = new PriceSearchQueryBuilder(priceNavigation);
+        buider.setIncludeLegacyPriceFields(true);
+
+        final Pair<String, Pair<BigDecimal, BigDecimal>> priceRange =
+                new Pair<String, Pair<BigDecimal, BigDecimal>>("EUR",
+                        new Pair<BigDecimal, BigDecimal>(
+                                new BigDecimal("10"),
+                                new BigDecimal("20")));
+
+        context.checking(new Expectations() {{
+            one(priceNavigation).decomposePriceRequestParams("EUR-_-10-_-20"); will(returnValue(priceRange));
+        }});
+
+        final Query query = buider.createStrictQuery(10L, "price", "EUR-_-10-_-20");
+        assertNotNull(query);
+        assertEquals("facet_nprice_10_EUR:[1000 TO 2000} facet_price_10_EUR:[00001000 TO 00002000}", query.toString());
 
     }
 }
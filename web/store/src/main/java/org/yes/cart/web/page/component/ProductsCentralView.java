@@ -24,9 +24,11 @@ import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.yes.cart.domain.dto.ProductSearchResultDTO;
 import org.yes.cart.domain.dto.ProductSearchResultPageDTO;
+import org.yes.cart.domain.entity.SkuPrice;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.domain.queryobject.NavigationContext;
 import org.yes.cart.util.ShopCodeContext;
+import org.yes.cart.web.application.ApplicationDirector;
 import org.yes.cart.web.page.component.data.SortableProductDataProvider;
 import org.yes.cart.web.page.component.navigation.ProductPerPageListView;
 import org.yes.cart.web.page.component.navigation.ProductSorter;
@@ -37,7 +39,9 @@ import org.yes.cart.web.support.constants.WebParametersKeys;
 import org.yes.cart.web.support.service.ProductServiceFacade;
 import org.yes.cart.web.util.WicketUtil;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -117,13 +121,17 @@ public class ProductsCentralView extends AbstractCentralView {
             setResponsePage(getPage().getClass(), params);
         }
 
+        final Map<Long, SkuPrice> prices = productServiceFacade.getDefaultSkuPrices(
+                products.getResults(), BigDecimal.ONE, ApplicationDirector.getShoppingCart().getCurrencyCode(), shopId);
+
         final SortableProductDataProvider dataProvider = new SortableProductDataProvider(products);
 
         final GridView<ProductSearchResultDTO> productDataView = new GridView<ProductSearchResultDTO>(PRODUCT_LIST, dataProvider) {
 
             protected void populateItem(Item<ProductSearchResultDTO> productItem) {
                 productItem.add(
-                        new ProductInListView(PRODUCT, productItem.getModelObject(), widthHeight)
+                        new ProductInListView(PRODUCT, productItem.getModelObject(),
+                                prices.get(productItem.getModelObject().getId()), widthHeight)
                 );
             }
 
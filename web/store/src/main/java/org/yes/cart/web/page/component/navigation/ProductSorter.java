@@ -22,7 +22,6 @@ import org.yes.cart.constants.AttributeNamesKeys;
 import org.yes.cart.domain.entity.AttrValue;
 import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.domain.entity.bridge.SkuPriceBridge;
-import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.domain.query.ProductSearchQueryBuilder;
 import org.yes.cart.shoppingcart.ShoppingCart;
 import org.yes.cart.web.application.ApplicationDirector;
@@ -52,8 +51,6 @@ public class ProductSorter extends BaseComponent {
     private static final String PRODUCT_SORT_BY_MANUFACTURER_CODE_ASC = "orderByManCodeA";
     private static final String PRODUCT_SORT_BY_MANUFACTURER_CODE_DESC = "orderByManCodeD";
 
-    private static final SkuPriceBridge SKU_PRICE_BRIDGE = new SkuPriceBridge();
-
     /**
      * Construct product sorter.
      * @param id component id.
@@ -72,7 +69,7 @@ public class ProductSorter extends BaseComponent {
 
         final boolean isManufacturerCode = useManufactureCode();
 
-        final Pair<String, String> priceSort = SKU_PRICE_BRIDGE.objectToString(cart.getShoppingContext().getShopId(), cart.getCurrencyCode(), null);
+        final String priceSort = SkuPriceBridge.getFieldName(cart.getShoppingContext().getShopId(), cart.getCurrencyCode());
 
         add(getSortLink(PRODUCT_SORT_BY_NAME_ASC, WebParametersKeys.SORT, ProductSearchQueryBuilder.PRODUCT_NAME_SORT_FIELD));
         add(getSortLink(PRODUCT_SORT_BY_NAME_DESC, WebParametersKeys.SORT_REVERSE, ProductSearchQueryBuilder.PRODUCT_NAME_SORT_FIELD));
@@ -80,8 +77,8 @@ public class ProductSorter extends BaseComponent {
         add(getSortLink(PRODUCT_SORT_BY_CODE_DESC, WebParametersKeys.SORT_REVERSE, ProductSearchQueryBuilder.PRODUCT_CODE_FIELD).setVisible(!isManufacturerCode));
         add(getSortLink(PRODUCT_SORT_BY_MANUFACTURER_CODE_ASC, WebParametersKeys.SORT, ProductSearchQueryBuilder.PRODUCT_MANUFACTURER_CODE_FIELD).setVisible(isManufacturerCode));
         add(getSortLink(PRODUCT_SORT_BY_MANUFACTURER_CODE_DESC, WebParametersKeys.SORT_REVERSE, ProductSearchQueryBuilder.PRODUCT_MANUFACTURER_CODE_FIELD).setVisible(isManufacturerCode));
-        add(getSortLink(PRODUCT_SORT_BY_PRICE_ASC, WebParametersKeys.SORT, priceSort.getFirst()));
-        add(getSortLink(PRODUCT_SORT_BY_PRICE_DESC, WebParametersKeys.SORT_REVERSE, priceSort.getFirst()));
+        add(getSortLink(PRODUCT_SORT_BY_PRICE_ASC, WebParametersKeys.SORT, priceSort));
+        add(getSortLink(PRODUCT_SORT_BY_PRICE_DESC, WebParametersKeys.SORT_REVERSE, priceSort));
 
 
         super.onBeforeRender();
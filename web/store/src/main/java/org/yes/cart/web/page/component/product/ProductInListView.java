@@ -45,8 +45,6 @@ import org.yes.cart.web.support.service.AttributableImageService;
 import org.yes.cart.web.support.service.ProductServiceFacade;
 import org.yes.cart.web.util.WicketUtil;
 
-import java.math.BigDecimal;
-
 /**
  * User: Igor Azarny iazarny@yahoo.com
  * Date: 8/8/11
@@ -71,6 +69,7 @@ public class ProductInListView extends BaseComponent {
 
     private final ProductSearchResultDTO product;
     private final ProductSkuSearchResultDTO sku;
+    private final SkuPrice price;
 
     @SpringBean(name = StorefrontServiceSpringKeys.PRODUCT_IMAGE_SERVICE)
     private AttributableImageService attributableImageService;
@@ -86,11 +85,16 @@ public class ProductInListView extends BaseComponent {
      *
      * @param id         view id
      * @param product    product model
+     * @param price      active default SKU price (resolved in bulk for all products in list)
      * @param defImgSize image size in given category
      */
-    public ProductInListView(final String id, final ProductSearchResultDTO product, final Pair<String, String> defImgSize) {
+    public ProductInListView(final String id,
+                             final ProductSearchResultDTO product,
+                             final SkuPrice price,
+                             final Pair<String, String> defImgSize) {
         super(id);
         this.product = product;
+        this.price = price;
         this.sku = resolveDefaultSku(product);
         this.defImgSize = defImgSize;
     }
@@ -171,7 +175,7 @@ public class ProductInListView extends BaseComponent {
         );
 
         add(
-                new PriceView(PRICE_VIEW, new Model<SkuPrice>(getSkuPrice(skuPam.getDefaultSkuCode())), true, true)
+                new PriceView(PRICE_VIEW, new Model<SkuPrice>(price), true, true)
         );
 
 
@@ -192,23 +196,6 @@ public class ProductInListView extends BaseComponent {
     }
 
 
-    /**
-     * Get product or his sku price.
-     * In case of multisku product the minimal regular price from multiple sku was used for single item.
-     *
-     * @param firstAvailableSkuCode first available sku code.
-     * @return {@link org.yes.cart.domain.entity.SkuPrice}
-     */
-    private SkuPrice getSkuPrice(final String firstAvailableSkuCode) {
-        return productServiceFacade.getSkuPrice(
-                null,
-                firstAvailableSkuCode,
-                BigDecimal.ONE,
-                ApplicationDirector.getShoppingCart().getCurrencyCode(),
-                ApplicationDirector.getCurrentShop().getShopId()
-        );
-    }
-
     private String getDefaultImage(final String width, final String height, final String lang) {
 
         final Logger log = ShopCodeContext.getLog(this);
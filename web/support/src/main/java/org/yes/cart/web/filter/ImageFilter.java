@@ -16,7 +16,6 @@
 
 package org.yes.cart.web.filter;
 
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.yes.cart.constants.Constants;
 import org.yes.cart.service.domain.ImageService;
@@ -34,6 +33,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Calendar;
 import java.util.Date;
 
@@ -49,8 +53,9 @@ import java.util.Date;
  * resized
  * repository_folder/widthxheight/c/code/seo_name_code_[a-z]
  * <p/>
- * No need to use nio, becuse images will be cached
- * on apache or ngnix
+ * Images are streamed to the client without loading them into memory. Images
+ * from file system repository are transferred directly from file channel with
+ * Content-Length and support single byte range requests (Range header).
  * <p/>
  * User: Igor Azarny iazarny@yahoo.com
  * Date: 2011-May-17
@@ -66,6 +71,18 @@ public class ImageFilter extends AbstractFilter implements Filter {
 
     private static final String LAST_MODIFIED = "Last-Modified";
 
+    private static final String RANGE = "Range";
+
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    private static final String BYTES = "bytes";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
     private final MimetypesFileTypeMap fileTypeMap;
 
     private final ImageService imageService;
@@ -177,10 +194,123 @@ public class ImageFilter extends AbstractFilter implements Filter {
                                 imageNameStrategy.resolveRelativeInternalFileNamePath(originalFileName, code, locale, width, height);
             }
 
-            final byte[] imageFile = getImageFile(absolutePathToOriginal, absolutePathToResized, width, height);
-            IOUtils.write(imageFile, httpServletResponse.getOutputStream());
+            final ReadableByteChannel image = getImageFile(absolutePathToOriginal, absolutePathToResized, width, height);
+            try {
+                if (image instanceof FileChannel) {
+                    writeFile(httpServletRequest, httpServletResponse, (FileChannel) image);
+                } else {
+                    writeStream(httpServletResponse, image);
+                }
+            } finally {
+                image.close();
+            }
+
+        }
+    }
+
+    private void writeFile(final HttpServletRequest httpServletRequest,
+                           final HttpServletResponse httpServletResponse,
+                           final FileChannel image) throws IOException {
+
+        final long size = image.size();
+        long start = 0L;
+        long end = size - 1;
+
+        httpServletResponse.setHeader(ACCEPT_RANGES, BYTES);
+
+        final long[] range = getRange(httpServletRequest.getHeader(RANGE), size);
+        if (range == UNSATISFIABLE) {
+            httpServletResponse.setHeader(CONTENT_RANGE, BYTES + " */" + size);
+            httpServletResponse.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        } else if (range != null) {
+            start = range[0];
+            end = range[1];
+            httpServletResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            httpServletResponse.setHeader(CONTENT_RANGE, BYTES + " " + start + "-" + end + "/" + size);
+        }
+
+        long position = start;
+        long remaining = end - start + 1;
+        httpServletResponse.setHeader(CONTENT_LENGTH, String.valueOf(remaining));
+
+        // output channel is not closed as output stream belongs to container
+        final WritableByteChannel out = Channels.newChannel(httpServletResponse.getOutputStream());
+        while (remaining > 0) {
+            final long transferred = image.transferTo(position, remaining, out);
+            if (transferred <= 0) {
+                break; // file was truncated while we were sending it
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+
+    }
+
+    private void writeStream(final HttpServletResponse httpServletResponse,
+                             final ReadableByteChannel image) throws IOException {
+
+        final WritableByteChannel out = Channels.newChannel(httpServletResponse.getOutputStream());
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (image.read(buffer) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+    }
+
+    /**
+     * Resolve single byte range from Range header value. Multiple ranges are not supported,
+     * in which case whole content is sent (as allowed by RFC 2616).
+     *
+     * @param range Range header value
+     * @param size  size of the content
+     *
+     * @return null if whole content should be sent, {@link #UNSATISFIABLE} if range cannot
+     *         be satisfied or {start, end} inclusive positions
+     */
+    static long[] getRange(final String range, final long size) {
+
+        if (range == null || !range.startsWith(BYTES + "=") || range.indexOf(',') != -1) {
+            return null;
+        }
+
+        final String spec = range.substring(BYTES.length() + 1).trim();
+        final int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+
+        try {
+            if (dash == 0) {
+                // suffix range, i.e. last N bytes
+                final long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new long[] { Math.max(0L, size - suffix), size - 1 };
+            }
+
+            final long start = Long.parseLong(spec.substring(0, dash));
+            if (start >= size) {
+                return UNSATISFIABLE;
+            }
+            if (dash == spec.length() - 1) {
+                return new long[] { start, size - 1 };
+            }
+            final long end = Long.parseLong(spec.substring(dash + 1));
+            if (end < start) {
+                return null; // invalid range is ignored
+            }
+            return new long[] { start, Math.min(end, size - 1) };
 
+        } catch (NumberFormatException nfe) {
+            return null;
         }
+
     }
 
     private String getImageRepositoryRoot() {
@@ -225,12 +355,12 @@ public class ImageFilter extends AbstractFilter implements Filter {
         //do nothing
     }
 
-    byte[] getImageFile(final String absolutePathToOriginal,
-                        final String absolutePathToResized,
-                        final String width,
-                        final String height) throws IOException {
+    ReadableByteChannel getImageFile(final String absolutePathToOriginal,
+                                     final String absolutePathToResized,
+                                     final String width,
+                                     final String height) throws IOException {
 
-        return imageService.resizeImage(absolutePathToOriginal, absolutePathToResized, width, height);
+        return imageService.openImage(absolutePathToOriginal, absolutePathToResized, width, height);
 
     }
 
@@ -23,6 +23,7 @@ import org.yes.cart.constants.Constants;
 import org.yes.cart.domain.entity.Category;
 import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.domain.entity.bridge.BigDecimalBridge;
+import org.yes.cart.domain.entity.bridge.SkuPriceBridge;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.domain.misc.navigation.price.PriceTierTree;
 import org.yes.cart.domain.query.LuceneQueryFactory;
@@ -105,7 +106,7 @@ public class PriceFilteredNavigationSupportImpl extends AbstractFilteredNavigati
                     currency,
                     shop);
 
-            final String priceFacet = "facet_price_" + navigationContext.getShopId() + "_" + currency;
+            final String priceFacet = SkuPriceBridge.getFieldName(navigationContext.getShopId(), currency);
             final List<Pair<String, String>> rangeValues = new ArrayList<Pair<String, String>>();
             for (FilteredNavigationRecord record : allNavigationRecords) {
 
@@ -113,8 +114,8 @@ public class PriceFilteredNavigationSupportImpl extends AbstractFilteredNavigati
                     priceNavigation.decomposePriceRequestParams(record.getValue());
 
                 rangeValues.add(new Pair<String, String>(
-                        moneyBridge.objectToString(range.getSecond().getFirst()),
-                        moneyBridge.objectToString(range.getSecond().getSecond())
+                        String.valueOf(moneyBridge.objectToLong(range.getSecond().getFirst())),
+                        String.valueOf(moneyBridge.objectToLong(range.getSecond().getSecond()))
                 ));
             }
             final FilteredNavigationRecordRequest request = new FilteredNavigationRecordRequestImpl("priceFacet", priceFacet, rangeValues);
@@ -98,6 +98,14 @@ public class BackdoorServiceImpl implements BackdoorService {
         warmUpService.warmUp();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReady() {
+        return warmUpService.isReady();
+    }
+
     Boolean isLuceneIndexDisabled() {
         return Boolean.TRUE.toString().equals(nodeService.getConfiguration().get(NodeService.LUCENE_INDEX_DISABLED));
     }
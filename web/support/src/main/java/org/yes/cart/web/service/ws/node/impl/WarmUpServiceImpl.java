@@ -16,19 +16,30 @@
 
 package org.yes.cart.web.service.ws.node.impl;
 
-import org.yes.cart.domain.entity.Country;
-import org.yes.cart.domain.entity.ProductType;
-import org.yes.cart.domain.entity.Promotion;
-import org.yes.cart.domain.entity.Shop;
+import org.slf4j.Logger;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.yes.cart.domain.entity.*;
+import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.promotion.PromotionConditionParser;
 import org.yes.cart.service.domain.*;
 import org.yes.cart.service.misc.LanguageService;
+import org.yes.cart.util.ShopCodeContext;
 import org.yes.cart.web.service.ws.node.WarmUpService;
 import org.yes.cart.web.support.service.AddressBookFacade;
+import org.yes.cart.web.support.service.CategoryServiceFacade;
+import org.yes.cart.web.support.service.TrafficKeyRecorder;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
+ * Besides static data (shops, product types, addresses, promotions) warm up replays keys that
+ * are hot on the live storefront: top sellers of each shop, most viewed categories and most
+ * frequent search pages. Hot keys are loaded in parallel by warm up executor, which must be
+ * bounded so that warm up does not starve the database.
+ *
  * User: denispavlov
  * Date: 13-10-17
  * Time: 7:01 PM
@@ -48,6 +59,18 @@ public class WarmUpServiceImpl implements WarmUpService {
     private final PromotionService promotionService;
     private final PromotionConditionParser promotionConditionParser;
 
+    private final ShopTopSellerService shopTopSellerService;
+    private final CategoryServiceFacade categoryServiceFacade;
+    private final PriceService priceService;
+    private final TrafficKeyRecorder trafficKeyRecorder;
+    private final AsyncTaskExecutor warmUpExecutor;
+
+    private int topSellersLimit = 100;
+    private int topCategoriesLimit = 100;
+    private int topSearchesLimit = 100;
+
+    private volatile boolean ready = false;
+
     public WarmUpServiceImpl(final LanguageService languageService,
                              final ProductTypeService productTypeService,
                              final ProductTypeAttrService productTypeAttrService,
@@ -55,7 +78,12 @@ public class WarmUpServiceImpl implements WarmUpService {
                              final ShopService shopService,
                              final AddressBookFacade addressBookFacade,
                              final PromotionService promotionService,
-                             final PromotionConditionParser promotionConditionParser) {
+                             final PromotionConditionParser promotionConditionParser,
+                             final ShopTopSellerService shopTopSellerService,
+                             final CategoryServiceFacade categoryServiceFacade,
+                             final PriceService priceService,
+                             final TrafficKeyRecorder trafficKeyRecorder,
+                             final AsyncTaskExecutor warmUpExecutor) {
         this.languageService = languageService;
         this.productTypeService = productTypeService;
         this.productTypeAttrService = productTypeAttrService;
@@ -64,15 +92,124 @@ public class WarmUpServiceImpl implements WarmUpService {
         this.addressBookFacade = addressBookFacade;
         this.promotionService = promotionService;
         this.promotionConditionParser = promotionConditionParser;
+        this.shopTopSellerService = shopTopSellerService;
+        this.categoryServiceFacade = categoryServiceFacade;
+        this.priceService = priceService;
+        this.trafficKeyRecorder = trafficKeyRecorder;
+        this.warmUpExecutor = warmUpExecutor;
+    }
+
+    /**
+     * Start warm up in background, so that node start up is not blocked. Node
+     * reports that it is ready once warm up has finished.
+     */
+    public void init() {
+        final Thread warmUp = new Thread(new Runnable() {
+            public void run() {
+                warmUp();
+            }
+        }, "WarmUp");
+        warmUp.setDaemon(true);
+        warmUp.start();
     }
 
     /** {@inheritDoc} */
     @Override
     public void warmUp() {
-        loadShopData();
-        loadProductData();
-        loadAddressData();
-        loadPromotionConditions();
+        final Logger log = ShopCodeContext.getLog(this);
+        final long start = System.currentTimeMillis();
+        try {
+            loadShopData();
+            loadProductData();
+            loadAddressData();
+            loadPromotionConditions();
+            loadHotData();
+            log.info("Warm up finished in {}ms", System.currentTimeMillis() - start);
+        } catch (Exception exp) {
+            log.error("Warm up failed: " + exp.getMessage(), exp);
+        } finally {
+            ready = true;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void loadHotData() throws Exception {
+
+        final List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+        for (final Shop shop : shopService.getAll()) {
+            final long shopId = shop.getShopId();
+            final List<String> currencies = shop.getSupportedCurrenciesAsList();
+            // Top level menu
+            tasks.add(warmUpExecutor.submit(new Runnable() {
+                public void run() {
+                    categoryServiceFacade.getCurrentCategoryMenu(0L, shopId);
+                }
+            }));
+            for (final Long productId : shopTopSellerService.getTopSellerProductIds(shopId, topSellersLimit)) {
+                tasks.add(warmUpExecutor.submit(new Runnable() {
+                    public void run() {
+                        loadProduct(productId, shopId, currencies);
+                    }
+                }));
+            }
+        }
+
+        for (final Pair<Long, Long> category : trafficKeyRecorder.getTopCategories(topCategoriesLimit)) {
+            tasks.add(warmUpExecutor.submit(new Runnable() {
+                public void run() {
+                    loadCategory(category.getFirst(), category.getSecond());
+                }
+            }));
+        }
+
+        for (final TrafficKeyRecorder.SearchKey search : trafficKeyRecorder.getTopSearches(topSearchesLimit)) {
+            tasks.add(warmUpExecutor.submit(new Runnable() {
+                public void run() {
+                    productService.getProductSearchResultDTOByQuery(search.getQuery(),
+                            search.getFirstResult(), search.getMaxResults(),
+                            search.getSortFieldName(), search.isDescendingSort());
+                }
+            }));
+        }
+
+        int failed = 0;
+        for (final Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (Exception exp) {
+                // single stale key (e.g. removed product) must not fail whole warm up
+                failed++;
+            }
+        }
+        ShopCodeContext.getLog(this).info("Warmed up {} hot keys, {} failed", tasks.size(), failed);
+
+    }
+
+    private void loadProduct(final long productId, final long shopId, final List<String> currencies) {
+        // Same keys as used by product page and product lists
+        final Product product = productService.getProductById(productId, true);
+        if (product != null) {
+            for (final ProductSku sku : product.getSku()) {
+                for (final String currency : currencies) {
+                    priceService.getMinimalPrice(null, sku.getCode(), shopId, currency, BigDecimal.ONE);
+                    priceService.getAllCurrentPrices(productId, sku.getCode(), shopId, currency);
+                }
+            }
+        }
+    }
+
+    private void loadCategory(final long categoryId, final long shopId) {
+        // Same keys as used by category page
+        categoryServiceFacade.getCurrentCategoryMenu(categoryId, shopId);
+        categoryServiceFacade.getSearchCategoriesIds(categoryId, shopId);
+        categoryServiceFacade.getNewArrivalListSizeConfig(categoryId, shopId);
+        categoryServiceFacade.getItemsPerPageOptionsConfig(categoryId, shopId);
     }
 
     private void loadPromotionConditions() {
@@ -129,4 +266,25 @@ public class WarmUpServiceImpl implements WarmUpService {
             shopService.getShopAllCategoriesIds(cachedShop.getShopId());
         }
     }
+
+    /**
+     * @param topSellersLimit number of top sellers per shop to warm up
+     */
+    public void setTopSellersLimit(final int topSellersLimit) {
+        this.topSellersLimit = topSellersLimit;
+    }
+
+    /**
+     * @param topCategoriesLimit number of most viewed categories to warm up
+     */
+    public void setTopCategoriesLimit(final int topCategoriesLimit) {
+        this.topCategoriesLimit = topCategoriesLimit;
+    }
+
+    /**
+     * @param topSearchesLimit number of most frequent searches to warm up
+     */
+    public void setTopSearchesLimit(final int topSearchesLimit) {
+        this.topSearchesLimit = topSearchesLimit;
+    }
 }
@@ -231,6 +231,18 @@ public interface ProductServiceFacade {
      */
     SkuPrice getSkuPrice(final Long productId, final String skuCode, final BigDecimal quantity, String currency, long shopId);
 
+    /**
+     * Get currently active default SKU prices for all products in list (e.g. product listing page).
+     *
+     * @param products  products
+     * @param quantity  quantity tier
+     * @param currency  currency
+     * @param shopId    current shop
+     *
+     * @return map of product id to active default SKU price (or blank object)
+     */
+    Map<Long, SkuPrice> getDefaultSkuPrices(final List<ProductSearchResultDTO> products, final BigDecimal quantity, String currency, long shopId);
+
     /**
      * Get prices for all SKU quantity tiers.
      *
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.web.support.service;
+
+import org.apache.lucene.search.Query;
+import org.yes.cart.domain.misc.Pair;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Records keys of the most frequently requested storefront data (categories and search pages),
+ * so that a node can replay them to warm up its caches before it starts serving traffic.
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 10:05 AM
+ */
+public interface TrafficKeyRecorder {
+
+    /**
+     * Record category view.
+     *
+     * @param categoryId category PK
+     * @param shopId     shop PK
+     */
+    void recordCategory(long categoryId, long shopId);
+
+    /**
+     * Record product search (i.e. category listing, filtered navigation or search page).
+     *
+     * @param query          product query
+     * @param firstResult    first result
+     * @param maxResults     page size
+     * @param sortFieldName  sort field (optional)
+     * @param descendingSort sort direction
+     */
+    void recordSearch(Query query, int firstResult, int maxResults, String sortFieldName, boolean descendingSort);
+
+    /**
+     * @param limit max number of keys
+     *
+     * @return most viewed categories as category PK - shop PK pairs, most viewed first
+     */
+    List<Pair<Long, Long>> getTopCategories(int limit);
+
+    /**
+     * @param limit max number of keys
+     *
+     * @return most frequent searches, most frequent first
+     */
+    List<SearchKey> getTopSearches(int limit);
+
+    /**
+     * Arguments of a single product search request.
+     */
+    final class SearchKey implements Serializable {
+
+        private static final long serialVersionUID = 20140615L;
+
+        private final Query query;
+        private final int firstResult;
+        private final int maxResults;
+        private final String sortFieldName;
+        private final boolean descendingSort;
+
+        public SearchKey(final Query query,
+                         final int firstResult,
+                         final int maxResults,
+                         final String sortFieldName,
+                         final boolean descendingSort) {
+            this.query = query;
+            this.firstResult = firstResult;
+            this.maxResults = maxResults;
+            this.sortFieldName = sortFieldName;
+            this.descendingSort = descendingSort;
+        }
+
+        public Query getQuery() {
+            return query;
+        }
+
+        public int getFirstResult() {
+            return firstResult;
+        }
+
+        public int getMaxResults() {
+            return maxResults;
+        }
+
+        public String getSortFieldName() {
+            return sortFieldName;
+        }
+
+        public boolean isDescendingSort() {
+            return descendingSort;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final SearchKey searchKey = (SearchKey) o;
+
+            if (descendingSort != searchKey.descendingSort) return false;
+            if (firstResult != searchKey.firstResult) return false;
+            if (maxResults != searchKey.maxResults) return false;
+            if (!query.equals(searchKey.query)) return false;
+            if (sortFieldName != null ? !sortFieldName.equals(searchKey.sortFieldName) : searchKey.sortFieldName != null)
+                return false;
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = query.hashCode();
+            result = 31 * result + firstResult;
+            result = 31 * result + maxResults;
+            result = 31 * result + (sortFieldName != null ? sortFieldName.hashCode() : 0);
+            result = 31 * result + (descendingSort ? 1 : 0);
+            return result;
+        }
+    }
+
+}
@@ -29,6 +29,7 @@ import org.yes.cart.service.domain.CategoryService;
 import org.yes.cart.service.domain.ShopService;
 import org.yes.cart.web.support.constants.CentralViewLabel;
 import org.yes.cart.web.support.service.CategoryServiceFacade;
+import org.yes.cart.web.support.service.TrafficKeyRecorder;
 
 import java.util.*;
 
@@ -41,10 +42,14 @@ public class CategoryServiceFacadeImpl implements CategoryServiceFacade {
 
     private final CategoryService categoryService;
     private final ShopService shopService;
+    private final TrafficKeyRecorder trafficKeyRecorder;
 
-    public CategoryServiceFacadeImpl(final CategoryService categoryService, final ShopService shopService) {
+    public CategoryServiceFacadeImpl(final CategoryService categoryService,
+                                     final ShopService shopService,
+                                     final TrafficKeyRecorder trafficKeyRecorder) {
         this.categoryService = categoryService;
         this.shopService = shopService;
+        this.trafficKeyRecorder = trafficKeyRecorder;
     }
 
     /**
@@ -52,6 +57,7 @@ public class CategoryServiceFacadeImpl implements CategoryServiceFacade {
      */
     public Category getCategory(final long categoryId, final long shopId) {
         if (categoryId > 0L && shopService.getShopCategoriesIds(shopId).contains(categoryId)) {
+            trafficKeyRecorder.recordCategory(categoryId, shopId);
             return categoryService.getById(categoryId);
         }
         return null;
@@ -29,6 +29,7 @@ import org.yes.cart.domain.query.ProductSearchQueryBuilder;
 import org.yes.cart.service.domain.*;
 import org.yes.cart.web.support.service.CategoryServiceFacade;
 import org.yes.cart.web.support.service.ProductServiceFacade;
+import org.yes.cart.web.support.service.TrafficKeyRecorder;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -48,6 +49,7 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
     private final ProductQuantityStrategy productQuantityStrategy;
     private final PriceService priceService;
     private final CategoryServiceFacade categoryServiceFacade;
+    private final TrafficKeyRecorder trafficKeyRecorder;
 
     public ProductServiceFacadeImpl(final ProductService productService,
                                     final ProductSkuService productSkuService,
@@ -56,7 +58,8 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
                                     final ProductAvailabilityStrategy productAvailabilityStrategy,
                                     final ProductQuantityStrategy productQuantityStrategy,
                                     final PriceService priceService,
-                                    final CategoryServiceFacade categoryServiceFacade) {
+                                    final CategoryServiceFacade categoryServiceFacade,
+                                    final TrafficKeyRecorder trafficKeyRecorder) {
         this.productService = productService;
         this.productSkuService = productSkuService;
         this.productAssociationService = productAssociationService;
@@ -65,6 +68,7 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
         this.productQuantityStrategy = productQuantityStrategy;
         this.priceService = priceService;
         this.categoryServiceFacade = categoryServiceFacade;
+        this.trafficKeyRecorder = trafficKeyRecorder;
     }
 
     /**
@@ -212,6 +216,8 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
                                                       final String sortFieldName,
                                                       final boolean descendingSort) {
 
+        trafficKeyRecorder.recordSearch(context.getProductQuery(), firstResult, maxResults, sortFieldName, descendingSort);
+
         final ProductSearchResultPageDTO result = productService.getProductSearchResultDTOByQuery(
                 context.getProductQuery(), firstResult, maxResults, sortFieldName, descendingSort
         ).copy(); // MUST BE COPY for each search as we are setting relevant SKU list
@@ -306,6 +312,20 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
         return priceService.getMinimalPrice(productId, skuCode, shopId, currency, quantity);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Map<Long, SkuPrice> getDefaultSkuPrices(final List<ProductSearchResultDTO> products,
+                                                   final BigDecimal quantity,
+                                                   final String currency,
+                                                   final long shopId) {
+        final Map<Long, String> productSkus = new HashMap<Long, String>(products.size() * 2);
+        for (final ProductSearchResultDTO product : products) {
+            productSkus.put(product.getId(), product.getDefaultSkuCode());
+        }
+        return priceService.getMinimalPrices(productSkus, shopId, currency, quantity);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.web.support.service.impl;
+
+import org.apache.lucene.search.Query;
+import org.slf4j.Logger;
+import org.yes.cart.domain.misc.Pair;
+import org.yes.cart.util.ShopCodeContext;
+import org.yes.cart.web.service.ws.node.NodeService;
+import org.yes.cart.web.support.service.TrafficKeyRecorder;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory frequency counter of storefront keys.
+ *
+ * Number of tracked keys of each kind is bounded. Once limit is reached least frequent half of
+ * the keys is dropped and counters of the remaining keys are reduced by the counter of the most
+ * frequent dropped key (as in Misra-Gries frequent items), so that keys that became popular
+ * recently can overtake the old ones while truly hot keys always survive.
+ *
+ * Counters can be saved to a snapshot file on shutdown and loaded on startup, so that a node that
+ * is restarted after deploy can warm up with keys that were hot before the restart. Unless explicit
+ * snapshot file is set, file name is derived from node id, so that several nodes can share same
+ * snapshot directory.
+ *
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 10:20 AM
+ */
+public class TrafficKeyRecorderImpl implements TrafficKeyRecorder {
+
+    private final int maxKeys;
+
+    private final ConcurrentMap<Pair<Long, Long>, AtomicLong> categories = new ConcurrentHashMap<Pair<Long, Long>, AtomicLong>();
+    private final ConcurrentMap<SearchKey, AtomicLong> searches = new ConcurrentHashMap<SearchKey, AtomicLong>();
+
+    private String snapshotFile;
+    private String snapshotDirectory;
+    private NodeService nodeService;
+
+    /**
+     * @param maxKeys max number of tracked keys of each kind
+     */
+    public TrafficKeyRecorderImpl(final int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /** {@inheritDoc} */
+    public void recordCategory(final long categoryId, final long shopId) {
+        record(categories, new Pair<Long, Long>(categoryId, shopId));
+    }
+
+    /** {@inheritDoc} */
+    public void recordSearch(final Query query,
+                             final int firstResult,
+                             final int maxResults,
+                             final String sortFieldName,
+                             final boolean descendingSort) {
+        if (query != null) {
+            record(searches, new SearchKey(query, firstResult, maxResults, sortFieldName, descendingSort));
+        }
+    }
+
+    /** {@inheritDoc} */
+    public List<Pair<Long, Long>> getTopCategories(final int limit) {
+        return top(categories, limit);
+    }
+
+    /** {@inheritDoc} */
+    public List<SearchKey> getTopSearches(final int limit) {
+        return top(searches, limit);
+    }
+
+    private <K> void record(final ConcurrentMap<K, AtomicLong> counters, final K key) {
+        AtomicLong counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() >= maxKeys) {
+                prune(counters);
+            }
+            final AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent(key, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    private <K> void prune(final ConcurrentMap<K, AtomicLong> counters) {
+        synchronized (counters) {
+            if (counters.size() < maxKeys) {
+                return; // pruned by other thread
+            }
+            final List<Map.Entry<K, Long>> sorted = sorted(counters);
+            final int keep = maxKeys / 2;
+            final long threshold = sorted.size() > keep ? sorted.get(keep).getValue() : 0L;
+            for (int i = 0; i < sorted.size(); i++) {
+                final K key = sorted.get(i).getKey();
+                if (i < keep) {
+                    final AtomicLong counter = counters.get(key);
+                    if (counter != null) {
+                        counter.addAndGet(-threshold);
+                    }
+                } else {
+                    counters.remove(key);
+                }
+            }
+        }
+    }
+
+    private <K> List<K> top(final ConcurrentMap<K, AtomicLong> counters, final int limit) {
+        final List<Map.Entry<K, Long>> sorted = sorted(counters);
+        final List<K> top = new ArrayList<K>(Math.min(limit, sorted.size()));
+        for (final Map.Entry<K, Long> entry : sorted) {
+            if (top.size() >= limit) {
+                break;
+            }
+            top.add(entry.getKey());
+        }
+        return top;
+    }
+
+    private <K> List<Map.Entry<K, Long>> sorted(final ConcurrentMap<K, AtomicLong> counters) {
+        final List<Map.Entry<K, Long>> snapshot = new ArrayList<Map.Entry<K, Long>>(counters.size());
+        for (final Map.Entry<K, AtomicLong> entry : counters.entrySet()) {
+            snapshot.add(new AbstractMap.SimpleImmutableEntry<K, Long>(entry.getKey(), entry.getValue().get()));
+        }
+        Collections.sort(snapshot, new Comparator<Map.Entry<K, Long>>() {
+            public int compare(final Map.Entry<K, Long> e1, final Map.Entry<K, Long> e2) {
+                return e2.getValue().compareTo(e1.getValue());
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * Load counters from snapshot file (if one exists).
+     */
+    @SuppressWarnings("unchecked")
+    public void init() {
+        if (snapshotFile == null && snapshotDirectory != null) {
+            snapshotFile = getNodeSnapshotFile();
+        }
+        if (snapshotFile == null || !new File(snapshotFile).exists()) {
+            return;
+        }
+        final Logger log = ShopCodeContext.getLog(this);
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+            load(categories, (Map<Pair<Long, Long>, Long>) in.readObject());
+            load(searches, (Map<SearchKey, Long>) in.readObject());
+            log.info("Loaded {} categories and {} searches from {}", new Object[] { categories.size(), searches.size(), snapshotFile });
+        } catch (Exception exp) {
+            log.warn("Unable to load traffic keys from " + snapshotFile + ", cause: " + exp.getMessage(), exp);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Save counters to snapshot file (if one is configured).
+     */
+    public void shutdown() {
+        if (snapshotFile == null) {
+            return;
+        }
+        ObjectOutputStream out = null;
+        try {
+            out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotFile)));
+            out.writeObject(save(categories));
+            out.writeObject(save(searches));
+        } catch (Exception exp) {
+            ShopCodeContext.getLog(this).warn("Unable to save traffic keys to " + snapshotFile + ", cause: " + exp.getMessage(), exp);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private String getNodeSnapshotFile() {
+        final String nodeId = nodeService != null ? nodeService.getCurrentNodeId() : null;
+        final String suffix = nodeId == null ? "" : "-" + nodeId.replaceAll("[^a-zA-Z0-9_\\-]", "_");
+        final File dir = new File(snapshotDirectory);
+        if (!dir.exists() && !dir.mkdirs()) {
+            ShopCodeContext.getLog(this).warn("Unable to create traffic keys snapshot directory {}", snapshotDirectory);
+        }
+        return new File(dir, "yc-traffic-keys" + suffix + ".ser").getAbsolutePath();
+    }
+
+    private <K> void load(final ConcurrentMap<K, AtomicLong> counters, final Map<K, Long> saved) {
+        for (final Map.Entry<K, Long> entry : saved.entrySet()) {
+            if (counters.size() >= maxKeys) {
+                break;
+            }
+            counters.put(entry.getKey(), new AtomicLong(entry.getValue()));
+        }
+    }
+
+    private <K> HashMap<K, Long> save(final ConcurrentMap<K, AtomicLong> counters) {
+        final HashMap<K, Long> saved = new HashMap<K, Long>();
+        for (final Map.Entry<K, AtomicLong> entry : counters.entrySet()) {
+            saved.put(entry.getKey(), entry.getValue().get());
+        }
+        return saved;
+    }
+
+    private void closeQuietly(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ioe) {
+                // nothing to do
+            }
+        }
+    }
+
+    /**
+     * @param snapshotFile file to persist counters between restarts (optional, takes precedence
+     *                     over snapshot directory)
+     */
+    public void setSnapshotFile(final String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * @param snapshotDirectory directory for node specific snapshot file (optional)
+     */
+    public void setSnapshotDirectory(final String snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * @param nodeService node service to resolve current node id for snapshot file name
+     */
+    public void setNodeService(final NodeService nodeService) {
+        this.nodeService = nodeService;
+    }
+
+    /**
+     * @return snapshot file used by this recorder (resolved on {@link #init()})
+     */
+    String getSnapshotFile() {
+        return snapshotFile;
+    }
+}
@@ -18,6 +18,8 @@ package org.yes.cart.web.support.shoppingcart.impl;
 
 import com.sun.mail.util.BASE64DecoderStream;
 import com.sun.mail.util.BASE64EncoderStream;
+import org.yes.cart.shoppingcart.ShoppingCart;
+import org.yes.cart.shoppingcart.ShoppingCartStateSerializer;
 import org.yes.cart.util.ShopCodeContext;
 import org.yes.cart.web.support.shoppingcart.CartDetuplizationException;
 import org.yes.cart.web.support.shoppingcart.CartTuplizationException;
@@ -50,6 +52,8 @@ public abstract class AbstractCryptedTuplizerImpl implements CartTuplizer {
 
     private SecretKey secretKey;
 
+    private ShoppingCartStateSerializer shoppingCartStateSerializer;
+
     /**
      * Default Constructor.
      *
@@ -81,6 +85,17 @@ public abstract class AbstractCryptedTuplizerImpl implements CartTuplizer {
 
     }
 
+    /**
+     * Serializer to use for carts instead of Java serialization (which is still used if
+     * serializer is not set). Serializer must be able to restore Java serialized carts
+     * so that tokens issued before it was configured are still valid.
+     *
+     * @param shoppingCartStateSerializer cart serializer
+     */
+    public void setShoppingCartStateSerializer(final ShoppingCartStateSerializer shoppingCartStateSerializer) {
+        this.shoppingCartStateSerializer = shoppingCartStateSerializer;
+    }
+
     /**
      * Converts cart object into a String tuple.
      *
@@ -98,10 +113,15 @@ public abstract class AbstractCryptedTuplizerImpl implements CartTuplizer {
             CipherOutputStream cipherOutputStream = new CipherOutputStream(base64EncoderStream, desCipher);
             ObjectOutputStream objectOutputStream = null;
             try {
-                objectOutputStream = new ObjectOutputStream(cipherOutputStream);
-                objectOutputStream.writeObject(serializable);
-                objectOutputStream.flush();
-                objectOutputStream.close();
+                if (shoppingCartStateSerializer != null && serializable instanceof ShoppingCart) {
+                    cipherOutputStream.write(shoppingCartStateSerializer.saveState((ShoppingCart) serializable));
+                    cipherOutputStream.flush();
+                } else {
+                    objectOutputStream = new ObjectOutputStream(cipherOutputStream);
+                    objectOutputStream.writeObject(serializable);
+                    objectOutputStream.flush();
+                    objectOutputStream.close();
+                }
             } catch (Throwable ioe) {
                 ShopCodeContext.getLog(this).error(
                         MessageFormat.format("Unable to serialize object {0}", serializable),
@@ -146,6 +166,15 @@ public abstract class AbstractCryptedTuplizerImpl implements CartTuplizer {
         final CipherInputStream cipherInputStream = new CipherInputStream(base64DecoderStream, desUnCipher);
         ObjectInputStream objectInputStream = null;
         try {
+            if (shoppingCartStateSerializer != null) {
+                final ByteArrayOutputStream state = new ByteArrayOutputStream(tuple.length());
+                final byte[] buffer = new byte[1024];
+                int read;
+                while ((read = cipherInputStream.read(buffer)) != -1) {
+                    state.write(buffer, 0, read);
+                }
+                return (T) shoppingCartStateSerializer.restoreState(state.toByteArray());
+            }
             objectInputStream = new ObjectInputStream(cipherInputStream);
             return (T) objectInputStream.readObject();
 
@@ -18,6 +18,8 @@ package org.yes.cart.web.support.shoppingcart.tokendriven;
 
 import org.yes.cart.shoppingcart.ShoppingCart;
 
+import java.util.Collection;
+
 /**
  * User: denispavlov
  * Date: 22/08/2014
@@ -37,6 +39,15 @@ public interface CartUpdateProcessor {
      */
     void updateShoppingCart(ShoppingCart shoppingCart);
 
+    /**
+     * Same as {@link #updateShoppingCart(ShoppingCart)} for several carts, but all carts are
+     * persisted in single transaction and existing states are loaded in single query, so that
+     * state updates are flushed in JDBC batches.
+     *
+     * @param shoppingCarts carts to merge (if required) and persist (one cart per GUID)
+     */
+    void updateShoppingCarts(Collection<ShoppingCart> shoppingCarts);
+
     /**
      * Restore shopping cart from bytes as is.
      *
@@ -25,12 +25,14 @@ import org.yes.cart.shoppingcart.*;
 import org.yes.cart.util.ShopCodeContext;
 import org.yes.cart.web.support.shoppingcart.tokendriven.CartUpdateProcessor;
 
-import java.io.*;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User: denispavlov
@@ -42,13 +44,16 @@ public class CartUpdateProcessorImpl implements CartUpdateProcessor {
     private final ShoppingCartStateService shoppingCartStateService;
     private final AddressService addressService;
     private final ShoppingCartCommandFactory shoppingCartCommandFactory;
+    private final ShoppingCartStateSerializer shoppingCartStateSerializer;
 
     public CartUpdateProcessorImpl(final ShoppingCartStateService shoppingCartStateService,
                                    final AddressService addressService,
-                                   final ShoppingCartCommandFactory shoppingCartCommandFactory) {
+                                   final ShoppingCartCommandFactory shoppingCartCommandFactory,
+                                   final ShoppingCartStateSerializer shoppingCartStateSerializer) {
         this.shoppingCartStateService = shoppingCartStateService;
         this.addressService = addressService;
         this.shoppingCartCommandFactory = shoppingCartCommandFactory;
+        this.shoppingCartStateSerializer = shoppingCartStateSerializer;
     }
 
     /** {@inheritDoc} */
@@ -56,7 +61,43 @@ public class CartUpdateProcessorImpl implements CartUpdateProcessor {
     public void updateShoppingCart(final ShoppingCart shoppingCart) {
 
         // 1. Need to find this cart by guid in db
-        ShoppingCartState dbState = shoppingCartStateService.findByGuid(shoppingCart.getGuid());
+        updateShoppingCart(shoppingCart, shoppingCartStateService.findByGuid(shoppingCart.getGuid()), new HashSet<String>());
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void updateShoppingCarts(final Collection<ShoppingCart> shoppingCarts) {
+
+        if (shoppingCarts.isEmpty()) {
+            return;
+        }
+
+        // 1. Find all states in one go, so that updates are not interleaved with selects (which would force flush per cart)
+        final List<String> guids = new ArrayList<String>(shoppingCarts.size());
+        for (final ShoppingCart shoppingCart : shoppingCarts) {
+            guids.add(shoppingCart.getGuid());
+        }
+        final Map<String, ShoppingCartState> dbStates = new HashMap<String, ShoppingCartState>(guids.size() * 2);
+        for (final ShoppingCartState dbState : shoppingCartStateService.findByGuids(guids)) {
+            dbStates.put(dbState.getGuid(), dbState);
+        }
+
+        final Set<String> mergedGuids = new HashSet<String>();
+        for (final ShoppingCart shoppingCart : shoppingCarts) {
+            // cart merged into other cart of this batch upon login, its state is already removed
+            if (!mergedGuids.contains(shoppingCart.getGuid())) {
+                updateShoppingCart(shoppingCart, dbStates.get(shoppingCart.getGuid()), mergedGuids);
+            }
+        }
+
+    }
+
+    private void updateShoppingCart(final ShoppingCart shoppingCart,
+                                    final ShoppingCartState existing,
+                                    final Set<String> mergedGuids) {
+
+        ShoppingCartState dbState = existing;
         if (dbState == null) {
             dbState = shoppingCartStateService.getGenericDao().getEntityFactory().getByIface(ShoppingCartState.class);
             dbState.setGuid(shoppingCart.getGuid());
@@ -89,6 +130,7 @@ public class CartUpdateProcessorImpl implements CartUpdateProcessor {
 
                         // 4.4. Remove merged cart state
                         shoppingCartStateService.delete(oldCartState);
+                        mergedGuids.add(oldCartState.getGuid());
                     }
                 }
             }
@@ -207,28 +249,14 @@ public class CartUpdateProcessorImpl implements CartUpdateProcessor {
     @Override
     public ShoppingCart restoreState(final byte[] bytes) {
 
-        final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-        ObjectInputStream objectInputStream = null;
         try {
 
-            objectInputStream = new ObjectInputStream(byteArrayInputStream);
-            final ShoppingCart shoppingCart = (ShoppingCart) objectInputStream.readObject();
-            return shoppingCart;
+            return shoppingCartStateSerializer.restoreState(bytes);
 
         } catch (Exception exception) {
             final String errMsg = "Unable to convert bytes assembled from tuple into object";
             ShopCodeContext.getLog(this).error(errMsg, exception);
             return null;
-        } finally {
-            try {
-                if (objectInputStream != null) {
-                    objectInputStream.close();
-                }
-                byteArrayInputStream.close();
-            } catch (IOException ioe) { // leave this one silent as we have the object.
-                ShopCodeContext.getLog(this).error("Unable to close object stream", ioe);
-            }
-
         }
     }
 
@@ -236,32 +264,15 @@ public class CartUpdateProcessorImpl implements CartUpdateProcessor {
     @Override
     public byte[] saveState(final ShoppingCart shoppingCart) {
 
-        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-
-        ObjectOutputStream objectOutputStream = null;
         try {
 
-            objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-            objectOutputStream.writeObject(shoppingCart);
-            objectOutputStream.flush();
-            objectOutputStream.close();
-
-            return byteArrayOutputStream.toByteArray();
+            return shoppingCartStateSerializer.saveState(shoppingCart);
 
         } catch (Throwable ioe) {
             ShopCodeContext.getLog(this).error(
                     MessageFormat.format("Unable to serialize object {0}", shoppingCart),
                     ioe
             );
-        } finally {
-            try {
-                if (objectOutputStream != null) {
-                    objectOutputStream.close();
-                }
-                byteArrayOutputStream.close();
-            } catch (IOException e) {
-                ShopCodeContext.getLog(this).error("Can not close stream", e);
-            }
         }
         return null;
 
@@ -17,6 +17,7 @@
 package org.yes.cart.web.support.shoppingcart.tokendriven.impl;
 
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.core.task.TaskExecutor;
@@ -28,7 +29,18 @@ import org.yes.cart.util.ShopCodeContext;
 import org.yes.cart.web.support.shoppingcart.tokendriven.CartRepository;
 import org.yes.cart.web.support.shoppingcart.tokendriven.CartUpdateProcessor;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * Cart repository that keeps carts in cache and persists modified carts to DB.
+ * <p/>
+ * In write-behind mode modified carts are buffered per GUID (so that many modifications of the
+ * same cart within write-behind delay result in single write) and flushed in batches, each batch
+ * in single transaction. Remaining buffered carts are flushed on {@link #shutdown()}.
+ *
  * User: denispavlov
  * Date: 21/08/2014
  * Time: 20:11
@@ -42,6 +54,23 @@ public class ResilientCartRepositoryImpl implements CartRepository {
     private final CartUpdateProcessor cartUpdateProcessor;
     private final TaskExecutor taskExecutor;
 
+    private final ScheduledExecutorService writeBehindExecutor;
+    private final long writeBehindDelayMs;
+    private final int writeBehindBatchSize;
+
+    /** Latest modified cart per GUID awaiting flush. */
+    private final ConcurrentMap<String, ShoppingCart> pending = new ConcurrentHashMap<String, ShoppingCart>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong storedCount = new AtomicLong(0L);
+    private final AtomicLong coalescedCount = new AtomicLong(0L);
+    private final AtomicLong flushedCount = new AtomicLong(0L);
+    private final AtomicLong flushBatchCount = new AtomicLong(0L);
+    private final AtomicLong failedFlushCount = new AtomicLong(0L);
+    private final AtomicLong lastFlushLatencyMs = new AtomicLong(0L);
+    private final AtomicLong maxFlushLatencyMs = new AtomicLong(0L);
+
     public ResilientCartRepositoryImpl(final ShoppingCartStateService shoppingCartStateService,
                                        final CartUpdateProcessor cartUpdateProcessor,
                                        final int sessionExpiryInSeconds,
@@ -52,6 +81,41 @@ public class ResilientCartRepositoryImpl implements CartRepository {
         this.cartUpdateProcessor = cartUpdateProcessor;
         this.sessionExpiryInSeconds = sessionExpiryInSeconds;
         this.taskExecutor = taskExecutor;
+        this.writeBehindExecutor = null;
+        this.writeBehindDelayMs = 0L;
+        this.writeBehindBatchSize = 0;
+        CART_CACHE = cacheManager.getCache("web.shoppingCart");
+
+    }
+
+    /**
+     * Construct write-behind repository.
+     *
+     * @param shoppingCartStateService state service
+     * @param cartUpdateProcessor      cart update processor
+     * @param sessionExpiryInSeconds   session expiry
+     * @param cacheManager             cache manager
+     * @param writeBehindDelayMs       delay before modified carts are written to DB, all modifications
+     *                                 of the same cart within this period are coalesced
+     * @param writeBehindBatchSize     max number of carts to write in single transaction
+     */
+    public ResilientCartRepositoryImpl(final ShoppingCartStateService shoppingCartStateService,
+                                       final CartUpdateProcessor cartUpdateProcessor,
+                                       final int sessionExpiryInSeconds,
+                                       final CacheManager cacheManager,
+                                       final long writeBehindDelayMs,
+                                       final int writeBehindBatchSize) {
+
+        this.shoppingCartStateService = shoppingCartStateService;
+        this.cartUpdateProcessor = cartUpdateProcessor;
+        this.sessionExpiryInSeconds = sessionExpiryInSeconds;
+        this.taskExecutor = null;
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        // on shutdown buffered carts are flushed right away, no need to wait for scheduled flush
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.writeBehindExecutor = executor;
+        this.writeBehindDelayMs = writeBehindDelayMs;
+        this.writeBehindBatchSize = writeBehindBatchSize;
         CART_CACHE = cacheManager.getCache("web.shoppingCart");
 
     }
@@ -77,6 +141,13 @@ public class ResilientCartRepositoryImpl implements CartRepository {
             return cachedCart;
         }
 
+        final ShoppingCart pendingCart = pending.get(token);
+        if (pendingCart != null) {
+            // evicted from cache before write-behind flush, DB state is stale
+            CART_CACHE.put(token, pendingCart);
+            return pendingCart;
+        }
+
         final ShoppingCartState state = shoppingCartStateService.findByGuid(token);
         if (state != null) {
 
@@ -137,7 +208,13 @@ public class ResilientCartRepositoryImpl implements CartRepository {
 
     void storeAsynchronously(final ShoppingCart shoppingCart) {
 
-        if (taskExecutor == null) {
+        storedCount.incrementAndGet();
+        if (writeBehindExecutor != null) {
+            if (pending.put(shoppingCart.getGuid(), shoppingCart) != null) {
+                coalescedCount.incrementAndGet();
+            }
+            scheduleFlush();
+        } else if (taskExecutor == null) {
             createRunnable(shoppingCart, null, null).run();
         } else {
             taskExecutor.execute(createRunnable(shoppingCart,
@@ -173,11 +250,184 @@ public class ResilientCartRepositoryImpl implements CartRepository {
         };
     }
 
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                writeBehindExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, writeBehindDelayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ree) {
+                // shutting down - flush in caller thread so that we do not lose the cart
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Write all buffered carts to DB. Carts are grouped by shop and written in batches of
+     * write-behind batch size, each batch in single transaction.
+     */
+    public void flush() {
+
+        flushScheduled.set(false);
+
+        final Map<String, List<ShoppingCart>> byShop = new HashMap<String, List<ShoppingCart>>();
+        final Iterator<Map.Entry<String, ShoppingCart>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, ShoppingCart> item = it.next();
+            if (pending.remove(item.getKey(), item.getValue())) {
+                final String shopCode = item.getValue().getShoppingContext().getShopCode();
+                List<ShoppingCart> carts = byShop.get(shopCode);
+                if (carts == null) {
+                    carts = new ArrayList<ShoppingCart>();
+                    byShop.put(shopCode, carts);
+                }
+                carts.add(item.getValue());
+            }
+        }
+
+        for (final List<ShoppingCart> carts : byShop.values()) {
+            for (int start = 0; start < carts.size(); start += writeBehindBatchSize) {
+                flushBatch(carts.subList(start, Math.min(start + writeBehindBatchSize, carts.size())));
+            }
+        }
+
+    }
+
+    private void flushBatch(final List<ShoppingCart> batch) {
+
+        final ShoppingCart first = batch.get(0);
+        final String sccCode = first.getShoppingContext().getShopCode();
+        if (sccCode != null) {
+            ShopCodeContext.setShopCode(sccCode);
+            ShopCodeContext.setShopId(first.getShoppingContext().getShopId());
+        }
+
+        try {
+
+            final long start = System.currentTimeMillis();
+            try {
+                cartUpdateProcessor.updateShoppingCarts(batch);
+                flushBatchCount.incrementAndGet();
+                flushedCount.addAndGet(batch.size());
+            } catch (Exception exp) {
+                // whole batch is rolled back, so retry one by one so that one bad cart does not lose the rest
+                failedFlushCount.incrementAndGet();
+                final Logger log = ShopCodeContext.getLog(this);
+                log.error("Unable to write " + batch.size() + " carts in batch, writing one by one", exp);
+                for (final ShoppingCart shoppingCart : batch) {
+                    try {
+                        cartUpdateProcessor.updateShoppingCart(shoppingCart);
+                        flushedCount.incrementAndGet();
+                    } catch (Exception cartExp) {
+                        log.error("Unable to write cart " + shoppingCart.getGuid(), cartExp);
+                    }
+                }
+            }
+            final long latency = System.currentTimeMillis() - start;
+            lastFlushLatencyMs.set(latency);
+            long max = maxFlushLatencyMs.get();
+            while (latency > max && !maxFlushLatencyMs.compareAndSet(max, latency)) {
+                max = maxFlushLatencyMs.get();
+            }
+
+            // Update process potentially can merge the cart with other stored states (e.g. when user logs in)
+            // So we re-save it in cache
+            for (final ShoppingCart shoppingCart : batch) {
+                CART_CACHE.put(shoppingCart.getGuid(), shoppingCart);
+            }
+
+        } finally {
+            if (sccCode != null) {
+                ShopCodeContext.clear();
+            }
+        }
+
+    }
+
+    /**
+     * Stop write-behind scheduler and flush all buffered carts.
+     */
+    public void shutdown() {
+
+        if (writeBehindExecutor != null) {
+            writeBehindExecutor.shutdown();
+            try {
+                // let running flush finish, so that we do not write same cart concurrently
+                writeBehindExecutor.awaitTermination(30L, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            flush();
+        }
+
+    }
+
+    /**
+     * @return number of carts awaiting write-behind flush
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return number of store requests for modified carts
+     */
+    public long getStoredCount() {
+        return storedCount.get();
+    }
+
+    /**
+     * @return number of store requests that were merged with already buffered cart
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return number of carts written by write-behind flush
+     */
+    public long getFlushedCount() {
+        return flushedCount.get();
+    }
+
+    /**
+     * @return number of batches written in single transaction
+     */
+    public long getFlushBatchCount() {
+        return flushBatchCount.get();
+    }
+
+    /**
+     * @return number of batches that failed and had to be written one by one
+     */
+    public long getFailedFlushCount() {
+        return failedFlushCount.get();
+    }
+
+    /**
+     * @return time taken to write last batch
+     */
+    public long getLastFlushLatencyMs() {
+        return lastFlushLatencyMs.get();
+    }
+
+    /**
+     * @return max observed time taken to write single batch
+     */
+    public long getMaxFlushLatencyMs() {
+        return maxFlushLatencyMs.get();
+    }
+
     /** {@inheritDoc} */
     @Override
     public void evictShoppingCart(final ShoppingCart shoppingCart) {
 
         CART_CACHE.evict(shoppingCart.getGuid());
+        pending.remove(shoppingCart.getGuid());
         final ShoppingCartState state = shoppingCartStateService.findByGuid(shoppingCart.getGuid());
         if (state != null) {
             shoppingCartStateService.delete(state);
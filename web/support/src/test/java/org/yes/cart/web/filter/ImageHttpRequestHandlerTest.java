@@ -23,6 +23,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.yes.cart.service.domain.SystemService;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 /**
  * User: Igor Azarny iazarny@yahoo.com
  * Date: 2011-May-17
@@ -51,4 +55,27 @@ public class ImageHttpRequestHandlerTest {
         assertEquals("application/x-shockwave-flash", imageFilter.getContentType("a.swf"));
         assertEquals("application/octet-stream", imageFilter.getContentType("a.x3ext"));  */
     }
+
+    @Test
+    public void testGetRange() {
+
+        // whole content
+        assertNull(ImageFilter.getRange(null, 1000L));
+        assertNull(ImageFilter.getRange("items=0-10", 1000L));
+        assertNull(ImageFilter.getRange("bytes=0-10,20-30", 1000L));
+        assertNull(ImageFilter.getRange("bytes=abc", 1000L));
+        assertNull(ImageFilter.getRange("bytes=10-5", 1000L));
+
+        assertArrayEquals(new long[] { 0L, 499L }, ImageFilter.getRange("bytes=0-499", 1000L));
+        assertArrayEquals(new long[] { 500L, 999L }, ImageFilter.getRange("bytes=500-", 1000L));
+        assertArrayEquals(new long[] { 900L, 999L }, ImageFilter.getRange("bytes=-100", 1000L));
+        assertArrayEquals(new long[] { 0L, 999L }, ImageFilter.getRange("bytes=-2000", 1000L));
+        assertArrayEquals(new long[] { 990L, 999L }, ImageFilter.getRange("bytes=990-2000", 1000L));
+
+        // unsatisfiable
+        assertEquals(0, ImageFilter.getRange("bytes=1000-", 1000L).length);
+        assertEquals(0, ImageFilter.getRange("bytes=-0", 1000L).length);
+        assertEquals(0, ImageFilter.getRange("bytes=0-", 0L).length);
+
+    }
 }
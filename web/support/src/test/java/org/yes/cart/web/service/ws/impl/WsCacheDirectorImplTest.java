@@ -148,10 +148,10 @@ public class WsCacheDirectorImplTest {
     @Test
     public void testOnCacheableChange() {
         cacheDirector.getCacheManager().getCache("attributeService-availableAttributesByProductTypeId").put("hi", "there");
-        cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").put("hi", "there");
+        cacheDirector.getCacheManager().getCache("categoryService-childCategoriesRecursive").put("hi", "there");
         cacheDirector.onCacheableChange(CacheDirector.EntityOperation.UPDATE, "AttributeEntity", 123L);
         assertNull(cacheDirector.getCacheManager().getCache("attributeService-availableAttributesByProductTypeId").get("hi"));
-        assertNotNull(cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").get("hi"));
+        assertNotNull(cacheDirector.getCacheManager().getCache("categoryService-childCategoriesRecursive").get("hi"));
     }
 
 
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2009 Igor Azarnyi, Denys Pavlov
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.web.support.service.impl;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.yes.cart.domain.misc.Pair;
+import org.yes.cart.web.service.ws.node.NodeService;
+import org.yes.cart.web.support.service.TrafficKeyRecorder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * User: denispavlov
+ * Date: 14-06-15
+ * Time: 11:40 AM
+ */
+public class TrafficKeyRecorderImplTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testTopKeysMostFrequentFirst() throws Exception {
+
+        final TrafficKeyRecorderImpl recorder = new TrafficKeyRecorderImpl(10);
+
+        recorder.recordCategory(1L, 10L);
+        recorder.recordCategory(2L, 10L);
+        recorder.recordCategory(2L, 10L);
+        recorder.recordCategory(3L, 10L);
+        recorder.recordCategory(3L, 10L);
+        recorder.recordCategory(3L, 10L);
+
+        final List<Pair<Long, Long>> top = recorder.getTopCategories(2);
+        assertEquals(2, top.size());
+        assertEquals(new Pair<Long, Long>(3L, 10L), top.get(0));
+        assertEquals(new Pair<Long, Long>(2L, 10L), top.get(1));
+
+        recorder.recordSearch(new TermQuery(new Term("name", "bender")), 0, 10, null, false);
+        recorder.recordSearch(new TermQuery(new Term("name", "bender")), 0, 10, null, false);
+        recorder.recordSearch(new TermQuery(new Term("name", "bender")), 10, 10, null, false);
+
+        final List<TrafficKeyRecorder.SearchKey> searches = recorder.getTopSearches(10);
+        assertEquals(2, searches.size());
+        assertEquals(0, searches.get(0).getFirstResult());
+        assertEquals(10, searches.get(1).getFirstResult());
+
+    }
+
+    @Test
+    public void testNumberOfKeysIsBounded() throws Exception {
+
+        final TrafficKeyRecorderImpl recorder = new TrafficKeyRecorderImpl(4);
+
+        for (int i = 0; i < 20; i++) {
+            recorder.recordCategory(100L, 10L); // hot key survives pruning
+        }
+        for (long cat = 1L; cat <= 20L; cat++) {
+            recorder.recordCategory(cat, 10L);
+        }
+
+        final List<Pair<Long, Long>> top = recorder.getTopCategories(100);
+        assertTrue(top.size() <= 4);
+        assertEquals(new Pair<Long, Long>(100L, 10L), top.get(0));
+
+    }
+
+    @Test
+    public void testSnapshotSurvivesRestart() throws Exception {
+
+        final File snapshot = File.createTempFile("traffic", ".ser");
+        try {
+
+            final TrafficKeyRecorderImpl before = new TrafficKeyRecorderImpl(10);
+            before.setSnapshotFile(snapshot.getAbsolutePath());
+            before.recordCategory(1L, 10L);
+            before.recordSearch(new TermQuery(new Term("name", "bender")), 0, 10, "name", true);
+            before.shutdown();
+
+            final TrafficKeyRecorderImpl after = new TrafficKeyRecorderImpl(10);
+            after.setSnapshotFile(snapshot.getAbsolutePath());
+            after.init();
+
+            assertEquals(new Pair<Long, Long>(1L, 10L), after.getTopCategories(10).get(0));
+            assertEquals(new TrafficKeyRecorder.SearchKey(new TermQuery(new Term("name", "bender")), 0, 10, "name", true),
+                    after.getTopSearches(10).get(0));
+
+        } finally {
+            snapshot.delete();
+        }
+
+    }
+
+    @Test
+    public void testSnapshotFileDerivedFromNodeId() throws Exception {
+
+        final NodeService nodeService = context.mock(NodeService.class, "nodeService");
+
+        context.checking(new Expectations() {{
+            allowing(nodeService).getCurrentNodeId(); will(returnValue("SF/node 1"));
+        }});
+
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "yc-traffic-test-" + System.nanoTime());
+        final File expected = new File(dir, "yc-traffic-keys-SF_node_1.ser");
+        try {
+
+            final TrafficKeyRecorderImpl before = new TrafficKeyRecorderImpl(10);
+            before.setSnapshotDirectory(dir.getAbsolutePath());
+            before.setNodeService(nodeService);
+            before.init();
+
+            assertEquals(expected.getAbsolutePath(), before.getSnapshotFile());
+
+            before.recordCategory(1L, 10L);
+            before.shutdown();
+
+            assertTrue(expected.exists());
+
+            final TrafficKeyRecorderImpl after = new TrafficKeyRecorderImpl(10);
+            after.setSnapshotDirectory(dir.getAbsolutePath());
+            after.setNodeService(nodeService);
+            after.init();
+
+            assertEquals(new Pair<Long, Long>(1L, 10L), after.getTopCategories(10).get(0));
+
+        } finally {
+            expected.delete();
+            dir.delete();
+        }
+
+        context.assertIsSatisfied();
+
+    }
+
+}
@@ -31,6 +31,7 @@ import org.yes.cart.shoppingcart.impl.ShoppingCartImpl;
 import org.yes.cart.web.support.shoppingcart.tokendriven.CartUpdateProcessor;
 
 import java.io.*;
+import java.util.Collection;
 import java.util.Date;
 
 import static org.junit.Assert.*;
@@ -321,4 +322,82 @@ public class ResilientCartRepositoryImplTest {
 
     }
 
+    @Test
+    public void testStoreShoppingCartWriteBehindCoalesced() throws Exception {
+
+        final ShoppingCartStateService shoppingCartStateService = context.mock(ShoppingCartStateService.class, "shoppingCartStateService");
+        final CartUpdateProcessor cartUpdateProcessor = context.mock(CartUpdateProcessor.class, "cartUpdateProcessor");
+        final CacheManager cacheManager = context.mock(CacheManager.class, "cacheManager");
+        final Cache cartCache = context.mock(Cache.class, "cartCache");
+
+        final MutableShoppingCart cart1 = new ShoppingCartImpl();
+        cart1.getShoppingContext().setShopCode("SHOP10");
+        final MutableShoppingCart cart2 = new ShoppingCartImpl();
+        cart2.getShoppingContext().setShopCode("SHOP10");
+
+        context.checking(new Expectations() {{
+            one(cacheManager).getCache("web.shoppingCart"); will(returnValue(cartCache));
+            exactly(3).of(cartCache).put(with(equal(cart1.getGuid())), with(any(ShoppingCart.class)));
+            exactly(2).of(cartCache).put(with(equal(cart2.getGuid())), with(any(ShoppingCart.class)));
+            one(cartUpdateProcessor).updateShoppingCarts(with(any(Collection.class)));
+        }});
+
+        final ResilientCartRepositoryImpl repo = new ResilientCartRepositoryImpl(shoppingCartStateService, cartUpdateProcessor, 60, cacheManager, 60000L, 10);
+
+        cart1.markDirty();
+        cart2.markDirty();
+        repo.storeShoppingCart(cart1);
+        repo.storeShoppingCart(cart1);
+        repo.storeShoppingCart(cart2);
+
+        assertEquals(2, repo.getPendingCount());
+        assertEquals(3, repo.getStoredCount());
+        assertEquals(1, repo.getCoalescedCount());
+
+        repo.shutdown();
+
+        assertEquals(0, repo.getPendingCount());
+        assertEquals(2, repo.getFlushedCount());
+        assertEquals(1, repo.getFlushBatchCount());
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testGetShoppingCartWriteBehindPending() throws Exception {
+
+        final ShoppingCartStateService shoppingCartStateService = context.mock(ShoppingCartStateService.class, "shoppingCartStateService");
+        final CartUpdateProcessor cartUpdateProcessor = context.mock(CartUpdateProcessor.class, "cartUpdateProcessor");
+        final CacheManager cacheManager = context.mock(CacheManager.class, "cacheManager");
+        final Cache cartCache = context.mock(Cache.class, "cartCache");
+
+        final MutableShoppingCart cart = new ShoppingCartImpl();
+
+        context.checking(new Expectations() {{
+            one(cacheManager).getCache("web.shoppingCart"); will(returnValue(cartCache));
+            exactly(2).of(cartCache).put(with(equal(cart.getGuid())), with(any(ShoppingCart.class)));
+            one(cartCache).get(cart.getGuid()); will(returnValue(null));
+            one(cartCache).evict(cart.getGuid());
+            one(shoppingCartStateService).findByGuid(cart.getGuid()); will(returnValue(null));
+        }});
+
+        final ResilientCartRepositoryImpl repo = new ResilientCartRepositoryImpl(shoppingCartStateService, cartUpdateProcessor, 60, cacheManager, 60000L, 10);
+
+        cart.markDirty();
+        repo.storeShoppingCart(cart);
+
+        // cache miss must not go to DB while cart is awaiting flush
+        assertSame(cart, repo.getShoppingCart(cart.getGuid()));
+
+        // evicted carts are not written
+        repo.evictShoppingCart(cart);
+        assertEquals(0, repo.getPendingCount());
+
+        repo.shutdown();
+
+        context.assertIsSatisfied();
+
+    }
+
 }